@@ -0,0 +1,12 @@
+# 数据迁移：题目内存限制改为按实际内存判断
+# 沙箱统计的内存改为进程峰值常驻内存（KB）后，旧的默认内存限制 1000 KB 会让所有提交都内存超限，
+# 把仍为旧默认值的题目改为新的默认值 262144 KB（256 MB）。可重复执行，已部署的数据库需手动执行一次：
+# mysql -u root -p < mysql-init/update_memory_limit.sql
+
+-- 切换库
+use oj;
+
+update question
+set judgeConfig = json_set(judgeConfig, '$.memoryLimit', 262144)
+where json_valid(judgeConfig)
+  and json_extract(judgeConfig, '$.memoryLimit') = 1000;
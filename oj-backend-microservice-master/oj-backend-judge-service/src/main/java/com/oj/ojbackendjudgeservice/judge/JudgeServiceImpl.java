@@ -1,16 +1,19 @@
 package com.oj.ojbackendjudgeservice.judge;
 
+import cn.hutool.crypto.digest.DigestUtil;
 import cn.hutool.json.JSONUtil;
 import com.oj.ojbackendcommon.common.ErrorCode;
 import com.oj.ojbackendcommon.exception.BusinessException;
 import com.oj.ojbackendjudgeservice.judge.codesandbox.CodeSandbox;
 import com.oj.ojbackendjudgeservice.judge.codesandbox.CodeSandboxFactory;
 import com.oj.ojbackendjudgeservice.judge.codesandbox.CodeSandboxProxy;
+import com.oj.ojbackendjudgeservice.judge.codesandbox.SandboxCluster;
 import com.oj.ojbackendjudgeservice.judge.strategy.JudgeContext;
 import com.oj.ojbackendmodel.model.codesandbox.ExecuteCodeRequest;
 import com.oj.ojbackendmodel.model.codesandbox.ExecuteCodeResponse;
 import com.oj.ojbackendmodel.model.codesandbox.JudgeInfo;
 import com.oj.ojbackendmodel.model.dto.question.JudgeCase;
+import com.oj.ojbackendmodel.model.dto.question.JudgeConfig;
 import com.oj.ojbackendmodel.model.entity.Question;
 import com.oj.ojbackendmodel.model.entity.QuestionSubmit;
 import com.oj.ojbackendmodel.model.enums.QuestionSubmitStatusEnum;
@@ -32,9 +35,36 @@ public class JudgeServiceImpl implements JudgeService {
     @Resource
     private JudgeManager judgeManager;
 
+    @Resource
+    private SandboxCluster sandboxCluster;
+
     @Value("${codesandbox.type:example}")
     private String type;
 
+    @Value("${codesandbox.url:http://192.168.223.129:8090}")
+    private String remoteUrl;
+
+    @Value("${codesandbox.async:false}")
+    private boolean remoteAsync;
+
+    /**
+     * 同步调用沙箱的协议：json 或 frame（二进制流式，gzip 压缩，用例结果边执行边返回）
+     */
+    @Value("${codesandbox.protocol:json}")
+    private String remoteProtocol;
+
+    /**
+     * 是否让沙箱快速失败（第一个用例失败后不再执行剩余用例）
+     */
+    @Value("${codesandbox.fail-fast:false}")
+    private boolean failFast;
+
+    /**
+     * 是否由沙箱比较输出：只发送预期输出的摘要，沙箱只返回每个用例的判题结果和输出摘要
+     */
+    @Value("${codesandbox.compare-in-sandbox:false}")
+    private boolean compareInSandbox;
+
 
     @Override
     public QuestionSubmit doJudge(long questionSubmitId) {
@@ -61,7 +91,9 @@ public class JudgeServiceImpl implements JudgeService {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "题目状态更新错误");
         }
         // 4）调用沙箱，获取到执行结果
-        CodeSandbox codeSandbox = CodeSandboxFactory.newInstance(type);
+        // cluster：从 Nacos 发现的多个沙箱节点中选择负载较低的节点
+        CodeSandbox codeSandbox = "cluster".equals(type) ? sandboxCluster
+                : CodeSandboxFactory.newInstance(type, remoteUrl, remoteAsync, remoteProtocol);
         codeSandbox = new CodeSandboxProxy(codeSandbox);
         String language = questionSubmit.getLanguage();
         String code = questionSubmit.getCode();
@@ -69,10 +101,21 @@ public class JudgeServiceImpl implements JudgeService {
         String judgeCaseStr = question.getJudgeCase();
         List<JudgeCase> judgeCaseList = JSONUtil.toList(judgeCaseStr, JudgeCase.class);
         List<String> inputList = judgeCaseList.stream().map(JudgeCase::getInput).collect(Collectors.toList());
+        List<String> expectedOutputList = judgeCaseList.stream().map(JudgeCase::getOutput).collect(Collectors.toList());
+        List<String> expectedOutputDigestList = compareInSandbox
+                ? expectedOutputList.stream().map(DigestUtil::sha256Hex).collect(Collectors.toList()) : null;
+        JudgeConfig judgeConfig = JSONUtil.toBean(question.getJudgeConfig(), JudgeConfig.class);
         ExecuteCodeRequest executeCodeRequest = ExecuteCodeRequest.builder()
                 .code(code)
                 .language(language)
                 .inputList(inputList)
+                .timeLimit(judgeConfig.getTimeLimit())
+                .parallelism(judgeConfig.getParallelism())
+                .failFast(failFast)
+                .expectedOutputList(failFast && !compareInSandbox ? expectedOutputList : null)
+                .expectedOutputDigestList(expectedOutputDigestList)
+                .compareOnly(compareInSandbox)
+                .memoryLimit(judgeConfig.getMemoryLimit())
                 .build();
         ExecuteCodeResponse executeCodeResponse = codeSandbox.executeCode(executeCodeRequest);
         List<String> outputList = executeCodeResponse.getOutputList();
@@ -81,6 +124,10 @@ public class JudgeServiceImpl implements JudgeService {
         judgeContext.setJudgeInfo(executeCodeResponse.getJudgeInfo());
         judgeContext.setInputList(inputList);
         judgeContext.setOutputList(outputList);
+        judgeContext.setCaseVerdictList(executeCodeResponse.getCaseVerdictList());
+        judgeContext.setStartupTimeExcluded(executeCodeResponse.getStartupTimeExcluded());
+        judgeContext.setTimeLimit(executeCodeResponse.getTimeLimit());
+        judgeContext.setMemoryLimit(executeCodeResponse.getMemoryLimit());
         judgeContext.setJudgeCaseList(judgeCaseList);
         judgeContext.setQuestion(question);
         judgeContext.setQuestionSubmit(questionSubmit);
@@ -27,4 +27,20 @@ public class CodeSandboxFactory {
                 return new ExampleCodeSandbox();
         }
     }
+
+    /**
+     * 创建代码沙箱示例，远程沙箱使用指定的地址和调用方式
+     *
+     * @param type           沙箱类型
+     * @param remoteUrl      远程沙箱地址
+     * @param remoteAsync    远程沙箱是否使用异步接口
+     * @param remoteProtocol 远程沙箱同步调用的协议：json 或 frame（二进制流式）
+     * @return
+     */
+    public static CodeSandbox newInstance(String type, String remoteUrl, boolean remoteAsync, String remoteProtocol) {
+        if ("remote".equals(type)) {
+            return new RemoteCodeSandbox(remoteUrl, remoteAsync, remoteProtocol);
+        }
+        return newInstance(type);
+    }
 }
@@ -0,0 +1,230 @@
+package com.oj.ojbackendjudgeservice.judge.codesandbox;
+
+import cn.hutool.json.JSONUtil;
+import com.oj.ojbackendmodel.model.codesandbox.ExecuteCodeRequest;
+import com.oj.ojbackendmodel.model.codesandbox.ExecuteCodeResponse;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 判题服务与沙箱之间的二进制流式协议（与沙箱的 FrameProtocol 保持一致，由 FrameProtocolCompatibilityTest 检查）
+ * <p>
+ * 请求体、响应体是连续的帧：1 字节帧类型 + 4 字节长度 + 内容，可以整体 gzip 压缩（由 Content-Encoding、Accept-Encoding 协商）。
+ * 代码、输入用例、预期输出、用例输出都以原始 UTF-8 字节传输，不做 JSON 转义；
+ * 其余字段较少，放在 HEADER / RESULT 帧中以 JSON 传输。
+ * <p>
+ * 请求：HEADER（去掉代码、输入、预期输出后的请求 JSON）、CODE、INPUT × N、EXPECTED × N（可选）、END<br>
+ * 响应：CASE × N（每个用例执行结束时立即发送，顺序不固定）、RESULT（去掉 outputList 后的响应 JSON）、OUTPUT × M、END
+ */
+public class FrameProtocol {
+
+    public static final String CONTENT_TYPE = "application/x-yuoj-frames";
+
+    public static final byte FRAME_END = 0;
+
+    public static final byte FRAME_HEADER = 1;
+
+    public static final byte FRAME_CODE = 2;
+
+    public static final byte FRAME_INPUT = 3;
+
+    public static final byte FRAME_EXPECTED = 4;
+
+    public static final byte FRAME_CASE = 5;
+
+    public static final byte FRAME_RESULT = 6;
+
+    public static final byte FRAME_OUTPUT = 7;
+
+    /**
+     * OUTPUT 帧中表示输出内容直接跟在后面（而不是引用 CASE 帧中的输出）
+     */
+    private static final int INLINE_OUTPUT = -1;
+
+    /**
+     * 单个帧的最大长度，防止错误的响应导致分配过大的内存
+     */
+    private static final int MAX_FRAME_BYTES = 256 * 1024 * 1024;
+
+    /**
+     * 读写缓冲区大小（gzip 默认 512 字节，大输入时频繁调用本地方法，明显变慢）
+     */
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private FrameProtocol() {
+    }
+
+    /**
+     * 读取响应体
+     *
+     * @param input
+     * @param compressed 响应体是否 gzip 压缩
+     * @return
+     * @throws IOException
+     */
+    public static DataInputStream openInput(InputStream input, boolean compressed) throws IOException {
+        if (!compressed) {
+            return new DataInputStream(new BufferedInputStream(input, BUFFER_BYTES));
+        }
+        return new DataInputStream(new GZIPInputStream(input, BUFFER_BYTES));
+    }
+
+    /**
+     * 写入请求体，压缩时使用最快的压缩级别（输入用例大多是数字、重复文本，压缩率差别不大）
+     *
+     * @param output
+     * @param compressed 是否 gzip 压缩
+     * @return
+     * @throws IOException
+     */
+    public static DataOutputStream openOutput(OutputStream output, boolean compressed) throws IOException {
+        if (!compressed) {
+            return new DataOutputStream(new BufferedOutputStream(output, BUFFER_BYTES));
+        }
+        return new DataOutputStream(new GZIPOutputStream(output, BUFFER_BYTES) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        });
+    }
+
+    /**
+     * 写入请求
+     *
+     * @param output             压缩前的请求体
+     * @param executeCodeRequest
+     * @throws IOException
+     */
+    public static void writeRequest(DataOutputStream output, ExecuteCodeRequest executeCodeRequest)
+            throws IOException {
+        ExecuteCodeRequest header = new ExecuteCodeRequest();
+        header.setLanguage(executeCodeRequest.getLanguage());
+        header.setTimeLimit(executeCodeRequest.getTimeLimit());
+        header.setParallelism(executeCodeRequest.getParallelism());
+        header.setFailFast(executeCodeRequest.getFailFast());
+        header.setExpectedOutputDigestList(executeCodeRequest.getExpectedOutputDigestList());
+        header.setCompareOnly(executeCodeRequest.getCompareOnly());
+        header.setMemoryLimit(executeCodeRequest.getMemoryLimit());
+        writeFrame(output, FRAME_HEADER, toBytes(JSONUtil.toJsonStr(header)));
+        writeFrame(output, FRAME_CODE, toBytes(executeCodeRequest.getCode()));
+        if (executeCodeRequest.getInputList() != null) {
+            for (String input : executeCodeRequest.getInputList()) {
+                writeFrame(output, FRAME_INPUT, toBytes(input));
+            }
+        }
+        if (executeCodeRequest.getExpectedOutputList() != null) {
+            for (String expectedOutput : executeCodeRequest.getExpectedOutputList()) {
+                writeFrame(output, FRAME_EXPECTED, toBytes(expectedOutput));
+            }
+        }
+        output.writeByte(FRAME_END);
+    }
+
+    /**
+     * 读取响应，用例结果随读随处理，不需要等整个响应体到达
+     *
+     * @param input        解压后的响应体
+     * @param caseListener 每个用例结果到达时的通知，可以为 null
+     * @return
+     * @throws IOException 格式错误或连接中断
+     */
+    public static ExecuteCodeResponse readResponse(DataInputStream input, CaseListener caseListener)
+            throws IOException {
+        Map<Integer, String> caseOutputMap = new HashMap<>();
+        ExecuteCodeResponse executeCodeResponse = null;
+        List<String> outputList = new ArrayList<>();
+        byte type;
+        while ((type = input.readByte()) != FRAME_END) {
+            DataInputStream content = new DataInputStream(new ByteArrayInputStream(readFrameContent(input)));
+            switch (type) {
+                case FRAME_CASE:
+                    int index = content.readInt();
+                    int exitValue = content.readInt();
+                    boolean timeout = content.readBoolean();
+                    boolean outputLimitExceeded = content.readBoolean();
+                    long time = content.readLong();
+                    long memory = content.readLong();
+                    // 只比较输出时沙箱只发送输出的摘要，最终结果中也没有输出
+                    boolean outputIncluded = content.readBoolean();
+                    String caseOutput = readString(content);
+                    if (outputIncluded) {
+                        caseOutputMap.put(index, caseOutput);
+                    }
+                    if (caseListener != null) {
+                        caseListener.onCaseFinished(index, exitValue, timeout || outputLimitExceeded, time, memory);
+                    }
+                    break;
+                case FRAME_RESULT:
+                    executeCodeResponse = JSONUtil.toBean(new String(content.readAllBytes(), StandardCharsets.UTF_8),
+                            ExecuteCodeResponse.class);
+                    break;
+                case FRAME_OUTPUT:
+                    int caseIndex = content.readInt();
+                    outputList.add(caseIndex == INLINE_OUTPUT ? readString(content) : caseOutputMap.get(caseIndex));
+                    break;
+                default:
+                    throw new IOException("未知的响应帧类型：" + type);
+            }
+        }
+        if (executeCodeResponse == null) {
+            throw new IOException("响应缺少 RESULT 帧");
+        }
+        executeCodeResponse.setOutputList(outputList);
+        return executeCodeResponse;
+    }
+
+    private static void writeFrame(DataOutputStream output, byte type, byte[] content) throws IOException {
+        output.writeByte(type);
+        output.writeInt(content.length);
+        output.write(content);
+    }
+
+    private static byte[] readFrameContent(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("帧长度不合法：" + length);
+        }
+        byte[] content = new byte[length];
+        input.readFully(content);
+        return content;
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return new String(readFrameContent(input), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] toBytes(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 用例结果到达的通知
+     */
+    @FunctionalInterface
+    public interface CaseListener {
+
+        /**
+         * @param index     用例序号
+         * @param exitValue 退出码，-1 表示没有
+         * @param failed    是否超时或输出超限
+         * @param time      时间（ms），-1 表示没有
+         * @param memory    内存（KB），-1 表示没有
+         */
+        void onCaseFinished(int index, int exitValue, boolean failed, long time, long memory);
+    }
+}
@@ -0,0 +1,254 @@
+package com.oj.ojbackendjudgeservice.judge.codesandbox;
+
+import cn.hutool.http.HttpResponse;
+import cn.hutool.http.HttpUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.oj.ojbackendcommon.common.ErrorCode;
+import com.oj.ojbackendcommon.exception.BusinessException;
+import com.oj.ojbackendjudgeservice.judge.codesandbox.impl.RemoteCodeSandbox;
+import com.oj.ojbackendmodel.model.codesandbox.ExecuteCodeRequest;
+import com.oj.ojbackendmodel.model.codesandbox.ExecuteCodeResponse;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 沙箱集群（多个沙箱节点）
+ * <p>
+ * 沙箱节点注册到 Nacos，定时拉取节点列表并轮询各节点的 /status 获取负载（执行中、排队中的提交数）；
+ * 每次调用随机取两个节点，选负载较低的一个（power of two choices），
+ * 负载再加上本服务发往该节点、尚未返回的请求数，避免两次轮询之间都涌向同一个节点。
+ * 调用失败（节点宕机、繁忙）时暂时摘除该节点；只有连接失败、沙箱繁忙（请求一定没有执行）时才换其他节点重试，
+ * 读取超时等情况下提交可能已经执行，不再重试，避免同一次提交执行两次。没有发现任何节点时使用固定地址
+ */
+@Slf4j
+@Component
+public class SandboxCluster implements CodeSandbox {
+
+    @Value("${codesandbox.type:example}")
+    private String type;
+
+    @Value("${codesandbox.cluster.service-name:oj-sandbox}")
+    private String serviceName;
+
+    /**
+     * 一次调用最多尝试的节点数
+     */
+    @Value("${codesandbox.cluster.max-attempts:3}")
+    private int maxAttempts;
+
+    /**
+     * 调用失败的节点暂时摘除的时间
+     */
+    @Value("${codesandbox.cluster.failure-cooldown-ms:5000}")
+    private long failureCooldownMs;
+
+    @Value("${codesandbox.cluster.status-timeout-ms:1000}")
+    private int statusTimeoutMs;
+
+    /**
+     * 没有发现任何节点时使用的地址
+     */
+    @Value("${codesandbox.url:http://192.168.223.129:8090}")
+    private String fallbackUrl;
+
+    @Value("${codesandbox.async:false}")
+    private boolean remoteAsync;
+
+    @Value("${codesandbox.protocol:json}")
+    private String remoteProtocol;
+
+    @Resource
+    private DiscoveryClient discoveryClient;
+
+    /**
+     * 节点地址 -> 节点
+     */
+    private final Map<String, Node> nodeMap = new ConcurrentHashMap<>();
+
+    @Override
+    public ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest) {
+        Set<String> triedUrls = new HashSet<>();
+        RuntimeException lastException = null;
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            Node node = choose(triedUrls);
+            if (node == null) {
+                break;
+            }
+            triedUrls.add(node.url);
+            node.inflight.incrementAndGet();
+            try {
+                return node.codeSandbox.executeCode(executeCodeRequest);
+            } catch (SandboxUnavailableException e) {
+                // 节点宕机或繁忙，请求没有执行，摘除一段时间后换其他节点重试
+                lastException = e;
+                node.downUntil = System.currentTimeMillis() + failureCooldownMs;
+                log.warn("沙箱节点 {} 不可用，换其他节点重试：{}", node.url, e.getMessage());
+            } catch (RuntimeException e) {
+                // 提交可能已经执行，不重试
+                node.downUntil = System.currentTimeMillis() + failureCooldownMs;
+                log.warn("沙箱节点 {} 调用失败：{}", node.url, e.getMessage());
+                throw e;
+            } finally {
+                node.inflight.decrementAndGet();
+            }
+        }
+        if (lastException != null) {
+            throw lastException;
+        }
+        throw new BusinessException(ErrorCode.API_REQUEST_ERROR, "没有可用的沙箱节点");
+    }
+
+    /**
+     * 定时刷新节点列表和各节点的负载（只在使用集群时刷新）
+     */
+    @Scheduled(fixedDelayString = "${codesandbox.cluster.refresh-interval-ms:2000}")
+    public void refresh() {
+        if (!"cluster".equals(type)) {
+            return;
+        }
+        List<ServiceInstance> instances;
+        try {
+            instances = discoveryClient.getInstances(serviceName);
+        } catch (Exception e) {
+            log.warn("获取沙箱节点列表失败：{}", e.getMessage());
+            return;
+        }
+        Set<String> urls = new HashSet<>();
+        for (ServiceInstance instance : instances) {
+            String url = instance.getUri().toString();
+            urls.add(url);
+            Node node = nodeMap.computeIfAbsent(url, this::newNode);
+            node.maxConcurrent = parsePositive(instance.getMetadata().get("maxConcurrent"), node.maxConcurrent);
+            refreshLoad(node);
+        }
+        // 已下线的节点
+        nodeMap.keySet().removeIf(url -> !urls.contains(url));
+    }
+
+    /**
+     * 选择节点：在可用节点中随机取两个，选负载较低的
+     *
+     * @param excludedUrls 本次调用已经失败的节点
+     * @return 没有可用节点时返回 null
+     */
+    private Node choose(Set<String> excludedUrls) {
+        if (nodeMap.isEmpty()) {
+            // 没有发现任何节点（如未部署 Nacos），使用固定地址，只尝试一次
+            Node fallbackNode = nodeMap.computeIfAbsent(fallbackUrl, this::newNode);
+            return excludedUrls.contains(fallbackNode.url) ? null : fallbackNode;
+        }
+        long now = System.currentTimeMillis();
+        List<Node> candidates = new ArrayList<>();
+        List<Node> downNodes = new ArrayList<>();
+        for (Node node : nodeMap.values()) {
+            if (excludedUrls.contains(node.url)) {
+                continue;
+            }
+            (node.downUntil > now ? downNodes : candidates).add(node);
+        }
+        if (candidates.isEmpty()) {
+            // 所有节点都在摘除期内时仍然尝试，总比直接失败好
+            candidates = downNodes;
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Node a = candidates.get(first);
+        Node b = candidates.get(second);
+        return a.load() <= b.load() ? a : b;
+    }
+
+    private void refreshLoad(Node node) {
+        try (HttpResponse httpResponse = HttpUtil.createGet(node.url + "/status")
+                .timeout(statusTimeoutMs)
+                .execute()) {
+            if (!httpResponse.isOk()) {
+                return;
+            }
+            JSONObject status = JSONUtil.parseObj(httpResponse.body());
+            node.maxConcurrent = status.getInt("maxConcurrent", node.maxConcurrent);
+            node.running = status.getInt("running", 0);
+            node.queueDepth = status.getInt("queueDepth", 0);
+        } catch (Exception e) {
+            node.downUntil = System.currentTimeMillis() + failureCooldownMs;
+            log.warn("获取沙箱节点 {} 负载失败：{}", node.url, e.getMessage());
+        }
+    }
+
+    private Node newNode(String url) {
+        return new Node(StringUtils.removeEnd(url, "/"),
+                new RemoteCodeSandbox(url, remoteAsync, remoteProtocol));
+    }
+
+    private static int parsePositive(String value, int defaultValue) {
+        try {
+            int parsed = Integer.parseInt(value);
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 一个沙箱节点
+     */
+    private static class Node {
+
+        private final String url;
+
+        /**
+         * 同一个节点复用一个实例（连接由 HTTP 客户端的连接池复用）
+         */
+        private final CodeSandbox codeSandbox;
+
+        /**
+         * 本服务发往该节点、尚未返回的请求数
+         */
+        private final AtomicInteger inflight = new AtomicInteger();
+
+        private volatile int maxConcurrent = 1;
+
+        private volatile int running;
+
+        private volatile int queueDepth;
+
+        private volatile long downUntil;
+
+        private Node(String url, CodeSandbox codeSandbox) {
+            this.url = url;
+            this.codeSandbox = codeSandbox;
+        }
+
+        /**
+         * 负载：（执行中 + 排队中 + 本服务未返回的请求）/ 并发数
+         */
+        private double load() {
+            return (double) (running + queueDepth + inflight.get()) / maxConcurrent;
+        }
+    }
+}
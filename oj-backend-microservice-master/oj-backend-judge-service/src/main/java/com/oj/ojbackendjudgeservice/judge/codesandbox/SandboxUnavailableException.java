@@ -0,0 +1,16 @@
+package com.oj.ojbackendjudgeservice.judge.codesandbox;
+
+import com.oj.ojbackendcommon.common.ErrorCode;
+import com.oj.ojbackendcommon.exception.BusinessException;
+
+/**
+ * 沙箱节点不可用：连接失败，或沙箱繁忙（429、503）拒绝了请求
+ * <p>
+ * 抛出该异常时沙箱一定没有执行这次提交，可以换其他节点重试；其他异常（如读取超时）时提交可能已经执行，不能重试
+ */
+public class SandboxUnavailableException extends BusinessException {
+
+    public SandboxUnavailableException(String message) {
+        super(ErrorCode.API_REQUEST_ERROR, message);
+    }
+}
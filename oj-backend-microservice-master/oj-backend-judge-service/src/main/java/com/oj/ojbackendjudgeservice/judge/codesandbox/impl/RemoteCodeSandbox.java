@@ -1,14 +1,33 @@
 package com.oj.ojbackendjudgeservice.judge.codesandbox.impl;
 
+import cn.hutool.http.HttpResponse;
 import cn.hutool.http.HttpUtil;
+import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import com.oj.ojbackendcommon.common.ErrorCode;
 import com.oj.ojbackendcommon.exception.BusinessException;
 import com.oj.ojbackendjudgeservice.judge.codesandbox.CodeSandbox;
+import com.oj.ojbackendjudgeservice.judge.codesandbox.FrameProtocol;
+import com.oj.ojbackendjudgeservice.judge.codesandbox.SandboxUnavailableException;
 import com.oj.ojbackendmodel.model.codesandbox.ExecuteCodeRequest;
 import com.oj.ojbackendmodel.model.codesandbox.ExecuteCodeResponse;
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+
 /**
  * 远程代码沙箱（实际调用接口的沙箱）
  */
@@ -19,22 +38,208 @@ public class RemoteCodeSandbox implements CodeSandbox {
 
     private static final String AUTH_REQUEST_SECRET = "secretKey";
 
+    private static final String DEFAULT_URL = "http://192.168.223.129:8090";
+
+    /**
+     * 异步调用时每次长轮询的等待时间
+     */
+    private static final long POLL_WAIT_MS = 20000L;
+
+    /**
+     * 异步调用时等待结果的最长时间
+     */
+    private static final long MAX_WAIT_MS = 10 * 60 * 1000L;
+
+    public static final String PROTOCOL_JSON = "json";
+
+    public static final String PROTOCOL_FRAME = "frame";
+
+    /**
+     * 二进制流式协议，请求体、响应体 gzip 压缩（跨机房、带宽有限时使用）
+     */
+    public static final String PROTOCOL_FRAME_GZIP = "frame-gzip";
+
+    /**
+     * 二进制协议使用的 HTTP 客户端，所有实例共享长连接池
+     * （不使用明文 HTTP/2：升级请求带较大的请求体时 Tomcat 会直接拒绝）
+     */
+    private static final HttpClient FRAME_HTTP_CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final String url;
+
+    private final boolean async;
+
+    private final String protocol;
+
+    public RemoteCodeSandbox() {
+        this(DEFAULT_URL, false);
+    }
+
+    public RemoteCodeSandbox(String url, boolean async) {
+        this(url, async, PROTOCOL_JSON);
+    }
+
+    public RemoteCodeSandbox(String url, boolean async, String protocol) {
+        this.url = StringUtils.removeEnd(url, "/");
+        this.async = async;
+        this.protocol = protocol;
+    }
 
     @Override
     public ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest) {
         System.out.println("远程代码沙箱");
-        String url = "http://192.168.223.129:8090/executeCode";
+        if (async) {
+            return executeCodeAsync(executeCodeRequest);
+        }
+        if (PROTOCOL_FRAME.equals(protocol) || PROTOCOL_FRAME_GZIP.equals(protocol)) {
+            return executeCodeStream(executeCodeRequest, null);
+        }
         String json = JSONUtil.toJsonStr(executeCodeRequest);
-        String responseStr = HttpUtil.createPost(url)
+        HttpResponse httpResponse = send(HttpUtil.createPost(url + "/executeCode")
                 .header(AUTH_REQUEST_HEADER, AUTH_REQUEST_SECRET)
-                .body(json)
-                .execute()
-                .body();
+                .body(json));
+        checkBusy(httpResponse);
+        String responseStr = httpResponse.body();
         if (StringUtils.isBlank(responseStr)) {
             throw new BusinessException(ErrorCode.API_REQUEST_ERROR, "executeCode remoteSandbox error, message = " + responseStr);
         }
         return JSONUtil.toBean(responseStr, ExecuteCodeResponse.class);
     }
-}
 
+    /**
+     * 二进制流式调用（格式见 {@link FrameProtocol}）：代码、用例、输出以原始字节传输（可选 gzip 压缩），用例结果边执行边返回
+     *
+     * @param executeCodeRequest
+     * @param caseListener       每个用例结果到达时的通知，可以为 null
+     * @return
+     */
+    public ExecuteCodeResponse executeCodeStream(ExecuteCodeRequest executeCodeRequest,
+                                                 FrameProtocol.CaseListener caseListener) {
+        boolean compressed = PROTOCOL_FRAME_GZIP.equals(protocol);
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (DataOutputStream output = FrameProtocol.openOutput(body, compressed)) {
+                FrameProtocol.writeRequest(output, executeCodeRequest);
+            }
+            HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(URI.create(url + "/executeCode/stream"))
+                    .header(AUTH_REQUEST_HEADER, AUTH_REQUEST_SECRET)
+                    .header("Content-Type", FrameProtocol.CONTENT_TYPE)
+                    .timeout(Duration.ofMillis(MAX_WAIT_MS))
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()));
+            if (compressed) {
+                requestBuilder.header("Content-Encoding", "gzip").header("Accept-Encoding", "gzip");
+            }
+            HttpRequest httpRequest = requestBuilder.build();
+            java.net.http.HttpResponse<InputStream> httpResponse;
+            try {
+                httpResponse = FRAME_HTTP_CLIENT.send(httpRequest, BodyHandlers.ofInputStream());
+            } catch (IOException e) {
+                if (isConnectFailure(e)) {
+                    throw new SandboxUnavailableException("connect remoteSandbox error, message = " + e.getMessage());
+                }
+                throw e;
+            }
+            try (InputStream responseBody = httpResponse.body()) {
+                int status = httpResponse.statusCode();
+                if (status == 429 || status == 503) {
+                    throw new SandboxUnavailableException("remoteSandbox busy, retry after "
+                            + httpResponse.headers().firstValue("Retry-After").orElse(null) + "s");
+                }
+                if (status != 200) {
+                    throw new BusinessException(ErrorCode.API_REQUEST_ERROR,
+                            "executeCode stream remoteSandbox error, status = " + status);
+                }
+                boolean responseCompressed = "gzip".equalsIgnoreCase(
+                        httpResponse.headers().firstValue("Content-Encoding").orElse(null));
+                return FrameProtocol.readResponse(FrameProtocol.openInput(responseBody, responseCompressed),
+                        caseListener);
+            }
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.API_REQUEST_ERROR,
+                    "executeCode stream remoteSandbox error, message = " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.API_REQUEST_ERROR, "executeCode stream remoteSandbox interrupted");
+        }
+    }
+
+    /**
+     * 异步调用：提交任务拿到任务 id，再长轮询直到任务完成
+     *
+     * @param executeCodeRequest
+     * @return
+     */
+    private ExecuteCodeResponse executeCodeAsync(ExecuteCodeRequest executeCodeRequest) {
+        String json = JSONUtil.toJsonStr(executeCodeRequest);
+        HttpResponse submitResponse = send(HttpUtil.createPost(url + "/executeCode/async")
+                .header(AUTH_REQUEST_HEADER, AUTH_REQUEST_SECRET)
+                .body(json));
+        checkBusy(submitResponse);
+        if (submitResponse.getStatus() != 202) {
+            throw new BusinessException(ErrorCode.API_REQUEST_ERROR,
+                    "submit remoteSandbox job error, status = " + submitResponse.getStatus());
+        }
+        String jobId = JSONUtil.parseObj(submitResponse.body()).getStr("jobId");
+        long deadline = System.currentTimeMillis() + MAX_WAIT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            HttpResponse pollResponse = HttpUtil.createGet(url + "/executeCode/jobs/" + jobId + "?waitMs=" + POLL_WAIT_MS)
+                    .header(AUTH_REQUEST_HEADER, AUTH_REQUEST_SECRET)
+                    .timeout((int) POLL_WAIT_MS + 10000)
+                    .execute();
+            if (pollResponse.getStatus() == 202) {
+                continue;
+            }
+            if (pollResponse.getStatus() != 200) {
+                throw new BusinessException(ErrorCode.API_REQUEST_ERROR,
+                        "poll remoteSandbox job error, jobId = " + jobId + ", status = " + pollResponse.getStatus());
+            }
+            JSONObject jobJson = JSONUtil.parseObj(pollResponse.body());
+            return jobJson.getBean("executeCodeResponse", ExecuteCodeResponse.class);
+        }
+        throw new BusinessException(ErrorCode.API_REQUEST_ERROR, "remoteSandbox job timeout, jobId = " + jobId);
+    }
+
+    /**
+     * 沙箱繁忙（队列已满或排队超时）
+     */
+    private static void checkBusy(HttpResponse httpResponse) {
+        if (httpResponse.getStatus() == 429 || httpResponse.getStatus() == 503) {
+            throw new SandboxUnavailableException(
+                    "remoteSandbox busy, retry after " + httpResponse.header("Retry-After") + "s");
+        }
+    }
 
+    /**
+     * 发送提交请求，连接失败（请求没有到达沙箱）时抛出 {@link SandboxUnavailableException}
+     */
+    private static HttpResponse send(cn.hutool.http.HttpRequest httpRequest) {
+        try {
+            return httpRequest.execute();
+        } catch (RuntimeException e) {
+            if (isConnectFailure(e)) {
+                throw new SandboxUnavailableException("connect remoteSandbox error, message = " + e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 是否为建立连接阶段的失败（拒绝连接、无法路由、域名解析失败、连接超时），读取超时等不算
+     */
+    private static boolean isConnectFailure(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof NoRouteToHostException
+                    || cause instanceof UnknownHostException || cause instanceof HttpConnectTimeoutException) {
+                return true;
+            }
+            if (cause instanceof SocketTimeoutException
+                    && StringUtils.containsIgnoreCase(cause.getMessage(), "connect timed out")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
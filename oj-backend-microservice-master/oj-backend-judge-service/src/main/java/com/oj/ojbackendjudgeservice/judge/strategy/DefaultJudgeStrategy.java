@@ -11,7 +11,7 @@ import java.util.List;
 import java.util.Optional;
 
 /**
- * 默认判题策略
+ * 默认判题策略（各语言共用：采用沙箱的判题结果、比较输出、判断时间和内存限制）
  */
 public class DefaultJudgeStrategy implements JudgeStrategy {
 
@@ -33,32 +33,43 @@ public class DefaultJudgeStrategy implements JudgeStrategy {
         JudgeInfo judgeInfoResponse = new JudgeInfo();
         judgeInfoResponse.setMemory(memory);
         judgeInfoResponse.setTime(time);
-        // 先判断沙箱执行的结果输出数量是否和预期输出数量相等
-        if (outputList.size() != inputList.size()) {
-            judgeInfoMessageEnum = JudgeInfoMessageEnum.WRONG_ANSWER;
-            judgeInfoResponse.setMessage(judgeInfoMessageEnum.getValue());
+        // 沙箱已经给出判题结果（如运行超时）时直接采用
+        JudgeInfoMessageEnum sandboxJudgeInfoMessageEnum = JudgeInfoMessageEnum.getEnumByValue(judgeInfo.getMessage());
+        if (sandboxJudgeInfoMessageEnum != null) {
+            judgeInfoResponse.setMessage(sandboxJudgeInfoMessageEnum.getValue());
             return judgeInfoResponse;
         }
-        // 依次判断每一项输出和预期输出是否相等
-        for (int i = 0; i < judgeCaseList.size(); i++) {
-            JudgeCase judgeCase = judgeCaseList.get(i);
-            if (!judgeCase.getOutput().equals(outputList.get(i))) {
+        // 沙箱已比较过输出（全部通过）时不再逐项比较，沙箱可能只返回了输出摘要
+        if (judgeContext.getCaseVerdictList() == null) {
+            // 先判断沙箱执行的结果输出数量是否和预期输出数量相等
+            if (outputList.size() != inputList.size()) {
                 judgeInfoMessageEnum = JudgeInfoMessageEnum.WRONG_ANSWER;
                 judgeInfoResponse.setMessage(judgeInfoMessageEnum.getValue());
                 return judgeInfoResponse;
             }
+            // 依次判断每一项输出和预期输出是否相等
+            for (int i = 0; i < judgeCaseList.size(); i++) {
+                JudgeCase judgeCase = judgeCaseList.get(i);
+                if (!judgeCase.getOutput().equals(outputList.get(i))) {
+                    judgeInfoMessageEnum = JudgeInfoMessageEnum.WRONG_ANSWER;
+                    judgeInfoResponse.setMessage(judgeInfoMessageEnum.getValue());
+                    return judgeInfoResponse;
+                }
+            }
         }
-        // 判断题目限制
+        // 判断题目限制（优先使用沙箱按语言倍数放宽后的限制，与沙箱的判断保持一致）
         String judgeConfigStr = question.getJudgeConfig();
         JudgeConfig judgeConfig = JSONUtil.toBean(judgeConfigStr, JudgeConfig.class);
-        Long needMemoryLimit = judgeConfig.getMemoryLimit();
-        Long needTimeLimit = judgeConfig.getTimeLimit();
+        Long needMemoryLimit = judgeContext.getMemoryLimit() != null
+                ? judgeContext.getMemoryLimit() : judgeConfig.getMemoryLimit();
+        Long needTimeLimit = judgeContext.getTimeLimit() != null
+                ? judgeContext.getTimeLimit() : judgeConfig.getTimeLimit();
         if (memory > needMemoryLimit) {
             judgeInfoMessageEnum = JudgeInfoMessageEnum.MEMORY_LIMIT_EXCEEDED;
             judgeInfoResponse.setMessage(judgeInfoMessageEnum.getValue());
             return judgeInfoResponse;
         }
-        if (time > needTimeLimit) {
+        if ((time - getStartupTimeCost(judgeContext)) > needTimeLimit) {
             judgeInfoMessageEnum = JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED;
             judgeInfoResponse.setMessage(judgeInfoMessageEnum.getValue());
             return judgeInfoResponse;
@@ -66,4 +77,14 @@ public class DefaultJudgeStrategy implements JudgeStrategy {
         judgeInfoResponse.setMessage(judgeInfoMessageEnum.getValue());
         return judgeInfoResponse;
     }
+
+    /**
+     * 沙箱统计的时间中运行环境启动本身的开销（ms），判断时间限制前扣除
+     *
+     * @param judgeContext
+     * @return
+     */
+    protected long getStartupTimeCost(JudgeContext judgeContext) {
+        return 0L;
+    }
 }
@@ -1,71 +1,24 @@
 package com.oj.ojbackendjudgeservice.judge.strategy;
 
-import cn.hutool.json.JSONUtil;
-import com.oj.ojbackendmodel.model.codesandbox.JudgeInfo;
-import com.oj.ojbackendmodel.model.dto.question.JudgeCase;
-import com.oj.ojbackendmodel.model.dto.question.JudgeConfig;
-import com.oj.ojbackendmodel.model.entity.Question;
-import com.oj.ojbackendmodel.model.enums.JudgeInfoMessageEnum;
-
-import java.util.List;
-import java.util.Optional;
-
 /**
  * Java 程序的判题策略
  */
-public class JavaLanguageJudgeStrategy implements JudgeStrategy {
+public class JavaLanguageJudgeStrategy extends DefaultJudgeStrategy {
+
+    /**
+     * 每个用例单独启动 JVM 时 JVM 启动本身消耗的 CPU 时间（ms）
+     */
+    private static final long JAVA_PROGRAM_TIME_COST = 200L;
 
     /**
-     * 执行判题
+     * 沙箱统计的是 CPU 时间，每个用例单独启动 JVM 时需扣除 JVM 启动本身消耗的 CPU 时间；
+     * 在已启动的 JVM 内执行（harness、worker）时统计的时间不包含启动开销，不再扣除
+     *
      * @param judgeContext
      * @return
      */
     @Override
-    public JudgeInfo doJudge(JudgeContext judgeContext) {
-        JudgeInfo judgeInfo = judgeContext.getJudgeInfo();
-        Long memory = Optional.ofNullable(judgeInfo.getMemory()).orElse(0L);
-        Long time = Optional.ofNullable(judgeInfo.getTime()).orElse(0L);
-        List<String> inputList = judgeContext.getInputList();
-        List<String> outputList = judgeContext.getOutputList();
-        Question question = judgeContext.getQuestion();
-        List<JudgeCase> judgeCaseList = judgeContext.getJudgeCaseList();
-        JudgeInfoMessageEnum judgeInfoMessageEnum = JudgeInfoMessageEnum.ACCEPTED;
-        JudgeInfo judgeInfoResponse = new JudgeInfo();
-        judgeInfoResponse.setMemory(memory);
-        judgeInfoResponse.setTime(time);
-        // 先判断沙箱执行的结果输出数量是否和预期输出数量相等
-        if (outputList.size() != inputList.size()) {
-            judgeInfoMessageEnum = JudgeInfoMessageEnum.WRONG_ANSWER;
-            judgeInfoResponse.setMessage(judgeInfoMessageEnum.getValue());
-            return judgeInfoResponse;
-        }
-        // 依次判断每一项输出和预期输出是否相等
-        for (int i = 0; i < judgeCaseList.size(); i++) {
-            JudgeCase judgeCase = judgeCaseList.get(i);
-            if (!judgeCase.getOutput().equals(outputList.get(i))) {
-                judgeInfoMessageEnum = JudgeInfoMessageEnum.WRONG_ANSWER;
-                judgeInfoResponse.setMessage(judgeInfoMessageEnum.getValue());
-                return judgeInfoResponse;
-            }
-        }
-        // 判断题目限制
-        String judgeConfigStr = question.getJudgeConfig();
-        JudgeConfig judgeConfig = JSONUtil.toBean(judgeConfigStr, JudgeConfig.class);
-        Long needMemoryLimit = judgeConfig.getMemoryLimit();
-        Long needTimeLimit = judgeConfig.getTimeLimit();
-        if (memory > needMemoryLimit) {
-            judgeInfoMessageEnum = JudgeInfoMessageEnum.MEMORY_LIMIT_EXCEEDED;
-            judgeInfoResponse.setMessage(judgeInfoMessageEnum.getValue());
-            return judgeInfoResponse;
-        }
-        // Java 程序本身需要额外执行 10 秒钟
-        long JAVA_PROGRAM_TIME_COST = 10000L;
-        if ((time - JAVA_PROGRAM_TIME_COST) > needTimeLimit) {
-            judgeInfoMessageEnum = JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED;
-            judgeInfoResponse.setMessage(judgeInfoMessageEnum.getValue());
-            return judgeInfoResponse;
-        }
-        judgeInfoResponse.setMessage(judgeInfoMessageEnum.getValue());
-        return judgeInfoResponse;
+    protected long getStartupTimeCost(JudgeContext judgeContext) {
+        return Boolean.TRUE.equals(judgeContext.getStartupTimeExcluded()) ? 0L : JAVA_PROGRAM_TIME_COST;
     }
 }
@@ -1,5 +1,6 @@
 package com.oj.ojbackendjudgeservice.judge.strategy;
 
+import com.oj.ojbackendmodel.model.codesandbox.CaseVerdict;
 import com.oj.ojbackendmodel.model.codesandbox.JudgeInfo;
 import com.oj.ojbackendmodel.model.dto.question.JudgeCase;
 import com.oj.ojbackendmodel.model.entity.Question;
@@ -20,6 +21,23 @@ public class JudgeContext {
 
     private List<String> outputList;
 
+    /**
+     * 沙箱给出的每个用例的判题结果，不为空时表示沙箱已比较过输出
+     */
+    private List<CaseVerdict> caseVerdictList;
+
+    /**
+     * 沙箱统计的时间是否不包含 JVM 启动的开销
+     */
+    private Boolean startupTimeExcluded;
+
+    /**
+     * 沙箱按语言倍数放宽后的时间、内存限制，为空时使用题目的判题配置
+     */
+    private Long timeLimit;
+
+    private Long memoryLimit;
+
     private List<JudgeCase> judgeCaseList;
 
     private Question question;
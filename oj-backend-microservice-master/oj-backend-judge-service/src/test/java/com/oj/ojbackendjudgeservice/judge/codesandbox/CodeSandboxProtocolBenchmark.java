@@ -0,0 +1,88 @@
+package com.oj.ojbackendjudgeservice.judge.codesandbox;
+
+import cn.hutool.core.util.RandomUtil;
+import com.oj.ojbackendjudgeservice.judge.codesandbox.impl.RemoteCodeSandbox;
+import com.oj.ojbackendmodel.model.codesandbox.ExecuteCodeRequest;
+import com.oj.ojbackendmodel.model.codesandbox.ExecuteCodeResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对比沙箱 JSON 协议与二进制流式协议（压缩、不压缩）的耗时（大输入、大输出）
+ * <p>
+ * 用法：CodeSandboxProtocolBenchmark [沙箱地址] [用例数] [单个用例字节数] [轮数]，
+ * 用户程序原样输出输入，输入、输出都是 用例数 × 单个用例字节数。
+ * 放在测试代码中，不打包进服务；在 IDE 中直接运行 main 方法
+ */
+public class CodeSandboxProtocolBenchmark {
+
+    private static final String ECHO_CODE = "public class Main {\n"
+            + "    public static void main(String[] args) {\n"
+            + "        System.out.print(args[0]);\n"
+            + "    }\n"
+            + "}\n";
+
+    private static final String[] PROTOCOLS = {RemoteCodeSandbox.PROTOCOL_JSON, RemoteCodeSandbox.PROTOCOL_FRAME,
+            RemoteCodeSandbox.PROTOCOL_FRAME_GZIP};
+
+    public static void main(String[] args) {
+        String url = args.length > 0 ? args[0] : "http://localhost:8090";
+        int caseCount = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int caseBytes = args.length > 2 ? Integer.parseInt(args[2]) : 64 * 1024;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        List<String> inputList = new ArrayList<>();
+        for (int i = 0; i < caseCount; i++) {
+            inputList.add(RandomUtil.randomString(caseBytes));
+        }
+        ExecuteCodeRequest executeCodeRequest = ExecuteCodeRequest.builder()
+                .code(ECHO_CODE)
+                .language("java")
+                .inputList(inputList)
+                .build();
+        System.out.printf("用例数 = %d, 单个用例 = %d 字节, 轮数 = %d%n", caseCount, caseBytes, rounds);
+        for (String protocol : PROTOCOLS) {
+            RemoteCodeSandbox remoteCodeSandbox = new RemoteCodeSandbox(url, false, protocol);
+            // 预热：编译缓存、执行进程、连接
+            check(remoteCodeSandbox.executeCode(executeCodeRequest), inputList);
+            long[] totalMs = new long[rounds];
+            long[] firstCaseMs = new long[rounds];
+            for (int round = 0; round < rounds; round++) {
+                AtomicLong firstCase = new AtomicLong();
+                long start = System.nanoTime();
+                if (RemoteCodeSandbox.PROTOCOL_JSON.equals(protocol)) {
+                    check(remoteCodeSandbox.executeCode(executeCodeRequest), inputList);
+                } else {
+                    check(remoteCodeSandbox.executeCodeStream(executeCodeRequest,
+                            (index, exitValue, failed, time, memory) -> firstCase.compareAndSet(0, System.nanoTime())),
+                            inputList);
+                }
+                long end = System.nanoTime();
+                totalMs[round] = (end - start) / 1_000_000;
+                // JSON 协议要等整个响应到达后才能拿到第一个用例的结果
+                firstCaseMs[round] = ((firstCase.get() == 0 ? end : firstCase.get()) - start) / 1_000_000;
+            }
+            System.out.printf("%-10s: 总耗时中位数 %d ms, 最大 %d ms, 首个用例结果到达中位数 %d ms%n",
+                    protocol, median(totalMs), max(totalMs), median(firstCaseMs));
+        }
+    }
+
+    private static void check(ExecuteCodeResponse executeCodeResponse, List<String> inputList) {
+        if (!inputList.equals(executeCodeResponse.getOutputList())) {
+            throw new IllegalStateException("沙箱输出与输入不一致，message = " + executeCodeResponse.getMessage());
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static long max(long[] values) {
+        return Arrays.stream(values).max().orElse(0);
+    }
+}
@@ -0,0 +1,201 @@
+package com.oj.ojbackendjudgeservice.judge.codesandbox;
+
+import com.oj.ojbackendmodel.model.codesandbox.ExecuteCodeRequest;
+import com.oj.ojbackendmodel.model.codesandbox.ExecuteCodeResponse;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import com.yupi.yuojcodesandbox.model.JudgeInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 判题服务与沙箱两份 FrameProtocol 的兼容性：一端编码、另一端解码
+ * <p>
+ * 沙箱一端使用 oj-sandbox 的原始 jar（test 依赖），需先在 oj-sandbox 下执行 mvn install
+ */
+class FrameProtocolCompatibilityTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void requestRoundTrip(boolean compressed) throws IOException {
+        ExecuteCodeRequest executeCodeRequest = new ExecuteCodeRequest();
+        executeCodeRequest.setLanguage("java");
+        executeCodeRequest.setCode("public class Main {\n    // 中文注释 \"引号\"\n}\n");
+        executeCodeRequest.setInputList(Arrays.asList("1 2", "", "多行\n输入"));
+        executeCodeRequest.setExpectedOutputList(Arrays.asList("3", "", "结果\r\n"));
+        executeCodeRequest.setTimeLimit(1000L);
+        executeCodeRequest.setMemoryLimit(262144L);
+        executeCodeRequest.setParallelism(2);
+        executeCodeRequest.setFailFast(true);
+        executeCodeRequest.setCompareOnly(true);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (DataOutputStream output = FrameProtocol.openOutput(body, compressed)) {
+            FrameProtocol.writeRequest(output, executeCodeRequest);
+        }
+        com.yupi.yuojcodesandbox.model.ExecuteCodeRequest received;
+        try (DataInputStream input = com.yupi.yuojcodesandbox.protocol.FrameProtocol.openInput(
+                new ByteArrayInputStream(body.toByteArray()), compressed)) {
+            received = com.yupi.yuojcodesandbox.protocol.FrameProtocol.readRequest(input);
+        }
+
+        assertEquals(executeCodeRequest.getLanguage(), received.getLanguage());
+        assertEquals(executeCodeRequest.getCode(), received.getCode());
+        assertEquals(executeCodeRequest.getInputList(), received.getInputList());
+        assertEquals(executeCodeRequest.getExpectedOutputList(), received.getExpectedOutputList());
+        assertEquals(executeCodeRequest.getTimeLimit(), received.getTimeLimit());
+        assertEquals(executeCodeRequest.getMemoryLimit(), received.getMemoryLimit());
+        assertEquals(executeCodeRequest.getParallelism(), received.getParallelism());
+        assertEquals(executeCodeRequest.getFailFast(), received.getFailFast());
+        assertEquals(executeCodeRequest.getCompareOnly(), received.getCompareOnly());
+    }
+
+    @Test
+    void requestWithDigestsOnly() throws IOException {
+        ExecuteCodeRequest executeCodeRequest = new ExecuteCodeRequest();
+        executeCodeRequest.setLanguage("python");
+        executeCodeRequest.setCode("print(1)");
+        executeCodeRequest.setInputList(Collections.singletonList("1"));
+        executeCodeRequest.setExpectedOutputDigestList(Collections.singletonList("ab12"));
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (DataOutputStream output = FrameProtocol.openOutput(body, false)) {
+            FrameProtocol.writeRequest(output, executeCodeRequest);
+        }
+        com.yupi.yuojcodesandbox.model.ExecuteCodeRequest received =
+                com.yupi.yuojcodesandbox.protocol.FrameProtocol.readRequest(
+                        com.yupi.yuojcodesandbox.protocol.FrameProtocol.openInput(
+                                new ByteArrayInputStream(body.toByteArray()), false));
+
+        assertNull(received.getExpectedOutputList());
+        assertEquals(executeCodeRequest.getExpectedOutputDigestList(), received.getExpectedOutputDigestList());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void responseRoundTrip(boolean compressed) throws IOException {
+        ExecuteMessage case0 = executeMessage(0, "3", 12L, 2048L);
+        ExecuteMessage case1 = executeMessage(0, "多行\n输出", 15L, 4096L);
+        ExecuteMessage case2 = executeMessage(null, "", 1000L, null);
+        case2.setTimeout(true);
+
+        List<String> outputList = new ArrayList<>(Arrays.asList(case0.getMessage(), case1.getMessage(),
+                "没有在 CASE 帧中发送的输出"));
+        com.yupi.yuojcodesandbox.model.ExecuteCodeResponse executeCodeResponse =
+                new com.yupi.yuojcodesandbox.model.ExecuteCodeResponse();
+        executeCodeResponse.setStatus(3);
+        executeCodeResponse.setMessage("运行超时");
+        executeCodeResponse.setOutputList(outputList);
+        executeCodeResponse.setFailedCaseIndex(2);
+        executeCodeResponse.setCompileTime(120L);
+        JudgeInfo judgeInfo = new JudgeInfo();
+        judgeInfo.setMessage("Time Limit Exceeded");
+        judgeInfo.setTime(15L);
+        judgeInfo.setMemory(4096L);
+        executeCodeResponse.setJudgeInfo(judgeInfo);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (DataOutputStream output = com.yupi.yuojcodesandbox.protocol.FrameProtocol.openOutput(body,
+                compressed)) {
+            // 用例结束的顺序与输入顺序不同
+            IdentityHashMap<String, Integer> sentOutputs = new IdentityHashMap<>();
+            writeCase(output, 1, case1, true, sentOutputs);
+            writeCase(output, 0, case0, true, sentOutputs);
+            writeCase(output, 2, case2, true, sentOutputs);
+            com.yupi.yuojcodesandbox.protocol.FrameProtocol.writeResult(output, executeCodeResponse, sentOutputs);
+        }
+
+        List<String> finishedCases = new ArrayList<>();
+        ExecuteCodeResponse received = FrameProtocol.readResponse(
+                FrameProtocol.openInput(new ByteArrayInputStream(body.toByteArray()), compressed),
+                (index, exitValue, failed, time, memory) ->
+                        finishedCases.add(index + "," + exitValue + "," + failed + "," + time + "," + memory));
+
+        assertEquals(Arrays.asList("1,0,false,15,4096", "0,0,false,12,2048", "2,-1,true,1000,-1"), finishedCases);
+        assertEquals(outputList, received.getOutputList());
+        assertEquals(3, received.getStatus());
+        assertEquals("运行超时", received.getMessage());
+        assertEquals(2, received.getFailedCaseIndex());
+        assertEquals(120L, received.getCompileTime());
+        assertEquals("Time Limit Exceeded", received.getJudgeInfo().getMessage());
+        assertEquals(4096L, received.getJudgeInfo().getMemory());
+    }
+
+    @Test
+    void compareOnlyResponse() throws IOException {
+        ExecuteMessage case0 = executeMessage(0, "3", 12L, 2048L);
+        com.yupi.yuojcodesandbox.model.ExecuteCodeResponse executeCodeResponse =
+                new com.yupi.yuojcodesandbox.model.ExecuteCodeResponse();
+        executeCodeResponse.setStatus(1);
+        executeCodeResponse.setOutputList(new ArrayList<>());
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (DataOutputStream output = com.yupi.yuojcodesandbox.protocol.FrameProtocol.openOutput(body, false)) {
+            IdentityHashMap<String, Integer> sentOutputs = new IdentityHashMap<>();
+            writeCase(output, 0, case0, false, sentOutputs);
+            com.yupi.yuojcodesandbox.protocol.FrameProtocol.writeResult(output, executeCodeResponse, sentOutputs);
+        }
+
+        List<Integer> finishedCases = new ArrayList<>();
+        ExecuteCodeResponse received = FrameProtocol.readResponse(
+                FrameProtocol.openInput(new ByteArrayInputStream(body.toByteArray()), false),
+                (index, exitValue, failed, time, memory) -> finishedCases.add(index));
+
+        assertEquals(Collections.singletonList(0), finishedCases);
+        assertTrue(received.getOutputList().isEmpty());
+        assertEquals(1, received.getStatus());
+    }
+
+    /**
+     * 压缩时每个 CASE 帧写完即可解压，不需要等整个响应结束
+     */
+    @Test
+    void compressedCaseFrameIsReadableBeforeEnd() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream output = com.yupi.yuojcodesandbox.protocol.FrameProtocol.openOutput(body, true);
+        com.yupi.yuojcodesandbox.protocol.FrameProtocol.writeCase(output, 0, executeMessage(0, "3", 12L, 2048L),
+                true);
+        output.flush();
+
+        List<Integer> finishedCases = new ArrayList<>();
+        DataInputStream input = FrameProtocol.openInput(new ByteArrayInputStream(body.toByteArray()), true);
+        assertThrows(EOFException.class, () -> FrameProtocol.readResponse(input,
+                (index, exitValue, failed, time, memory) -> finishedCases.add(index)));
+        assertEquals(Collections.singletonList(0), finishedCases);
+    }
+
+    private static void writeCase(DataOutputStream output, int index, ExecuteMessage executeMessage,
+                                  boolean outputIncluded, IdentityHashMap<String, Integer> sentOutputs)
+            throws IOException {
+        com.yupi.yuojcodesandbox.protocol.FrameProtocol.writeCase(output, index, executeMessage, outputIncluded);
+        if (outputIncluded) {
+            sentOutputs.put(executeMessage.getMessage(), index);
+        }
+    }
+
+    private static ExecuteMessage executeMessage(Integer exitValue, String output, Long time, Long memory) {
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setExitValue(exitValue);
+        executeMessage.setMessage(output);
+        executeMessage.setTime(time);
+        executeMessage.setMemory(memory);
+        return executeMessage;
+    }
+}
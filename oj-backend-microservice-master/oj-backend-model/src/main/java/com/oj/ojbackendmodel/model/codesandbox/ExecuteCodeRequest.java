@@ -18,4 +18,39 @@ public class ExecuteCodeRequest {
     private String code;
 
     private String language;
+
+    /**
+     * 时间限制（ms），为空时使用沙箱默认超时时间
+     */
+    private Long timeLimit;
+
+    /**
+     * 用例并行度（为空时使用沙箱默认值）
+     */
+    private Integer parallelism;
+
+    /**
+     * 是否快速失败：出现第一个失败的用例后沙箱不再执行剩余用例
+     */
+    private Boolean failFast;
+
+    /**
+     * 预期输出（可选），传入后由沙箱比较输出，并返回每个用例的判题结果
+     */
+    private List<String> expectedOutputList;
+
+    /**
+     * 预期输出的 SHA-256 摘要（可选，不传预期输出时使用，省去传输大体积的预期输出）
+     */
+    private List<String> expectedOutputDigestList;
+
+    /**
+     * 是否只返回每个用例的判题结果和输出摘要，不返回完整输出
+     */
+    private Boolean compareOnly;
+
+    /**
+     * 内存限制（KB），沙箱比较输出或快速失败时用于判断内存超限
+     */
+    private Long memoryLimit;
 }
@@ -29,4 +29,39 @@ public class ExecuteCodeResponse {
      * 判题信息
      */
     private JudgeInfo judgeInfo;
+
+    /**
+     * 每个用例的判题结果（沙箱比较输出或快速失败时才有）
+     */
+    private List<CaseVerdict> caseVerdictList;
+
+    /**
+     * 第一个失败的用例序号（从 0 开始，沙箱比较输出或快速失败时才有），没有失败时为空
+     */
+    private Integer failedCaseIndex;
+
+    /**
+     * 快速失败时没有执行的用例数
+     */
+    private Integer skippedCaseCount;
+
+    /**
+     * 编译耗时（ms），命中编译缓存时接近 0，不需要编译的语言为 0
+     */
+    private Long compileTime;
+
+    /**
+     * judgeInfo.time 是否不包含运行环境（JVM）启动的开销（Java 的用例都在已启动的 JVM 内执行时为 true），旧版本沙箱为空
+     */
+    private Boolean startupTimeExcluded;
+
+    /**
+     * 沙箱实际使用的时间限制（ms，按语言倍数放宽后），旧版本沙箱或请求未指定时为空
+     */
+    private Long timeLimit;
+
+    /**
+     * 沙箱实际使用的内存限制（KB，按语言倍数放宽后），旧版本沙箱或请求未指定时为空
+     */
+    private Long memoryLimit;
 }
@@ -22,4 +22,9 @@ public class JudgeConfig {
      * 堆栈限制（KB）
      */
     private Long stackLimit;
+
+    /**
+     * 用例并行度（为空时使用沙箱默认值）
+     */
+    private Integer parallelism;
 }
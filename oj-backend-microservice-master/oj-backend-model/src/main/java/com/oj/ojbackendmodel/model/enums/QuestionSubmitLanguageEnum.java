@@ -15,6 +15,7 @@ public enum QuestionSubmitLanguageEnum {
 
     JAVA("java", "java"),
     CPLUSPLUS("c", "c"),
+    CPP("c++", "cpp"),
     GOLANG("python", "python");
 
     private final String text;
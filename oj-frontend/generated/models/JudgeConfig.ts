@@ -5,6 +5,7 @@
 
 export type JudgeConfig = {
     memoryLimit?: number;
+    parallelism?: number;
     stackLimit?: number;
     timeLimit?: number;
 };
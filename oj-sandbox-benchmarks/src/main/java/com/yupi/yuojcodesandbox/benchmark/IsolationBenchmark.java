@@ -0,0 +1,99 @@
+package com.yupi.yuojcodesandbox.benchmark;
+
+import com.yupi.yuojcodesandbox.CodeSandbox;
+import com.yupi.yuojcodesandbox.JavaDockerCodeSandbox;
+import com.yupi.yuojcodesandbox.NamespaceCodeSandbox;
+import com.yupi.yuojcodesandbox.NativeCodeSandbox;
+import com.yupi.yuojcodesandbox.language.LanguageRunner;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比原生、命名空间隔离、Docker 三种沙箱执行同一份代码的耗时
+ * <p>
+ * 需要在 sandbox.execute.java-mode 为 process 的配置下运行（原生沙箱每个用例启动一个进程，与另外两种方式可比）；
+ * 命名空间隔离需要以 root 运行，Docker 需要可用的守护进程，不满足时对应的组合在初始化时失败。
+ * 用法：java -jar target/benchmarks.jar IsolationBenchmark -p mode=native,namespace -p caseCount=10
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IsolationBenchmark {
+
+    @Param({"native", "namespace", "docker"})
+    public String mode;
+
+    /**
+     * Docker 沙箱只支持 Java
+     */
+    @Param({"java"})
+    public String language;
+
+    @Param({"10"})
+    public int caseCount;
+
+    private ConfigurableApplicationContext context;
+
+    private CodeSandbox codeSandbox;
+
+    private String code;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = SandboxBenchmarkSupport.startSandbox();
+        LanguageRunner languageRunner = SandboxBenchmarkSupport.awaitWarmUp(context, language);
+        code = SandboxBenchmarkSupport.readSampleCode(languageRunner);
+        switch (mode) {
+            case "native":
+                codeSandbox = context.getBean(NativeCodeSandbox.class);
+                break;
+            case "namespace":
+                codeSandbox = context.getBean(NamespaceCodeSandbox.class);
+                break;
+            case "docker":
+                codeSandbox = context.getBean(JavaDockerCodeSandbox.class);
+                break;
+            default:
+                throw new IllegalArgumentException("不支持的沙箱：" + mode);
+        }
+        // 预热（编译缓存、容器池），同时确认该沙箱可用
+        executeCode();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 完整的一次执行
+     */
+    @Benchmark
+    public ExecuteCodeResponse executeCode() {
+        ExecuteCodeResponse executeCodeResponse = codeSandbox.executeCode(
+                SandboxBenchmarkSupport.buildRequest(code, language, caseCount));
+        if (executeCodeResponse.getStatus() == null || executeCodeResponse.getStatus() != 1
+                || executeCodeResponse.getOutputList().size() != caseCount) {
+            throw new IllegalStateException("执行失败，message = " + executeCodeResponse.getMessage());
+        }
+        return executeCodeResponse;
+    }
+}
@@ -0,0 +1,28 @@
+package com.yupi.yuojcodesandbox.benchmark;
+
+import com.yupi.yuojcodesandbox.CodeSandboxTemplate;
+import com.yupi.yuojcodesandbox.language.LanguageRunner;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * 单独执行模板中“执行代码”阶段的沙箱，由基准测试通过 Spring 创建并注入依赖（不注册为 Bean）
+ */
+public class PhaseCodeSandbox extends CodeSandboxTemplate {
+
+    /**
+     * 执行已编译好的代码的所有用例，不快速失败
+     *
+     * @param userCodeFile
+     * @param languageRunner
+     * @param executeCodeRequest
+     * @return
+     */
+    public List<ExecuteMessage> runCases(File userCodeFile, LanguageRunner languageRunner,
+                                         ExecuteCodeRequest executeCodeRequest) {
+        return runFile(userCodeFile, languageRunner, executeCodeRequest, null, null);
+    }
+}
@@ -0,0 +1,179 @@
+package com.yupi.yuojcodesandbox.benchmark;
+
+import cn.hutool.core.io.FileUtil;
+import com.yupi.yuojcodesandbox.NativeCodeSandbox;
+import com.yupi.yuojcodesandbox.language.LanguageRunner;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeResponse;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import com.yupi.yuojcodesandbox.workspace.WorkspaceManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CodeSandboxTemplate.executeCode 各阶段的耗时：保存代码 → 编译 → 执行 → 清理，以及完整的一次执行
+ * <p>
+ * 每种语言使用 testCode/simpleComputeArgs 下的样例代码，各阶段调用与模板相同的组件（工作目录、语言的编译和执行方式），
+ * 编译缓存关闭。用法：java -jar target/benchmarks.jar PipelinePhaseBenchmark -p language=cpp -p caseCount=8
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelinePhaseBenchmark {
+
+    @Param({"java", "c", "cpp", "python"})
+    public String language;
+
+    @Param({"1"})
+    public int caseCount;
+
+    private ConfigurableApplicationContext context;
+
+    private WorkspaceManager workspaceManager;
+
+    private LanguageRunner languageRunner;
+
+    private NativeCodeSandbox nativeCodeSandbox;
+
+    private PhaseCodeSandbox phaseCodeSandbox;
+
+    private String code;
+
+    /**
+     * 已保存、编译好的代码，供编译、执行阶段重复使用
+     */
+    private File compiledCodeFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = SandboxBenchmarkSupport.startSandbox();
+        workspaceManager = context.getBean(WorkspaceManager.class);
+        nativeCodeSandbox = context.getBean(NativeCodeSandbox.class);
+        phaseCodeSandbox = context.getAutowireCapableBeanFactory().createBean(PhaseCodeSandbox.class);
+        languageRunner = SandboxBenchmarkSupport.awaitWarmUp(context, language);
+        code = SandboxBenchmarkSupport.readSampleCode(languageRunner);
+        compiledCodeFile = saveCode();
+        ExecuteMessage compileMessage = compile();
+        if (compileMessage != null && !Integer.valueOf(0).equals(compileMessage.getExitValue())) {
+            throw new IllegalStateException("样例代码编译失败，" + compileMessage.getErrorMessage());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workspaceManager.release(compiledCodeFile.getParentFile());
+        context.close();
+    }
+
+    /**
+     * 保存代码：分配工作目录并写入源码（目录在每次调用后归还，不计入耗时）
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public File saveFile(SavedWorkspace savedWorkspace) {
+        savedWorkspace.codeFile = saveCode();
+        return savedWorkspace.codeFile;
+    }
+
+    /**
+     * 编译代码（不需要编译的语言返回 null）
+     */
+    @Benchmark
+    public ExecuteMessage compileFile() throws Exception {
+        return compile();
+    }
+
+    /**
+     * 执行所有用例
+     */
+    @Benchmark
+    public List<ExecuteMessage> runFile() {
+        return phaseCodeSandbox.runCases(compiledCodeFile, languageRunner,
+                SandboxBenchmarkSupport.buildRequest(code, language, caseCount));
+    }
+
+    /**
+     * 清理：归还工作目录（目录在每次调用前准备好，不计入耗时；清空目录由后台线程完成）
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void cleanup(PreparedWorkspace preparedWorkspace) {
+        workspaceManager.release(preparedWorkspace.codeFile.getParentFile());
+    }
+
+    /**
+     * 完整的一次执行
+     */
+    @Benchmark
+    public ExecuteCodeResponse executeCode() {
+        ExecuteCodeResponse executeCodeResponse = nativeCodeSandbox.executeCode(
+                SandboxBenchmarkSupport.buildRequest(code, language, caseCount));
+        if (executeCodeResponse.getStatus() == null || executeCodeResponse.getStatus() != 1) {
+            throw new IllegalStateException("执行失败，message = " + executeCodeResponse.getMessage());
+        }
+        return executeCodeResponse;
+    }
+
+    private File saveCode() {
+        File userCodeParentDir = workspaceManager.allocate();
+        return FileUtil.writeString(code, new File(userCodeParentDir, languageRunner.getSourceFileName()),
+                StandardCharsets.UTF_8);
+    }
+
+    private ExecuteMessage compile() throws Exception {
+        if (languageRunner.getCompileFlags() == null) {
+            return null;
+        }
+        return languageRunner.compile(compiledCodeFile);
+    }
+
+    /**
+     * 保存代码阶段写入的代码文件，每次调用后归还工作目录
+     */
+    @State(Scope.Thread)
+    public static class SavedWorkspace {
+
+        private File codeFile;
+
+        @TearDown(Level.Invocation)
+        public void release(PipelinePhaseBenchmark benchmark) {
+            if (codeFile != null) {
+                benchmark.workspaceManager.release(codeFile.getParentFile());
+                codeFile = null;
+            }
+        }
+    }
+
+    /**
+     * 清理阶段要归还的工作目录，每次调用前分配并写入代码
+     */
+    @State(Scope.Thread)
+    public static class PreparedWorkspace {
+
+        private File codeFile;
+
+        @Setup(Level.Invocation)
+        public void prepare(PipelinePhaseBenchmark benchmark) {
+            codeFile = benchmark.saveCode();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.yupi.yuojcodesandbox.benchmark;
+
+import cn.hutool.core.io.FileUtil;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import com.yupi.yuojcodesandbox.utils.ProcessUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProcessUtils 读取不同大小输出的耗时
+ * <p>
+ * 子进程用 cat 输出准备好的文件（每行 16 字节），输出为 0 字节时即启动进程本身的开销，作为对比的基线。
+ * 用法：java -jar target/benchmarks.jar ProcessOutputBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessOutputBenchmark {
+
+    private static final String LINE = "0123456789abcde\n";
+
+    /**
+     * 输出字节数，不超过默认的输出上限
+     */
+    @Param({"0", "1024", "65536", "1048576", "8388608"})
+    public int outputBytes;
+
+    private File outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder content = new StringBuilder(outputBytes);
+        while (content.length() < outputBytes) {
+            content.append(LINE);
+        }
+        content.setLength(outputBytes);
+        outputFile = FileUtil.writeString(content.toString(), FileUtil.createTempFile("process-output", ".txt", true),
+                StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtil.del(outputFile);
+    }
+
+    @Benchmark
+    public ExecuteMessage capture() throws Exception {
+        Process process = Runtime.getRuntime().exec(new String[]{"cat", outputFile.getAbsolutePath()});
+        ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(process, "输出");
+        if (!Integer.valueOf(0).equals(executeMessage.getExitValue())
+                || Boolean.TRUE.equals(executeMessage.getOutputLimitExceeded())) {
+            throw new IllegalStateException("读取输出失败，" + executeMessage.getErrorMessage());
+        }
+        return executeMessage;
+    }
+}
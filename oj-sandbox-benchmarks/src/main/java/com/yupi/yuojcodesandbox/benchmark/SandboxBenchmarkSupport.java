@@ -0,0 +1,97 @@
+package com.yupi.yuojcodesandbox.benchmark;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import com.yupi.yuojcodesandbox.YuojCodeSandboxApplication;
+import com.yupi.yuojcodesandbox.language.LanguageRunner;
+import com.yupi.yuojcodesandbox.language.LanguageRunnerRegistry;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试公用的沙箱启动、样例代码读取
+ */
+public class SandboxBenchmarkSupport {
+
+    /**
+     * 基准测试使用的样例代码目录，各语言的文件名与 {@link LanguageRunner#getSourceFileName()} 一致
+     */
+    private static final String SAMPLE_DIR = "testCode/simpleComputeArgs/";
+
+    private static final long WARM_UP_TIMEOUT_MS = 120_000;
+
+    private SandboxBenchmarkSupport() {
+    }
+
+    /**
+     * 启动不带 Web 服务的沙箱
+     * <p>
+     * 关闭编译缓存，使每次编译都真正执行；其余配置可以通过 JMH 的 -jvmArgsAppend "-Dsandbox.xxx=..." 覆盖
+     *
+     * @return
+     */
+    public static ConfigurableApplicationContext startSandbox() {
+        SpringApplication springApplication = new SpringApplication(YuojCodeSandboxApplication.class);
+        return springApplication.run("--spring.main.web-application-type=none",
+                "--sandbox.compile-cache.enabled=false", "--logging.level.root=WARN");
+    }
+
+    /**
+     * 等待语言在后台预热完成（预编译头、CDS 归档等），避免测到预热前的数据
+     *
+     * @param context
+     * @param language
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static LanguageRunner awaitWarmUp(ConfigurableApplicationContext context, String language)
+            throws InterruptedException {
+        LanguageRunnerRegistry languageRunnerRegistry = context.getBean(LanguageRunnerRegistry.class);
+        LanguageRunner languageRunner = languageRunnerRegistry.getRunner(language);
+        long deadline = System.currentTimeMillis() + WARM_UP_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            Map<String, Object> runnerStats =
+                    (Map<String, Object>) languageRunnerRegistry.getStats().get(languageRunner.getLanguage());
+            if (runnerStats.get("warmUpMillis") != null) {
+                return languageRunner;
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("语言预热超时，language = " + language);
+    }
+
+    /**
+     * 读取语言的样例代码
+     *
+     * @param languageRunner
+     * @return
+     */
+    public static String readSampleCode(LanguageRunner languageRunner) {
+        return ResourceUtil.readStr(SAMPLE_DIR + languageRunner.getSourceFileName(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 构造执行请求
+     *
+     * @param code
+     * @param language
+     * @param caseCount 用例数，输入为 "i i+1"
+     * @return
+     */
+    public static ExecuteCodeRequest buildRequest(String code, String language, int caseCount) {
+        List<String> inputList = new ArrayList<>();
+        for (int i = 0; i < caseCount; i++) {
+            inputList.add(i + " " + (i + 1));
+        }
+        ExecuteCodeRequest executeCodeRequest = new ExecuteCodeRequest();
+        executeCodeRequest.setCode(code);
+        executeCodeRequest.setLanguage(language);
+        executeCodeRequest.setInputList(inputList);
+        return executeCodeRequest;
+    }
+}
@@ -3,57 +3,171 @@ package com.yupi.yuojcodesandbox;
 
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
+import com.yupi.yuojcodesandbox.compile.CompileCache;
+import com.yupi.yuojcodesandbox.execute.ExecuteScheduler;
+import com.yupi.yuojcodesandbox.execute.FailFastChecker;
+import com.yupi.yuojcodesandbox.execute.OutputComparator;
+import com.yupi.yuojcodesandbox.execute.ProcessTimeoutScheduler;
+import com.yupi.yuojcodesandbox.execute.ResourceMonitor;
+import com.yupi.yuojcodesandbox.execute.ResourceUsage;
+import com.yupi.yuojcodesandbox.isolation.NamespaceIsolation;
+import com.yupi.yuojcodesandbox.language.LanguageRunner;
+import com.yupi.yuojcodesandbox.language.LanguageRunnerRegistry;
+import com.yupi.yuojcodesandbox.metrics.SandboxMetrics;
+import com.yupi.yuojcodesandbox.model.CaseVerdict;
 import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
 import com.yupi.yuojcodesandbox.model.ExecuteCodeResponse;
 import com.yupi.yuojcodesandbox.model.ExecuteMessage;
 import com.yupi.yuojcodesandbox.model.JudgeInfo;
+import com.yupi.yuojcodesandbox.model.enums.JudgeInfoMessageEnum;
+import com.yupi.yuojcodesandbox.security.CodePreScreener;
 import com.yupi.yuojcodesandbox.utils.ProcessUtils;
+import com.yupi.yuojcodesandbox.workspace.WorkspaceManager;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 
+import javax.annotation.Resource;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
- * 支持Java、C、Python的代码沙箱
+ * 代码沙箱模板：保存代码 → 编译 → 执行 → 整理输出 → 清理，各语言的差异由 {@link LanguageRunner} 提供
  */
 @Slf4j
 public abstract class CodeSandboxTemplate implements CodeSandbox {
 
-    private static final String GLOBAL_CODE_DIR_NAME = "tmpCode";
-    private static final long TIME_OUT = 5000L;
+    @Resource
+    private CompileCache compileCache;
+
+    @Resource
+    private ExecuteScheduler executeScheduler;
+
+    @Resource
+    protected ProcessTimeoutScheduler processTimeoutScheduler;
+
+    @Resource
+    protected ResourceMonitor resourceMonitor;
+
+    @Resource
+    private WorkspaceManager workspaceManager;
+
+    @Resource
+    private NamespaceIsolation namespaceIsolation;
+
+    @Resource
+    private LanguageRunnerRegistry languageRunnerRegistry;
+
+    @Resource
+    private CodePreScreener codePreScreener;
+
+    @Resource
+    protected SandboxMetrics sandboxMetrics;
+
+    /**
+     * 单个用例标准输出、标准错误各自的上限（字节），超出时结束进程并判为输出超限
+     */
+    @Value("${sandbox.execute.output-limit-bytes:16777216}")
+    protected int outputLimitBytes;
 
     @Override
     public ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest) {
-        List<String> inputList = executeCodeRequest.getInputList();
-        String code = executeCodeRequest.getCode();
-        String language = executeCodeRequest.getLanguage().toLowerCase();
+        return executeCode(executeCodeRequest, null);
+    }
+
+    /**
+     * 执行代码，每个用例执行结束时立即通知（用于流式返回结果）
+     *
+     * @param executeCodeRequest
+     * @param caseListener       用例执行结束的通知，可以为 null
+     * @return
+     */
+    public ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest,
+                                           ExecuteScheduler.CaseListener caseListener) {
+        ExecuteCodeResponse executeCodeResponse = doExecuteCode(executeCodeRequest, caseListener);
+        sandboxMetrics.recordVerdict(executeCodeRequest.getLanguage(), getSandboxMode(), executeCodeResponse);
+        return executeCodeResponse;
+    }
+
+    /**
+     * 沙箱的执行方式，作为指标的 mode 标签
+     *
+     * @return native、namespace 或 docker
+     */
+    public String getSandboxMode() {
+        return isNamespaceIsolated() ? "namespace" : "native";
+    }
+
+    private ExecuteCodeResponse doExecuteCode(ExecuteCodeRequest request,
+                                              ExecuteScheduler.CaseListener caseListener) {
+        String code = request.getCode();
+        String language = request.getLanguage();
+        String mode = getSandboxMode();
 
         File userCodeFile = null;
         try {
+            LanguageRunner languageRunner = languageRunnerRegistry.getRunner(language);
+            // 按语言放宽时间、内存限制（不修改调用方的请求），沙箱的超时控制、内存超限判断都使用放宽后的限制
+            ExecuteCodeRequest executeCodeRequest = applyMultipliers(request, languageRunner);
+
+            // 0. 预检代码，使用了禁用的标识符时不再编译、执行
+            String deniedToken = codePreScreener.screen(languageRunner, code);
+            if (deniedToken != null) {
+                return getDangerousOperationResponse(deniedToken);
+            }
+
             // 1. 保存代码文件
-            userCodeFile = saveCodeToFile(code, language);
+            long workspaceStart = System.nanoTime();
+            userCodeFile = saveCodeToFile(code, languageRunner);
+            sandboxMetrics.recordWorkspace(language, mode, System.nanoTime() - workspaceStart);
 
-            // 2. 编译代码
-            ExecuteMessage compileMessage = compileFile(userCodeFile, language);
+            // 2. 编译代码（记录编译耗时，命中缓存时接近 0）
+            long compileStart = System.nanoTime();
+            ExecuteMessage compileMessage = compileFile(userCodeFile, languageRunner);
+            long compileNanos = System.nanoTime() - compileStart;
+            sandboxMetrics.recordCompile(language, mode, compileNanos);
+            long compileTime = TimeUnit.NANOSECONDS.toMillis(compileNanos);
             if (compileMessage.getExitValue() != 0) {
                 // 编译错误
-                return getCompileErrorResponse(compileMessage);
+                ExecuteCodeResponse compileErrorResponse = getCompileErrorResponse(compileMessage);
+                compileErrorResponse.setCompileTime(compileTime);
+                return compileErrorResponse;
             }
 
-            // 3. 执行代码
-            List<ExecuteMessage> executeMessageList = runFile(userCodeFile, inputList, language);
+            // 3. 执行代码（开启快速失败时，出现失败的用例后不再执行剩余用例）
+            OutputComparator outputComparator = OutputComparator.of(executeCodeRequest);
+            FailFastChecker failFastChecker = FailFastChecker.of(executeCodeRequest, outputComparator);
+            List<ExecuteMessage> executeMessageList = runFile(userCodeFile, languageRunner, executeCodeRequest,
+                    failFastChecker, caseListener);
+            for (ExecuteMessage executeMessage : executeMessageList) {
+                sandboxMetrics.recordCase(language, mode, executeMessage);
+            }
 
-            // 4. 整理输出
-            return getOutputResponse(executeMessageList);
+            // 4. 整理输出（传入了预期输出或开启快速失败时，由沙箱给出每个用例的判题结果）
+            ExecuteCodeResponse response;
+            if (outputComparator != null || failFastChecker != null) {
+                response = getVerdictResponse(executeMessageList, executeCodeRequest, outputComparator,
+                        failFastChecker != null);
+            } else {
+                response = getOutputResponse(executeMessageList);
+            }
+            response.setCompileTime(compileTime);
+            response.setStartupTimeExcluded(isStartupTimeExcluded(executeMessageList));
+            // 返回放宽后的限制，判题服务按同样的限制判断时间、内存
+            response.setTimeLimit(executeCodeRequest.getTimeLimit());
+            response.setMemoryLimit(executeCodeRequest.getMemoryLimit());
+            return response;
         } catch (Exception e) {
             return getErrorResponse(e);
         } finally {
             // 5. 清理文件
             if (userCodeFile != null) {
+                long cleanupStart = System.nanoTime();
                 boolean b = deleteFile(userCodeFile);
+                sandboxMetrics.recordCleanup(language, mode, System.nanoTime() - cleanupStart);
                 if (!b) {
                     log.error("deleteFile error, userCodeFilePath = {}", userCodeFile.getAbsolutePath());
                 }
@@ -61,110 +175,217 @@ public abstract class CodeSandboxTemplate implements CodeSandbox {
         }
     }
 
-    private File saveCodeToFile(String code, String language) {
-        String userDir = System.getProperty("user.dir");
-        String globalCodePathName = userDir + File.separator + GLOBAL_CODE_DIR_NAME;
-        if (!FileUtil.exist(globalCodePathName)) {
-            FileUtil.mkdir(globalCodePathName);
+    /**
+     * 按语言的倍数放宽时间、内存限制
+     *
+     * @param executeCodeRequest
+     * @param languageRunner
+     * @return 放宽限制后的请求副本（倍数都为 1 时返回原请求）
+     */
+    static ExecuteCodeRequest applyMultipliers(ExecuteCodeRequest executeCodeRequest, LanguageRunner languageRunner) {
+        if (languageRunner.getTimeMultiplier() == 1.0 && languageRunner.getMemoryMultiplier() == 1.0) {
+            return executeCodeRequest;
         }
-
-        String fileName;
-        switch (language) {
-            case "java":
-                fileName = "Main.java";
-                break;
-            case "c":
-                fileName = "main.c";
-                break;
-            case "python":
-                fileName = "main.py";
-                break;
-            default:
-                throw new RuntimeException("Unsupported language: " + language);
-        }
-
-        String userCodeParentPath = globalCodePathName + File.separator + UUID.randomUUID();
-        String userCodePath = userCodeParentPath + File.separator + fileName;
-        return FileUtil.writeString(code, userCodePath, StandardCharsets.UTF_8);
+        Long timeLimit = executeCodeRequest.getTimeLimit();
+        Long memoryLimit = executeCodeRequest.getMemoryLimit();
+        return executeCodeRequest.toBuilder()
+                .timeLimit(timeLimit == null ? null : (long) (timeLimit * languageRunner.getTimeMultiplier()))
+                .memoryLimit(memoryLimit == null ? null : (long) (memoryLimit * languageRunner.getMemoryMultiplier()))
+                .build();
     }
 
-    private ExecuteMessage compileFile(File userCodeFile, String language) {
-        if ("python".equals(language)) {
-            ExecuteMessage msg = new ExecuteMessage();
-            msg.setExitValue(0);
-            msg.setMessage("Python不需要编译");
-            return msg;
-        }
-
-        String compileCmd;
-        String filePath = userCodeFile.getAbsolutePath();
-        String parentPath = userCodeFile.getParentFile().getAbsolutePath();
+    private File saveCodeToFile(String code, LanguageRunner languageRunner) {
+        // 每次提交使用单独的工作目录
+        File userCodeParentDir = workspaceManager.allocate();
+        return FileUtil.writeString(code, new File(userCodeParentDir, languageRunner.getSourceFileName()),
+                StandardCharsets.UTF_8);
+    }
 
-        switch (language) {
-            case "java":
-                compileCmd = String.format("javac -encoding utf-8 %s", filePath);
-                break;
-            case "c":
-                compileCmd = String.format("gcc %s -o %s/main", filePath, parentPath);
-                break;
-            default:
-                throw new RuntimeException("Unsupported language: " + language);
+    private ExecuteMessage compileFile(File userCodeFile, LanguageRunner languageRunner) {
+        // 目标版本是编译参数的一部分，不同版本的产物使用不同的缓存键
+        String targetRelease = getTargetRelease(languageRunner);
+        String compileFlags = languageRunner.getCompileFlags(targetRelease);
+        // 相同语言、编译参数、源码的产物直接从缓存复制（不需要编译的语言不使用缓存）
+        File parentFile = userCodeFile.getParentFile();
+        String cacheKey = null;
+        if (compileFlags != null && compileCache.isEnabled()) {
+            cacheKey = compileCache.buildKey(languageRunner.getLanguage(), compileFlags, userCodeFile);
+            if (compileCache.restore(cacheKey, parentFile)) {
+                ExecuteMessage msg = new ExecuteMessage();
+                msg.setExitValue(0);
+                msg.setMessage("命中编译缓存");
+                return msg;
+            }
         }
 
+        ExecuteMessage compileMessage;
         try {
-            Process compileProcess = Runtime.getRuntime().exec(compileCmd);
-            return ProcessUtils.runProcessAndGetMessage(compileProcess, "编译");
+            compileMessage = languageRunner.compile(userCodeFile, targetRelease);
         } catch (Exception e) {
             throw new RuntimeException("编译失败: " + e.getMessage());
         }
+        if (cacheKey != null && Integer.valueOf(0).equals(compileMessage.getExitValue())) {
+            compileCache.store(cacheKey, parentFile, userCodeFile.getName());
+        }
+        return compileMessage;
     }
 
-    private List<ExecuteMessage> runFile(File userCodeFile, List<String> inputList, String language) {
-        String parentPath = userCodeFile.getParentFile().getAbsolutePath();
-        List<ExecuteMessage> executeMessages = new ArrayList<>();
+    /**
+     * 编译的目标版本，默认与宿主机一致（执行环境与宿主机不同时由子类指定）
+     *
+     * @param languageRunner
+     * @return 为 null 时与宿主机一致
+     */
+    protected String getTargetRelease(LanguageRunner languageRunner) {
+        return null;
+    }
 
-        for (String input : inputList) {
-            String runCmd;
-            switch (language) {
-                case "java":
-                    runCmd = String.format("java -Xmx256m -Dfile.encoding=UTF-8 -cp %s Main %s", parentPath, input);
-                    break;
-                case "c":
-                    runCmd = String.format("%s/main %s", parentPath, input);
-                    break;
-                case "python":
-                    runCmd = String.format("python %s/main.py %s", parentPath, input);
-                    break;
-                default:
-                    throw new RuntimeException("Unsupported language: " + language);
+    /**
+     * 执行所有用例，得到执行结果列表（结果保持输入顺序，快速失败时没有执行的用例为 null）
+     *
+     * @param userCodeFile
+     * @param languageRunner
+     * @param executeCodeRequest
+     * @param failFastChecker    为 null 时不快速失败
+     * @param caseListener       用例执行结束的通知，可以为 null
+     * @return
+     */
+    protected List<ExecuteMessage> runFile(File userCodeFile, LanguageRunner languageRunner,
+                                           ExecuteCodeRequest executeCodeRequest, FailFastChecker failFastChecker,
+                                           ExecuteScheduler.CaseListener caseListener) {
+        File parentFile = userCodeFile.getParentFile();
+        String parentPath = parentFile.getAbsolutePath();
+        long timeout = processTimeoutScheduler.resolveTimeout(executeCodeRequest.getTimeLimit());
+        boolean isolated = isNamespaceIsolated();
+        String mode = getSandboxMode();
+        ExecuteScheduler.CaseRunner caseRunner = (input, cpu) -> runCase(parentPath, languageRunner, input, cpu,
+                timeout, isolated, mode);
+        // 命名空间隔离时每个用例单独启动进程，不使用语言自己的执行方式（常驻 JVM、多用例执行器）
+        if (!isolated) {
+            List<ExecuteMessage> executeMessageList = languageRunner.runCases(parentFile, executeCodeRequest, timeout,
+                    outputLimitBytes, caseRunner, failFastChecker, caseListener);
+            if (executeMessageList != null) {
+                return executeMessageList;
             }
+        }
+        // 各用例并行执行，结果保持输入顺序
+        return executeScheduler.runCases(executeCodeRequest.getInputList(), executeCodeRequest.getParallelism(),
+                caseRunner, ExecuteScheduler.StopCondition.of(failFastChecker, caseListener));
+    }
 
+    /**
+     * 是否在命名空间隔离环境中执行用例，默认由配置决定
+     *
+     * @return
+     */
+    protected boolean isNamespaceIsolated() {
+        return namespaceIsolation.isEnabled();
+    }
+
+    private ExecuteMessage runCase(String parentPath, LanguageRunner languageRunner, String input, Integer cpu,
+                                   long timeout, boolean isolated, String mode) {
+        // 隔离时工作目录挂载在命名空间内的固定位置
+        String codePath = isolated ? NamespaceIsolation.WORKSPACE_MOUNT : parentPath;
+        String runCmd = languageRunner.buildRunCommand(codePath, input, isolated);
+
+        NamespaceIsolation.IsolatedProcess isolatedProcess = null;
+        try {
+            Process runProcess;
+            long spawnStart = System.nanoTime();
+            if (isolated) {
+                // 与 Runtime.exec 一样按空白拆分命令
+                isolatedProcess = namespaceIsolation.start(new File(parentPath),
+                        Arrays.asList(runCmd.trim().split("\\s+")), timeout, languageRunner, cpu);
+                runProcess = isolatedProcess.getProcess();
+            } else {
+                runProcess = Runtime.getRuntime().exec(ExecuteScheduler.pinToCpu(runCmd, cpu));
+            }
+            sandboxMetrics.recordSpawn(languageRunner.getLanguage(), mode, System.nanoTime() - spawnStart);
+            // 统计 CPU 时间和峰值内存
+            ResourceMonitor.ProcessUsageWatch usageWatch = resourceMonitor.watch(runProcess);
+            // 超时控制
+            ProcessTimeoutScheduler.TimeoutWatch timeoutWatch = processTimeoutScheduler.watch(runProcess, timeout);
+            ExecuteMessage executeMessage;
+            ResourceUsage resourceUsage;
             try {
-                Process runProcess = Runtime.getRuntime().exec(runCmd);
-                // 超时控制
-                new Thread(() -> {
-                    try {
-                        Thread.sleep(TIME_OUT);
-                        runProcess.destroy();
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                }).start();
-                ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(runProcess, "运行");
-                executeMessages.add(executeMessage);
-            } catch (Exception e) {
-                throw new RuntimeException("执行错误: " + e.getMessage());
+                executeMessage = ProcessUtils.runProcessAndGetMessage(runProcess, "运行", outputLimitBytes);
+            } finally {
+                timeoutWatch.cancel();
+                resourceUsage = usageWatch.stop();
+                if (isolatedProcess != null) {
+                    isolatedProcess.finish();
+                }
+            }
+            executeMessage.setTimeout(timeoutWatch.isTimedOut());
+            ResourceMonitor.fillExecuteMessage(executeMessage, resourceUsage);
+            if (isolatedProcess != null) {
+                fillIsolationResult(executeMessage, isolatedProcess);
+            }
+            return executeMessage;
+        } catch (Exception e) {
+            throw new RuntimeException("执行错误: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 执行过的用例是否都不包含运行环境启动的开销（部分用例回退为单独启动进程执行时为 false）
+     */
+    private static boolean isStartupTimeExcluded(List<ExecuteMessage> executeMessageList) {
+        boolean executed = false;
+        for (ExecuteMessage executeMessage : executeMessageList) {
+            if (executeMessage == null) {
+                continue;
+            }
+            if (!Boolean.TRUE.equals(executeMessage.getStartupTimeExcluded())) {
+                return false;
             }
+            executed = true;
+        }
+        return executed;
+    }
+
+    /**
+     * 使用 cgroup 统计的内存峰值（包含采样间隔内的短暂峰值），被 cgroup 因内存超限结束时标记为内存超限（而不是运行错误）
+     */
+    private static void fillIsolationResult(ExecuteMessage executeMessage,
+                                            NamespaceIsolation.IsolatedProcess isolatedProcess) {
+        long memory = executeMessage.getMemory() == null ? 0 : executeMessage.getMemory();
+        if (isolatedProcess.getPeakMemory() > memory) {
+            executeMessage.setMemory(isolatedProcess.getPeakMemory());
+        }
+        if (isolatedProcess.isOomKilled()) {
+            executeMessage.setMemoryLimitExceeded(true);
+            executeMessage.setErrorMessage("内存超限");
         }
-        return executeMessages;
     }
 
     private ExecuteCodeResponse getOutputResponse(List<ExecuteMessage> executeMessageList) {
         ExecuteCodeResponse response = new ExecuteCodeResponse();
         List<String> outputs = new ArrayList<>();
         long maxTime = 0;
+        long maxMemory = 0;
 
+        JudgeInfo judgeInfo = new JudgeInfo();
         for (ExecuteMessage msg : executeMessageList) {
+            if (Boolean.TRUE.equals(msg.getTimeout())) {
+                response.setStatus(3);
+                response.setMessage("运行超时");
+                judgeInfo.setMessage(JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED.getValue());
+                break;
+            }
+            if (Boolean.TRUE.equals(msg.getOutputLimitExceeded())) {
+                response.setStatus(3);
+                response.setMessage("输出超限");
+                judgeInfo.setMessage(JudgeInfoMessageEnum.OUTPUT_LIMIT_EXCEEDED.getValue());
+                break;
+            }
+            if (Boolean.TRUE.equals(msg.getMemoryLimitExceeded())) {
+                response.setStatus(3);
+                response.setMessage("内存超限");
+                judgeInfo.setMessage(JudgeInfoMessageEnum.MEMORY_LIMIT_EXCEEDED.getValue());
+                maxMemory = Math.max(maxMemory, msg.getMemory() != null ? msg.getMemory() : 0);
+                break;
+            }
             if (StrUtil.isNotBlank(msg.getErrorMessage())) {
                 response.setStatus(3);
                 response.setMessage(msg.getErrorMessage());
@@ -172,6 +393,7 @@ public abstract class CodeSandboxTemplate implements CodeSandbox {
             }
             outputs.add(msg.getMessage());
             maxTime = Math.max(maxTime, msg.getTime() != null ? msg.getTime() : 0);
+            maxMemory = Math.max(maxMemory, msg.getMemory() != null ? msg.getMemory() : 0);
         }
 
         if (outputs.size() == executeMessageList.size()) {
@@ -179,16 +401,108 @@ public abstract class CodeSandboxTemplate implements CodeSandbox {
         }
 
         response.setOutputList(outputs);
+        judgeInfo.setTime(maxTime);
+        judgeInfo.setMemory(maxMemory);
+        response.setJudgeInfo(judgeInfo);
+        return response;
+    }
+
+    /**
+     * 由沙箱给出每个用例的判题结果，judgeInfo.message 为第一个失败用例的结果（全部通过时为空，由判题服务判断时间、内存限制）
+     *
+     * @param executeMessageList 执行结果，快速失败时没有执行的用例为 null
+     * @param executeCodeRequest
+     * @param outputComparator   预期输出，为 null 时只判断运行状态
+     * @param failFast           是否快速失败（第一个失败的用例之后的结果不再判断）
+     * @return
+     */
+    static ExecuteCodeResponse getVerdictResponse(List<ExecuteMessage> executeMessageList,
+                                                  ExecuteCodeRequest executeCodeRequest,
+                                                  OutputComparator outputComparator, boolean failFast) {
+        ExecuteCodeResponse response = new ExecuteCodeResponse();
+        boolean compareOnly = outputComparator != null && Boolean.TRUE.equals(executeCodeRequest.getCompareOnly());
+        Long memoryLimit = executeCodeRequest.getMemoryLimit();
+        List<String> outputs = new ArrayList<>();
+        List<CaseVerdict> caseVerdictList = new ArrayList<>();
+        long maxTime = 0;
+        long maxMemory = 0;
+        int skippedCaseCount = 0;
+        Integer failedCaseIndex = null;
+
         JudgeInfo judgeInfo = new JudgeInfo();
+        for (int i = 0; i < executeMessageList.size(); i++) {
+            ExecuteMessage msg = executeMessageList.get(i);
+            if (msg == null || (failFast && failedCaseIndex != null)) {
+                // 快速失败时没有执行（或在失败用例之后执行）的用例
+                skippedCaseCount += msg == null ? 1 : 0;
+                continue;
+            }
+            String outputDigest = OutputComparator.digest(msg.getMessage());
+            JudgeInfoMessageEnum verdict;
+            String errorMessage = null;
+            String diff = null;
+            if (Boolean.TRUE.equals(msg.getTimeout())) {
+                verdict = JudgeInfoMessageEnum.TIME_LIMIT_EXCEEDED;
+                errorMessage = "运行超时";
+            } else if (Boolean.TRUE.equals(msg.getOutputLimitExceeded())) {
+                verdict = JudgeInfoMessageEnum.OUTPUT_LIMIT_EXCEEDED;
+                errorMessage = "输出超限";
+            } else if (Boolean.TRUE.equals(msg.getMemoryLimitExceeded())) {
+                // 因内存超限被结束的进程退出码非 0，需在运行错误之前判断
+                verdict = JudgeInfoMessageEnum.MEMORY_LIMIT_EXCEEDED;
+                errorMessage = "内存超限";
+            } else if (StrUtil.isNotBlank(msg.getErrorMessage())
+                    || (msg.getExitValue() != null && msg.getExitValue() != 0)) {
+                verdict = JudgeInfoMessageEnum.RUNTIME_ERROR;
+                errorMessage = StrUtil.isNotBlank(msg.getErrorMessage()) ? msg.getErrorMessage() : "运行错误";
+            } else if (memoryLimit != null && memoryLimit > 0 && msg.getMemory() != null && msg.getMemory() > memoryLimit) {
+                verdict = JudgeInfoMessageEnum.MEMORY_LIMIT_EXCEEDED;
+                errorMessage = "内存超限";
+            } else if (outputComparator != null && !outputComparator.matches(i, outputDigest)) {
+                verdict = JudgeInfoMessageEnum.WRONG_ANSWER;
+                errorMessage = "答案错误";
+                diff = outputComparator.diff(i, msg.getMessage());
+            } else {
+                verdict = JudgeInfoMessageEnum.ACCEPTED;
+            }
+            caseVerdictList.add(CaseVerdict.builder()
+                    .verdict(verdict.getValue())
+                    .outputDigest(outputDigest)
+                    .diff(diff)
+                    .time(msg.getTime())
+                    .memory(msg.getMemory())
+                    .build());
+            if (!compareOnly) {
+                outputs.add(msg.getMessage());
+            }
+            maxTime = Math.max(maxTime, msg.getTime() != null ? msg.getTime() : 0);
+            maxMemory = Math.max(maxMemory, msg.getMemory() != null ? msg.getMemory() : 0);
+            if (verdict != JudgeInfoMessageEnum.ACCEPTED && failedCaseIndex == null) {
+                failedCaseIndex = i;
+                response.setStatus(3);
+                response.setMessage(errorMessage);
+                judgeInfo.setMessage(verdict.getValue());
+            }
+        }
+
+        if (failedCaseIndex == null) {
+            response.setStatus(1);
+        }
+        response.setOutputList(outputs);
+        response.setCaseVerdictList(caseVerdictList);
+        response.setFailedCaseIndex(failedCaseIndex);
+        response.setSkippedCaseCount(skippedCaseCount);
         judgeInfo.setTime(maxTime);
+        judgeInfo.setMemory(maxMemory);
         response.setJudgeInfo(judgeInfo);
         return response;
     }
 
     private boolean deleteFile(File userCodeFile) {
         if (userCodeFile.getParentFile() != null) {
-            System.out.println("删除代码文件位置："+userCodeFile.getParentFile());
-            return FileUtil.del(userCodeFile.getParentFile());
+            // 归还工作目录，由后台线程清理
+            workspaceManager.release(userCodeFile.getParentFile());
+            return true;
         }
         return false;
     }
@@ -202,12 +516,26 @@ public abstract class CodeSandboxTemplate implements CodeSandbox {
         return response;
     }
 
+    private ExecuteCodeResponse getDangerousOperationResponse(String deniedToken) {
+        ExecuteCodeResponse response = new ExecuteCodeResponse();
+        response.setStatus(3);
+        response.setMessage("代码包含禁止的操作：" + deniedToken);
+        response.setOutputList(new ArrayList<>());
+        JudgeInfo judgeInfo = new JudgeInfo();
+        judgeInfo.setMessage(JudgeInfoMessageEnum.DANGEROUS_OPERATION.getValue());
+        response.setJudgeInfo(judgeInfo);
+        return response;
+    }
+
     private ExecuteCodeResponse getCompileErrorResponse(ExecuteMessage compileMessage) {
         ExecuteCodeResponse response = new ExecuteCodeResponse();
         response.setStatus(3);
         response.setMessage(compileMessage.getErrorMessage());
         response.setOutputList(new ArrayList<>());
-        response.setJudgeInfo(new JudgeInfo());
+        // 与危险操作一样给出判题结果，判题服务和指标不会把编译错误当作运行错误
+        JudgeInfo judgeInfo = new JudgeInfo();
+        judgeInfo.setMessage(JudgeInfoMessageEnum.COMPILE_ERROR.getValue());
+        response.setJudgeInfo(judgeInfo);
         return response;
     }
 }
@@ -1,37 +1,64 @@
 package com.yupi.yuojcodesandbox;
 
+import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.io.resource.ResourceUtil;
-import cn.hutool.core.util.ArrayUtil;
 import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.*;
 import com.github.dockerjava.api.model.*;
-import com.github.dockerjava.core.DockerClientBuilder;
 import com.github.dockerjava.core.command.ExecStartResultCallback;
+import com.yupi.yuojcodesandbox.docker.DockerContainerPool;
+import com.yupi.yuojcodesandbox.docker.DockerStatsManager;
+import com.yupi.yuojcodesandbox.docker.PooledContainer;
+import com.yupi.yuojcodesandbox.execute.ExecuteScheduler;
+import com.yupi.yuojcodesandbox.execute.FailFastChecker;
+import com.yupi.yuojcodesandbox.execute.ResourceMonitor;
+import com.yupi.yuojcodesandbox.language.LanguageRunner;
 import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
 import com.yupi.yuojcodesandbox.model.ExecuteCodeResponse;
 import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import com.yupi.yuojcodesandbox.utils.BoundedOutputBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StopWatch;
 
-import java.io.Closeable;
+import javax.annotation.Resource;
 import java.io.File;
-import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Component
-public class JavaDockerCodeSandbox extends JavaCodeSandboxTemplate {
+public class JavaDockerCodeSandbox extends CodeSandboxTemplate {
 
-    private static final long TIME_OUT = 5000L;
+    /**
+     * 工作目录复制到容器内的位置
+     */
+    private static final String CONTAINER_WORKSPACE = "/app";
+
+    @Resource
+    private DockerClient dockerClient;
 
-    private static final Boolean FIRST_INIT = true;
+    @Resource
+    private DockerContainerPool dockerContainerPool;
+
+    @Resource
+    private DockerStatsManager dockerStatsManager;
+
+    /**
+     * Java 镜像内的 JDK 版本，编译产物按该版本生成，否则容器内报 UnsupportedClassVersionError
+     */
+    @Value("${sandbox.docker.java-release:8}")
+    private String javaRelease;
 
     public static void main(String[] args) {
-        JavaDockerCodeSandbox javaNativeCodeSandbox = new JavaDockerCodeSandbox();
+        ConfigurableApplicationContext context = SpringApplication.run(YuojCodeSandboxApplication.class, args);
+        JavaDockerCodeSandbox javaDockerCodeSandbox = context.getBean(JavaDockerCodeSandbox.class);
         ExecuteCodeRequest executeCodeRequest = new ExecuteCodeRequest();
         executeCodeRequest.setInputList(Arrays.asList("1 2", "1 3"));
         String code = ResourceUtil.readStr("testCode/simpleComputeArgs/Main.java", StandardCharsets.UTF_8);
@@ -39,165 +66,173 @@ public class JavaDockerCodeSandbox extends JavaCodeSandboxTemplate {
 //        String code = ResourceUtil.readStr("testCode/simpleCompute/Main.java", StandardCharsets.UTF_8);
         executeCodeRequest.setCode(code);
         executeCodeRequest.setLanguage("java");
-        ExecuteCodeResponse executeCodeResponse = javaNativeCodeSandbox.executeCode(executeCodeRequest);
+        ExecuteCodeResponse executeCodeResponse = javaDockerCodeSandbox.executeCode(executeCodeRequest);
         System.out.println(executeCodeResponse);
+        context.close();
+    }
+
+    @Override
+    public String getSandboxMode() {
+        return "docker";
+    }
+
+    @Override
+    protected String getTargetRelease(LanguageRunner languageRunner) {
+        return "java".equals(languageRunner.getLanguage()) ? javaRelease : null;
     }
 
     /**
-     * 3、创建容器，把文件复制到容器内
+     * 3、从容器池租用容器，把文件复制到容器内执行（容器只分配了 1 个 CPU，用例依次执行）
      * @param userCodeFile
-     * @param inputList
+     * @param languageRunner
+     * @param executeCodeRequest
+     * @param failFastChecker
+     * @param caseListener
      * @return
      */
     @Override
-    public List<ExecuteMessage> runFile(File userCodeFile, List<String> inputList) {
+    protected List<ExecuteMessage> runFile(File userCodeFile, LanguageRunner languageRunner,
+                                           ExecuteCodeRequest executeCodeRequest, FailFastChecker failFastChecker,
+                                           ExecuteScheduler.CaseListener caseListener) {
+        List<String> inputList = executeCodeRequest.getInputList();
         String userCodeParentPath = userCodeFile.getParentFile().getAbsolutePath();
-        // 获取默认的 Docker Client
-        DockerClient dockerClient = DockerClientBuilder.getInstance().build();
-
-        // 拉取镜像
-        String image = "openjdk:8-alpine";
-        if (FIRST_INIT) {
-            PullImageCmd pullImageCmd = dockerClient.pullImageCmd(image);
-            PullImageResultCallback pullImageResultCallback = new PullImageResultCallback() {
-                @Override
-                public void onNext(PullResponseItem item) {
-                    System.out.println("下载镜像：" + item.getStatus());
-                    super.onNext(item);
+        // 租用预先启动好的容器（没有配置镜像的语言不支持）
+        PooledContainer container = dockerContainerPool.lease(languageRunner.getLanguage());
+        boolean healthy = true;
+        long timeout = processTimeoutScheduler.resolveTimeout(executeCodeRequest.getTimeLimit());
+        // 租用期间保持一个 stats 订阅，各用例共享同一个流，不必每个用例重新打开
+        DockerStatsManager.StatsWatch leaseWatch = dockerStatsManager.watch(container.getContainerId());
+        try {
+            dockerContainerPool.copyToWorkspace(container, userCodeParentPath);
+            // docker exec keen_blackwell java -cp /app Main 1 3
+            // 执行命令并获取结果
+            List<ExecuteMessage> executeMessageList = new ArrayList<>();
+            for (int i = 0; i < inputList.size(); i++) {
+                // 容器内看不到宿主机上的文件，与命名空间隔离时一样使用挂载位置下的路径
+                String runCmd = languageRunner.buildRunCommand(CONTAINER_WORKSPACE, inputList.get(i), true);
+                ExecuteMessage executeMessage = execInContainer(container.getContainerId(),
+                        runCmd.trim().split("\\s+"), timeout, languageRunner.getLanguage());
+                executeMessageList.add(executeMessage);
+                if (Boolean.TRUE.equals(executeMessage.getTimeout())
+                        || Boolean.TRUE.equals(executeMessage.getOutputLimitExceeded())) {
+                    // 超时、输出超限的进程可能还在容器内运行，该容器不再复用
+                    healthy = false;
+                }
+                if (caseListener != null) {
+                    caseListener.onCaseFinished(i, executeMessage);
+                }
+                if (failFastChecker != null && failFastChecker.check(i, executeMessage)) {
+                    // 快速失败，剩余用例不再执行
+                    while (executeMessageList.size() < inputList.size()) {
+                        executeMessageList.add(null);
+                    }
+                    break;
                 }
-            };
-            try {
-                pullImageCmd
-                        .exec(pullImageResultCallback)
-                        .awaitCompletion();
-            } catch (InterruptedException e) {
-                System.out.println("拉取镜像异常");
-                throw new RuntimeException(e);
             }
+            return executeMessageList;
+        } catch (RuntimeException e) {
+            healthy = false;
+            throw e;
+        } finally {
+            if (leaseWatch != null) {
+                leaseWatch.close();
+            }
+            dockerContainerPool.release(container, healthy);
         }
+    }
 
-        System.out.println("下载完成");
-
-        // 创建容器
-
-        CreateContainerCmd containerCmd = dockerClient.createContainerCmd(image);
-        HostConfig hostConfig = new HostConfig();
-        hostConfig.withMemory(100 * 1000 * 1000L);
-        hostConfig.withMemorySwap(0L);
-        hostConfig.withCpuCount(1L);
-        hostConfig.withSecurityOpts(Arrays.asList("seccomp=安全管理配置字符串"));
-        hostConfig.setBinds(new Bind(userCodeParentPath, new Volume("/app")));
-        CreateContainerResponse createContainerResponse = containerCmd
-                .withHostConfig(hostConfig)
-                .withNetworkDisabled(true)
-                .withReadonlyRootfs(true)
-                .withAttachStdin(true)
+    /**
+     * 在容器内执行一个输入用例
+     * @param containerId
+     * @param cmdArray
+     * @param timeoutMs
+     * @param language
+     * @return
+     */
+    private ExecuteMessage execInContainer(String containerId, String[] cmdArray, long timeoutMs, String language) {
+        StopWatch stopWatch = new StopWatch();
+        long spawnStart = System.nanoTime();
+        ExecCreateCmdResponse execCreateCmdResponse = dockerClient.execCreateCmd(containerId)
+                .withCmd(cmdArray)
                 .withAttachStderr(true)
+                .withAttachStdin(true)
                 .withAttachStdout(true)
-                .withTty(true)
                 .exec();
-        System.out.println(createContainerResponse);
-        String containerId = createContainerResponse.getId();
-
-        // 启动容器
-        dockerClient.startContainerCmd(containerId).exec();
-
-        // docker exec keen_blackwell java -cp /app Main 1 3
-        // 执行命令并获取结果
-        List<ExecuteMessage> executeMessageList = new ArrayList<>();
-        for (String inputArgs : inputList) {
-            StopWatch stopWatch = new StopWatch();
-            String[] inputArgsArray = inputArgs.split(" ");
-            String[] cmdArray = ArrayUtil.append(new String[]{"java", "-cp", "/app", "Main"}, inputArgsArray);
-            ExecCreateCmdResponse execCreateCmdResponse = dockerClient.execCreateCmd(containerId)
-                    .withCmd(cmdArray)
-                    .withAttachStderr(true)
-                    .withAttachStdin(true)
-                    .withAttachStdout(true)
-                    .exec();
-            System.out.println("创建执行命令：" + execCreateCmdResponse);
-
-            ExecuteMessage executeMessage = new ExecuteMessage();
-            final String[] message = {null};
-            final String[] errorMessage = {null};
-            long time = 0L;
-            // 判断是否超时
-            final boolean[] timeout = {true};
-            String execId = execCreateCmdResponse.getId();
-            ExecStartResultCallback execStartResultCallback = new ExecStartResultCallback() {
-                @Override
-                public void onComplete() {
-                    // 如果执行完成，则表示没超时
-                    timeout[0] = false;
-                    super.onComplete();
-                }
-
-                @Override
-                public void onNext(Frame frame) {
-                    StreamType streamType = frame.getStreamType();
-                    if (StreamType.STDERR.equals(streamType)) {
-                        errorMessage[0] = new String(frame.getPayload());
-                        System.out.println("输出错误结果：" + errorMessage[0]);
-                    } else {
-                        message[0] = new String(frame.getPayload());
-                        System.out.println("输出结果：" + message[0]);
-                    }
-                    super.onNext(frame);
-                }
-            };
-
-            final long[] maxMemory = {0L};
-
-            // 获取占用的内存
-            StatsCmd statsCmd = dockerClient.statsCmd(containerId);
-            ResultCallback<Statistics> statisticsResultCallback = statsCmd.exec(new ResultCallback<Statistics>() {
-
-                @Override
-                public void onNext(Statistics statistics) {
-                    System.out.println("内存占用：" + statistics.getMemoryStats().getUsage());
-                    maxMemory[0] = Math.max(statistics.getMemoryStats().getUsage(), maxMemory[0]);
-                }
-
-                @Override
-                public void close() throws IOException {
-
-                }
-
-                @Override
-                public void onStart(Closeable closeable) {
-
-                }
-
-                @Override
-                public void onError(Throwable throwable) {
-
-                }
-
-                @Override
-                public void onComplete() {
+        sandboxMetrics.recordSpawn(language, getSandboxMode(), System.nanoTime() - spawnStart);
+        log.debug("创建执行命令：{}", execCreateCmdResponse);
+
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        // 输出按帧追加到有上限的缓冲区，超出上限时停止接收
+        BoundedOutputBuffer outputBuffer = new BoundedOutputBuffer(outputLimitBytes);
+        BoundedOutputBuffer errorBuffer = new BoundedOutputBuffer(outputLimitBytes);
+        long time = 0L;
+        // 判断是否超时
+        final boolean[] timeout = {true};
+        String execId = execCreateCmdResponse.getId();
+        ExecStartResultCallback execStartResultCallback = new ExecStartResultCallback() {
+            @Override
+            public void onComplete() {
+                // 如果执行完成，则表示没超时
+                timeout[0] = false;
+                super.onComplete();
+            }
 
+            @Override
+            public void onNext(Frame frame) {
+                StreamType streamType = frame.getStreamType();
+                byte[] payload = frame.getPayload();
+                BoundedOutputBuffer buffer = StreamType.STDERR.equals(streamType) ? errorBuffer : outputBuffer;
+                if (!buffer.write(payload, 0, payload.length)) {
+                    // 输出超限，结束等待（容器内的进程可能仍在运行，该容器不再复用）
+                    IoUtil.close(this);
+                    return;
                 }
-            });
-            statsCmd.exec(statisticsResultCallback);
-            try {
-                stopWatch.start();
-                dockerClient.execStartCmd(execId)
-                        .exec(execStartResultCallback)
-                        .awaitCompletion(TIME_OUT, TimeUnit.MICROSECONDS);
-                stopWatch.stop();
-                time = stopWatch.getLastTaskTimeMillis();
-                statsCmd.close();
-            } catch (InterruptedException e) {
-                System.out.println("程序执行异常");
-                throw new RuntimeException(e);
+                super.onNext(frame);
+            }
+        };
+
+        // 优先从容器的 cgroup 统计 CPU 时间和内存峰值，找不到 cgroup 时退化为 docker stats
+        ResourceMonitor.ContainerUsageWatch usageWatch = resourceMonitor.watchContainer(containerId);
+
+        // 获取占用的内存（与租用期间的订阅共享同一个 stats 流）
+        DockerStatsManager.StatsWatch statsWatch = dockerStatsManager.watch(containerId);
+        long maxMemory = 0L;
+        try {
+            stopWatch.start();
+            // 注意单位是毫秒，池化后超时未结束的进程会影响容器的复用
+            dockerClient.execStartCmd(execId)
+                    .exec(execStartResultCallback)
+                    .awaitCompletion(timeoutMs, TimeUnit.MILLISECONDS);
+            stopWatch.stop();
+            time = stopWatch.getLastTaskTimeMillis();
+        } catch (InterruptedException e) {
+            log.warn("程序执行异常", e);
+            if (usageWatch != null) {
+                usageWatch.stop();
             }
-            executeMessage.setMessage(message[0]);
-            executeMessage.setErrorMessage(errorMessage[0]);
-            executeMessage.setTime(time);
-            executeMessage.setMemory(maxMemory[0]);
-            executeMessageList.add(executeMessage);
+            throw new RuntimeException(e);
+        } finally {
+            if (statsWatch != null) {
+                statsWatch.close();
+                maxMemory = statsWatch.getMaxMemoryBytes();
+            }
+        }
+        boolean outputLimitExceeded = outputBuffer.isExceeded() || errorBuffer.isExceeded();
+        executeMessage.setMessage(outputBuffer.toNormalizedString());
+        executeMessage.setOutputBytes((long) outputBuffer.size());
+        String errorMessage = errorBuffer.toNormalizedString();
+        executeMessage.setErrorMessage(errorMessage.isEmpty() ? null : errorMessage);
+        executeMessage.setTime(time);
+        // docker stats 的内存单位是字节
+        executeMessage.setMemory(maxMemory / 1024);
+        executeMessage.setTimeout(timeout[0] && !outputLimitExceeded);
+        executeMessage.setOutputLimitExceeded(outputLimitExceeded);
+        if (usageWatch != null) {
+            ResourceMonitor.fillExecuteMessage(executeMessage, usageWatch.stop());
+        } else {
+            executeMessage.setWallTime(time);
         }
-        return executeMessageList;
+        return executeMessage;
     }
 }
 
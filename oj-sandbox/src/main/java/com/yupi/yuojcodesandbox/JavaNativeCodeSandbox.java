@@ -5,10 +5,10 @@ import com.yupi.yuojcodesandbox.model.ExecuteCodeResponse;
 import org.springframework.stereotype.Component;
 
 /**
- * Java 原生代码沙箱实现（直接复用模板方法）
+ * Java 原生代码沙箱实现（直接复用模板方法，与 NativeCodeSandbox 相同，保留供按 Java 注入的调用方使用）
  */
 @Component
-public class JavaNativeCodeSandbox extends JavaCodeSandboxTemplate {
+public class JavaNativeCodeSandbox extends CodeSandboxTemplate {
 
     @Override
     public ExecuteCodeResponse executeCode(ExecuteCodeRequest executeCodeRequest) {
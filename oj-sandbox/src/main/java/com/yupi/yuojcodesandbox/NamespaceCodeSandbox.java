@@ -0,0 +1,16 @@
+package com.yupi.yuojcodesandbox;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * 命名空间隔离的代码沙箱：与原生沙箱流程相同，每个用例在独立的 Linux 命名空间中以受限资源执行
+ * （原生沙箱也可以通过 sandbox.isolation.enabled 整体开启隔离）
+ */
+@Component
+public class NamespaceCodeSandbox extends CodeSandboxTemplate {
+
+    @Override
+    protected boolean isNamespaceIsolated() {
+        return true;
+    }
+}
@@ -0,0 +1,207 @@
+package com.yupi.yuojcodesandbox.compile;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 编译产物缓存
+ * <p>
+ * 以（语言、编译参数、源码 SHA-256）作为键，把 class 文件或可执行文件保存在本地磁盘，
+ * 重判、重复提交等相同源码命中缓存时直接复制产物，跳过编译
+ */
+@Slf4j
+@Component
+public class CompileCache {
+
+    @Value("${sandbox.compile-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sandbox.compile-cache.dir:}")
+    private String cacheDir;
+
+    @Value("${sandbox.compile-cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${sandbox.compile-cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    private File cacheRoot;
+
+    /**
+     * 缓存键 => 产物大小，按访问顺序排列（LRU）
+     */
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (cacheDir == null || cacheDir.isEmpty()) {
+            cacheDir = System.getProperty("user.dir") + File.separator + "compileCache";
+        }
+        cacheRoot = FileUtil.mkdir(cacheDir);
+        // 重启后恢复已有的缓存，按修改时间由旧到新加入索引
+        File[] entries = cacheRoot.listFiles(File::isDirectory);
+        if (entries == null) {
+            return;
+        }
+        Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+        synchronized (this) {
+            for (File entry : entries) {
+                if (entry.getName().contains(".tmp-")) {
+                    FileUtil.del(entry);
+                    continue;
+                }
+                long size = FileUtil.size(entry);
+                index.put(entry.getName(), size);
+                totalBytes += size;
+            }
+            evictIfNecessary();
+        }
+        log.info("编译缓存加载完成，entries = {}, bytes = {}", index.size(), totalBytes);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 构造缓存键
+     *
+     * @param language     编程语言
+     * @param compileFlags 编译命令及参数（不含文件路径）
+     * @param sourceFile   源码文件
+     * @return
+     */
+    public String buildKey(String language, String compileFlags, File sourceFile) {
+        String sourceHash = DigestUtil.sha256Hex(sourceFile);
+        return DigestUtil.sha256Hex(language + "\n" + compileFlags + "\n" + sourceHash);
+    }
+
+    /**
+     * 命中缓存时把产物复制到用户代码目录
+     *
+     * @param key
+     * @param targetDir 用户代码目录
+     * @return 是否命中
+     */
+    public boolean restore(String key, File targetDir) {
+        synchronized (this) {
+            if (index.get(key) == null) {
+                missCount.incrementAndGet();
+                return false;
+            }
+        }
+        File entry = new File(cacheRoot, key);
+        try {
+            copyFiles(entry, targetDir, null);
+            hitCount.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            // 复制过程中被淘汰等情况按未命中处理
+            log.warn("读取编译缓存失败，key = {}", key, e);
+            missCount.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * 编译成功后保存产物（除源码外的所有文件）
+     *
+     * @param key
+     * @param workDir        用户代码目录
+     * @param sourceFileName 源码文件名
+     */
+    public void store(String key, File workDir, String sourceFileName) {
+        File entry = new File(cacheRoot, key);
+        File tmpEntry = new File(cacheRoot, key + ".tmp-" + UUID.randomUUID());
+        try {
+            FileUtil.mkdir(tmpEntry);
+            copyFiles(workDir, tmpEntry, sourceFileName);
+            synchronized (this) {
+                if (index.containsKey(key)) {
+                    FileUtil.del(tmpEntry);
+                    return;
+                }
+                if (!tmpEntry.renameTo(entry)) {
+                    throw new IOException("rename failed: " + tmpEntry);
+                }
+                long size = FileUtil.size(entry);
+                index.put(key, size);
+                totalBytes += size;
+                evictIfNecessary();
+            }
+        } catch (IOException e) {
+            log.error("写入编译缓存失败，key = {}", key, e);
+            FileUtil.del(tmpEntry);
+        }
+    }
+
+    /**
+     * 获取缓存统计信息
+     *
+     * @return
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", index.size());
+        stats.put("bytes", totalBytes);
+        stats.put("hitCount", hitCount.get());
+        stats.put("missCount", missCount.get());
+        stats.put("evictCount", evictCount.get());
+        return stats;
+    }
+
+    /**
+     * 超出条目数或总大小限制时淘汰最久未使用的条目（调用方需持有锁）
+     */
+    private void evictIfNecessary() {
+        Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+        while ((index.size() > maxEntries || totalBytes > maxBytes) && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            FileUtil.del(new File(cacheRoot, eldest.getKey()));
+            evictCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 复制目录下的文件（保留可执行权限等属性）
+     */
+    private void copyFiles(File fromDir, File toDir, String excludeName) throws IOException {
+        File[] files = fromDir.listFiles(File::isFile);
+        if (files == null) {
+            throw new IOException("directory not found: " + fromDir);
+        }
+        for (File file : files) {
+            if (file.getName().equals(excludeName)) {
+                continue;
+            }
+            Files.copy(file.toPath(), new File(toDir, file.getName()).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+}
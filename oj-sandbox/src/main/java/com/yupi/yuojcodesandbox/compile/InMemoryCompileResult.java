@@ -0,0 +1,23 @@
+package com.yupi.yuojcodesandbox.compile;
+
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 进程内编译结果
+ */
+@Data
+public class InMemoryCompileResult {
+
+    /**
+     * 编译信息（结构与 javac 进程编译一致）
+     */
+    private ExecuteMessage executeMessage;
+
+    /**
+     * 类名 => class 文件字节
+     */
+    private Map<String, byte[]> classBytes;
+}
@@ -0,0 +1,259 @@
+package com.yupi.yuojcodesandbox.compile;
+
+import cn.hutool.core.io.FileUtil;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StopWatch;
+
+import javax.annotation.PostConstruct;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 进程内 Java 编译器
+ * <p>
+ * 基于 javax.tools.JavaCompiler 和内存中的 JavaFileManager 编译，复用已预热的编译器，
+ * 避免每次提交都启动一个 javac 进程（JVM 启动通常要 0.5 ~ 1 秒）
+ */
+@Slf4j
+@Component
+public class InMemoryJavaCompiler {
+
+    /**
+     * 编译参数，同时用作编译缓存键的一部分
+     */
+    public static final String COMPILE_FLAGS = "javax.tools -encoding utf-8 -proc:none";
+
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+    /**
+     * StandardJavaFileManager 不是线程安全的，每个线程复用自己的实例（避免重复打开平台类库）
+     */
+    private final ThreadLocal<StandardJavaFileManager> standardFileManager = ThreadLocal.withInitial(
+            () -> compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8));
+
+    @PostConstruct
+    public void init() {
+        if (!isAvailable()) {
+            log.warn("当前运行环境没有 JavaCompiler（可能是 JRE），Java 将使用 javac 进程编译");
+            return;
+        }
+        // 后台预热编译器，不阻塞启动
+        Thread warmUpThread = new Thread(() -> {
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            compile("Main.java", "public class Main { public static void main(String[] args) { } }");
+            stopWatch.stop();
+            log.info("进程内编译器预热完成，耗时 {} ms", stopWatch.getLastTaskTimeMillis());
+        }, "java-compiler-warm-up");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
+    public boolean isAvailable() {
+        return compiler != null;
+    }
+
+    /**
+     * 指定目标版本时的编译参数
+     *
+     * @param release 目标 Java 版本，为 null 时与当前 JDK 一致
+     * @return
+     */
+    public static String compileFlags(String release) {
+        return release == null ? COMPILE_FLAGS : COMPILE_FLAGS + " --release " + release;
+    }
+
+    /**
+     * 编译源码文件，把 class 文件写到源码所在目录
+     *
+     * @param userCodeFile
+     * @param release      目标 Java 版本，为 null 时与当前 JDK 一致
+     * @return 与 javac 进程编译相同结构的执行信息
+     */
+    public ExecuteMessage compileToDirectory(File userCodeFile, String release) {
+        String code = FileUtil.readUtf8String(userCodeFile);
+        InMemoryCompileResult compileResult = compile(userCodeFile.getName(), code, release);
+        ExecuteMessage executeMessage = compileResult.getExecuteMessage();
+        if (executeMessage.getExitValue() == 0) {
+            File parentFile = userCodeFile.getParentFile();
+            for (Map.Entry<String, byte[]> entry : compileResult.getClassBytes().entrySet()) {
+                String classFileName = entry.getKey().replace('.', File.separatorChar) + ".class";
+                FileUtil.writeBytes(entry.getValue(), new File(parentFile, classFileName));
+            }
+        }
+        return executeMessage;
+    }
+
+    /**
+     * 在内存中编译源码
+     *
+     * @param fileName 源码文件名，如 Main.java
+     * @param code     源码
+     * @return
+     */
+    public InMemoryCompileResult compile(String fileName, String code) {
+        return compile(fileName, code, null);
+    }
+
+    /**
+     * 在内存中编译源码
+     *
+     * @param fileName 源码文件名，如 Main.java
+     * @param code     源码
+     * @param release  目标 Java 版本（如 Docker 镜像内的 JDK 比当前 JDK 旧），为 null 时与当前 JDK 一致
+     * @return
+     */
+    public InMemoryCompileResult compile(String fileName, String code, String release) {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        MemoryFileManager fileManager = new MemoryFileManager(standardFileManager.get());
+        List<String> options = new ArrayList<>(Arrays.asList("-encoding", "utf-8", "-proc:none", "-classpath", ""));
+        if (release != null) {
+            options.add("--release");
+            options.add(release);
+        }
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                Collections.singletonList(new SourceFileObject(fileName, code)));
+        boolean success;
+        try {
+            success = task.call();
+        } catch (RuntimeException e) {
+            log.error("进程内编译异常", e);
+            success = false;
+        }
+        stopWatch.stop();
+
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setExitValue(success ? 0 : 1);
+        executeMessage.setTime(stopWatch.getLastTaskTimeMillis());
+        String diagnosticMessage = formatDiagnostics(diagnostics.getDiagnostics());
+        if (success) {
+            executeMessage.setMessage(diagnosticMessage);
+        } else {
+            executeMessage.setErrorMessage(diagnosticMessage);
+        }
+        InMemoryCompileResult compileResult = new InMemoryCompileResult();
+        compileResult.setExecuteMessage(executeMessage);
+        compileResult.setClassBytes(success ? fileManager.getClassBytes() : Collections.emptyMap());
+        return compileResult;
+    }
+
+    /**
+     * 按 javac 命令行的格式输出诊断信息，如 Main.java:3: error: ';' expected
+     */
+    private String formatDiagnostics(List<Diagnostic<? extends JavaFileObject>> diagnosticList) {
+        StringBuilder sb = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnosticList) {
+            if (sb.length() > 0) {
+                sb.append("\n");
+            }
+            JavaFileObject source = diagnostic.getSource();
+            if (source != null) {
+                sb.append(source.getName()).append(":").append(diagnostic.getLineNumber()).append(": ");
+            }
+            String kind = diagnostic.getKind() == Diagnostic.Kind.ERROR ? "error" : "warning";
+            sb.append(kind).append(": ").append(diagnostic.getMessage(Locale.ROOT));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 内存中的源码文件
+     */
+    private static class SourceFileObject extends SimpleJavaFileObject {
+
+        private final String code;
+
+        private final String fileName;
+
+        private SourceFileObject(String fileName, String code) {
+            super(URI.create("string:///" + fileName), Kind.SOURCE);
+            this.fileName = fileName;
+            this.code = code;
+        }
+
+        @Override
+        public String getName() {
+            return fileName;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    /**
+     * 内存中的 class 文件
+     */
+    private static class ClassFileObject extends SimpleJavaFileObject {
+
+        private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        private ClassFileObject(String className) {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return outputStream;
+        }
+    }
+
+    /**
+     * 把编译输出保存在内存中的 JavaFileManager
+     */
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private final Map<String, ClassFileObject> classFileMap = new LinkedHashMap<>();
+
+        private MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            ClassFileObject classFileObject = new ClassFileObject(className);
+            classFileMap.put(className, classFileObject);
+            return classFileObject;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // 底层的 StandardJavaFileManager 会被复用，不关闭
+        }
+
+        private Map<String, byte[]> getClassBytes() {
+            Map<String, byte[]> classBytes = new LinkedHashMap<>();
+            for (Map.Entry<String, ClassFileObject> entry : classFileMap.entrySet()) {
+                classBytes.put(entry.getKey(), entry.getValue().outputStream.toByteArray());
+            }
+            return classBytes;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.yupi.yuojcodesandbox.compile;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import com.yupi.yuojcodesandbox.utils.ProcessUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * GCC 预编译头管理
+ * <p>
+ * 按（编译器版本、编译参数、头文件）生成常用标准头文件（如 bits/stdc++.h）的 .gch，放在单独的目录下；
+ * 编译用户代码时通过 -I 加入该目录，GCC 查找头文件时先找到同名的 .gch，参数一致时直接加载，
+ * 不再解析整个标准库（参数不一致时 GCC 会忽略 .gch，退回普通编译，不影响结果）
+ */
+@Slf4j
+@Component
+public class PrecompiledHeaderManager {
+
+    @Value("${sandbox.compile.pch.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 预编译头目录，默认为 user.dir/pchCache
+     */
+    @Value("${sandbox.compile.pch.dir:}")
+    private String pchDir;
+
+    private File pchRoot;
+
+    /**
+     * 编译命令前缀（编译器 + 参数）=> 已生成的预编译头
+     */
+    private final Map<String, PchEntry> entryMap = new ConcurrentHashMap<>();
+
+    private final AtomicLong usedCount = new AtomicLong();
+
+    private final AtomicLong plainCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (pchDir == null || pchDir.isEmpty()) {
+            pchDir = System.getProperty("user.dir") + File.separator + "pchCache";
+        }
+        pchRoot = FileUtil.mkdir(pchDir);
+        // 清理上次生成到一半的目录
+        File[] tmpDirs = pchRoot.listFiles(file -> file.getName().contains(".tmp-"));
+        if (tmpDirs != null) {
+            for (File tmpDir : tmpDirs) {
+                FileUtil.del(tmpDir);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 生成预编译头（已生成过的直接复用，重启后按编译器版本、参数找回），在语言预热时调用
+     *
+     * @param compileCmdPrefix 编译命令前缀，如 g++ -std=c++17 -O2，与编译用户代码时的参数一致
+     * @param headerLanguage   -x 参数，c-header 或 c++-header
+     * @param headers          头文件，如 bits/stdc++.h
+     * @throws Exception
+     */
+    public void prepare(String compileCmdPrefix, String headerLanguage, List<String> headers) throws Exception {
+        headers = headers.stream().filter(StrUtil::isNotBlank).map(String::trim).collect(Collectors.toList());
+        if (!enabled || headers.isEmpty()) {
+            return;
+        }
+        String compilerVersion = readCompilerVersion(compileCmdPrefix.trim().split("\\s+")[0]);
+        String key = DigestUtil.sha256Hex(compileCmdPrefix + "\n" + compilerVersion + "\n" + headers).substring(0, 16);
+        File entryDir = new File(pchRoot, key);
+        long start = System.currentTimeMillis();
+        if (!entryDir.isDirectory()) {
+            build(compileCmdPrefix, headerLanguage, headers, entryDir);
+        }
+        long costMillis = System.currentTimeMillis() - start;
+        entryMap.put(compileCmdPrefix, new PchEntry(entryDir, headers, costMillis, FileUtil.size(entryDir)));
+        log.info("预编译头就绪，compile = {}, headers = {}, dir = {}, cost = {}ms", compileCmdPrefix, headers,
+                entryDir, costMillis);
+    }
+
+    /**
+     * 获取编译用户代码时需要加入的参数
+     *
+     * @param compileCmdPrefix 编译命令前缀
+     * @return 预编译头还没有生成时返回空串（普通编译）
+     */
+    public String includeOption(String compileCmdPrefix) {
+        PchEntry pchEntry = enabled ? entryMap.get(compileCmdPrefix) : null;
+        if (pchEntry == null) {
+            plainCount.incrementAndGet();
+            return "";
+        }
+        usedCount.incrementAndGet();
+        return "-I " + pchEntry.dir.getAbsolutePath();
+    }
+
+    /**
+     * 获取预编译头统计信息
+     *
+     * @return
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("usedCount", usedCount.get());
+        stats.put("plainCount", plainCount.get());
+        Map<String, Object> entries = new LinkedHashMap<>();
+        entryMap.forEach((compileCmdPrefix, pchEntry) -> {
+            Map<String, Object> entryStats = new LinkedHashMap<>();
+            entryStats.put("headers", pchEntry.headers);
+            entryStats.put("prepareMillis", pchEntry.prepareMillis);
+            entryStats.put("bytes", pchEntry.bytes);
+            entries.put(compileCmdPrefix, entryStats);
+        });
+        stats.put("entries", entries);
+        return stats;
+    }
+
+    /**
+     * 在临时目录中逐个生成 .gch，全部成功后重命名为正式目录，避免并发编译读到不完整的文件
+     */
+    private void build(String compileCmdPrefix, String headerLanguage, List<String> headers, File entryDir)
+            throws Exception {
+        File tmpDir = new File(pchRoot, entryDir.getName() + ".tmp-" + UUID.randomUUID());
+        try {
+            File wrapper = new File(tmpDir, "pch-wrapper.h");
+            for (String header : headers) {
+                FileUtil.writeString("#include <" + header + ">\n", wrapper, StandardCharsets.UTF_8);
+                File gchFile = new File(tmpDir, header + ".gch");
+                FileUtil.mkParentDirs(gchFile);
+                String buildCmd = String.format("%s -x %s %s -o %s", compileCmdPrefix, headerLanguage,
+                        wrapper.getAbsolutePath(), gchFile.getAbsolutePath());
+                ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(
+                        Runtime.getRuntime().exec(buildCmd), "预编译头");
+                if (!Integer.valueOf(0).equals(executeMessage.getExitValue())) {
+                    throw new IOException("生成预编译头失败，header = " + header + "，"
+                            + executeMessage.getErrorMessage());
+                }
+            }
+            FileUtil.del(wrapper);
+            Files.move(tmpDir.toPath(), entryDir.toPath());
+        } finally {
+            FileUtil.del(tmpDir);
+        }
+    }
+
+    private static String readCompilerVersion(String compiler) throws IOException {
+        Process process = new ProcessBuilder(compiler, "--version").redirectErrorStream(true).start();
+        String output = IoUtil.read(process.getInputStream(), StandardCharsets.UTF_8);
+        return output.split("\n")[0].trim();
+    }
+
+    private static class PchEntry {
+
+        private final File dir;
+
+        private final List<String> headers;
+
+        private final long prepareMillis;
+
+        private final long bytes;
+
+        private PchEntry(File dir, List<String> headers, long prepareMillis, long bytes) {
+            this.dir = dir;
+            this.headers = headers;
+            this.prepareMillis = prepareMillis;
+            this.bytes = bytes;
+        }
+    }
+}
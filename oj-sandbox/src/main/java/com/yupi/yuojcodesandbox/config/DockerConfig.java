@@ -0,0 +1,53 @@
+package com.yupi.yuojcodesandbox.config;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.core.DefaultDockerClientConfig;
+import com.github.dockerjava.core.DockerClientConfig;
+import com.github.dockerjava.core.DockerClientImpl;
+import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
+import com.github.dockerjava.transport.DockerHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Docker 客户端配置（全局共享一个 DockerClient）
+ * <p>
+ * 使用 httpclient5 传输并配置连接池：每个用例的 exec、stats 流都长时间占用一个连接，
+ * 默认的连接数在并发判题时不够用；响应超时用于回收卡住的流（如进程超时后仍未结束的 exec）
+ */
+@Configuration
+public class DockerConfig {
+
+    /**
+     * 连接池最大连接数
+     */
+    @Value("${sandbox.docker.client.max-connections:100}")
+    private int maxConnections;
+
+    @Value("${sandbox.docker.client.connect-timeout-ms:3000}")
+    private long connectTimeoutMs;
+
+    /**
+     * 两次收到数据之间的最长间隔，需大于用例超时时间，0 表示不限制
+     */
+    @Value("${sandbox.docker.client.response-timeout-ms:60000}")
+    private long responseTimeoutMs;
+
+    @Bean(destroyMethod = "close")
+    public DockerClient dockerClient() {
+        DockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder().build();
+        ApacheDockerHttpClient.Builder httpClientBuilder = new ApacheDockerHttpClient.Builder()
+                .dockerHost(config.getDockerHost())
+                .sslConfig(config.getSSLConfig())
+                .maxConnections(maxConnections)
+                .connectionTimeout(Duration.ofMillis(connectTimeoutMs));
+        if (responseTimeoutMs > 0) {
+            httpClientBuilder.responseTimeout(Duration.ofMillis(responseTimeoutMs));
+        }
+        DockerHttpClient httpClient = httpClientBuilder.build();
+        return DockerClientImpl.getInstance(config, httpClient);
+    }
+}
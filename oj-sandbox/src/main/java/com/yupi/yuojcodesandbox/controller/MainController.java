@@ -2,17 +2,51 @@ package com.yupi.yuojcodesandbox.controller;
 
 import com.yupi.yuojcodesandbox.JavaNativeCodeSandbox;
 import com.yupi.yuojcodesandbox.NativeCodeSandbox;
+import com.yupi.yuojcodesandbox.compile.CompileCache;
+import com.yupi.yuojcodesandbox.compile.PrecompiledHeaderManager;
+import com.yupi.yuojcodesandbox.docker.DockerContainerPool;
+import com.yupi.yuojcodesandbox.docker.DockerImageManager;
+import com.yupi.yuojcodesandbox.docker.DockerStatsManager;
+import com.yupi.yuojcodesandbox.execute.AdmissionLimiter;
+import com.yupi.yuojcodesandbox.execute.ExecuteJobManager;
+import com.yupi.yuojcodesandbox.execute.ExecuteScheduler;
+import com.yupi.yuojcodesandbox.harness.CdsArchiveManager;
+import com.yupi.yuojcodesandbox.harness.JavaWorkerPool;
+import com.yupi.yuojcodesandbox.isolation.NamespaceIsolation;
+import com.yupi.yuojcodesandbox.language.LanguageRunnerRegistry;
+import com.yupi.yuojcodesandbox.language.PythonZygote;
+import com.yupi.yuojcodesandbox.metrics.SandboxMetrics;
 import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
 import com.yupi.yuojcodesandbox.model.ExecuteCodeResponse;
+import com.yupi.yuojcodesandbox.model.ExecuteJobResponse;
+import com.yupi.yuojcodesandbox.protocol.FrameProtocol;
+import com.yupi.yuojcodesandbox.registry.NacosRegistrar;
+import com.yupi.yuojcodesandbox.security.CodePreScreener;
+import com.yupi.yuojcodesandbox.workspace.WorkspaceManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+@Slf4j
 @RestController("/")
 public class MainController {
 
@@ -21,14 +55,104 @@ public class MainController {
 
     private static final String AUTH_REQUEST_SECRET = "secretKey";
 
+    /**
+     * 镜像未就绪时建议的重试间隔
+     */
+    private static final int NOT_READY_RETRY_AFTER_SECONDS = 10;
+
     @Resource
     private JavaNativeCodeSandbox javaNativeCodeSandbox;
     @Resource
     private NativeCodeSandbox nativeCodeSandbox;
+    @Resource
+    private DockerContainerPool dockerContainerPool;
+    @Resource
+    private CompileCache compileCache;
+    @Resource
+    private PrecompiledHeaderManager precompiledHeaderManager;
+    @Resource
+    private ExecuteScheduler executeScheduler;
+    @Resource
+    private JavaWorkerPool javaWorkerPool;
+    @Resource
+    private CdsArchiveManager cdsArchiveManager;
+    @Resource
+    private WorkspaceManager workspaceManager;
+    @Resource
+    private AdmissionLimiter admissionLimiter;
+    @Resource
+    private ExecuteJobManager executeJobManager;
+    @Resource
+    private NacosRegistrar nacosRegistrar;
+    @Resource
+    private DockerImageManager dockerImageManager;
+    @Resource
+    private DockerStatsManager dockerStatsManager;
+    @Resource
+    private NamespaceIsolation namespaceIsolation;
+    @Resource
+    private LanguageRunnerRegistry languageRunnerRegistry;
+    @Resource
+    private PythonZygote pythonZygote;
+    @Resource
+    private CodePreScreener codePreScreener;
+    @Resource
+    private SandboxMetrics sandboxMetrics;
+
+    /**
+     * 长轮询查询异步任务时最长的等待时间
+     */
+    @Value("${sandbox.job.max-poll-wait-ms:30000}")
+    private long maxPollWaitMs;
 
+    /**
+     * 健康检查，镜像未就绪时返回 503
+     *
+     * @return
+     */
     @GetMapping("/health")
-    public String healthCheck() {
-        return "ok";
+    public ResponseEntity<String> healthCheck() {
+        if (!dockerImageManager.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("starting");
+        }
+        return ResponseEntity.ok("ok");
+    }
+
+    /**
+     * 沙箱运行状态统计
+     *
+     * @return
+     */
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("dockerPool", dockerContainerPool.getStats());
+        stats.put("dockerImage", dockerImageManager.getStats());
+        stats.put("dockerStats", dockerStatsManager.getStats());
+        stats.put("compileCache", compileCache.getStats());
+        stats.put("pch", precompiledHeaderManager.getStats());
+        stats.put("executeScheduler", executeScheduler.getStats());
+        stats.put("javaWorkerPool", javaWorkerPool.getStats());
+        stats.put("cds", cdsArchiveManager.getStats());
+        stats.put("workspace", workspaceManager.getStats());
+        stats.put("admission", admissionLimiter.getStats());
+        stats.put("executeJob", executeJobManager.getStats());
+        stats.put("registry", nacosRegistrar.getStats());
+        stats.put("isolation", namespaceIsolation.getStats());
+        stats.put("languages", languageRunnerRegistry.getStats());
+        stats.put("pythonZygote", pythonZygote.getStats());
+        stats.put("screen", codePreScreener.getStats());
+        return stats;
+    }
+
+    /**
+     * 节点负载（并发数、排队数、拒绝次数），供判题服务选择节点
+     *
+     * @return
+     */
+    @GetMapping("/status")
+    public Map<String, Object> status() {
+        return admissionLimiter.getStats();
     }
 
     /**
@@ -49,6 +173,180 @@ public class MainController {
         if (executeCodeRequest == null) {
             throw new RuntimeException("请求参数为空");
         }
-        return nativeCodeSandbox.executeCode(executeCodeRequest);
+        if (rejectIfNotReady(response)) {
+            return null;
+        }
+        // 准入控制：节点繁忙时快速拒绝，由判题服务稍后重试或改用其他节点
+        long queueStart = System.nanoTime();
+        AdmissionLimiter.Admission admission = admissionLimiter.acquire();
+        if (!admission.isAdmitted()) {
+            // 队列已满返回 429，排队超时返回 503
+            response.setStatus(admission.isQueueTimeout() ? 503 : 429);
+            response.setHeader("Retry-After", String.valueOf(admission.getRetryAfterSeconds()));
+            return null;
+        }
+        sandboxMetrics.recordQueueWait(executeCodeRequest.getLanguage(), nativeCodeSandbox.getSandboxMode(),
+                System.nanoTime() - queueStart);
+        long startTime = System.currentTimeMillis();
+        try {
+            return nativeCodeSandbox.executeCode(executeCodeRequest);
+        } finally {
+            admissionLimiter.release(System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * 执行代码（二进制流式协议，格式见 {@link FrameProtocol}）：代码、用例、输出以原始字节传输（可选 gzip 压缩），
+     * 每个用例执行结束时立即返回该用例的结果，最后返回整体结果
+     *
+     * @param request
+     * @param response
+     * @throws IOException
+     */
+    @PostMapping(value = "/executeCode/stream", consumes = FrameProtocol.CONTENT_TYPE)
+    void executeCodeStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!AUTH_REQUEST_SECRET.equals(request.getHeader(AUTH_REQUEST_HEADER))) {
+            response.setStatus(403);
+            return;
+        }
+        ExecuteCodeRequest executeCodeRequest;
+        boolean requestCompressed = "gzip".equalsIgnoreCase(request.getHeader("Content-Encoding"));
+        try (DataInputStream input = FrameProtocol.openInput(request.getInputStream(), requestCompressed)) {
+            executeCodeRequest = FrameProtocol.readRequest(input);
+        } catch (IOException e) {
+            log.warn("流式请求格式错误", e);
+            response.setStatus(400);
+            return;
+        }
+        if (rejectIfNotReady(response)) {
+            return;
+        }
+        long queueStart = System.nanoTime();
+        AdmissionLimiter.Admission admission = admissionLimiter.acquire();
+        if (!admission.isAdmitted()) {
+            response.setStatus(admission.isQueueTimeout() ? 503 : 429);
+            response.setHeader("Retry-After", String.valueOf(admission.getRetryAfterSeconds()));
+            return;
+        }
+        sandboxMetrics.recordQueueWait(executeCodeRequest.getLanguage(), nativeCodeSandbox.getSandboxMode(),
+                System.nanoTime() - queueStart);
+        long startTime = System.currentTimeMillis();
+        try {
+            response.setContentType(FrameProtocol.CONTENT_TYPE);
+            String acceptEncoding = request.getHeader("Accept-Encoding");
+            boolean responseCompressed = acceptEncoding != null && acceptEncoding.contains("gzip");
+            if (responseCompressed) {
+                response.setHeader("Content-Encoding", "gzip");
+            }
+            DataOutputStream output = FrameProtocol.openOutput(response.getOutputStream(), responseCompressed);
+            IdentityHashMap<String, Integer> sentOutputs = new IdentityHashMap<>();
+            // 只比较输出时结果中没有 outputList，用例结果只发送输出摘要
+            boolean compareOnly = Boolean.TRUE.equals(executeCodeRequest.getCompareOnly())
+                    && (executeCodeRequest.getExpectedOutputList() != null
+                    || executeCodeRequest.getExpectedOutputDigestList() != null);
+            ExecuteCodeResponse executeCodeResponse = nativeCodeSandbox.executeCode(executeCodeRequest,
+                    (index, executeMessage) -> {
+                        synchronized (sentOutputs) {
+                            try {
+                                FrameProtocol.writeCase(output, index, executeMessage, !compareOnly);
+                                output.flush();
+                                if (!compareOnly) {
+                                    sentOutputs.put(executeMessage.getMessage(), index);
+                                }
+                            } catch (IOException e) {
+                                // 调用方已断开，用例继续执行完，最终结果写入失败时再结束
+                                log.warn("推送用例结果失败，index = {}", index, e);
+                            }
+                        }
+                    });
+            synchronized (sentOutputs) {
+                FrameProtocol.writeResult(output, executeCodeResponse, sentOutputs);
+            }
+            output.close();
+        } finally {
+            admissionLimiter.release(System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * 异步执行代码：立即返回任务 id，结果通过长轮询获取，或在请求中指定回调地址由沙箱推送
+     *
+     * @param executeCodeRequest
+     * @return
+     */
+    @PostMapping("/executeCode/async")
+    ResponseEntity<ExecuteJobResponse> submitExecuteJob(@RequestBody ExecuteCodeRequest executeCodeRequest,
+                                                        HttpServletRequest request) {
+        if (!AUTH_REQUEST_SECRET.equals(request.getHeader(AUTH_REQUEST_HEADER))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (executeCodeRequest == null) {
+            throw new RuntimeException("请求参数为空");
+        }
+        if (!executeJobManager.isCallbackAllowed(executeCodeRequest.getCallbackUrl())) {
+            log.warn("回调地址不在允许列表中，callbackUrl = {}", executeCodeRequest.getCallbackUrl());
+            return ResponseEntity.badRequest().build();
+        }
+        if (!dockerImageManager.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", String.valueOf(NOT_READY_RETRY_AFTER_SECONDS))
+                    .build();
+        }
+        ExecuteJobResponse executeJobResponse = executeJobManager.submit(executeCodeRequest);
+        if (executeJobResponse == null) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", String.valueOf(admissionLimiter.getRetryAfterSeconds()))
+                    .build();
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(executeJobResponse);
+    }
+
+    /**
+     * 查询异步任务，任务未完成时最多等待 waitMs 毫秒（长轮询），等待期间不占用请求线程
+     *
+     * @param jobId
+     * @param waitMs 0 表示立即返回当前状态
+     * @return 已完成返回 200，未完成返回 202，任务不存在或已过期返回 404
+     */
+    @GetMapping("/executeCode/jobs/{jobId}")
+    DeferredResult<ResponseEntity<ExecuteJobResponse>> getExecuteJob(@PathVariable String jobId,
+                                                                     @RequestParam(defaultValue = "0") long waitMs,
+                                                                     HttpServletRequest request) {
+        DeferredResult<ResponseEntity<ExecuteJobResponse>> deferredResult;
+        if (!AUTH_REQUEST_SECRET.equals(request.getHeader(AUTH_REQUEST_HEADER))) {
+            deferredResult = new DeferredResult<>();
+            deferredResult.setResult(ResponseEntity.status(HttpStatus.FORBIDDEN).build());
+            return deferredResult;
+        }
+        CompletableFuture<ExecuteJobResponse> jobFuture = executeJobManager.getJobFuture(jobId);
+        if (jobFuture == null) {
+            deferredResult = new DeferredResult<>();
+            deferredResult.setResult(ResponseEntity.notFound().build());
+            return deferredResult;
+        }
+        long timeout = Math.max(1, Math.min(waitMs, maxPollWaitMs));
+        deferredResult = new DeferredResult<>(timeout, () -> {
+            ExecuteJobResponse current = executeJobManager.getJobStatus(jobId);
+            return current == null ? ResponseEntity.notFound().build()
+                    : ResponseEntity.status(HttpStatus.ACCEPTED).body(current);
+        });
+        DeferredResult<ResponseEntity<ExecuteJobResponse>> result = deferredResult;
+        jobFuture.whenComplete((executeJobResponse, e) -> result.setResult(ResponseEntity.ok(executeJobResponse)));
+        return deferredResult;
+    }
+
+    /**
+     * 镜像未就绪（启动时正在拉取）时拒绝请求，返回 503
+     *
+     * @param response
+     * @return 是否已拒绝
+     */
+    private boolean rejectIfNotReady(HttpServletResponse response) {
+        if (dockerImageManager.isReady()) {
+            return false;
+        }
+        response.setStatus(503);
+        response.setHeader("Retry-After", String.valueOf(NOT_READY_RETRY_AFTER_SECONDS));
+        return true;
     }
 }
@@ -0,0 +1,405 @@
+package com.yupi.yuojcodesandbox.docker;
+
+import cn.hutool.core.io.FileUtil;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.Container;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.Volume;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Docker 容器池
+ * <p>
+ * 按语言维护一批预先启动、限制好资源的容器，判题时租用、用完后重置工作目录并归还，
+ * 避免每次提交都创建、启动新容器（也避免容器泄漏）
+ */
+@Slf4j
+@Component
+public class DockerContainerPool {
+
+    /**
+     * 池内容器统一打上的标签，用于启动时清理上次残留的容器
+     */
+    private static final String POOL_LABEL = "oj-sandbox-pool";
+
+    private static final String CONTAINER_WORKSPACE = "/app";
+
+    private static final String GLOBAL_POOL_DIR_NAME = "tmpCode" + File.separator + "docker";
+
+    @Resource
+    private DockerClient dockerClient;
+
+    @Resource
+    private DockerImageManager dockerImageManager;
+
+    @Resource
+    private DockerStatsManager dockerStatsManager;
+
+    @Value("${sandbox.docker.pool.min-idle:2}")
+    private int minIdle;
+
+    @Value("${sandbox.docker.pool.max-size:8}")
+    private int maxSize;
+
+    @Value("${sandbox.docker.pool.lease-timeout-ms:10000}")
+    private long leaseTimeoutMs;
+
+    @Value("${sandbox.docker.pool.idle-timeout-ms:300000}")
+    private long idleTimeoutMs;
+
+    @Value("${sandbox.docker.pool.prewarm:false}")
+    private boolean prewarm;
+
+    @Value("${sandbox.docker.memory-limit:100000000}")
+    private long memoryLimit;
+
+    @Value("${sandbox.docker.cpu-count:1}")
+    private long cpuCount;
+
+    @Value("${sandbox.docker.seccomp-profile:}")
+    private String seccompProfile;
+
+    /**
+     * 语言 => 该语言的容器池
+     */
+    private final Map<String, LanguagePool> poolMap = new ConcurrentHashMap<>();
+
+    private final AtomicLong leaseCount = new AtomicLong();
+
+    private final AtomicLong leaseWaitTotalMillis = new AtomicLong();
+
+    private final AtomicLong leaseWaitMaxMillis = new AtomicLong();
+
+    private final AtomicLong leaseTimeoutCount = new AtomicLong();
+
+    private final AtomicLong evictCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        // 每个配置了镜像的语言一个容器池，租用时按语言选择
+        for (String language : dockerImageManager.getLanguages()) {
+            poolMap.put(language, new LanguagePool(language, dockerImageManager.getImage(language)));
+        }
+        if (!prewarm) {
+            return;
+        }
+        try {
+            removeOrphanContainers();
+            for (LanguagePool pool : poolMap.values()) {
+                fillToMinIdle(pool);
+            }
+            log.info("容器池预热完成，stats = {}", getStats());
+        } catch (Exception e) {
+            log.error("容器池预热失败", e);
+        }
+    }
+
+    /**
+     * 租用一个容器，池中没有空闲容器且已达上限时阻塞等待
+     *
+     * @param language 编程语言
+     * @return
+     */
+    public PooledContainer lease(String language) {
+        LanguagePool pool = getPool(language);
+        long start = System.currentTimeMillis();
+        long deadline = start + leaseTimeoutMs;
+        PooledContainer container = null;
+        try {
+            while (container == null) {
+                container = pool.idle.pollFirst();
+                if (container != null) {
+                    break;
+                }
+                if (pool.tryReserve(maxSize)) {
+                    try {
+                        container = createContainer(pool);
+                    } catch (RuntimeException e) {
+                        pool.total.decrementAndGet();
+                        throw e;
+                    }
+                    break;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    leaseTimeoutCount.incrementAndGet();
+                    throw new RuntimeException("租用容器超时，language = " + language);
+                }
+                container = pool.idle.pollFirst(remaining, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("租用容器被中断", e);
+        }
+        long wait = System.currentTimeMillis() - start;
+        leaseCount.incrementAndGet();
+        leaseWaitTotalMillis.addAndGet(wait);
+        leaseWaitMaxMillis.accumulateAndGet(wait, Math::max);
+        pool.leased.incrementAndGet();
+        container.setLeaseCount(container.getLeaseCount() + 1);
+        return container;
+    }
+
+    /**
+     * 归还容器，重置工作目录后放回池中；不健康的容器直接销毁
+     *
+     * @param container
+     * @param healthy   本次使用过程中容器是否正常（如执行超时则视为不健康）
+     */
+    public void release(PooledContainer container, boolean healthy) {
+        LanguagePool pool = getPool(container.getLanguage());
+        pool.leased.decrementAndGet();
+        boolean reset = healthy && resetWorkspace(container);
+        if (!reset) {
+            destroy(pool, container);
+            return;
+        }
+        container.setLastUsedTime(System.currentTimeMillis());
+        // 后进先出，尽量复用最近用过的容器
+        pool.idle.offerFirst(container);
+    }
+
+    /**
+     * 把宿主机上的用户文件复制到容器工作目录
+     *
+     * @param container
+     * @param userCodeParentPath
+     */
+    public void copyToWorkspace(PooledContainer container, String userCodeParentPath) {
+        FileUtil.copyContent(new File(userCodeParentPath), container.getWorkspace(), true);
+    }
+
+    /**
+     * 定时健康检查：剔除已停止的容器、驱逐空闲过久的容器，并补足最小空闲数
+     */
+    @Scheduled(fixedDelayString = "${sandbox.docker.pool.check-interval-ms:30000}")
+    public void checkPool() {
+        for (LanguagePool pool : poolMap.values()) {
+            if (pool.total.get() == 0 && !prewarm) {
+                continue;
+            }
+            long now = System.currentTimeMillis();
+            List<PooledContainer> idleList = new ArrayList<>();
+            pool.idle.drainTo(idleList);
+            for (PooledContainer container : idleList) {
+                boolean expired = now - container.getLastUsedTime() > idleTimeoutMs && pool.total.get() > minIdle;
+                if (expired || !isRunning(container)) {
+                    destroy(pool, container);
+                    evictCount.incrementAndGet();
+                } else {
+                    pool.idle.offerLast(container);
+                }
+            }
+            if (prewarm) {
+                try {
+                    fillToMinIdle(pool);
+                } catch (Exception e) {
+                    log.error("补充容器失败，language = {}", pool.language, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取容器池统计信息
+     *
+     * @return
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (LanguagePool pool : poolMap.values()) {
+            Map<String, Object> poolStats = new LinkedHashMap<>();
+            poolStats.put("total", pool.total.get());
+            poolStats.put("idle", pool.idle.size());
+            poolStats.put("leased", pool.leased.get());
+            stats.put(pool.language, poolStats);
+        }
+        long count = leaseCount.get();
+        stats.put("leaseCount", count);
+        stats.put("leaseWaitAvgMillis", count == 0 ? 0 : leaseWaitTotalMillis.get() / count);
+        stats.put("leaseWaitMaxMillis", leaseWaitMaxMillis.get());
+        stats.put("leaseTimeoutCount", leaseTimeoutCount.get());
+        stats.put("evictCount", evictCount.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (LanguagePool pool : poolMap.values()) {
+            List<PooledContainer> idleList = new ArrayList<>();
+            pool.idle.drainTo(idleList);
+            for (PooledContainer container : idleList) {
+                destroy(pool, container);
+            }
+        }
+    }
+
+    private LanguagePool getPool(String language) {
+        LanguagePool pool = poolMap.get(language);
+        if (pool == null) {
+            throw new RuntimeException("Unsupported language: " + language);
+        }
+        return pool;
+    }
+
+    private void fillToMinIdle(LanguagePool pool) {
+        while (pool.idle.size() < minIdle && pool.tryReserve(maxSize)) {
+            try {
+                PooledContainer container = createContainer(pool);
+                pool.idle.offerLast(container);
+            } catch (RuntimeException e) {
+                pool.total.decrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 创建并启动容器（调用方需先通过 tryReserve 占好名额）
+     */
+    private PooledContainer createContainer(LanguagePool pool) {
+        dockerImageManager.ensureImage(pool.image);
+        String userDir = System.getProperty("user.dir");
+        File workspace = new File(userDir + File.separator + GLOBAL_POOL_DIR_NAME + File.separator + UUID.randomUUID());
+        FileUtil.mkdir(workspace);
+
+        HostConfig hostConfig = new HostConfig();
+        hostConfig.withMemory(memoryLimit);
+        hostConfig.withMemorySwap(0L);
+        hostConfig.withCpuCount(cpuCount);
+        if (StringUtils.isNotBlank(seccompProfile)) {
+            hostConfig.withSecurityOpts(Collections.singletonList("seccomp=" + seccompProfile));
+        }
+        hostConfig.setBinds(new Bind(workspace.getAbsolutePath(), new Volume(CONTAINER_WORKSPACE)));
+        CreateContainerResponse createContainerResponse;
+        try {
+            createContainerResponse = dockerClient.createContainerCmd(pool.image)
+                    .withHostConfig(hostConfig)
+                    .withLabels(Collections.singletonMap(POOL_LABEL, pool.language))
+                    .withNetworkDisabled(true)
+                    .withReadonlyRootfs(true)
+                    .withAttachStdin(true)
+                    .withAttachStderr(true)
+                    .withAttachStdout(true)
+                    .withTty(true)
+                    .exec();
+        } catch (RuntimeException e) {
+            FileUtil.del(workspace);
+            throw e;
+        }
+        String containerId = createContainerResponse.getId();
+        dockerClient.startContainerCmd(containerId).exec();
+        log.info("创建池化容器，language = {}, containerId = {}", pool.language, containerId);
+
+        PooledContainer container = new PooledContainer();
+        container.setContainerId(containerId);
+        container.setLanguage(pool.language);
+        container.setWorkspace(workspace);
+        long now = System.currentTimeMillis();
+        container.setCreateTime(now);
+        container.setLastUsedTime(now);
+        return container;
+    }
+
+    private boolean resetWorkspace(PooledContainer container) {
+        try {
+            return FileUtil.clean(container.getWorkspace());
+        } catch (Exception e) {
+            log.error("重置容器工作目录失败，containerId = {}", container.getContainerId(), e);
+            return false;
+        }
+    }
+
+    private boolean isRunning(PooledContainer container) {
+        try {
+            InspectContainerResponse response = dockerClient.inspectContainerCmd(container.getContainerId()).exec();
+            return Boolean.TRUE.equals(response.getState().getRunning());
+        } catch (Exception e) {
+            log.warn("容器健康检查失败，containerId = {}", container.getContainerId(), e);
+            return false;
+        }
+    }
+
+    private void destroy(LanguagePool pool, PooledContainer container) {
+        pool.total.decrementAndGet();
+        dockerStatsManager.closeContainer(container.getContainerId());
+        try {
+            dockerClient.removeContainerCmd(container.getContainerId()).withForce(true).exec();
+        } catch (Exception e) {
+            log.error("删除容器失败，containerId = {}", container.getContainerId(), e);
+        }
+        FileUtil.del(container.getWorkspace());
+    }
+
+    /**
+     * 清理上次运行残留的池化容器
+     */
+    private void removeOrphanContainers() {
+        List<Container> containerList = dockerClient.listContainersCmd()
+                .withShowAll(true)
+                .withLabelFilter(Collections.singletonList(POOL_LABEL))
+                .exec();
+        for (Container container : containerList) {
+            dockerClient.removeContainerCmd(container.getId()).withForce(true).exec();
+            log.info("清理残留容器，containerId = {}", container.getId());
+        }
+    }
+
+    /**
+     * 单个语言的容器池
+     */
+    private static class LanguagePool {
+
+        private final String language;
+
+        private final String image;
+
+        private final LinkedBlockingDeque<PooledContainer> idle = new LinkedBlockingDeque<>();
+
+        /**
+         * 已创建（含空闲和租用中）的容器数
+         */
+        private final AtomicInteger total = new AtomicInteger();
+
+        private final AtomicInteger leased = new AtomicInteger();
+
+        private LanguagePool(String language, String image) {
+            this.language = language;
+            this.image = image;
+        }
+
+        private boolean tryReserve(int maxSize) {
+            int current;
+            do {
+                current = total.get();
+                if (current >= maxSize) {
+                    return false;
+                }
+            } while (!total.compareAndSet(current, current + 1));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.yupi.yuojcodesandbox.docker;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.InspectImageResponse;
+import com.github.dockerjava.api.command.PullImageResultCallback;
+import com.github.dockerjava.api.exception.NotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Docker 镜像管理
+ * <p>
+ * 启动时在后台为所有支持的语言拉取并校验镜像，全部就绪之前沙箱拒绝执行请求、不注册到 Nacos，
+ * 避免第一批提交阻塞在拉取镜像上（拉取可能需要几分钟）；拉取失败的镜像定时重试
+ */
+@Slf4j
+@Component
+public class DockerImageManager {
+
+    /**
+     * 是否在启动时预拉取镜像（不使用 Docker 沙箱时关闭）
+     */
+    @Value("${sandbox.docker.preload.enabled:false}")
+    private boolean preloadEnabled;
+
+    @Value("${sandbox.docker.preload.pull-timeout-ms:600000}")
+    private long pullTimeoutMs;
+
+    @Value("${sandbox.docker.preload.retry-interval-ms:30000}")
+    private long retryIntervalMs;
+
+    @Value("${sandbox.docker.image.java:openjdk:8-alpine}")
+    private String javaImage;
+
+    /**
+     * 为空表示该语言不使用 Docker 执行
+     */
+    @Value("${sandbox.docker.image.c:}")
+    private String cImage;
+
+    @Value("${sandbox.docker.image.cpp:}")
+    private String cppImage;
+
+    @Value("${sandbox.docker.image.python:}")
+    private String pythonImage;
+
+    @Resource
+    private DockerClient dockerClient;
+
+    /**
+     * 语言 => 镜像
+     */
+    private final Map<String, String> imageMap = new LinkedHashMap<>();
+
+    /**
+     * 镜像 => 校验通过后的镜像 id
+     */
+    private final Map<String, String> readyImageMap = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    private volatile Thread preloadThread;
+
+    @PostConstruct
+    public void init() {
+        imageMap.put("java", javaImage);
+        if (StringUtils.isNotBlank(cImage)) {
+            imageMap.put("c", cImage);
+        }
+        if (StringUtils.isNotBlank(cppImage)) {
+            imageMap.put("cpp", cppImage);
+        }
+        if (StringUtils.isNotBlank(pythonImage)) {
+            imageMap.put("python", pythonImage);
+        }
+        if (!preloadEnabled) {
+            ready = true;
+            return;
+        }
+        preloadThread = new Thread(this::preload, "docker-image-preload");
+        preloadThread.setDaemon(true);
+        preloadThread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread thread = preloadThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * 所有镜像是否已就绪（未开启预拉取时始终为 true）
+     *
+     * @return
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 获取语言对应的镜像
+     *
+     * @param language
+     * @return
+     */
+    public String getImage(String language) {
+        String image = imageMap.get(language);
+        if (image == null) {
+            throw new RuntimeException("Unsupported language: " + language);
+        }
+        return image;
+    }
+
+    /**
+     * 获取配置了镜像的语言（即支持 Docker 执行的语言）
+     *
+     * @return
+     */
+    public Set<String> getLanguages() {
+        return Collections.unmodifiableSet(imageMap.keySet());
+    }
+
+    /**
+     * 确保镜像在本地存在，不存在时拉取（同一镜像只拉取一次）
+     *
+     * @param image
+     */
+    public void ensureImage(String image) {
+        if (readyImageMap.containsKey(image)) {
+            return;
+        }
+        synchronized (this) {
+            if (readyImageMap.containsKey(image)) {
+                return;
+            }
+            readyImageMap.put(image, pullAndVerify(image));
+        }
+    }
+
+    /**
+     * 获取镜像统计信息
+     *
+     * @return
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("preloadEnabled", preloadEnabled);
+        stats.put("ready", ready);
+        Map<String, Object> images = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : imageMap.entrySet()) {
+            String imageId = readyImageMap.get(entry.getValue());
+            images.put(entry.getKey(), entry.getValue() + (imageId == null ? "（未就绪）" : "（" + imageId + "）"));
+        }
+        stats.put("images", images);
+        return stats;
+    }
+
+    private void preload() {
+        while (!Thread.currentThread().isInterrupted()) {
+            boolean allReady = true;
+            for (String image : imageMap.values()) {
+                try {
+                    ensureImage(image);
+                } catch (Exception e) {
+                    allReady = false;
+                    log.error("镜像准备失败，{} ms 后重试：{}", retryIntervalMs, image, e);
+                }
+            }
+            if (allReady) {
+                ready = true;
+                log.info("镜像已全部就绪：{}", imageMap);
+                return;
+            }
+            try {
+                Thread.sleep(retryIntervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 本地不存在时拉取镜像，再检查一次确认镜像可用
+     *
+     * @param image
+     * @return 镜像 id
+     */
+    private String pullAndVerify(String image) {
+        try {
+            dockerClient.inspectImageCmd(image).exec();
+        } catch (NotFoundException e) {
+            log.info("本地不存在镜像，开始拉取：{}", image);
+            try {
+                boolean completed = dockerClient.pullImageCmd(image)
+                        .exec(new PullImageResultCallback())
+                        .awaitCompletion(pullTimeoutMs, TimeUnit.MILLISECONDS);
+                if (!completed) {
+                    throw new RuntimeException("拉取镜像超时：" + image);
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("拉取镜像异常", ie);
+            }
+            log.info("镜像拉取完成：{}", image);
+        }
+        InspectImageResponse inspectImageResponse = dockerClient.inspectImageCmd(image).exec();
+        if (StringUtils.isBlank(inspectImageResponse.getId())) {
+            throw new RuntimeException("镜像校验失败：" + image);
+        }
+        return inspectImageResponse.getId();
+    }
+}
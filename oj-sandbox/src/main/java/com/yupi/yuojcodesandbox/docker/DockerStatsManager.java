@@ -0,0 +1,224 @@
+package com.yupi.yuojcodesandbox.docker;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.MemoryStatsConfig;
+import com.github.dockerjava.api.model.Statistics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 容器 docker stats 订阅管理
+ * <p>
+ * 同一个容器只打开一个 stats 流，由多个观察者（整个租用期间、单个用例）共享，最后一个观察者结束时关闭；
+ * 容器销毁、服务关闭时强制关闭剩余的订阅，避免流和连接泄漏
+ */
+@Slf4j
+@Component
+public class DockerStatsManager {
+
+    @Resource
+    private DockerClient dockerClient;
+
+    /**
+     * 容器 id => 订阅
+     */
+    private final Map<String, Subscription> subscriptionMap = new ConcurrentHashMap<>();
+
+    private final AtomicLong openCount = new AtomicLong();
+
+    private final AtomicLong closeCount = new AtomicLong();
+
+    private final AtomicLong errorCount = new AtomicLong();
+
+    /**
+     * 开始观察容器的内存占用
+     *
+     * @param containerId
+     * @return 打开 stats 流失败时返回 null
+     */
+    public StatsWatch watch(String containerId) {
+        while (true) {
+            Subscription subscription;
+            try {
+                subscription = subscriptionMap.computeIfAbsent(containerId, this::open);
+            } catch (RuntimeException e) {
+                errorCount.incrementAndGet();
+                log.warn("订阅容器 stats 失败，containerId = {}", containerId, e);
+                return null;
+            }
+            StatsWatch watch = subscription.addWatch();
+            if (watch != null) {
+                return watch;
+            }
+            // 订阅恰好被关闭，重新打开
+            subscriptionMap.remove(containerId, subscription);
+        }
+    }
+
+    /**
+     * 强制关闭容器的订阅（容器销毁时调用）
+     *
+     * @param containerId
+     */
+    public void closeContainer(String containerId) {
+        Subscription subscription = subscriptionMap.remove(containerId);
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (String containerId : new ArrayList<>(subscriptionMap.keySet())) {
+            closeContainer(containerId);
+        }
+    }
+
+    /**
+     * 获取订阅统计信息
+     *
+     * @return
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("active", subscriptionMap.size());
+        stats.put("openCount", openCount.get());
+        stats.put("closeCount", closeCount.get());
+        stats.put("errorCount", errorCount.get());
+        return stats;
+    }
+
+    private Subscription open(String containerId) {
+        Subscription subscription = new Subscription(containerId);
+        dockerClient.statsCmd(containerId).exec(subscription);
+        openCount.incrementAndGet();
+        return subscription;
+    }
+
+    /**
+     * 一个容器的 stats 流，把每次采样分发给所有观察者
+     */
+    private class Subscription extends ResultCallback.Adapter<Statistics> {
+
+        private final String containerId;
+
+        private final List<StatsWatch> watchList = new ArrayList<>();
+
+        private boolean closed;
+
+        private Subscription(String containerId) {
+            this.containerId = containerId;
+        }
+
+        private synchronized StatsWatch addWatch() {
+            if (closed) {
+                return null;
+            }
+            StatsWatch watch = new StatsWatch(this);
+            watchList.add(watch);
+            return watch;
+        }
+
+        private void removeWatch(StatsWatch watch) {
+            synchronized (this) {
+                if (!watchList.remove(watch) || !watchList.isEmpty()) {
+                    return;
+                }
+            }
+            subscriptionMap.remove(containerId, this);
+            close();
+        }
+
+        @Override
+        public void onNext(Statistics statistics) {
+            MemoryStatsConfig memoryStats = statistics.getMemoryStats();
+            if (memoryStats == null || memoryStats.getUsage() == null) {
+                return;
+            }
+            long usage = memoryStats.getUsage();
+            synchronized (this) {
+                for (StatsWatch watch : watchList) {
+                    watch.maxMemoryBytes = Math.max(watch.maxMemoryBytes, usage);
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // 容器已停止或连接中断，之后的观察者重新打开订阅
+            errorCount.incrementAndGet();
+            log.debug("容器 stats 流中断，containerId = {}", containerId, throwable);
+            subscriptionMap.remove(containerId, this);
+            close();
+        }
+
+        @Override
+        public void onComplete() {
+            subscriptionMap.remove(containerId, this);
+            close();
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            closeCount.incrementAndGet();
+            try {
+                super.close();
+            } catch (Exception e) {
+                log.warn("关闭容器 stats 流失败，containerId = {}", containerId, e);
+            }
+        }
+    }
+
+    /**
+     * 一个观察者，记录观察期间的内存峰值
+     */
+    public static class StatsWatch implements AutoCloseable {
+
+        private final Subscription subscription;
+
+        private volatile long maxMemoryBytes;
+
+        private volatile boolean closed;
+
+        private StatsWatch(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        /**
+         * 观察期间的内存峰值（字节）
+         *
+         * @return
+         */
+        public long getMaxMemoryBytes() {
+            return maxMemoryBytes;
+        }
+
+        /**
+         * 结束观察，最后一个观察者结束时关闭 stats 流（可重复调用）
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscription.removeWatch(this);
+        }
+    }
+}
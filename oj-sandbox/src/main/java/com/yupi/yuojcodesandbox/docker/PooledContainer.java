@@ -0,0 +1,42 @@
+package com.yupi.yuojcodesandbox.docker;
+
+import lombok.Data;
+
+import java.io.File;
+
+/**
+ * 容器池中的容器
+ */
+@Data
+public class PooledContainer {
+
+    /**
+     * 容器 id
+     */
+    private String containerId;
+
+    /**
+     * 编程语言
+     */
+    private String language;
+
+    /**
+     * 挂载到容器 /app 目录的宿主机工作目录
+     */
+    private File workspace;
+
+    /**
+     * 创建时间
+     */
+    private long createTime;
+
+    /**
+     * 最近一次归还时间
+     */
+    private long lastUsedTime;
+
+    /**
+     * 被租用的次数
+     */
+    private long leaseCount;
+}
@@ -0,0 +1,209 @@
+package com.yupi.yuojcodesandbox.execute;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 提交准入控制
+ * <p>
+ * 限制同时执行的提交数（默认按 CPU 核数和物理内存计算），超出时在有界队列中等待；
+ * 队列已满或等待超过期限的请求立即拒绝，并给出建议的重试间隔，避免突发流量拖垮整个节点
+ */
+@Slf4j
+@Component
+public class AdmissionLimiter {
+
+    /**
+     * 同时执行的提交数，0 表示按 CPU 核数和物理内存自动计算
+     */
+    @Value("${sandbox.admission.max-concurrent:0}")
+    private int maxConcurrent;
+
+    /**
+     * 自动计算并发数时，每个提交预留的内存（MB）
+     */
+    @Value("${sandbox.admission.memory-per-submission-mb:512}")
+    private long memoryPerSubmissionMb;
+
+    /**
+     * 等待队列长度，0 表示并发数的 2 倍
+     */
+    @Value("${sandbox.admission.max-queue:0}")
+    private int maxQueue;
+
+    /**
+     * 在队列中等待的最长时间
+     */
+    @Value("${sandbox.admission.queue-timeout-ms:5000}")
+    private long queueTimeoutMs;
+
+    private Semaphore permits;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final AtomicLong admittedCount = new AtomicLong();
+
+    private final AtomicLong queueFullCount = new AtomicLong();
+
+    private final AtomicLong queueTimeoutCount = new AtomicLong();
+
+    /**
+     * 最近提交执行耗时的滑动平均（ms），用于估算重试间隔
+     */
+    private volatile double avgServiceMillis = 1000;
+
+    @PostConstruct
+    public void init() {
+        if (maxConcurrent <= 0) {
+            int byCpu = Runtime.getRuntime().availableProcessors() * 2;
+            long totalMemoryMb = getTotalMemoryMb();
+            int byMemory = totalMemoryMb > 0 ? (int) Math.max(1, totalMemoryMb / memoryPerSubmissionMb) : byCpu;
+            maxConcurrent = Math.min(byCpu, byMemory);
+        }
+        if (maxQueue <= 0) {
+            maxQueue = maxConcurrent * 2;
+        }
+        permits = new Semaphore(maxConcurrent, true);
+        log.info("准入控制初始化完成，maxConcurrent = {}, maxQueue = {}, queueTimeoutMs = {}",
+                maxConcurrent, maxQueue, queueTimeoutMs);
+    }
+
+    /**
+     * 申请执行一次提交，必须在执行结束后调用 {@link #release(long)}
+     *
+     * @return 准入结果，被拒绝时包含建议的重试间隔
+     */
+    public Admission acquire() {
+        if (permits.tryAcquire()) {
+            admittedCount.incrementAndGet();
+            return Admission.ADMITTED;
+        }
+        if (waiting.incrementAndGet() > maxQueue) {
+            waiting.decrementAndGet();
+            queueFullCount.incrementAndGet();
+            return Admission.rejected(false, getRetryAfterSeconds());
+        }
+        try {
+            if (permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                admittedCount.incrementAndGet();
+                return Admission.ADMITTED;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiting.decrementAndGet();
+        }
+        queueTimeoutCount.incrementAndGet();
+        return Admission.rejected(true, getRetryAfterSeconds());
+    }
+
+    /**
+     * 异步任务的执行线程申请执行，一直等待到有空闲的名额（排队由任务队列负责）
+     */
+    public void acquireForJob() {
+        permits.acquireUninterruptibly();
+        admittedCount.incrementAndGet();
+    }
+
+    /**
+     * 提交执行结束
+     *
+     * @param serviceMillis 本次执行耗时
+     */
+    public void release(long serviceMillis) {
+        avgServiceMillis = avgServiceMillis * 0.9 + serviceMillis * 0.1;
+        permits.release();
+    }
+
+    /**
+     * 建议的重试间隔：排在前面的提交全部执行完所需的时间，至少 1 秒
+     */
+    public long getRetryAfterSeconds() {
+        double rounds = (double) (waiting.get() + maxConcurrent) / maxConcurrent;
+        return Math.max(1, (long) Math.ceil(rounds * avgServiceMillis / 1000));
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxQueue() {
+        return maxQueue;
+    }
+
+    /**
+     * 获取准入统计信息（判题服务据此选择空闲的节点）
+     *
+     * @return
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("running", maxConcurrent - permits.availablePermits());
+        stats.put("maxQueue", maxQueue);
+        stats.put("queueDepth", waiting.get());
+        stats.put("admittedCount", admittedCount.get());
+        stats.put("queueFullCount", queueFullCount.get());
+        stats.put("queueTimeoutCount", queueTimeoutCount.get());
+        stats.put("avgServiceMillis", (long) avgServiceMillis);
+        return stats;
+    }
+
+    private static long getTotalMemoryMb() {
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) osBean).getTotalPhysicalMemorySize() / 1024 / 1024;
+        }
+        return -1;
+    }
+
+    /**
+     * 准入结果
+     */
+    public static class Admission {
+
+        private static final Admission ADMITTED = new Admission(true, false, 0);
+
+        private final boolean admitted;
+
+        /**
+         * 被拒绝的原因：true 表示等待超时，false 表示队列已满
+         */
+        private final boolean queueTimeout;
+
+        private final long retryAfterSeconds;
+
+        private Admission(boolean admitted, boolean queueTimeout, long retryAfterSeconds) {
+            this.admitted = admitted;
+            this.queueTimeout = queueTimeout;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        private static Admission rejected(boolean queueTimeout, long retryAfterSeconds) {
+            return new Admission(false, queueTimeout, retryAfterSeconds);
+        }
+
+        public boolean isAdmitted() {
+            return admitted;
+        }
+
+        public boolean isQueueTimeout() {
+            return queueTimeout;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
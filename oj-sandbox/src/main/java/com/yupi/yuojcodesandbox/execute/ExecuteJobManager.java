@@ -0,0 +1,319 @@
+package com.yupi.yuojcodesandbox.execute;
+
+import cn.hutool.http.HttpResponse;
+import cn.hutool.http.HttpUtil;
+import cn.hutool.json.JSONUtil;
+import com.yupi.yuojcodesandbox.NativeCodeSandbox;
+import com.yupi.yuojcodesandbox.metrics.SandboxMetrics;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeResponse;
+import com.yupi.yuojcodesandbox.model.ExecuteJobResponse;
+import com.yupi.yuojcodesandbox.model.JudgeInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步执行任务管理
+ * <p>
+ * 提交后立即返回任务 id，任务在沙箱自己的线程池中排队执行（与同步接口共享准入名额），
+ * 调用方通过长轮询获取结果，或由沙箱在完成后推送到回调地址；完成的任务保留一段时间后清除
+ */
+@Slf4j
+@Component
+public class ExecuteJobManager {
+
+    public static final String STATUS_QUEUED = "queued";
+
+    public static final String STATUS_RUNNING = "running";
+
+    public static final String STATUS_DONE = "done";
+
+    /**
+     * 任务队列长度，0 表示与准入控制的等待队列长度相同
+     */
+    @Value("${sandbox.job.max-queue:0}")
+    private int maxQueue;
+
+    /**
+     * 完成的任务保留时间
+     */
+    @Value("${sandbox.job.result-ttl-ms:600000}")
+    private long resultTtlMs;
+
+    /**
+     * 回调失败时的最大重试次数
+     */
+    @Value("${sandbox.job.callback-retries:3}")
+    private int callbackRetries;
+
+    @Value("${sandbox.job.callback-timeout-ms:5000}")
+    private int callbackTimeoutMs;
+
+    /**
+     * 允许回调的主机（host 或 host:port），为空时不允许回调，避免沙箱被用来访问内网任意地址
+     */
+    @Value("${sandbox.job.callback-allowed-hosts:}")
+    private List<String> callbackAllowedHosts;
+
+    @Resource
+    private NativeCodeSandbox nativeCodeSandbox;
+
+    @Resource
+    private AdmissionLimiter admissionLimiter;
+
+    @Resource
+    private SandboxMetrics sandboxMetrics;
+
+    private final Map<String, Job> jobMap = new ConcurrentHashMap<>();
+
+    private final AtomicLong submittedCount = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private final AtomicLong callbackFailCount = new AtomicLong();
+
+    private ThreadPoolExecutor jobExecutor;
+
+    private ExecutorService callbackExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (maxQueue <= 0) {
+            maxQueue = admissionLimiter.getMaxQueue();
+        }
+        // 线程数与准入名额相同，任务真正执行前还要申请准入名额，与同步接口一起受并发数限制
+        int threads = admissionLimiter.getMaxConcurrent();
+        AtomicInteger threadNumber = new AtomicInteger();
+        jobExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(maxQueue), r -> {
+            Thread thread = new Thread(r, "execute-job-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        callbackExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "execute-job-callback");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        callbackExecutor.shutdownNow();
+    }
+
+    /**
+     * 回调地址是否允许：只允许 http、https，且主机在允许列表中
+     *
+     * @param callbackUrl
+     * @return 未指定回调地址时返回 true
+     */
+    public boolean isCallbackAllowed(String callbackUrl) {
+        if (StringUtils.isBlank(callbackUrl)) {
+            return true;
+        }
+        URI uri;
+        try {
+            uri = new URI(callbackUrl.trim());
+        } catch (URISyntaxException e) {
+            return false;
+        }
+        String scheme = uri.getScheme();
+        String host = uri.getHost();
+        if (host == null || !("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))) {
+            return false;
+        }
+        for (String allowedHost : callbackAllowedHosts) {
+            allowedHost = allowedHost.trim();
+            if (allowedHost.equalsIgnoreCase(host)
+                    || (uri.getPort() != -1 && allowedHost.equalsIgnoreCase(host + ":" + uri.getPort()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 提交异步任务
+     *
+     * @param executeCodeRequest
+     * @return 任务状态，队列已满时返回 null
+     */
+    public ExecuteJobResponse submit(ExecuteCodeRequest executeCodeRequest) {
+        Job job = new Job(UUID.randomUUID().toString(), executeCodeRequest);
+        jobMap.put(job.id, job);
+        try {
+            jobExecutor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobMap.remove(job.id);
+            rejectedCount.incrementAndGet();
+            return null;
+        }
+        submittedCount.incrementAndGet();
+        return toResponse(job);
+    }
+
+    /**
+     * 查询任务
+     *
+     * @param jobId
+     * @return 任务不存在或已过期时返回 null
+     */
+    public CompletableFuture<ExecuteJobResponse> getJobFuture(String jobId) {
+        Job job = jobMap.get(jobId);
+        if (job == null) {
+            return null;
+        }
+        return job.future.thenApply(response -> toResponse(job));
+    }
+
+    /**
+     * 获取任务当前状态（不等待）
+     *
+     * @param jobId
+     * @return
+     */
+    public ExecuteJobResponse getJobStatus(String jobId) {
+        Job job = jobMap.get(jobId);
+        return job == null ? null : toResponse(job);
+    }
+
+    /**
+     * 获取任务统计信息
+     *
+     * @return
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("jobs", jobMap.size());
+        stats.put("queued", jobExecutor.getQueue().size());
+        stats.put("maxQueue", maxQueue);
+        stats.put("submittedCount", submittedCount.get());
+        stats.put("rejectedCount", rejectedCount.get());
+        stats.put("callbackFailCount", callbackFailCount.get());
+        return stats;
+    }
+
+    /**
+     * 定时清除过期的已完成任务
+     */
+    @Scheduled(fixedDelayString = "${sandbox.job.clean-interval-ms:60000}")
+    public void cleanExpiredJobs() {
+        long now = System.currentTimeMillis();
+        jobMap.values().removeIf(job -> job.future.isDone() && now - job.finishTime > resultTtlMs);
+    }
+
+    private void run(Job job) {
+        admissionLimiter.acquireForJob();
+        // 在任务队列、准入控制中的等待时间
+        sandboxMetrics.recordQueueWait(job.request.getLanguage(), nativeCodeSandbox.getSandboxMode(),
+                System.nanoTime() - job.submitNanos);
+        long startTime = System.currentTimeMillis();
+        job.status = STATUS_RUNNING;
+        ExecuteCodeResponse executeCodeResponse;
+        try {
+            executeCodeResponse = nativeCodeSandbox.executeCode(job.request);
+        } catch (Exception e) {
+            log.error("异步任务执行失败，jobId = {}", job.id, e);
+            executeCodeResponse = new ExecuteCodeResponse();
+            executeCodeResponse.setStatus(2);
+            executeCodeResponse.setMessage(e.getMessage());
+            executeCodeResponse.setOutputList(new ArrayList<>());
+            executeCodeResponse.setJudgeInfo(new JudgeInfo());
+        } finally {
+            admissionLimiter.release(System.currentTimeMillis() - startTime);
+        }
+        job.response = executeCodeResponse;
+        job.finishTime = System.currentTimeMillis();
+        job.status = STATUS_DONE;
+        job.future.complete(executeCodeResponse);
+        String callbackUrl = job.request.getCallbackUrl();
+        if (StringUtils.isNotBlank(callbackUrl)) {
+            callbackExecutor.execute(() -> sendCallback(job, callbackUrl));
+        }
+    }
+
+    private void sendCallback(Job job, String callbackUrl) {
+        String body = JSONUtil.toJsonStr(toResponse(job));
+        for (int attempt = 0; attempt <= callbackRetries; attempt++) {
+            try {
+                if (attempt > 0) {
+                    // 指数退避：1s、2s、4s...
+                    Thread.sleep(1000L << (attempt - 1));
+                }
+                // 不携带沙箱的鉴权密钥，也不跟随重定向（重定向的目标不受允许列表限制）
+                try (HttpResponse httpResponse = HttpUtil.createPost(callbackUrl)
+                        .setFollowRedirects(false)
+                        .body(body)
+                        .timeout(callbackTimeoutMs)
+                        .execute()) {
+                    if (httpResponse.isOk()) {
+                        return;
+                    }
+                    log.warn("回调失败，jobId = {}, status = {}", job.id, httpResponse.getStatus());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("回调失败，jobId = {}, callbackUrl = {}", job.id, callbackUrl, e);
+            }
+        }
+        callbackFailCount.incrementAndGet();
+        log.error("回调重试 {} 次后仍然失败，jobId = {}", callbackRetries, job.id);
+    }
+
+    private ExecuteJobResponse toResponse(Job job) {
+        return new ExecuteJobResponse(job.id, job.status, job.response);
+    }
+
+    /**
+     * 一个异步任务
+     */
+    private static class Job {
+
+        private final String id;
+
+        private final ExecuteCodeRequest request;
+
+        private final CompletableFuture<ExecuteCodeResponse> future = new CompletableFuture<>();
+
+        private volatile String status = STATUS_QUEUED;
+
+        private volatile ExecuteCodeResponse response;
+
+        private volatile long finishTime;
+
+        private final long submitNanos = System.nanoTime();
+
+        private Job(String id, ExecuteCodeRequest request) {
+            this.id = id;
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.yupi.yuojcodesandbox.execute;
+
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 测试用例执行调度器
+ * <p>
+ * 整个节点共享一个按 CPU 核数设置大小的线程池，同一次提交的多个用例并行执行，
+ * 可选把每个用例绑定到一个空闲 CPU 上，使耗时更稳定；结果按输入用例的原始顺序返回
+ */
+@Slf4j
+@Component
+public class ExecuteScheduler {
+
+    /**
+     * 工作线程数，默认为 CPU 核数
+     */
+    @Value("${sandbox.execute.worker-threads:0}")
+    private int workerThreads;
+
+    /**
+     * 单次提交默认的用例并行度，默认为工作线程数
+     */
+    @Value("${sandbox.execute.default-parallelism:0}")
+    private int defaultParallelism;
+
+    /**
+     * 是否把用例绑定到 CPU（依赖 Linux 的 taskset 命令）
+     */
+    @Value("${sandbox.execute.cpu-pinning:false}")
+    private boolean cpuPinning;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * 空闲的 CPU 编号
+     */
+    private final BlockingQueue<Integer> freeCpuQueue = new LinkedBlockingQueue<>();
+
+    @PostConstruct
+    public void init() {
+        int cpuCount = Runtime.getRuntime().availableProcessors();
+        if (workerThreads <= 0) {
+            workerThreads = cpuCount;
+        }
+        if (defaultParallelism <= 0) {
+            defaultParallelism = workerThreads;
+        }
+        for (int i = 0; i < cpuCount; i++) {
+            freeCpuQueue.offer(i);
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workerThreads, workerThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "case-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("用例执行调度器初始化完成，workerThreads = {}, cpuPinning = {}", workerThreads, cpuPinning);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 并行执行一次提交的所有用例
+     *
+     * @param inputList   输入用例
+     * @param parallelism 本次提交的并行度，为空时使用默认值
+     * @param caseRunner  单个用例的执行逻辑
+     * @return 与输入用例顺序一致的执行结果
+     */
+    public List<ExecuteMessage> runCases(List<String> inputList, Integer parallelism, CaseRunner caseRunner) {
+        return runCases(inputList, parallelism, caseRunner, null);
+    }
+
+    /**
+     * 并行执行一次提交的所有用例，满足停止条件后不再领取新的用例（已在执行的用例继续执行完）
+     *
+     * @param inputList     输入用例
+     * @param parallelism   本次提交的并行度，为空时使用默认值
+     * @param caseRunner    单个用例的执行逻辑
+     * @param stopCondition 停止条件，为 null 时执行所有用例
+     * @return 与输入用例顺序一致的执行结果，没有执行的用例为 null
+     */
+    public List<ExecuteMessage> runCases(List<String> inputList, Integer parallelism, CaseRunner caseRunner,
+                                         StopCondition stopCondition) {
+        int caseCount = inputList.size();
+        ExecuteMessage[] results = new ExecuteMessage[caseCount];
+        int lanes = Math.min(resolveParallelism(parallelism), caseCount);
+        AtomicBoolean stopped = new AtomicBoolean();
+        if (lanes <= 1) {
+            // 串行执行时直接在当前线程运行，不占用工作线程
+            for (int i = 0; i < caseCount && !stopped.get(); i++) {
+                results[i] = runCase(caseRunner, inputList.get(i));
+                checkStop(stopCondition, i, results[i], stopped);
+            }
+            return Arrays.asList(results);
+        }
+        // 每个通道依次领取下一个用例，通道数即并行度
+        AtomicInteger nextIndex = new AtomicInteger();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[lanes];
+        for (int i = 0; i < lanes; i++) {
+            futures[i] = CompletableFuture.runAsync(() -> {
+                int index;
+                while (!stopped.get() && (index = nextIndex.getAndIncrement()) < caseCount) {
+                    results[index] = runCase(caseRunner, inputList.get(index));
+                    checkStop(stopCondition, index, results[index], stopped);
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 获取调度器统计信息
+     *
+     * @return
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workerThreads", workerThreads);
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("queuedTasks", executor.getQueue().size());
+        stats.put("completedTasks", executor.getCompletedTaskCount());
+        return stats;
+    }
+
+    /**
+     * 给命令加上 CPU 绑定前缀
+     *
+     * @param cmd
+     * @param cpu
+     * @return
+     */
+    public static String pinToCpu(String cmd, Integer cpu) {
+        if (cpu == null) {
+            return cmd;
+        }
+        return "taskset -c " + cpu + " " + cmd;
+    }
+
+    private int resolveParallelism(Integer parallelism) {
+        if (parallelism == null || parallelism <= 0) {
+            return defaultParallelism;
+        }
+        return Math.min(parallelism, workerThreads);
+    }
+
+    private static void checkStop(StopCondition stopCondition, int index, ExecuteMessage executeMessage,
+                                  AtomicBoolean stopped) {
+        if (stopCondition != null && stopCondition.shouldStop(index, executeMessage)) {
+            stopped.set(true);
+        }
+    }
+
+    private ExecuteMessage runCase(CaseRunner caseRunner, String input) {
+        Integer cpu = null;
+        if (cpuPinning) {
+            try {
+                cpu = freeCpuQueue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("等待空闲 CPU 被中断", e);
+            }
+        }
+        try {
+            return caseRunner.run(input, cpu);
+        } finally {
+            if (cpu != null) {
+                freeCpuQueue.offer(cpu);
+            }
+        }
+    }
+
+    /**
+     * 单个用例的执行逻辑
+     */
+    @FunctionalInterface
+    public interface CaseRunner {
+
+        /**
+         * 执行一个用例
+         *
+         * @param input 输入用例
+         * @param cpu   绑定的 CPU 编号，未开启绑定时为 null
+         * @return
+         */
+        ExecuteMessage run(String input, Integer cpu);
+    }
+
+    /**
+     * 用例执行结束后判断是否停止执行剩余用例
+     */
+    @FunctionalInterface
+    public interface StopCondition {
+
+        /**
+         * @param index          用例序号
+         * @param executeMessage 执行结果
+         * @return 是否停止
+         */
+        boolean shouldStop(int index, ExecuteMessage executeMessage);
+
+        /**
+         * 先通知用例执行结束，再按快速失败判断是否停止
+         *
+         * @param failFastChecker 为 null 时不快速失败
+         * @param caseListener    可以为 null
+         * @return 两者都为 null 时返回 null
+         */
+        static StopCondition of(FailFastChecker failFastChecker, CaseListener caseListener) {
+            if (failFastChecker == null && caseListener == null) {
+                return null;
+            }
+            return (index, executeMessage) -> {
+                if (caseListener != null) {
+                    caseListener.onCaseFinished(index, executeMessage);
+                }
+                return failFastChecker != null && failFastChecker.check(index, executeMessage);
+            };
+        }
+    }
+
+    /**
+     * 用例执行结束的通知（并行执行时可能在多个线程中被调用，顺序不固定）
+     */
+    @FunctionalInterface
+    public interface CaseListener {
+
+        /**
+         * @param index          用例序号
+         * @param executeMessage 执行结果
+         */
+        void onCaseFinished(int index, ExecuteMessage executeMessage);
+    }
+}
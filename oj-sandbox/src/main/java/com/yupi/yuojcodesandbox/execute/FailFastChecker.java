@@ -0,0 +1,138 @@
+package com.yupi.yuojcodesandbox.execute;
+
+import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 快速失败判断
+ * <p>
+ * 每个用例执行完立即判断是否失败（运行超时、输出超限、运行错误、内存超限、与预期输出不一致），
+ * 记录序号最小的失败用例；出现失败后不再执行新的用例。一次提交对应一个实例
+ */
+public class FailFastChecker {
+
+    private static final int NOT_FAILED = Integer.MAX_VALUE;
+
+    /**
+     * 预期输出，为 null 时只判断运行状态
+     */
+    private final OutputComparator outputComparator;
+
+    /**
+     * 内存限制（KB），为空时不判断
+     */
+    private final Long memoryLimit;
+
+    private final AtomicInteger failedIndex = new AtomicInteger(NOT_FAILED);
+
+    private FailFastChecker(OutputComparator outputComparator, Long memoryLimit) {
+        this.outputComparator = outputComparator;
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * 根据请求创建
+     *
+     * @param executeCodeRequest
+     * @param outputComparator   预期输出，为 null 时只判断运行状态
+     * @return 请求未开启快速失败时返回 null
+     */
+    public static FailFastChecker of(ExecuteCodeRequest executeCodeRequest, OutputComparator outputComparator) {
+        if (!Boolean.TRUE.equals(executeCodeRequest.getFailFast())) {
+            return null;
+        }
+        return new FailFastChecker(outputComparator, executeCodeRequest.getMemoryLimit());
+    }
+
+    /**
+     * 判断用例是否失败，失败时记录序号
+     *
+     * @param index          用例序号
+     * @param executeMessage 执行结果
+     * @return 是否失败
+     */
+    public boolean check(int index, ExecuteMessage executeMessage) {
+        if (!isFailed(index, executeMessage)) {
+            return false;
+        }
+        failedIndex.accumulateAndGet(index, Math::min);
+        return true;
+    }
+
+    /**
+     * 是否已经出现失败的用例
+     *
+     * @return
+     */
+    public boolean isStopped() {
+        return failedIndex.get() != NOT_FAILED;
+    }
+
+    /**
+     * 序号最小的失败用例（用例并行执行时结束顺序不固定，不一定是最先失败的用例）
+     *
+     * @return 没有失败的用例时返回 null
+     */
+    public Integer getFailedIndex() {
+        int index = failedIndex.get();
+        return index == NOT_FAILED ? null : index;
+    }
+
+    /**
+     * 预期输出的摘要，用于在执行器进程内比较
+     *
+     * @return 不比较输出时返回 null
+     */
+    public List<String> getExpectedDigestList() {
+        return outputComparator == null ? null : outputComparator.getExpectedDigestList();
+    }
+
+    /**
+     * 内存限制（KB），未设置时为 0
+     *
+     * @return
+     */
+    public long getMemoryLimit() {
+        return memoryLimit == null ? 0 : memoryLimit;
+    }
+
+    /**
+     * 运行正常结束、未超出内存限制时，是否与预期输出不一致
+     *
+     * @param index
+     * @param executeMessage
+     * @return
+     */
+    public boolean isWrongAnswer(int index, ExecuteMessage executeMessage) {
+        return outputComparator != null
+                && !outputComparator.matches(index, OutputComparator.digest(executeMessage.getMessage()));
+    }
+
+    /**
+     * 是否超出内存限制
+     *
+     * @param executeMessage
+     * @return
+     */
+    public boolean isMemoryLimitExceeded(ExecuteMessage executeMessage) {
+        if (Boolean.TRUE.equals(executeMessage.getMemoryLimitExceeded())) {
+            return true;
+        }
+        return memoryLimit != null && memoryLimit > 0 && executeMessage.getMemory() != null
+                && executeMessage.getMemory() > memoryLimit;
+    }
+
+    private boolean isFailed(int index, ExecuteMessage executeMessage) {
+        if (Boolean.TRUE.equals(executeMessage.getTimeout())
+                || Boolean.TRUE.equals(executeMessage.getOutputLimitExceeded())) {
+            return true;
+        }
+        if (executeMessage.getExitValue() != null && executeMessage.getExitValue() != 0) {
+            return true;
+        }
+        return isMemoryLimitExceeded(executeMessage) || isWrongAnswer(index, executeMessage);
+    }
+}
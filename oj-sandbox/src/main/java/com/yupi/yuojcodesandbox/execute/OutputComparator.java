@@ -0,0 +1,126 @@
+package com.yupi.yuojcodesandbox.execute;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用例输出比较
+ * <p>
+ * 预期输出可以按值传入（可给出差异片段），也可以只传 SHA-256 摘要（省去传输大体积的预期输出，只能判断是否一致）；
+ * 比较时先比摘要，摘要由 UTF-8 编码后的输出计算，与沙箱整理后的输出（统一换行符、去掉末尾一个换行）一致才算通过
+ */
+public class OutputComparator {
+
+    /**
+     * 差异片段中差异位置前后保留的字符数
+     */
+    private static final int DIFF_CONTEXT = 32;
+
+    private final List<String> expectedOutputList;
+
+    private final List<String> expectedDigestList;
+
+    private OutputComparator(List<String> expectedOutputList, List<String> expectedDigestList) {
+        this.expectedOutputList = expectedOutputList;
+        this.expectedDigestList = expectedDigestList;
+    }
+
+    /**
+     * 根据请求创建
+     *
+     * @param executeCodeRequest
+     * @return 请求中没有预期输出时返回 null
+     */
+    public static OutputComparator of(ExecuteCodeRequest executeCodeRequest) {
+        List<String> expectedOutputList = executeCodeRequest.getExpectedOutputList();
+        List<String> expectedDigestList = executeCodeRequest.getExpectedOutputDigestList();
+        if (expectedOutputList != null) {
+            expectedDigestList = new ArrayList<>(expectedOutputList.size());
+            for (String expectedOutput : expectedOutputList) {
+                expectedDigestList.add(digest(expectedOutput));
+            }
+        }
+        if (expectedDigestList == null) {
+            return null;
+        }
+        return new OutputComparator(expectedOutputList, expectedDigestList);
+    }
+
+    /**
+     * 输出摘要（SHA-256，小写十六进制）
+     *
+     * @param output
+     * @return
+     */
+    public static String digest(String output) {
+        return DigestUtil.sha256Hex(output == null ? "" : output);
+    }
+
+    /**
+     * 用例的输出是否与预期一致，没有该用例的预期输出时视为一致
+     *
+     * @param index
+     * @param outputDigest 实际输出的摘要
+     * @return
+     */
+    public boolean matches(int index, String outputDigest) {
+        if (index >= expectedDigestList.size()) {
+            return true;
+        }
+        return expectedDigestList.get(index).equalsIgnoreCase(outputDigest);
+    }
+
+    /**
+     * 差异片段：第一个不同字符所在的行列，以及预期和实际输出在该位置附近的内容；只有摘要时返回 null
+     *
+     * @param index
+     * @param output 实际输出
+     * @return
+     */
+    public String diff(int index, String output) {
+        if (expectedOutputList == null || index >= expectedOutputList.size()) {
+            return null;
+        }
+        String expected = expectedOutputList.get(index);
+        String actual = output == null ? "" : output;
+        int minLength = Math.min(expected.length(), actual.length());
+        int position = 0;
+        int line = 1;
+        int lineStart = 0;
+        while (position < minLength && expected.charAt(position) == actual.charAt(position)) {
+            if (expected.charAt(position) == '\n') {
+                line++;
+                lineStart = position + 1;
+            }
+            position++;
+        }
+        return String.format("第 %d 行第 %d 列不同，预期：%s，实际：%s", line, position - lineStart + 1,
+                excerpt(expected, position), excerpt(actual, position));
+    }
+
+    /**
+     * 预期输出的摘要，供执行器进程内比较
+     *
+     * @return
+     */
+    public List<String> getExpectedDigestList() {
+        return expectedDigestList;
+    }
+
+    private static String excerpt(String text, int position) {
+        int start = Math.max(0, position - DIFF_CONTEXT);
+        int end = Math.min(text.length(), position + DIFF_CONTEXT);
+        StringBuilder sb = new StringBuilder("\"");
+        if (start > 0) {
+            sb.append("...");
+        }
+        sb.append(text.substring(start, end).replace("\n", "\\n"));
+        if (end < text.length()) {
+            sb.append("...");
+        }
+        return sb.append('"').toString();
+    }
+}
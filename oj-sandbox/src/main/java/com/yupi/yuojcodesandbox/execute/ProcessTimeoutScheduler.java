@@ -0,0 +1,115 @@
+package com.yupi.yuojcodesandbox.execute;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 进程超时控制
+ * <p>
+ * 所有用例共用一个定时线程，而不是每个用例启动一个睡眠线程；
+ * 进程正常结束时取消定时任务，超时则强制结束整个进程树并标记为超时
+ */
+@Slf4j
+@Component
+public class ProcessTimeoutScheduler {
+
+    /**
+     * 没有指定时间限制时的默认超时时间
+     */
+    private static final long DEFAULT_TIME_OUT = 5000L;
+
+    /**
+     * 在题目时间限制的基础上额外放宽的时间（覆盖进程启动等开销）
+     */
+    @Value("${sandbox.execute.timeout-grace-ms:1000}")
+    private long timeoutGraceMs;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public ProcessTimeoutScheduler() {
+        scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "process-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 取消的任务立即从队列移除，避免大量已结束用例的定时任务堆积
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 根据题目的时间限制计算超时时间
+     *
+     * @param timeLimit 题目时间限制（ms），可为空
+     * @return
+     */
+    public long resolveTimeout(Long timeLimit) {
+        if (timeLimit == null || timeLimit <= 0) {
+            return DEFAULT_TIME_OUT;
+        }
+        return timeLimit + timeoutGraceMs;
+    }
+
+    /**
+     * 监控进程，超时后强制结束
+     *
+     * @param process
+     * @param timeoutMs
+     * @return 进程结束后需调用 cancel
+     */
+    public TimeoutWatch watch(Process process, long timeoutMs) {
+        TimeoutWatch timeoutWatch = new TimeoutWatch();
+        timeoutWatch.future = scheduler.schedule(() -> {
+            if (process.isAlive()) {
+                timeoutWatch.timedOut = true;
+                destroyProcessTree(process);
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        return timeoutWatch;
+    }
+
+    /**
+     * 强制结束进程及其所有子进程
+     *
+     * @param process
+     */
+    public static void destroyProcessTree(Process process) {
+        // 先记录子进程，父进程结束后子进程会被过继而无法再找到
+        List<ProcessHandle> descendants = process.descendants().collect(Collectors.toList());
+        process.destroyForcibly();
+        descendants.forEach(ProcessHandle::destroyForcibly);
+    }
+
+    /**
+     * 单个进程的超时监控
+     */
+    public static class TimeoutWatch {
+
+        private ScheduledFuture<?> future;
+
+        private volatile boolean timedOut;
+
+        /**
+         * 进程正常结束后取消定时任务
+         */
+        public void cancel() {
+            future.cancel(false);
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+    }
+}
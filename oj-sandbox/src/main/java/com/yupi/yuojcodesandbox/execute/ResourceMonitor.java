@@ -0,0 +1,386 @@
+package com.yupi.yuojcodesandbox.execute;
+
+import cn.hutool.core.io.IoUtil;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 资源消耗统计
+ * <p>
+ * 本机进程：定时采样 /proc/&lt;pid&gt;/stat（utime + stime + 已回收子进程的 cutime + cstime）和
+ * /proc/&lt;pid&gt;/status（VmRSS、VmHWM），覆盖整个进程树；
+ * 容器：读取容器 cgroup 的 CPU 累计用量和内存峰值（优先 cgroup v2 的 cpu.stat、memory.peak，兼容 v1）。
+ * 统计的是进程实际消耗的 CPU 时间，不受机器负载和排队等待的影响
+ */
+@Slf4j
+@Component
+public class ResourceMonitor {
+
+    private static final String PROC_ROOT = "/proc";
+
+    /**
+     * 每隔多少次采样刷新一次子进程列表（查找子进程需要遍历 /proc，开销较大）
+     */
+    private static final int DESCENDANT_REFRESH_SAMPLES = 10;
+
+    /**
+     * 采样间隔（ms），进程最后一次采样之后消耗的 CPU 时间不超过该值
+     */
+    @Value("${sandbox.execute.sample-interval-ms:10}")
+    private long sampleIntervalMs;
+
+    /**
+     * cgroup 挂载目录
+     */
+    @Value("${sandbox.execute.cgroup-root:/sys/fs/cgroup}")
+    private String cgroupRoot;
+
+    /**
+     * 每秒的时钟周期数，/proc/&lt;pid&gt;/stat 中 CPU 时间的单位
+     */
+    private long clockTicks = 100L;
+
+    private boolean procAvailable;
+
+    private ScheduledThreadPoolExecutor sampler;
+
+    @PostConstruct
+    public void init() {
+        procAvailable = new File(PROC_ROOT, "self/stat").exists();
+        if (!procAvailable) {
+            log.warn("当前系统没有 /proc，用例耗时使用墙钟时间，不统计内存");
+            return;
+        }
+        try {
+            Process process = Runtime.getRuntime().exec("getconf CLK_TCK");
+            String output = IoUtil.read(process.getInputStream(), StandardCharsets.UTF_8).trim();
+            process.waitFor();
+            clockTicks = Long.parseLong(output);
+        } catch (Exception e) {
+            log.warn("获取 CLK_TCK 失败，按 {} 计算", clockTicks, e);
+        }
+        sampler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "resource-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.setRemoveOnCancelPolicy(true);
+        log.info("资源统计初始化完成，clockTicks = {}, sampleIntervalMs = {}", clockTicks, sampleIntervalMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+    }
+
+    /**
+     * 统计本机进程（含子进程）的资源消耗，进程启动后立即调用
+     *
+     * @param process
+     * @return 进程结束后需调用 stop
+     */
+    public ProcessUsageWatch watch(Process process) {
+        ProcessUsageWatch watch = new ProcessUsageWatch(process.toHandle());
+        if (procAvailable) {
+            watch.sample();
+            watch.future = sampler.scheduleAtFixedRate(watch::sample, sampleIntervalMs, sampleIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        }
+        return watch;
+    }
+
+    /**
+     * 统计容器的资源消耗，在容器内执行用例之前调用
+     *
+     * @param containerId
+     * @return 找不到容器的 cgroup 时返回 null
+     */
+    public ContainerUsageWatch watchContainer(String containerId) {
+        if (!procAvailable) {
+            return null;
+        }
+        boolean cgroupV2 = new File(cgroupRoot, "cgroup.controllers").exists();
+        File cpuDir = findContainerCgroup(cgroupV2 ? "" : "cpuacct", containerId);
+        File memoryDir = findContainerCgroup(cgroupV2 ? "" : "memory", containerId);
+        if (cpuDir == null || memoryDir == null) {
+            return null;
+        }
+        try {
+            ContainerUsageWatch watch = new ContainerUsageWatch(cgroupV2, cpuDir, memoryDir);
+            watch.start();
+            return watch;
+        } catch (IOException e) {
+            log.warn("读取容器 cgroup 失败, containerId = {}", containerId, e);
+            return null;
+        }
+    }
+
+    /**
+     * 把资源消耗写入执行信息，原有的耗时作为墙钟时间保留
+     *
+     * @param executeMessage
+     * @param resourceUsage  为 null 时耗时仍为墙钟时间
+     */
+    public static void fillExecuteMessage(ExecuteMessage executeMessage, ResourceUsage resourceUsage) {
+        executeMessage.setWallTime(executeMessage.getTime());
+        if (resourceUsage == null) {
+            return;
+        }
+        executeMessage.setTime(resourceUsage.getCpuTime());
+        executeMessage.setMemory(resourceUsage.getPeakMemory());
+    }
+
+    /**
+     * 兼容 cgroupfs（docker/&lt;id&gt;）和 systemd（system.slice/docker-&lt;id&gt;.scope）两种驱动的目录结构
+     */
+    private File findContainerCgroup(String controller, String containerId) {
+        File controllerRoot = controller.isEmpty() ? new File(cgroupRoot) : new File(cgroupRoot, controller);
+        File[] candidates = {
+                new File(controllerRoot, "docker/" + containerId),
+                new File(controllerRoot, "system.slice/docker-" + containerId + ".scope")
+        };
+        for (File candidate : candidates) {
+            if (candidate.isDirectory()) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取 /proc/&lt;pid&gt;/stat 中的 utime + stime + cutime + cstime
+     *
+     * @param pid
+     * @return 进程已不存在时返回 -1
+     */
+    private static long readCpuTicks(long pid) {
+        String stat;
+        try {
+            stat = new String(Files.readAllBytes(new File(PROC_ROOT, pid + "/stat").toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return -1;
+        }
+        // 进程名可能包含空格和括号，从最后一个右括号之后开始解析，第一个字段是 state（第 3 列）
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+        return Long.parseLong(fields[11]) + Long.parseLong(fields[12])
+                + Long.parseLong(fields[13]) + Long.parseLong(fields[14]);
+    }
+
+    /**
+     * 读取 /proc/&lt;pid&gt;/status 中的 VmRSS 和 VmHWM（KB）
+     *
+     * @param pid
+     * @return {VmRSS, VmHWM}，进程已不存在或已是僵尸进程时为 0
+     */
+    private static long[] readMemoryKb(long pid) {
+        long[] memory = new long[2];
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(new File(PROC_ROOT, pid + "/status").toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return memory;
+        }
+        for (String line : lines) {
+            if (line.startsWith("VmRSS:")) {
+                memory[0] = parseKb(line);
+            } else if (line.startsWith("VmHWM:")) {
+                memory[1] = parseKb(line);
+            }
+        }
+        return memory;
+    }
+
+    private static long parseKb(String line) {
+        // 格式如 VmRSS:	   35276 kB
+        String value = line.substring(line.indexOf(':') + 1).trim();
+        return Long.parseLong(value.substring(0, value.indexOf(' ')));
+    }
+
+    private static long readLong(File file) throws IOException {
+        return Long.parseLong(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim());
+    }
+
+    /**
+     * 单个本机进程树的资源统计
+     */
+    public class ProcessUsageWatch {
+
+        private final ProcessHandle processHandle;
+
+        private List<Long> descendantPids = Collections.emptyList();
+
+        private int sampleCount;
+
+        private long maxCpuTicks;
+
+        private long peakMemoryKb;
+
+        private ScheduledFuture<?> future;
+
+        private ProcessUsageWatch(ProcessHandle processHandle) {
+            this.processHandle = processHandle;
+        }
+
+        /**
+         * 子进程被回收后，它的 CPU 时间会累加到父进程的 cutime、cstime 中，
+         * 因此任一时刻进程树中所有存活进程的四项之和都等于整棵树已消耗的 CPU 时间
+         */
+        private synchronized void sample() {
+            if (sampleCount++ % DESCENDANT_REFRESH_SAMPLES == 0) {
+                descendantPids = processHandle.descendants().map(ProcessHandle::pid).collect(Collectors.toList());
+            }
+            long rootPid = processHandle.pid();
+            long cpuTicks = Math.max(readCpuTicks(rootPid), 0);
+            long[] rootMemory = readMemoryKb(rootPid);
+            long rssKb = rootMemory[0];
+            for (Long pid : descendantPids) {
+                cpuTicks += Math.max(readCpuTicks(pid), 0);
+                rssKb += readMemoryKb(pid)[0];
+            }
+            maxCpuTicks = Math.max(maxCpuTicks, cpuTicks);
+            peakMemoryKb = Math.max(peakMemoryKb, Math.max(rssKb, rootMemory[1]));
+        }
+
+        /**
+         * 停止统计
+         *
+         * @return 当前系统不支持统计时返回 null
+         */
+        public ResourceUsage stop() {
+            if (future == null) {
+                return null;
+            }
+            future.cancel(false);
+            // 进程可能还没有被回收，再采样一次
+            sample();
+            synchronized (this) {
+                ResourceUsage resourceUsage = new ResourceUsage();
+                resourceUsage.setCpuTime(maxCpuTicks * 1000 / clockTicks);
+                resourceUsage.setPeakMemory(peakMemoryKb);
+                return resourceUsage;
+            }
+        }
+    }
+
+    /**
+     * 单个容器的资源统计，统计区间为 start 到 stop 之间
+     */
+    public class ContainerUsageWatch {
+
+        private final boolean cgroupV2;
+
+        private final File cpuDir;
+
+        private final File memoryDir;
+
+        private long startCpuNanos;
+
+        /**
+         * 可重置的内存峰值文件：cgroup v2 的 memory.peak 重置只对写入它的文件描述符生效，需要一直持有
+         */
+        private RandomAccessFile peakFile;
+
+        private long sampledPeakBytes;
+
+        private ScheduledFuture<?> future;
+
+        private ContainerUsageWatch(boolean cgroupV2, File cpuDir, File memoryDir) {
+            this.cgroupV2 = cgroupV2;
+            this.cpuDir = cpuDir;
+            this.memoryDir = memoryDir;
+        }
+
+        private void start() throws IOException {
+            startCpuNanos = readCpuNanos();
+            File file = new File(memoryDir, cgroupV2 ? "memory.peak" : "memory.max_usage_in_bytes");
+            try {
+                peakFile = new RandomAccessFile(file, "rw");
+                // v2 写入任意内容重置（内核 6.12+），v1 写入 0 重置
+                peakFile.write((cgroupV2 ? "reset" : "0").getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                // 不支持重置（内核版本较低或没有写权限），容器复用后峰值不准确，改为定时采样当前内存
+                IoUtil.close(peakFile);
+                peakFile = null;
+                sampleMemory();
+                future = sampler.scheduleAtFixedRate(this::sampleMemory, sampleIntervalMs, sampleIntervalMs,
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private synchronized void sampleMemory() {
+            try {
+                long currentBytes = readLong(new File(memoryDir, cgroupV2 ? "memory.current" : "memory.usage_in_bytes"));
+                sampledPeakBytes = Math.max(sampledPeakBytes, currentBytes);
+            } catch (NoSuchFileException e) {
+                // 容器已被删除
+            } catch (IOException e) {
+                log.warn("读取容器内存失败, path = {}", memoryDir, e);
+            }
+        }
+
+        private long readCpuNanos() throws IOException {
+            if (!cgroupV2) {
+                return readLong(new File(cpuDir, "cpuacct.usage"));
+            }
+            // 格式如 usage_usec 123456
+            for (String line : Files.readAllLines(new File(cpuDir, "cpu.stat").toPath(), StandardCharsets.UTF_8)) {
+                if (line.startsWith("usage_usec ")) {
+                    return Long.parseLong(line.substring("usage_usec ".length()).trim()) * 1000;
+                }
+            }
+            throw new IOException("cpu.stat 中没有 usage_usec");
+        }
+
+        /**
+         * 停止统计
+         *
+         * @return 读取失败时返回 null
+         */
+        public ResourceUsage stop() {
+            try {
+                ResourceUsage resourceUsage = new ResourceUsage();
+                resourceUsage.setCpuTime((readCpuNanos() - startCpuNanos) / 1_000_000);
+                long peakBytes;
+                if (peakFile != null) {
+                    peakFile.seek(0);
+                    peakBytes = Long.parseLong(peakFile.readLine().trim());
+                } else {
+                    future.cancel(false);
+                    sampleMemory();
+                    synchronized (this) {
+                        peakBytes = sampledPeakBytes;
+                    }
+                }
+                resourceUsage.setPeakMemory(peakBytes / 1024);
+                return resourceUsage;
+            } catch (IOException e) {
+                log.warn("读取容器 cgroup 失败, path = {}", cpuDir, e);
+                return null;
+            } finally {
+                if (future != null) {
+                    future.cancel(false);
+                }
+                IoUtil.close(peakFile);
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.yupi.yuojcodesandbox.execute;
+
+import lombok.Data;
+
+/**
+ * 单个用例的资源消耗
+ */
+@Data
+public class ResourceUsage {
+
+    /**
+     * 用户态 + 内核态 CPU 时间（ms）
+     */
+    private Long cpuTime;
+
+    /**
+     * 峰值常驻内存（KB）
+     */
+    private Long peakMemory;
+}
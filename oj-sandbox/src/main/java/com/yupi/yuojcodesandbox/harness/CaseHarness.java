@@ -0,0 +1,475 @@
+package com.yupi.yuojcodesandbox.harness;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 多用例执行器（在用户程序的 JVM 内运行）
+ * <p>
+ * 一次 JVM 启动依次执行所有用例：每个用例用新的类加载器加载用户的 Main（静态变量互不影响），
+ * 单独重定向 System.in、System.out、System.err，并用 ThreadMXBean 统计用例线程的 CPU 时间。
+ * 内存与逐个进程执行时一致，统计 JVM 进程的峰值常驻内存：每个用例开始前重置 VmHWM（/proc/self/clear_refs），
+ * 结束后读取 /proc/self/status，因此包含 JVM 本身占用的内存；无法读取时退回统计堆内存的峰值。
+ * 每执行完一个用例就把结果追加到结果文件，JVM 中途退出时已完成的用例结果不会丢失。
+ * <p>
+ * 该类会被复制到单独的目录后加入用户程序的 classpath，只能依赖 JDK
+ * <p>
+ * 开启快速失败时，用例失败（运行错误、超时、输出超限、内存超限、与预期输出不一致）后不再执行剩余用例
+ * <p>
+ * 参数：用户 class 目录、用例文件、结果文件、单个用例超时时间（ms）、输出上限（字节）
+ */
+public class CaseHarness {
+
+    public static final int STATUS_OK = 0;
+
+    public static final int STATUS_RUNTIME_ERROR = 1;
+
+    public static final int STATUS_TIMEOUT = 2;
+
+    public static final int STATUS_OUTPUT_LIMIT_EXCEEDED = 3;
+
+    /**
+     * {@link #runCase} 的返回值：用例通过、失败、超时（超时的用户线程仍在运行）
+     */
+    static final int OUTCOME_PASSED = 0;
+
+    static final int OUTCOME_FAILED = 1;
+
+    static final int OUTCOME_TIMED_OUT = 2;
+
+    /**
+     * 用户代码所在的线程组，用户程序自己创建的线程也属于该线程组
+     */
+    static final ThreadGroup USER_THREAD_GROUP = new ThreadGroup("user-code");
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private static final File PROC_CLEAR_REFS = new File("/proc/self/clear_refs");
+
+    private static final File PROC_STATUS = new File("/proc/self/status");
+
+    public static void main(String[] args) throws Exception {
+        File userClassDir = new File(args[0]);
+        List<String> inputList = new ArrayList<>();
+        FailFastSpec failFastSpec;
+        try (DataInputStream casesInput = new DataInputStream(new FileInputStream(args[1]))) {
+            int caseCount = casesInput.readInt();
+            for (int i = 0; i < caseCount; i++) {
+                inputList.add(new String(readBytes(casesInput), StandardCharsets.UTF_8));
+            }
+            failFastSpec = FailFastSpec.read(casesInput);
+        }
+        long caseTimeoutMs = Long.parseLong(args[3]);
+        int outputLimit = Integer.parseInt(args[4]);
+
+        try (DataOutputStream resultOutput = new DataOutputStream(new FileOutputStream(args[2]))) {
+            for (int i = 0; i < inputList.size(); i++) {
+                try (URLClassLoader classLoader = new URLClassLoader(new URL[]{userClassDir.toURI().toURL()},
+                        ClassLoader.getPlatformClassLoader())) {
+                    int outcome = runCase(i, classLoader, inputList.get(i), caseTimeoutMs, outputLimit, failFastSpec,
+                            resultOutput);
+                    if (outcome == OUTCOME_TIMED_OUT) {
+                        // 无法安全地停止用户线程，直接退出，剩余用例由沙箱逐个进程执行
+                        Runtime.getRuntime().halt(0);
+                    }
+                    if (outcome == OUTCOME_FAILED && failFastSpec != null) {
+                        break;
+                    }
+                }
+            }
+        }
+        // 用户程序可能启动了非守护线程
+        System.exit(0);
+    }
+
+    /**
+     * 执行一个用例，并把结果追加到结果输出
+     *
+     * @param index         用例序号
+     * @param classLoader   加载用户 Main 的类加载器
+     * @param input         输入用例
+     * @param caseTimeoutMs 超时时间
+     * @param outputLimit   输出上限（字节）
+     * @param failFastSpec  快速失败的判断条件，为 null 时只区分是否超时
+     * @param resultOutput  结果输出
+     * @return OUTCOME_PASSED、OUTCOME_FAILED 或 OUTCOME_TIMED_OUT
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    static int runCase(int index, ClassLoader classLoader, String input, long caseTimeoutMs, int outputLimit,
+                       FailFastSpec failFastSpec, DataOutputStream resultOutput) throws IOException, InterruptedException {
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool);
+                pool.resetPeakUsage();
+            }
+        }
+        boolean rssTracked = resetPeakRss();
+        CaseResult caseResult = new CaseResult();
+        CappedOutputStream stdout = new CappedOutputStream(outputLimit);
+        CappedOutputStream stderr = new CappedOutputStream(outputLimit);
+        InputStream originIn = System.in;
+        PrintStream originOut = System.out;
+        PrintStream originErr = System.err;
+        System.setIn(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+        System.setOut(new PrintStream(stdout, true, "UTF-8"));
+        System.setErr(new PrintStream(stderr, true, "UTF-8"));
+
+        Thread caseThread = new Thread(USER_THREAD_GROUP, () -> invokeMain(classLoader, input, caseResult), "main");
+        caseThread.setContextClassLoader(classLoader);
+        long startTime = System.nanoTime();
+        caseThread.start();
+        caseThread.join(caseTimeoutMs);
+        long wallNanos = System.nanoTime() - startTime;
+        boolean timedOut = caseThread.isAlive();
+
+        System.out.flush();
+        System.err.flush();
+        System.setIn(originIn);
+        System.setOut(originOut);
+        System.setErr(originErr);
+        long peakMemoryBytes = rssTracked ? readPeakRssBytes() : -1;
+        if (peakMemoryBytes < 0) {
+            peakMemoryBytes = 0;
+            for (MemoryPoolMXBean pool : heapPools) {
+                peakMemoryBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        int status = caseResult.status;
+        long cpuNanos = caseResult.cpuNanos;
+        if (timedOut) {
+            status = STATUS_TIMEOUT;
+            cpuNanos = THREAD_MX_BEAN.getThreadCpuTime(caseThread.getId());
+        } else if (stdout.exceeded || stderr.exceeded) {
+            status = STATUS_OUTPUT_LIMIT_EXCEEDED;
+        }
+        resultOutput.writeInt(index);
+        resultOutput.writeInt(status);
+        resultOutput.writeLong(Math.max(cpuNanos, 0));
+        resultOutput.writeLong(wallNanos);
+        resultOutput.writeLong(peakMemoryBytes);
+        byte[] stdoutBytes = stdout.toByteArray();
+        writeBytes(resultOutput, stdoutBytes);
+        writeBytes(resultOutput, stderr.toByteArray());
+        resultOutput.flush();
+        if (timedOut) {
+            return OUTCOME_TIMED_OUT;
+        }
+        if (status != STATUS_OK) {
+            return OUTCOME_FAILED;
+        }
+        if (failFastSpec != null && failFastSpec.isFailed(index, stdoutBytes, peakMemoryBytes)) {
+            return OUTCOME_FAILED;
+        }
+        return OUTCOME_PASSED;
+    }
+
+    /**
+     * 把进程的峰值常驻内存（VmHWM）重置为当前的常驻内存（Linux 4.0 及以上）
+     *
+     * @return 是否重置成功
+     */
+    static boolean resetPeakRss() {
+        try (FileOutputStream clearRefs = new FileOutputStream(PROC_CLEAR_REFS)) {
+            clearRefs.write('5');
+            return true;
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 读取进程的峰值常驻内存（字节）
+     *
+     * @return 无法读取时返回 -1
+     */
+    static long readPeakRssBytes() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(PROC_STATUS),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmHWM:")) {
+                    // 格式：VmHWM:     35012 kB
+                    return Long.parseLong(line.substring("VmHWM:".length()).trim().split("\\s+")[0]) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    /**
+     * 当前线程是否在执行用户代码
+     *
+     * @return
+     */
+    static boolean isUserThread() {
+        ThreadGroup threadGroup = Thread.currentThread().getThreadGroup();
+        return threadGroup != null && USER_THREAD_GROUP.parentOf(threadGroup);
+    }
+
+    /**
+     * 输入用例拆分为 main 方法的参数，与进程方式（Runtime.exec 按空白拆分命令）一致：
+     * 连续的空白（含换行、制表符）视为一个分隔符，首尾空白忽略，空输入没有参数
+     *
+     * @param input
+     * @return
+     */
+    static String[] toArgs(String input) {
+        String trimmed = input == null ? "" : input.trim();
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+    }
+
+    private static void invokeMain(ClassLoader classLoader, String input, CaseResult caseResult) {
+        long startCpuTime = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+        try {
+            Class<?> mainClass = classLoader.loadClass("Main");
+            Method mainMethod = mainClass.getMethod("main", String[].class);
+            mainMethod.invoke(null, (Object) toArgs(input));
+        } catch (InvocationTargetException e) {
+            handleUncaught(e.getCause(), caseResult);
+        } catch (Throwable e) {
+            handleUncaught(e, caseResult);
+        } finally {
+            caseResult.cpuNanos = THREAD_MX_BEAN.getCurrentThreadCpuTime() - startCpuTime;
+        }
+    }
+
+    private static void handleUncaught(Throwable throwable, CaseResult caseResult) {
+        if (throwable instanceof CaseExitException) {
+            // 用户程序调用了 System.exit，按退出码判断是否正常结束
+            if (((CaseExitException) throwable).status != 0) {
+                caseResult.status = STATUS_RUNTIME_ERROR;
+            }
+            return;
+        }
+        caseResult.status = STATUS_RUNTIME_ERROR;
+        if (throwable instanceof OutputLimitExceededError) {
+            return;
+        }
+        printUncaught(throwable);
+    }
+
+    /**
+     * 与 JVM 默认的未捕获异常输出格式一致
+     */
+    private static void printUncaught(Throwable throwable) {
+        // 去掉执行器反射调用的栈帧，与直接执行 Main 时的输出一致
+        StackTraceElement[] stackTrace = throwable.getStackTrace();
+        for (int i = 0; i < stackTrace.length; i++) {
+            if (stackTrace[i].getClassName().startsWith("jdk.internal.reflect.")) {
+                throwable.setStackTrace(Arrays.copyOf(stackTrace, i));
+                break;
+            }
+        }
+        StringWriter stringWriter = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(stringWriter));
+        try {
+            System.err.print("Exception in thread \"main\" " + stringWriter);
+            System.err.flush();
+        } catch (OutputLimitExceededError e) {
+            // 标准错误已超限
+        }
+    }
+
+    static byte[] readBytes(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return bytes;
+    }
+
+    static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * 用户程序调用 System.exit 时由安全管理器抛出，只结束当前用例而不是整个 JVM
+     */
+    static class CaseExitException extends SecurityException {
+
+        private final int status;
+
+        CaseExitException(int status) {
+            super("System.exit(" + status + ")");
+            this.status = status;
+        }
+    }
+
+    /**
+     * 快速失败的判断条件，由沙箱写在输入用例之后
+     * <p>
+     * 格式：是否开启（boolean），开启时依次为预期输出摘要个数（int，-1 表示不比较输出）、各预期输出的 SHA-256 摘要、
+     * 内存限制（KB，long，0 表示不限制）
+     */
+    static class FailFastSpec {
+
+        private final List<String> expectedDigestList;
+
+        private final long memoryLimitKb;
+
+        private FailFastSpec(List<String> expectedDigestList, long memoryLimitKb) {
+            this.expectedDigestList = expectedDigestList;
+            this.memoryLimitKb = memoryLimitKb;
+        }
+
+        /**
+         * @param output
+         * @param failFast           是否开启快速失败
+         * @param expectedDigestList 预期输出的摘要（小写十六进制），为 null 时不比较输出
+         * @param memoryLimitKb      内存限制（KB），0 表示不限制
+         * @throws IOException
+         */
+        static void write(DataOutputStream output, boolean failFast, List<String> expectedDigestList,
+                          long memoryLimitKb) throws IOException {
+            output.writeBoolean(failFast);
+            if (!failFast) {
+                return;
+            }
+            if (expectedDigestList == null) {
+                output.writeInt(-1);
+            } else {
+                output.writeInt(expectedDigestList.size());
+                for (String expectedDigest : expectedDigestList) {
+                    output.writeUTF(expectedDigest);
+                }
+            }
+            output.writeLong(memoryLimitKb);
+        }
+
+        /**
+         * @param input
+         * @return 未开启快速失败时返回 null
+         * @throws IOException
+         */
+        static FailFastSpec read(DataInputStream input) throws IOException {
+            if (!input.readBoolean()) {
+                return null;
+            }
+            int expectedCount = input.readInt();
+            List<String> expectedDigestList = null;
+            if (expectedCount >= 0) {
+                expectedDigestList = new ArrayList<>(expectedCount);
+                for (int i = 0; i < expectedCount; i++) {
+                    expectedDigestList.add(input.readUTF());
+                }
+            }
+            return new FailFastSpec(expectedDigestList, input.readLong());
+        }
+
+        /**
+         * 正常结束的用例是否内存超限或与预期输出不一致
+         */
+        private boolean isFailed(int index, byte[] stdout, long peakMemoryBytes) {
+            if (memoryLimitKb > 0 && peakMemoryBytes / 1024 > memoryLimitKb) {
+                return true;
+            }
+            if (expectedDigestList == null || index >= expectedDigestList.size()) {
+                return false;
+            }
+            return !expectedDigestList.get(index).equalsIgnoreCase(digest(normalize(stdout)));
+        }
+
+        /**
+         * 与沙箱整理输出的方式一致（BoundedOutputBuffer.normalize）：统一换行符为 \n 并去掉末尾的一个换行
+         */
+        private static String normalize(byte[] bytes) {
+            String output = new String(bytes, StandardCharsets.UTF_8).replace("\r\n", "\n").replace('\r', '\n');
+            return output.endsWith("\n") ? output.substring(0, output.length() - 1) : output;
+        }
+
+        /**
+         * 与沙箱计算输出摘要的方式一致（OutputComparator.digest）：UTF-8 编码后的 SHA-256，小写十六进制
+         */
+        private static String digest(String output) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(output.getBytes(StandardCharsets.UTF_8));
+                StringBuilder sb = new StringBuilder(hash.length * 2);
+                for (byte b : hash) {
+                    sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+                }
+                return sb.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * 单个用例的执行结果
+     */
+    private static class CaseResult {
+
+        private volatile int status = STATUS_OK;
+
+        private volatile long cpuNanos;
+    }
+
+    /**
+     * 超出上限后抛出错误，让用户程序尽快结束
+     */
+    private static class OutputLimitExceededError extends Error {
+
+        private OutputLimitExceededError() {
+            super("Output Limit Exceeded", null, false, false);
+        }
+    }
+
+    /**
+     * 有上限的用例输出
+     */
+    private static class CappedOutputStream extends ByteArrayOutputStream {
+
+        private final int limit;
+
+        private volatile boolean exceeded;
+
+        private CappedOutputStream(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            int writable = Math.min(length, limit - count);
+            super.write(bytes, offset, writable);
+            if (writable < length) {
+                exceeded = true;
+                throw new OutputLimitExceededError();
+            }
+        }
+    }
+}
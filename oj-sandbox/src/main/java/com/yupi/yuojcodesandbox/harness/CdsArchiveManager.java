@@ -0,0 +1,324 @@
+package com.yupi.yuojcodesandbox.harness;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.yupi.yuojcodesandbox.execute.ProcessTimeoutScheduler;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import com.yupi.yuojcodesandbox.utils.ProcessUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * 类数据共享（AppCDS）归档管理
+ * <p>
+ * 沙箱启动后把执行器目录打包为 jar，用 {@link CdsTraining} 记录 JDK 常用类和执行器类的加载列表，
+ * 再生成 CDS 归档；之后启动的 JVM 通过 -XX:SharedArchiveFile 直接映射归档，省去类的解析和校验。
+ * 归档以 JDK 版本和执行器 class 文件的摘要命名，定时检查，JDK 升级或执行器变化后自动重新生成
+ */
+@Slf4j
+@Component
+public class CdsArchiveManager {
+
+    /**
+     * 生成归档的每一步允许的最长时间
+     */
+    private static final long BUILD_STEP_TIMEOUT = 60000L;
+
+    @Value("${sandbox.cds.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 默认为 user.dir/cds
+     */
+    @Value("${sandbox.cds.dir:}")
+    private String cdsDirName;
+
+    /**
+     * 启动后测量 JVM 启动耗时的次数（使用、不使用归档各测一遍），0 表示不测量
+     */
+    @Value("${sandbox.cds.benchmark-runs:0}")
+    private int benchmarkRuns;
+
+    @Value("${sandbox.execute.harness-dir:harness}")
+    private String harnessDirName;
+
+    @Resource
+    private ProcessTimeoutScheduler processTimeoutScheduler;
+
+    /**
+     * 当前可用的归档，为 null 时启动 JVM 不使用归档
+     */
+    private volatile Archive archive;
+
+    /**
+     * 上一份归档的键：切换归档时可能还有 JVM 正在使用旧文件启动，旧文件到下一次检查时再删除
+     */
+    private String retiredKey;
+
+    private volatile long buildMillis;
+
+    private volatile Map<String, Object> benchmark = Collections.emptyMap();
+
+    /**
+     * 执行用户程序的 classpath：归档可用时在前面加上执行器 jar（归档要求 classpath 以生成时的 classpath 开头）
+     *
+     * @param userClassPath 用户 class 文件所在目录
+     * @return
+     */
+    public String userClassPath(String userClassPath) {
+        Archive current = archive;
+        return current == null ? userClassPath : current.jarFile.getAbsolutePath() + File.pathSeparator + userClassPath;
+    }
+
+    /**
+     * 执行器进程的 classpath
+     *
+     * @return
+     */
+    public String harnessClassPath() {
+        Archive current = archive;
+        return current == null ? getHarnessDir().getAbsolutePath() : current.jarFile.getAbsolutePath();
+    }
+
+    /**
+     * 启动 JVM 时需要追加的参数，必须与 {@link #userClassPath} 或 {@link #harnessClassPath} 一起使用
+     *
+     * @return
+     */
+    public List<String> jvmOptions() {
+        Archive current = archive;
+        if (current == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList("-XX:SharedArchiveFile=" + current.archiveFile.getAbsolutePath());
+    }
+
+    /**
+     * 检查 JDK 版本和执行器是否变化，变化时重新生成归档
+     * <p>
+     * 应用启动完成后执行第一次（此时执行器目录已准备好），生成归档期间启动的 JVM 不使用归档
+     */
+    @Scheduled(fixedDelayString = "${sandbox.cds.check-interval-ms:600000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            File cdsDir = FileUtil.mkdir(cdsDirName == null || cdsDirName.isEmpty()
+                    ? System.getProperty("user.dir") + File.separator + "cds" : cdsDirName);
+            String key = buildKey();
+            Archive current = archive;
+            if (current != null && current.key.equals(key)) {
+                if (retiredKey != null) {
+                    deleteStaleFiles(cdsDir, key);
+                    retiredKey = null;
+                }
+                return;
+            }
+            Archive newArchive = new Archive(key, new File(cdsDir, "harness-" + key + ".jar"),
+                    new File(cdsDir, "sandbox-" + key + ".jsa"));
+            if (newArchive.jarFile.exists() && newArchive.archiveFile.exists()) {
+                log.info("复用已有的 CDS 归档 {}", newArchive.archiveFile.getName());
+            } else {
+                long startTime = System.currentTimeMillis();
+                build(cdsDir, newArchive);
+                buildMillis = System.currentTimeMillis() - startTime;
+                log.info("CDS 归档已生成 {}，耗时 {} ms", newArchive.archiveFile.getName(), buildMillis);
+            }
+            archive = newArchive;
+            // 刚切换时保留上一份归档，只删除更早的文件
+            retiredKey = current == null ? null : current.key;
+            deleteStaleFiles(cdsDir, key, retiredKey);
+            if (benchmarkRuns > 0) {
+                runBenchmark(newArchive);
+            }
+        } catch (Exception e) {
+            log.error("生成 CDS 归档失败，启动 JVM 时不使用归档", e);
+        }
+    }
+
+    /**
+     * 获取归档统计信息
+     *
+     * @return
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Archive current = archive;
+        stats.put("enabled", enabled);
+        stats.put("archive", current == null ? null : current.archiveFile.getName());
+        stats.put("buildMillis", buildMillis);
+        stats.put("benchmark", benchmark);
+        return stats;
+    }
+
+    private File getHarnessDir() {
+        return new File(System.getProperty("user.dir"), harnessDirName);
+    }
+
+    /**
+     * 归档键：执行用户程序的 java 的版本信息 + 执行器 class 文件的摘要
+     */
+    private String buildKey() throws IOException {
+        Process versionProcess = new ProcessBuilder("java", "-version").redirectErrorStream(true).start();
+        ExecuteMessage versionMessage = ProcessUtils.runProcessAndGetMessage(versionProcess, "获取 JDK 版本");
+        StringBuilder keySource = new StringBuilder(versionMessage.getMessage());
+        List<File> classFiles = FileUtil.loopFiles(getHarnessDir(), file -> file.getName().endsWith(".class"));
+        classFiles.sort(Comparator.comparing(File::getAbsolutePath));
+        for (File classFile : classFiles) {
+            keySource.append('\n').append(classFile.getName()).append(':').append(DigestUtil.sha256Hex(classFile));
+        }
+        return DigestUtil.sha256Hex(keySource.toString()).substring(0, 16);
+    }
+
+    private void build(File cdsDir, Archive newArchive) throws IOException {
+        File harnessDir = getHarnessDir();
+        File classListFile = new File(cdsDir, "sandbox-" + newArchive.key + ".classlist");
+        File tmpArchiveFile = new File(cdsDir, newArchive.archiveFile.getName() + ".tmp");
+        String jarPath = newArchive.jarFile.getAbsolutePath();
+        try {
+            // 归档只支持 jar 中的类，执行器目录需要先打包；归档中记录了 jar 的路径、大小和修改时间，jar 生成后不能再移动
+            writeJar(harnessDir, newArchive.jarFile);
+            runStep("记录 CDS 类列表", "java", "-Xshare:off", "-XX:DumpLoadedClassList=" + classListFile.getAbsolutePath(),
+                    "-cp", jarPath, CdsTraining.class.getName(), harnessDir.getAbsolutePath());
+            runStep("生成 CDS 归档", "java", "-Xshare:dump", "-XX:SharedClassListFile=" + classListFile.getAbsolutePath(),
+                    "-XX:SharedArchiveFile=" + tmpArchiveFile.getAbsolutePath(), "-cp", jarPath);
+            Files.move(tmpArchiveFile.toPath(), newArchive.archiveFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            FileUtil.del(classListFile);
+            FileUtil.del(tmpArchiveFile);
+        }
+    }
+
+    private void writeJar(File harnessDir, File jarFile) throws IOException {
+        String basePath = harnessDir.getAbsolutePath() + File.separator;
+        List<File> classFiles = FileUtil.loopFiles(harnessDir, file -> file.getName().endsWith(".class"));
+        try (JarOutputStream output = new JarOutputStream(new FileOutputStream(jarFile))) {
+            for (File classFile : classFiles) {
+                String entryName = classFile.getAbsolutePath().substring(basePath.length())
+                        .replace(File.separatorChar, '/');
+                output.putNextEntry(new JarEntry(entryName));
+                output.write(FileUtil.readBytes(classFile));
+                output.closeEntry();
+            }
+        }
+    }
+
+    private ExecuteMessage runStep(String opName, String... command) throws IOException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        ProcessTimeoutScheduler.TimeoutWatch timeoutWatch = processTimeoutScheduler.watch(process, BUILD_STEP_TIMEOUT);
+        ExecuteMessage executeMessage;
+        try {
+            executeMessage = ProcessUtils.runProcessAndGetMessage(process, opName);
+        } finally {
+            timeoutWatch.cancel();
+        }
+        if (executeMessage.getExitValue() != 0) {
+            throw new IOException(opName + "失败：" + executeMessage.getMessage());
+        }
+        return executeMessage;
+    }
+
+    /**
+     * 删除旧 JDK、旧执行器对应的归档（正在使用旧归档的进程已映射文件，删除不影响它们）
+     */
+    /**
+     * 删除不属于指定归档的文件
+     *
+     * @param cdsDir
+     * @param keys   需要保留的归档键，为 null 的忽略
+     */
+    private void deleteStaleFiles(File cdsDir, String... keys) {
+        File[] files = cdsDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            boolean keep = false;
+            for (String key : keys) {
+                if (key != null && file.getName().contains(key)) {
+                    keep = true;
+                    break;
+                }
+            }
+            if (!keep) {
+                FileUtil.del(file);
+            }
+        }
+    }
+
+    /**
+     * 分别在使用、不使用归档时启动 JVM 执行典型程序，统计每次启动耗时的 p50、p99
+     */
+    private void runBenchmark(Archive benchmarkArchive) throws IOException {
+        String jarPath = benchmarkArchive.jarFile.getAbsolutePath();
+        List<String> withoutArchive = Arrays.asList("java", "-Xmx256m", "-Dfile.encoding=UTF-8", "-cp", jarPath,
+                CdsTraining.class.getName(), CdsTraining.EXERCISE_ONLY);
+        List<String> withArchive = new ArrayList<>(withoutArchive);
+        withArchive.add(3, "-XX:SharedArchiveFile=" + benchmarkArchive.archiveFile.getAbsolutePath());
+        // 交替执行，避免系统负载变化只影响其中一组
+        List<Long> withoutArchiveMillis = new ArrayList<>();
+        List<Long> withArchiveMillis = new ArrayList<>();
+        for (int i = 0; i < benchmarkRuns; i++) {
+            withoutArchiveMillis.add(measureLaunch(withoutArchive));
+            withArchiveMillis.add(measureLaunch(withArchive));
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("runs", benchmarkRuns);
+        result.put("withoutArchiveP50", percentile(withoutArchiveMillis, 50));
+        result.put("withoutArchiveP99", percentile(withoutArchiveMillis, 99));
+        result.put("withArchiveP50", percentile(withArchiveMillis, 50));
+        result.put("withArchiveP99", percentile(withArchiveMillis, 99));
+        benchmark = result;
+        log.info("JVM 启动耗时（ms）：{}", result);
+    }
+
+    private long measureLaunch(List<String> command) throws IOException {
+        long startTime = System.nanoTime();
+        runStep("测量 JVM 启动耗时", command.toArray(new String[0]));
+        return (System.nanoTime() - startTime) / 1_000_000;
+    }
+
+    private static long percentile(List<Long> values, int percent) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(sorted.size() * percent / 100.0) - 1;
+        return sorted.get(Math.max(index, 0));
+    }
+
+    /**
+     * 一份归档及其对应的执行器 jar
+     */
+    private static class Archive {
+
+        private final String key;
+
+        private final File jarFile;
+
+        private final File archiveFile;
+
+        private Archive(String key, File jarFile, File archiveFile) {
+            this.key = key;
+            this.jarFile = jarFile;
+            this.archiveFile = archiveFile;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.yupi.yuojcodesandbox.harness;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 生成类数据共享（CDS）归档时的训练程序（在单独的 JVM 内运行）
+ * <p>
+ * 执行算法题常用的 JDK 代码，并加载执行器目录下的所有类，运行期间加载过的类会写入 CDS 归档。
+ * 参数为 exercise 时只执行 JDK 代码，用于测量典型程序的启动耗时
+ * <p>
+ * 该类会被复制到执行器目录，只能依赖 JDK
+ * <p>
+ * 参数：执行器目录或 exercise
+ */
+public class CdsTraining {
+
+    static final String EXERCISE_ONLY = "exercise";
+
+    public static void main(String[] args) throws Exception {
+        if (!EXERCISE_ONLY.equals(args[0])) {
+            loadHarnessClasses(new File(args[0]), "");
+        }
+
+        PrintStream originOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream(), true, "UTF-8"));
+        try {
+            exercise();
+        } finally {
+            System.setOut(originOut);
+        }
+    }
+
+    private static void loadHarnessClasses(File dir, String packagePrefix) throws ClassNotFoundException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String fileName = file.getName();
+            if (file.isDirectory()) {
+                loadHarnessClasses(file, packagePrefix + fileName + ".");
+            } else if (fileName.endsWith(".class")) {
+                String className = packagePrefix + fileName.substring(0, fileName.length() - ".class".length());
+                Class.forName(className, false, CdsTraining.class.getClassLoader());
+            }
+        }
+    }
+
+    private static void exercise() throws Exception {
+        String input = "3 1 2\n5 4\nhello 世界\n";
+        Scanner scanner = new Scanner(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+        int a = scanner.nextInt();
+        int b = scanner.nextInt();
+        scanner.nextLine();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8));
+        String[] parts = reader.readLine().split(" ");
+
+        List<Integer> numbers = Arrays.stream(parts).map(Integer::parseInt).sorted().collect(Collectors.toList());
+        Map<Integer, Long> counter = numbers.stream()
+                .collect(Collectors.groupingBy(number -> number % 2, Collectors.counting()));
+        String joined = IntStream.rangeClosed(1, 10).mapToObj(String::valueOf).collect(Collectors.joining(","));
+        List<Integer> list = new ArrayList<>(numbers);
+        Collections.sort(list, (x, y) -> y - x);
+        list.sort(Collections.reverseOrder());
+        Set<String> set = new HashSet<>(Arrays.asList(parts));
+        Map<String, Integer> treeMap = new TreeMap<>();
+        treeMap.merge("k", 1, Integer::sum);
+        Map<String, List<Integer>> hashMap = new HashMap<>();
+        hashMap.computeIfAbsent("k", key -> new ArrayList<>()).add(a + b);
+        Deque<Integer> deque = new ArrayDeque<>(list);
+        LinkedList<Integer> linkedList = new LinkedList<>(deque);
+        PriorityQueue<int[]> priorityQueue = new PriorityQueue<>((x, y) -> Integer.compare(x[0], y[0]));
+        priorityQueue.offer(new int[]{a, b});
+        long[] dp = new long[16];
+        Arrays.fill(dp, Long.MAX_VALUE);
+        BigInteger factorial = BigInteger.ONE;
+        for (int i = 2; i <= 30; i++) {
+            factorial = factorial.multiply(BigInteger.valueOf(i));
+        }
+        BigDecimal decimal = new BigDecimal("3.14159").setScale(2, RoundingMode.HALF_UP);
+        StringBuilder sb = new StringBuilder();
+        sb.append(joined).append(counter).append(set).append(treeMap).append(hashMap).append(linkedList)
+                .append(priorityQueue.peek()[0]).append(Arrays.toString(dp)).append(factorial).append(decimal)
+                .append(Math.max(a, b)).append(String.format("%.2f %d %s", 1.5, 2, "3"));
+        System.out.println(sb);
+        System.out.printf("%d%n", sb.length());
+    }
+}
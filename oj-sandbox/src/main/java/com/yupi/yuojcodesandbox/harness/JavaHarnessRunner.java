@@ -0,0 +1,279 @@
+package com.yupi.yuojcodesandbox.harness;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import com.yupi.yuojcodesandbox.execute.ExecuteScheduler;
+import com.yupi.yuojcodesandbox.execute.FailFastChecker;
+import com.yupi.yuojcodesandbox.execute.ProcessTimeoutScheduler;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import com.yupi.yuojcodesandbox.utils.BoundedOutputBuffer;
+import com.yupi.yuojcodesandbox.utils.ProcessUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Java 多用例执行模式
+ * <p>
+ * 一次提交只启动一个 JVM，由 {@link CaseHarness} 在 JVM 内依次执行所有用例；
+ * 执行器没有返回结果的用例（如用户程序调用了 System.exit、某个用例超时）再逐个进程执行
+ */
+@Slf4j
+@Component
+public class JavaHarnessRunner {
+
+    private static final String CASES_FILE_NAME = "harness-cases.bin";
+
+    private static final String RESULTS_FILE_NAME = "harness-results.bin";
+
+    /**
+     * 执行器 JVM 启动本身允许的耗时
+     */
+    private static final long HARNESS_STARTUP_TIMEOUT = 5000L;
+
+    /**
+     * 执行器 class 文件的存放目录（相对于工作目录）
+     */
+    @Value("${sandbox.execute.harness-dir:harness}")
+    private String harnessDirName;
+
+    @Resource
+    private ProcessTimeoutScheduler processTimeoutScheduler;
+
+    @Resource
+    private ExecuteScheduler executeScheduler;
+
+    @Resource
+    private CdsArchiveManager cdsArchiveManager;
+
+    private File harnessDir;
+
+    @PostConstruct
+    public void init() {
+        harnessDir = new File(System.getProperty("user.dir"), harnessDirName);
+        try {
+            exportClasses(CaseHarness.class, CdsTraining.class);
+            log.info("多用例执行器已准备，harnessDir = {}", harnessDir.getAbsolutePath());
+        } catch (IOException e) {
+            log.error("准备多用例执行器失败", e);
+        }
+    }
+
+    /**
+     * 把类及其内部类的 class 文件从沙箱的 classpath 复制到执行器目录，
+     * 用户程序的 classpath 只包含该目录，看不到沙箱的其他类
+     *
+     * @param classes
+     * @throws IOException
+     */
+    public void exportClasses(Class<?>... classes) throws IOException {
+        List<Class<?>> exportClassList = new ArrayList<>();
+        for (Class<?> clazz : classes) {
+            exportClassList.add(clazz);
+            exportClassList.addAll(Arrays.asList(clazz.getDeclaredClasses()));
+        }
+        for (Class<?> exportClass : exportClassList) {
+            String classFileName = exportClass.getName().replace('.', '/') + ".class";
+            try (InputStream inputStream = CaseHarness.class.getClassLoader().getResourceAsStream(classFileName)) {
+                if (inputStream == null) {
+                    throw new IOException("找不到 " + classFileName);
+                }
+                FileUtil.writeFromStream(inputStream, new File(harnessDir, classFileName));
+            }
+        }
+    }
+
+    /**
+     * 在一个 JVM 内执行所有用例
+     *
+     * @param userClassDir       用户 class 文件所在目录
+     * @param executeCodeRequest
+     * @param caseTimeoutMs      单个用例的超时时间
+     * @param outputLimit        单个用例的输出上限（字节）
+     * @param fallbackRunner     逐个进程执行单个用例的逻辑
+     * @param failFastChecker    快速失败判断，为 null 时执行所有用例
+     * @param caseListener       用例执行结束的通知，可以为 null
+     * @return 与输入用例顺序一致的执行结果，快速失败时没有执行的用例为 null
+     */
+    public List<ExecuteMessage> runCases(File userClassDir, ExecuteCodeRequest executeCodeRequest, long caseTimeoutMs,
+                                         int outputLimit, ExecuteScheduler.CaseRunner fallbackRunner,
+                                         FailFastChecker failFastChecker, ExecuteScheduler.CaseListener caseListener) {
+        List<String> inputList = executeCodeRequest.getInputList();
+        ExecuteMessage[] results = new ExecuteMessage[inputList.size()];
+        // 用例文件、结果文件放在用户 class 目录的上一级，不在用户程序的 classpath 中；以目录名区分同时执行的提交
+        File workDir = userClassDir.getParentFile();
+        File casesFile = new File(workDir, userClassDir.getName() + "-" + CASES_FILE_NAME);
+        File resultsFile = new File(workDir, userClassDir.getName() + "-" + RESULTS_FILE_NAME);
+        try {
+            writeCases(casesFile, inputList, failFastChecker);
+            List<String> command = new ArrayList<>(Arrays.asList("java", "-Xmx256m", "-Dfile.encoding=UTF-8"));
+            command.addAll(cdsArchiveManager.jvmOptions());
+            command.addAll(Arrays.asList("-cp", cdsArchiveManager.harnessClassPath(), CaseHarness.class.getName(),
+                    userClassDir.getAbsolutePath(), casesFile.getAbsolutePath(), resultsFile.getAbsolutePath(),
+                    String.valueOf(caseTimeoutMs), String.valueOf(outputLimit)));
+            Process harnessProcess = Runtime.getRuntime().exec(command.toArray(new String[0]));
+            ProcessTimeoutScheduler.TimeoutWatch timeoutWatch = processTimeoutScheduler.watch(harnessProcess,
+                    HARNESS_STARTUP_TIMEOUT + caseTimeoutMs * inputList.size());
+            try {
+                ProcessUtils.runProcessAndGetMessage(harnessProcess, "多用例执行");
+            } finally {
+                timeoutWatch.cancel();
+            }
+            readResults(resultsFile, results);
+        } catch (IOException e) {
+            log.error("多用例执行器运行失败，改为逐个进程执行", e);
+        } finally {
+            FileUtil.del(casesFile);
+            FileUtil.del(resultsFile);
+        }
+
+        return fillMissingResults(results, executeCodeRequest, fallbackRunner, failFastChecker, caseListener);
+    }
+
+    /**
+     * 没有结果的用例逐个进程执行；执行器返回的结果在这里统一通知，逐个进程执行的结果在每个用例结束时通知
+     *
+     * @param results            执行结果，没有结果的用例为 null
+     * @param executeCodeRequest
+     * @param fallbackRunner     逐个进程执行单个用例的逻辑
+     * @param failFastChecker    快速失败判断，为 null 时执行所有用例
+     * @param caseListener       用例执行结束的通知，可以为 null
+     * @return 与输入用例顺序一致的执行结果，快速失败时没有执行的用例为 null
+     */
+    public List<ExecuteMessage> fillMissingResults(ExecuteMessage[] results, ExecuteCodeRequest executeCodeRequest,
+                                                   ExecuteScheduler.CaseRunner fallbackRunner,
+                                                   FailFastChecker failFastChecker,
+                                                   ExecuteScheduler.CaseListener caseListener) {
+        List<String> inputList = executeCodeRequest.getInputList();
+        List<Integer> missingIndexList = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                missingIndexList.add(i);
+                continue;
+            }
+            if (caseListener != null) {
+                caseListener.onCaseFinished(i, results[i]);
+            }
+            if (failFastChecker != null && failFastChecker.check(i, results[i])) {
+                // 失败用例之后的用例不再执行
+                break;
+            }
+        }
+        if (!missingIndexList.isEmpty()) {
+            log.info("有 {} 个用例没有结果，改为逐个进程执行", missingIndexList.size());
+            List<String> missingInputList = new ArrayList<>();
+            for (Integer index : missingIndexList) {
+                missingInputList.add(inputList.get(index));
+            }
+            ExecuteScheduler.StopCondition stopCondition = (index, executeMessage) -> {
+                int caseIndex = missingIndexList.get(index);
+                if (caseListener != null) {
+                    caseListener.onCaseFinished(caseIndex, executeMessage);
+                }
+                return failFastChecker != null && failFastChecker.check(caseIndex, executeMessage);
+            };
+            List<ExecuteMessage> fallbackResults = executeScheduler.runCases(missingInputList,
+                    executeCodeRequest.getParallelism(), fallbackRunner, stopCondition);
+            for (int i = 0; i < missingIndexList.size(); i++) {
+                results[missingIndexList.get(i)] = fallbackResults.get(i);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private void writeCases(File casesFile, List<String> inputList, FailFastChecker failFastChecker)
+            throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(casesFile))) {
+            output.writeInt(inputList.size());
+            for (String input : inputList) {
+                CaseHarness.writeBytes(output, input.getBytes(StandardCharsets.UTF_8));
+            }
+            writeFailFastSpec(output, failFastChecker);
+        }
+    }
+
+    /**
+     * 写入快速失败的判断条件（格式见 CaseHarness.FailFastSpec）
+     *
+     * @param output
+     * @param failFastChecker 为 null 时表示不开启快速失败
+     * @throws IOException
+     */
+    static void writeFailFastSpec(DataOutputStream output, FailFastChecker failFastChecker) throws IOException {
+        if (failFastChecker == null) {
+            CaseHarness.FailFastSpec.write(output, false, null, 0);
+        } else {
+            CaseHarness.FailFastSpec.write(output, true, failFastChecker.getExpectedDigestList(),
+                    failFastChecker.getMemoryLimit());
+        }
+    }
+
+    /**
+     * 读取执行器逐个追加的结果，JVM 中途退出时最后一条记录可能不完整，直接忽略
+     */
+    private void readResults(File resultsFile, ExecuteMessage[] results) throws IOException {
+        if (!resultsFile.exists()) {
+            return;
+        }
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(resultsFile)));
+        try {
+            while (true) {
+                int index = input.readInt();
+                results[index] = readCaseResult(input);
+            }
+        } catch (EOFException e) {
+            // 读取完毕
+        } finally {
+            IoUtil.close(input);
+        }
+    }
+
+    /**
+     * 读取一条用例结果（用例序号之后的部分，格式见 CaseHarness.runCase）
+     *
+     * @param input
+     * @return
+     * @throws IOException
+     */
+    static ExecuteMessage readCaseResult(DataInputStream input) throws IOException {
+        int status = input.readInt();
+        long cpuNanos = input.readLong();
+        long wallNanos = input.readLong();
+        long peakMemoryBytes = input.readLong();
+        byte[] stdout = CaseHarness.readBytes(input);
+        byte[] stderr = CaseHarness.readBytes(input);
+
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setExitValue(status == CaseHarness.STATUS_OK ? 0 : 1);
+        executeMessage.setMessage(BoundedOutputBuffer.normalize(stdout, stdout.length));
+        executeMessage.setOutputBytes((long) stdout.length);
+        if (status == CaseHarness.STATUS_RUNTIME_ERROR) {
+            executeMessage.setErrorMessage(BoundedOutputBuffer.normalize(stderr, stderr.length));
+        }
+        executeMessage.setTime(cpuNanos / 1_000_000);
+        executeMessage.setWallTime(wallNanos / 1_000_000);
+        executeMessage.setStartupTimeExcluded(true);
+        // 与逐个进程执行一致，为 JVM 进程的峰值常驻内存
+        executeMessage.setMemory(peakMemoryBytes / 1024);
+        executeMessage.setTimeout(status == CaseHarness.STATUS_TIMEOUT);
+        executeMessage.setOutputLimitExceeded(status == CaseHarness.STATUS_OUTPUT_LIMIT_EXCEEDED);
+        return executeMessage;
+    }
+}
@@ -0,0 +1,271 @@
+package com.yupi.yuojcodesandbox.harness;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilePermission;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketPermission;
+import java.nio.charset.StandardCharsets;
+import java.security.AccessController;
+import java.security.CodeSource;
+import java.security.Permission;
+import java.security.Permissions;
+import java.security.Policy;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 常驻的 Java 执行进程（在用户程序的 JVM 内运行）
+ * <p>
+ * 启动后先预热常用的 JDK 代码，再在本机随机端口上等待沙箱连接，之后循环接收请求：
+ * 请求包含用户的 class 字节和所有输入用例，每个用例用新的类加载器执行（逻辑与 {@link CaseHarness} 相同）。
+ * 用户代码只在用户线程组内受安全管理器限制，执行器自身不受影响。
+ * <p>
+ * 该类会被复制到执行器目录，只能依赖 JDK
+ * <p>
+ * 参数：安全管理器类名（none 表示不限制）、触发回收的堆内存占用（字节）
+ */
+public class JavaWorker {
+
+    /**
+     * 一次请求的结果以该序号结尾，之后是是否需要回收
+     */
+    static final int END_OF_RESULTS = -1;
+
+    public static void main(String[] args) throws Exception {
+        String securityManagerClassName = args[0];
+        long heapRecycleBytes = Long.parseLong(args[1]);
+        warmUp();
+
+        Socket socket;
+        try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            // 沙箱从标准输出读取端口，只接受这一个连接
+            System.out.println("PORT " + serverSocket.getLocalPort());
+            System.out.flush();
+            socket = serverSocket.accept();
+        }
+        socket.setTcpNoDelay(true);
+        if (!"none".equals(securityManagerClassName)) {
+            SecurityManager policy = (SecurityManager) Class.forName(securityManagerClassName)
+                    .getDeclaredConstructor().newInstance();
+            // 执行器和 JDK 的代码拥有所有权限，只有用户类（固定为空权限）会被拒绝
+            Policy.setPolicy(new TrustedCodePolicy());
+            // 提前加载安全检查用到的类，避免安全检查中途加载类时再次触发安全检查
+            UserCodeSecurityManager securityManager = new UserCodeSecurityManager(policy);
+            securityManager.checkRead(System.getProperty("user.dir"));
+            securityManager.checkConnect("localhost", -1);
+            securityManager.checkExit(0);
+            Class.forName(CaseHarness.CaseExitException.class.getName());
+            System.setSecurityManager(securityManager);
+        }
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        while (true) {
+            int classCount;
+            try {
+                classCount = input.readInt();
+            } catch (EOFException e) {
+                // 沙箱关闭了连接
+                break;
+            }
+            Map<String, byte[]> classBytes = new HashMap<>();
+            for (int i = 0; i < classCount; i++) {
+                String className = input.readUTF();
+                classBytes.put(className, CaseHarness.readBytes(input));
+            }
+            int caseCount = input.readInt();
+            List<String> inputList = new ArrayList<>();
+            for (int i = 0; i < caseCount; i++) {
+                inputList.add(new String(CaseHarness.readBytes(input), StandardCharsets.UTF_8));
+            }
+            long caseTimeoutMs = input.readLong();
+            int outputLimit = input.readInt();
+            CaseHarness.FailFastSpec failFastSpec = CaseHarness.FailFastSpec.read(input);
+
+            for (int i = 0; i < caseCount; i++) {
+                MemoryClassLoader classLoader = new MemoryClassLoader(classBytes);
+                int outcome = CaseHarness.runCase(i, classLoader, inputList.get(i), caseTimeoutMs, outputLimit,
+                        failFastSpec, output);
+                if (outcome == CaseHarness.OUTCOME_TIMED_OUT) {
+                    // 无法安全地停止用户线程，直接退出，由沙箱启动新的执行进程
+                    Runtime.getRuntime().halt(0);
+                }
+                if (outcome == CaseHarness.OUTCOME_FAILED && failFastSpec != null) {
+                    break;
+                }
+            }
+            output.writeInt(END_OF_RESULTS);
+            output.writeBoolean(isPolluted(heapRecycleBytes));
+            output.flush();
+        }
+        Runtime.getRuntime().halt(0);
+    }
+
+    /**
+     * 用户程序留下了仍在运行的线程，或回收后堆内存占用仍然过高时，该进程不再复用
+     */
+    private static boolean isPolluted(long heapRecycleBytes) {
+        if (CaseHarness.USER_THREAD_GROUP.activeCount() > 0) {
+            return true;
+        }
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() > heapRecycleBytes;
+    }
+
+    /**
+     * 预热算法题常用的 JDK 代码，让 JIT 提前编译
+     */
+    private static void warmUp() {
+        PrintStream printStream = new PrintStream(new ByteArrayOutputStream(), false);
+        for (int round = 0; round < 20000; round++) {
+            String line = round + " " + (round * 31) + " " + (round ^ 7);
+            String[] parts = CaseHarness.toArgs(line);
+            List<Integer> numbers = new ArrayList<>();
+            Map<String, Integer> counter = new HashMap<>();
+            for (String part : parts) {
+                numbers.add(Integer.parseInt(part));
+                counter.merge(part, 1, Integer::sum);
+            }
+            Collections.sort(numbers);
+            StringBuilder sb = new StringBuilder();
+            for (Integer number : numbers) {
+                sb.append(number).append(',');
+            }
+            printStream.println(sb);
+        }
+    }
+
+    /**
+     * 从内存中的 class 字节加载用户类，用户类没有任何权限
+     */
+    static class MemoryClassLoader extends ClassLoader {
+
+        private static final ProtectionDomain USER_CODE_DOMAIN = new ProtectionDomain(
+                new CodeSource(null, (Certificate[]) null), new Permissions());
+
+        private final Map<String, byte[]> classBytes;
+
+        MemoryClassLoader(Map<String, byte[]> classBytes) {
+            super(ClassLoader.getPlatformClassLoader());
+            this.classBytes = classBytes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classBytes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length, USER_CODE_DOMAIN);
+        }
+    }
+
+    /**
+     * 给所有类加载器定义的类授予全部权限；用户类的保护域是静态的，不会查询该策略
+     */
+    static class TrustedCodePolicy extends Policy {
+
+        @Override
+        public boolean implies(ProtectionDomain domain, Permission permission) {
+            return true;
+        }
+    }
+
+    /**
+     * 只对用户代码生效的安全管理器
+     * <p>
+     * 非用户线程直接放行；用户线程中，JDK 通过特权代码块执行的操作（如加载类、读取系统属性）放行，
+     * 用户代码直接发起的操作交给配置的安全管理器（MySecurityManager、DenySecurityManager 等）判断
+     */
+    static class UserCodeSecurityManager extends SecurityManager {
+
+        private final SecurityManager policy;
+
+        UserCodeSecurityManager(SecurityManager policy) {
+            this.policy = policy;
+        }
+
+        private boolean shouldCheck(Permission perm) {
+            if (!CaseHarness.isUserThread()) {
+                return false;
+            }
+            try {
+                AccessController.checkPermission(perm);
+                return false;
+            } catch (SecurityException e) {
+                return true;
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission perm) {
+            if (shouldCheck(perm)) {
+                policy.checkPermission(perm);
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission perm, Object context) {
+            checkPermission(perm);
+        }
+
+        @Override
+        public void checkExit(int status) {
+            if (CaseHarness.isUserThread()) {
+                throw new CaseHarness.CaseExitException(status);
+            }
+        }
+
+        @Override
+        public void checkExec(String cmd) {
+            if (shouldCheck(new FilePermission(cmd, "execute"))) {
+                policy.checkExec(cmd);
+            }
+        }
+
+        @Override
+        public void checkRead(String file) {
+            if (shouldCheck(new FilePermission(file, "read"))) {
+                policy.checkRead(file);
+            }
+        }
+
+        @Override
+        public void checkWrite(String file) {
+            if (shouldCheck(new FilePermission(file, "write"))) {
+                policy.checkWrite(file);
+            }
+        }
+
+        @Override
+        public void checkDelete(String file) {
+            if (shouldCheck(new FilePermission(file, "delete"))) {
+                policy.checkDelete(file);
+            }
+        }
+
+        @Override
+        public void checkConnect(String host, int port) {
+            // 端口为 -1 时表示解析主机名
+            Permission perm = port == -1 ? new SocketPermission(host, "resolve")
+                    : new SocketPermission(host + ":" + port, "connect");
+            if (shouldCheck(perm)) {
+                policy.checkConnect(host, port);
+            }
+        }
+    }
+}
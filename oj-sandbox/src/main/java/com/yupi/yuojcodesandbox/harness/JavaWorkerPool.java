@@ -0,0 +1,397 @@
+package com.yupi.yuojcodesandbox.harness;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import com.yupi.yuojcodesandbox.execute.ExecuteScheduler;
+import com.yupi.yuojcodesandbox.execute.FailFastChecker;
+import com.yupi.yuojcodesandbox.execute.ProcessTimeoutScheduler;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import com.yupi.yuojcodesandbox.security.DefaultSecurityManager;
+import com.yupi.yuojcodesandbox.security.DenySecurityManager;
+import com.yupi.yuojcodesandbox.security.MySecurityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 常驻 Java 执行进程池
+ * <p>
+ * 预先启动并预热若干个 {@link JavaWorker} 进程，判题时通过本机 socket 发送 class 字节和输入用例，
+ * 同时省去 JVM 启动和 JIT 预热的开销；进程执行满一定次数、留下了用户线程、堆内存被污染或用例超时后回收并补充新进程
+ */
+@Slf4j
+@Component
+public class JavaWorkerPool {
+
+    /**
+     * 执行进程启动（含预热）允许的最长时间
+     */
+    private static final long WORKER_STARTUP_TIMEOUT = 30000L;
+
+    /**
+     * 一次请求除用例本身外允许的额外耗时
+     */
+    private static final long REQUEST_EXTRA_TIMEOUT = 5000L;
+
+    /**
+     * 启动进程失败后第一次重试的间隔，之后每次翻倍
+     */
+    private static final long SPAWN_RETRY_INITIAL_DELAY = 1000L;
+
+    @Value("${sandbox.execute.java-mode:process}")
+    private String javaExecuteMode;
+
+    @Value("${sandbox.worker.pool-size:2}")
+    private int poolSize;
+
+    /**
+     * 单个进程最多处理的提交数，超过后回收
+     */
+    @Value("${sandbox.worker.max-runs:200}")
+    private int maxRuns;
+
+    /**
+     * 请求结束并 GC 后堆内存仍高于该值（MB）时回收
+     */
+    @Value("${sandbox.worker.heap-recycle-mb:128}")
+    private long heapRecycleMb;
+
+    @Value("${sandbox.worker.lease-timeout-ms:3000}")
+    private long leaseTimeoutMs;
+
+    /**
+     * 启动进程失败后重试的最长间隔
+     */
+    @Value("${sandbox.worker.spawn-retry-max-ms:60000}")
+    private long spawnRetryMaxMs;
+
+    /**
+     * 对用户代码生效的安全管理器，none 表示不限制
+     */
+    @Value("${sandbox.worker.security-manager:com.yupi.yuojcodesandbox.security.DenySecurityManager}")
+    private String securityManagerClassName;
+
+    @Resource
+    private JavaHarnessRunner javaHarnessRunner;
+
+    @Resource
+    private ProcessTimeoutScheduler processTimeoutScheduler;
+
+    @Resource
+    private CdsArchiveManager cdsArchiveManager;
+
+    private final BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+
+    private final Set<Worker> allWorkers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger workerNumber = new AtomicInteger();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong recycleCount = new AtomicLong();
+
+    private final AtomicLong leaseTimeoutCount = new AtomicLong();
+
+    private final AtomicLong spawnFailCount = new AtomicLong();
+
+    /**
+     * 连续启动失败的次数，成功启动一个进程后清零
+     */
+    private final AtomicInteger consecutiveSpawnFailures = new AtomicInteger();
+
+    private ScheduledExecutorService spawner;
+
+    private volatile boolean closed;
+
+    @PostConstruct
+    public void init() {
+        if (!"worker".equals(javaExecuteMode)) {
+            return;
+        }
+        try {
+            javaHarnessRunner.exportClasses(JavaWorker.class, MySecurityManager.class, DenySecurityManager.class,
+                    DefaultSecurityManager.class);
+        } catch (IOException e) {
+            log.error("准备常驻执行进程失败", e);
+            return;
+        }
+        spawner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "java-worker-spawner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < poolSize; i++) {
+            spawnAsync();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        if (spawner != null) {
+            spawner.shutdownNow();
+        }
+        allWorkers.forEach(Worker::destroy);
+    }
+
+    /**
+     * 在常驻进程中执行所有用例
+     *
+     * @param userClassDir       用户 class 文件所在目录
+     * @param executeCodeRequest
+     * @param caseTimeoutMs      单个用例的超时时间
+     * @param outputLimit        单个用例的输出上限（字节）
+     * @param fallbackRunner     逐个进程执行单个用例的逻辑
+     * @param failFastChecker    快速失败判断，为 null 时执行所有用例
+     * @param caseListener       用例执行结束的通知，可以为 null
+     * @return 与输入用例顺序一致的执行结果，快速失败时没有执行的用例为 null
+     */
+    public List<ExecuteMessage> runCases(File userClassDir, ExecuteCodeRequest executeCodeRequest, long caseTimeoutMs,
+                                         int outputLimit, ExecuteScheduler.CaseRunner fallbackRunner,
+                                         FailFastChecker failFastChecker, ExecuteScheduler.CaseListener caseListener) {
+        List<String> inputList = executeCodeRequest.getInputList();
+        ExecuteMessage[] results = new ExecuteMessage[inputList.size()];
+        Worker worker = null;
+        try {
+            // 进程正在连续启动失败时不等待，直接逐个进程执行
+            long waitMs = consecutiveSpawnFailures.get() > 0 ? 0L : leaseTimeoutMs;
+            worker = idleWorkers.poll(waitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker == null) {
+            leaseTimeoutCount.incrementAndGet();
+            log.warn("没有空闲的常驻执行进程，改为逐个进程执行");
+        } else {
+            requestCount.incrementAndGet();
+            boolean recycle = true;
+            try {
+                recycle = worker.execute(readClassBytes(userClassDir), inputList, caseTimeoutMs, outputLimit,
+                        failFastChecker, results);
+            } catch (IOException e) {
+                log.warn("常驻执行进程 {} 异常退出", worker.name, e);
+            } finally {
+                release(worker, recycle);
+            }
+        }
+        // 超时用例之后的用例没有结果，逐个进程执行
+        return javaHarnessRunner.fillMissingResults(results, executeCodeRequest, fallbackRunner, failFastChecker,
+                caseListener);
+    }
+
+    /**
+     * 获取进程池统计信息
+     *
+     * @return
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", spawner != null);
+        stats.put("total", allWorkers.size());
+        stats.put("idle", idleWorkers.size());
+        stats.put("requests", requestCount.get());
+        stats.put("recycled", recycleCount.get());
+        stats.put("leaseTimeouts", leaseTimeoutCount.get());
+        stats.put("spawnFailures", spawnFailCount.get());
+        return stats;
+    }
+
+    /**
+     * 读取目录下所有 class 文件，类名 => class 字节
+     */
+    private Map<String, byte[]> readClassBytes(File userClassDir) {
+        Map<String, byte[]> classBytes = new LinkedHashMap<>();
+        String basePath = userClassDir.getAbsolutePath() + File.separator;
+        for (File classFile : FileUtil.loopFiles(userClassDir, file -> file.getName().endsWith(".class"))) {
+            String relativePath = classFile.getAbsolutePath().substring(basePath.length());
+            String className = relativePath.substring(0, relativePath.length() - ".class".length())
+                    .replace(File.separatorChar, '.');
+            classBytes.put(className, FileUtil.readBytes(classFile));
+        }
+        return classBytes;
+    }
+
+    private void release(Worker worker, boolean recycle) {
+        if (!recycle && worker.runCount < maxRuns && !closed) {
+            idleWorkers.offer(worker);
+            return;
+        }
+        recycleCount.incrementAndGet();
+        worker.destroy();
+        allWorkers.remove(worker);
+        spawnAsync();
+    }
+
+    private void spawnAsync() {
+        spawnAsync(0L);
+    }
+
+    /**
+     * 异步启动一个进程，失败时按指数退避重试，保证进程池最终恢复到配置的大小
+     *
+     * @param delayMs 延迟启动的时间
+     */
+    private void spawnAsync(long delayMs) {
+        if (closed) {
+            return;
+        }
+        spawner.schedule(() -> {
+            if (closed) {
+                return;
+            }
+            try {
+                Worker worker = startWorker();
+                allWorkers.add(worker);
+                idleWorkers.offer(worker);
+                consecutiveSpawnFailures.set(0);
+            } catch (IOException e) {
+                spawnFailCount.incrementAndGet();
+                int failures = consecutiveSpawnFailures.incrementAndGet();
+                long retryDelayMs = Math.min(SPAWN_RETRY_INITIAL_DELAY << Math.min(failures - 1, 16), spawnRetryMaxMs);
+                log.error("启动常驻执行进程失败，{} ms 后重试", retryDelayMs, e);
+                spawnAsync(retryDelayMs);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private Worker startWorker() throws IOException {
+        String name = "java-worker-" + workerNumber.incrementAndGet();
+        List<String> command = new ArrayList<>();
+        command.add("java");
+        command.add("-Xmx256m");
+        command.add("-Dfile.encoding=UTF-8");
+        if (Runtime.version().feature() >= 12) {
+            // JDK 12 起需要显式允许运行时设置安全管理器
+            command.add("-Djava.security.manager=allow");
+        }
+        command.addAll(cdsArchiveManager.jvmOptions());
+        command.add("-cp");
+        command.add(cdsArchiveManager.harnessClassPath());
+        command.add(JavaWorker.class.getName());
+        command.add(securityManagerClassName);
+        command.add(String.valueOf(heapRecycleMb * 1024 * 1024));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        ProcessTimeoutScheduler.TimeoutWatch timeoutWatch = processTimeoutScheduler.watch(process, WORKER_STARTUP_TIMEOUT);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String portLine;
+        try {
+            portLine = reader.readLine();
+        } finally {
+            timeoutWatch.cancel();
+        }
+        if (portLine == null || !portLine.startsWith("PORT ")) {
+            process.destroyForcibly();
+            throw new IOException(name + " 启动失败：" + portLine);
+        }
+        // 之后的输出（如 JDK 的警告）只需要排空，避免管道写满
+        Thread drainThread = new Thread(() -> {
+            try {
+                while (reader.readLine() != null) {
+                    // 丢弃
+                }
+            } catch (IOException e) {
+                // 进程已结束
+            }
+        }, name + "-output");
+        drainThread.setDaemon(true);
+        drainThread.start();
+
+        int port = Integer.parseInt(portLine.substring("PORT ".length()).trim());
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        log.info("常驻执行进程 {} 已启动，pid = {}", name, process.pid());
+        return new Worker(name, process, socket);
+    }
+
+    /**
+     * 一个常驻执行进程及其连接
+     */
+    private static class Worker {
+
+        private final String name;
+
+        private final Process process;
+
+        private final Socket socket;
+
+        private final DataInputStream input;
+
+        private final DataOutputStream output;
+
+        private int runCount;
+
+        private Worker(String name, Process process, Socket socket) throws IOException {
+            this.name = name;
+            this.process = process;
+            this.socket = socket;
+            this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        /**
+         * 发送一次请求并读取结果
+         *
+         * @return 该进程是否需要回收
+         * @throws IOException 进程中途退出（如用例超时）或通信超时
+         */
+        private boolean execute(Map<String, byte[]> classBytes, List<String> inputList, long caseTimeoutMs,
+                                int outputLimit, FailFastChecker failFastChecker, ExecuteMessage[] results)
+                throws IOException {
+            runCount++;
+            output.writeInt(classBytes.size());
+            for (Map.Entry<String, byte[]> entry : classBytes.entrySet()) {
+                output.writeUTF(entry.getKey());
+                CaseHarness.writeBytes(output, entry.getValue());
+            }
+            output.writeInt(inputList.size());
+            for (String input : inputList) {
+                CaseHarness.writeBytes(output, input.getBytes(StandardCharsets.UTF_8));
+            }
+            output.writeLong(caseTimeoutMs);
+            output.writeInt(outputLimit);
+            JavaHarnessRunner.writeFailFastSpec(output, failFastChecker);
+            output.flush();
+
+            socket.setSoTimeout((int) (REQUEST_EXTRA_TIMEOUT + caseTimeoutMs * inputList.size()));
+            int index;
+            while ((index = input.readInt()) != JavaWorker.END_OF_RESULTS) {
+                results[index] = JavaHarnessRunner.readCaseResult(input);
+            }
+            return input.readBoolean();
+        }
+
+        private void destroy() {
+            IoUtil.close(socket);
+            process.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,550 @@
+package com.yupi.yuojcodesandbox.isolation;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import com.yupi.yuojcodesandbox.language.LanguageRunner;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于 Linux 命名空间的轻量隔离
+ * <p>
+ * 每个用例直接用 unshare 启动，放进独立的 mount、pid、net、ipc、uts 命名空间（无网络、看不到宿主机进程）；
+ * 在 tmpfs 上搭建最小的根文件系统（只读绑定挂载运行环境、工作目录只读挂载到 {@link #WORKSPACE_MOUNT}、
+ * 有大小限制的 /tmp、新的 /proc 和少量设备文件），pivot_root 切换进去后卸载宿主机的根目录并把根目录改为只读，
+ * 用户程序看不到宿主机的文件（包括其他提交的工作目录、编译缓存、CDS 归档等）；
+ * 以单独的非特权用户执行（setpriv 降权、清空 capability、禁止提权），prlimit 限制 CPU 时间、文件大小、进程数、地址空间；
+ * 内存、进程数上限由每个用例单独的 cgroup 叶子节点控制（优先 cgroup v2，兼容 v1），同时读取内存峰值。
+ * 无法降权到单独的用户或无法使用 cgroup 限制内存时拒绝启用。
+ * 不经过 Docker 守护进程，启动开销接近直接启动进程
+ */
+@Slf4j
+@Component
+public class NamespaceIsolation {
+
+    /**
+     * 工作目录在命名空间内的挂载位置
+     */
+    public static final String WORKSPACE_MOUNT = "/mnt";
+
+    /**
+     * 在命名空间内搭建根文件系统并切换进去后执行用户程序：$1 工作目录，$2 /tmp 大小（MB），
+     * $3 需要写入进程号的 cgroup.procs（空格分隔），$4 根文件系统的挂载点，$5 只读挂载的运行环境路径（空格分隔）。
+     * 运行环境路径是符号链接时（如 /bin -> usr/bin）在新的根目录中创建同样的链接，不存在时跳过
+     */
+    private static final String SETUP_SCRIPT = "for f in $3; do echo $$ > \"$f\" || exit 125; done"
+            + " && R=\"$4\" && mount -t tmpfs -o size=1m,mode=755 tmpfs \"$R\" || exit 125;"
+            + " for p in $5; do"
+            + " if [ -L \"$p\" ]; then mkdir -p \"$R$(dirname \"$p\")\" && ln -s \"$(readlink \"$p\")\" \"$R$p\";"
+            + " elif [ -e \"$p\" ]; then"
+            + " if [ -d \"$p\" ]; then mkdir -p \"$R$p\"; else mkdir -p \"$R$(dirname \"$p\")\" && touch \"$R$p\"; fi"
+            + " && mount --bind \"$p\" \"$R$p\" && mount -o remount,bind,ro,nosuid,nodev \"$R$p\";"
+            + " fi || exit 125; done"
+            + " && mkdir -p \"$R" + WORKSPACE_MOUNT + "\" \"$R/tmp\" \"$R/proc\" \"$R/dev\" \"$R/.old\""
+            + " && mount --bind \"$1\" \"$R" + WORKSPACE_MOUNT + "\""
+            + " && mount -o remount,bind,ro,nosuid,nodev \"$R" + WORKSPACE_MOUNT + "\""
+            + " && mount -t tmpfs -o size=\"$2\"m,mode=1777,nosuid,nodev tmpfs \"$R/tmp\""
+            + " && mount -t proc -o nosuid,nodev,noexec proc \"$R/proc\""
+            + " && for d in null zero random urandom; do"
+            + " touch \"$R/dev/$d\" && mount --bind \"/dev/$d\" \"$R/dev/$d\" || exit 125; done"
+            + " && cd \"$R\" && pivot_root . .old && umount -l /.old && rmdir /.old"
+            + " && mount -o remount,ro,nosuid /"
+            + " && cd " + WORKSPACE_MOUNT + " && shift 5 && exec \"$@\" || exit 125";
+
+    /**
+     * 是否对原生沙箱执行的用例启用命名空间隔离
+     */
+    @Value("${sandbox.isolation.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 沙箱以 root 运行时，用户程序降权到的 uid、gid（需能读取 JDK、Python 等运行环境）
+     */
+    @Value("${sandbox.isolation.run-as-uid:65534}")
+    private int runAsUid;
+
+    @Value("${sandbox.isolation.run-as-gid:65534}")
+    private int runAsGid;
+
+    /**
+     * cgroup 内存上限
+     */
+    @Value("${sandbox.isolation.memory-limit-mb:512}")
+    private long memoryLimitMb;
+
+    /**
+     * cgroup 进程（线程）数上限
+     */
+    @Value("${sandbox.isolation.pids-max:128}")
+    private int pidsMax;
+
+    /**
+     * RLIMIT_NPROC，按 uid 统计，同时执行的用例共用，需大于并行用例的线程总数
+     */
+    @Value("${sandbox.isolation.nproc:512}")
+    private int nproc;
+
+    /**
+     * 单个文件大小上限
+     */
+    @Value("${sandbox.isolation.file-size-mb:16}")
+    private long fileSizeMb;
+
+    /**
+     * 地址空间上限，0 表示不限制（JVM 启动时预留大量虚拟内存，Java 用例不设置）
+     */
+    @Value("${sandbox.isolation.address-space-mb:1024}")
+    private long addressSpaceMb;
+
+    /**
+     * /tmp（tmpfs）大小
+     */
+    @Value("${sandbox.isolation.tmp-size-mb:16}")
+    private long tmpSizeMb;
+
+    /**
+     * 只读挂载到命名空间内的运行环境（编译器产物依赖的动态库、Python 等），当前 JDK 的目录会自动加入
+     */
+    @Value("${sandbox.isolation.rootfs-binds:/bin,/sbin,/lib,/lib64,/usr,/etc/alternatives,/etc/ld.so.cache,/etc/ld.so.conf,/etc/ld.so.conf.d}")
+    private List<String> rootfsBinds;
+
+    @Value("${sandbox.execute.cgroup-root:/sys/fs/cgroup}")
+    private String cgroupRoot;
+
+    /**
+     * 本服务在 cgroup 中的目录名，每个用例在其下创建叶子节点
+     */
+    @Value("${sandbox.isolation.cgroup-name:oj-sandbox}")
+    private String cgroupName;
+
+    private boolean available;
+
+    /**
+     * 不可用的原因
+     */
+    private String unavailableReason;
+
+    private boolean runAsRoot;
+
+    /**
+     * 根文件系统的挂载点（宿主机上的空目录，每个用例在自己的 mount 命名空间中挂载 tmpfs）
+     */
+    private File rootfsMount;
+
+    /**
+     * 只读挂载的运行环境路径（空格分隔）
+     */
+    private String rootfsBindPaths;
+
+    /**
+     * 用户程序的 PATH，包含当前 JDK
+     */
+    private String userPath;
+
+    private boolean cgroupV2;
+
+    /**
+     * 用例的 cgroup 叶子节点所在的父目录（v2 一个，v1 为 memory、pids 各一个）
+     */
+    private List<File> cgroupParents = Collections.emptyList();
+
+    private final AtomicLong startCount = new AtomicLong();
+
+    private final AtomicLong cgroupCleanupFailCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        runAsRoot = "0".equals(readUid());
+        initCgroup();
+        initRootfs();
+        unavailableReason = checkRequirements();
+        if (unavailableReason == null) {
+            unavailableReason = probe();
+        }
+        available = unavailableReason == null;
+        if (!available) {
+            log.warn("命名空间隔离不可用：{}", unavailableReason);
+        }
+        if (enabled) {
+            if (!available) {
+                throw new IllegalStateException("无法启用命名空间隔离：" + unavailableReason);
+            }
+            log.info("命名空间隔离已启用，runAsUid = {}, cgroup = {}, rootfs = {}", runAsUid, cgroupParents,
+                    rootfsBindPaths);
+        }
+    }
+
+    /**
+     * 隔离的前提：能降权到与沙箱不同的用户（用户程序不能改写沙箱的文件），能用 cgroup 限制内存（Java 不限制地址空间）
+     *
+     * @return 不满足时返回原因
+     */
+    private String checkRequirements() {
+        if (!runAsRoot) {
+            return "沙箱不是以 root 运行，无法降权到单独的用户执行用户程序";
+        }
+        if (runAsUid == 0 || runAsGid == 0) {
+            return "run-as-uid、run-as-gid 不能为 0";
+        }
+        if (cgroupParents.isEmpty()) {
+            return "无法使用 cgroup 限制内存";
+        }
+        return null;
+    }
+
+    /**
+     * 启动一次空命令，确认当前环境支持（内核允许创建命名空间、util-linux 版本足够、能搭建根文件系统）
+     *
+     * @return 不支持时返回原因
+     */
+    private String probe() {
+        File probeDir = FileUtil.mkdir(new File(System.getProperty("java.io.tmpdir"), "oj-isolation-probe"));
+        try {
+            ProcessBuilder processBuilder = new ProcessBuilder(buildCommand(probeDir, Collections.singletonList("true"),
+                    Collections.emptyList(), 1000, true)).redirectErrorStream(true);
+            prepareEnvironment(processBuilder);
+            Process process = processBuilder.start();
+            String output = IoUtil.read(process.getInputStream(), StandardCharsets.UTF_8);
+            if (process.waitFor(5, TimeUnit.SECONDS) && process.exitValue() == 0) {
+                return null;
+            }
+            return output.trim();
+        } catch (Exception e) {
+            return e.getMessage();
+        }
+    }
+
+    private void initRootfs() {
+        rootfsMount = FileUtil.mkdir(new File(System.getProperty("java.io.tmpdir"), "oj-isolation-root"));
+        List<String> binds = new ArrayList<>();
+        for (String bind : rootfsBinds) {
+            if (StringUtils.isNotBlank(bind) && !bind.trim().contains(" ")) {
+                binds.add(bind.trim());
+            }
+        }
+        // 当前 JDK 可能不在 /usr 下（如 /opt、/root/.sdkman），单独挂载
+        String javaHome = new File(System.getProperty("java.home")).toPath().normalize().toString();
+        if (!javaHome.contains(" ") && binds.stream().noneMatch(bind -> javaHome.equals(bind)
+                || javaHome.startsWith(bind + "/"))) {
+            binds.add(javaHome);
+        }
+        rootfsBindPaths = String.join(" ", binds);
+        userPath = javaHome + "/bin:/usr/local/sbin:/usr/local/bin:/usr/sbin:/usr/bin:/sbin:/bin";
+    }
+
+    /**
+     * 用户程序不继承沙箱的环境变量（可能包含配置、凭据），只保留必要的变量
+     */
+    private void prepareEnvironment(ProcessBuilder processBuilder) {
+        Map<String, String> environment = processBuilder.environment();
+        environment.clear();
+        environment.put("PATH", userPath);
+        environment.put("HOME", "/tmp");
+        environment.put("LANG", "C.UTF-8");
+    }
+
+    /**
+     * 原生沙箱是否启用命名空间隔离
+     *
+     * @return
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 在隔离环境中启动一个用例
+     *
+     * @param workspace  宿主机上的工作目录，在命名空间内只读挂载到 {@link #WORKSPACE_MOUNT}
+     * @param command    执行命令（工作目录中的文件使用 {@link #WORKSPACE_MOUNT} 下的路径）
+     * @param timeoutMs  用例超时时间，用于设置 CPU 时间上限
+     * @param languageRunner 用例的语言（内存上限倍数、是否限制地址空间）
+     * @param cpu        绑定的 CPU，为 null 时不绑定
+     * @return 用例结束后需调用 finish
+     * @throws IOException
+     */
+    public IsolatedProcess start(File workspace, List<String> command, long timeoutMs, LanguageRunner languageRunner,
+                                 Integer cpu) throws IOException {
+        if (!available) {
+            throw new RuntimeException("命名空间隔离不可用：" + unavailableReason);
+        }
+        grantToRunAsGroup(workspace);
+        List<File> leaves = createCgroupLeaves((long) (memoryLimitMb * languageRunner.getMemoryMultiplier()));
+        List<String> procsFiles = new ArrayList<>();
+        for (File leaf : leaves) {
+            procsFiles.add(new File(leaf, "cgroup.procs").getAbsolutePath());
+        }
+        List<String> fullCommand = buildCommand(workspace, command, procsFiles, timeoutMs,
+                languageRunner.isAddressSpaceLimited());
+        if (cpu != null) {
+            fullCommand.addAll(0, Arrays.asList("taskset", "-c", String.valueOf(cpu)));
+        }
+        try {
+            ProcessBuilder processBuilder = new ProcessBuilder(fullCommand);
+            prepareEnvironment(processBuilder);
+            Process process = processBuilder.start();
+            startCount.incrementAndGet();
+            return new IsolatedProcess(process, leaves);
+        } catch (IOException | RuntimeException e) {
+            removeCgroupLeaves(leaves);
+            throw e;
+        }
+    }
+
+    /**
+     * 获取隔离统计信息
+     *
+     * @return
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("available", available);
+        stats.put("unavailableReason", unavailableReason);
+        stats.put("runAsRoot", runAsRoot);
+        stats.put("cgroup", cgroupParents.isEmpty() ? "none" : (cgroupV2 ? "v2" : "v1"));
+        stats.put("startCount", startCount.get());
+        stats.put("cgroupCleanupFailCount", cgroupCleanupFailCount.get());
+        return stats;
+    }
+
+    /**
+     * unshare 创建命名空间 → 加入 cgroup，搭建根文件系统并 pivot_root → setpriv 降权 → prlimit 设置资源上限 → 用户程序
+     */
+    private List<String> buildCommand(File workspace, List<String> command, List<String> procsFiles,
+                                      long timeoutMs, boolean addressSpaceLimited) {
+        List<String> fullCommand = new ArrayList<>(Arrays.asList("unshare", "--mount", "--propagation", "private",
+                "--net", "--pid", "--fork", "--ipc", "--uts", "--kill-child"));
+        fullCommand.addAll(Arrays.asList("sh", "-c", SETUP_SCRIPT, "sh", workspace.getAbsolutePath(),
+                String.valueOf(tmpSizeMb), String.join(" ", procsFiles), rootfsMount.getAbsolutePath(),
+                rootfsBindPaths));
+        fullCommand.addAll(Arrays.asList("setpriv", "--reuid=" + runAsUid, "--regid=" + runAsGid, "--clear-groups",
+                "--inh-caps=-all", "--bounding-set=-all", "--no-new-privs", "--"));
+        // CPU 时间上限（秒）比超时时间多 1 秒，正常情况下由超时控制结束进程
+        long cpuSeconds = TimeUnit.MILLISECONDS.toSeconds(timeoutMs) + 1;
+        fullCommand.addAll(Arrays.asList("prlimit", "--cpu=" + cpuSeconds, "--fsize=" + fileSizeMb * 1024 * 1024,
+                "--nproc=" + nproc, "--core=0"));
+        if (addressSpaceLimited && addressSpaceMb > 0) {
+            fullCommand.add("--as=" + addressSpaceMb * 1024 * 1024);
+        }
+        fullCommand.add("--");
+        fullCommand.addAll(command);
+        return fullCommand;
+    }
+
+    private void initCgroup() {
+        File root = new File(cgroupRoot);
+        cgroupV2 = new File(root, "cgroup.controllers").exists();
+        List<File> parents = cgroupV2 ? Collections.singletonList(new File(root, cgroupName))
+                : Arrays.asList(new File(root, "memory/" + cgroupName), new File(root, "pids/" + cgroupName));
+        try {
+            for (File parent : parents) {
+                if (!parent.isDirectory() && !parent.mkdir()) {
+                    throw new IOException("无法创建 " + parent);
+                }
+            }
+            if (cgroupV2) {
+                // 子节点需要父节点开启 memory、pids 控制器
+                FileUtil.writeUtf8String("+memory +pids", new File(parents.get(0), "cgroup.subtree_control"));
+            }
+            cgroupParents = parents;
+        } catch (Exception e) {
+            log.warn("无法使用 cgroup 限制用例内存，仅通过 prlimit 限制地址空间：{}", e.getMessage());
+        }
+    }
+
+    private List<File> createCgroupLeaves(long memoryLimitMb) {
+        if (cgroupParents.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String leafName = "case-" + UUID.randomUUID();
+        long memoryLimitBytes = memoryLimitMb * 1024 * 1024;
+        List<File> leaves = new ArrayList<>();
+        try {
+            for (File parent : cgroupParents) {
+                File leaf = new File(parent, leafName);
+                if (!leaf.mkdir()) {
+                    throw new IOException("无法创建 " + leaf);
+                }
+                leaves.add(leaf);
+            }
+            if (cgroupV2) {
+                File leaf = leaves.get(0);
+                writeCgroupFile(leaf, "memory.max", memoryLimitBytes);
+                writeCgroupFile(leaf, "memory.swap.max", 0);
+                writeCgroupFile(leaf, "pids.max", pidsMax);
+            } else {
+                writeCgroupFile(leaves.get(0), "memory.limit_in_bytes", memoryLimitBytes);
+                writeCgroupFile(leaves.get(0), "memory.memsw.limit_in_bytes", memoryLimitBytes);
+                writeCgroupFile(leaves.get(1), "pids.max", pidsMax);
+            }
+            return leaves;
+        } catch (Exception e) {
+            removeCgroupLeaves(leaves);
+            throw new RuntimeException("创建用例 cgroup 失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 写入 cgroup 控制文件，文件不存在（如未开启 swap 记账）时跳过
+     */
+    private static void writeCgroupFile(File leaf, String name, long value) {
+        File file = new File(leaf, name);
+        if (file.exists()) {
+            FileUtil.writeUtf8String(String.valueOf(value), file);
+        }
+    }
+
+    private void removeCgroupLeaves(List<File> leaves) {
+        for (File leaf : leaves) {
+            // cgroup 目录只能用 rmdir 删除，进程刚退出时可能还未从 cgroup 中移除，稍后重试一次
+            if (!leaf.delete()) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (leaf.exists() && !leaf.delete()) {
+                    cgroupCleanupFailCount.incrementAndGet();
+                    log.warn("删除用例 cgroup 失败：{}", leaf);
+                }
+            }
+        }
+    }
+
+    /**
+     * 工作目录归属到降权后的用户组，只对该组可读（可执行文件可执行），其他用户不可访问
+     */
+    private void grantToRunAsGroup(File workspace) throws IOException {
+        Path path = workspace.toPath();
+        Files.setAttribute(path, "unix:gid", runAsGid, LinkOption.NOFOLLOW_LINKS);
+        boolean directory = Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS);
+        Set<PosixFilePermission> permissions = EnumSet.of(PosixFilePermission.OWNER_READ,
+                PosixFilePermission.OWNER_WRITE, PosixFilePermission.GROUP_READ);
+        if (directory || Files.isExecutable(path)) {
+            permissions.add(PosixFilePermission.OWNER_EXECUTE);
+            permissions.add(PosixFilePermission.GROUP_EXECUTE);
+        }
+        Files.setPosixFilePermissions(path, permissions);
+        if (!directory) {
+            return;
+        }
+        File[] files = workspace.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            grantToRunAsGroup(file);
+        }
+    }
+
+    private static String readUid() {
+        try {
+            Process process = new ProcessBuilder("id", "-u").start();
+            String output = IoUtil.read(process.getInputStream(), StandardCharsets.UTF_8).trim();
+            process.waitFor();
+            return output;
+        } catch (Exception e) {
+            return StringUtils.EMPTY;
+        }
+    }
+
+    /**
+     * 隔离环境中的用例进程
+     */
+    public class IsolatedProcess {
+
+        private final Process process;
+
+        private final List<File> cgroupLeaves;
+
+        private IsolatedProcess(Process process, List<File> cgroupLeaves) {
+            this.process = process;
+            this.cgroupLeaves = cgroupLeaves;
+        }
+
+        /**
+         * 内存峰值（KB），没有 cgroup 或内核不支持时为 -1
+         */
+        private long peakMemory = -1;
+
+        /**
+         * 是否因超出 cgroup 内存上限被结束
+         */
+        private boolean oomKilled;
+
+        public Process getProcess() {
+            return process;
+        }
+
+        public long getPeakMemory() {
+            return peakMemory;
+        }
+
+        public boolean isOomKilled() {
+            return oomKilled;
+        }
+
+        /**
+         * 进程结束后读取 cgroup 内存峰值、OOM 次数并删除 cgroup
+         */
+        public void finish() {
+            if (!cgroupLeaves.isEmpty()) {
+                File memoryLeaf = cgroupLeaves.get(0);
+                try {
+                    String peak = readCgroupFile(memoryLeaf, cgroupV2 ? "memory.peak" : "memory.max_usage_in_bytes");
+                    if (peak != null) {
+                        peakMemory = Long.parseLong(peak.trim()) / 1024;
+                    }
+                    // v2 为 memory.events，v1 为 memory.oom_control，都有一行 oom_kill 次数
+                    String events = readCgroupFile(memoryLeaf, cgroupV2 ? "memory.events" : "memory.oom_control");
+                    if (events != null) {
+                        for (String line : events.split("\n")) {
+                            if (line.startsWith("oom_kill ") && !"0".equals(line.substring(9).trim())) {
+                                oomKilled = true;
+                            }
+                        }
+                    }
+                } catch (Exception e) {
+                    log.warn("读取用例 cgroup 内存统计失败：{}", memoryLeaf, e);
+                }
+            }
+            removeCgroupLeaves(cgroupLeaves);
+        }
+    }
+
+    /**
+     * 读取 cgroup 统计文件（文件大小显示为 0，需读到文件末尾）
+     *
+     * @return 文件不存在时返回 null
+     */
+    private static String readCgroupFile(File leaf, String name) throws IOException {
+        File file = new File(leaf, name);
+        if (!file.exists()) {
+            return null;
+        }
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,50 @@
+package com.yupi.yuojcodesandbox.language;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * C：gcc 编译为本地可执行文件
+ */
+@Component
+public class CLanguageRunner extends GccLanguageRunner {
+
+    private static final String WARM_UP_CODE = "#include <stdio.h>\nint main() { printf(\"ok\"); return 0; }\n";
+
+    @Override
+    public String getLanguage() {
+        return "c";
+    }
+
+    @Override
+    public String getSourceFileName() {
+        return "main.c";
+    }
+
+    @Override
+    protected String getCompiler() {
+        return "gcc";
+    }
+
+    @Override
+    protected String getDefaultCompileOptions() {
+        return "";
+    }
+
+    @Override
+    protected String getHeaderLanguage() {
+        return "c-header";
+    }
+
+    @Override
+    protected List<String> getDefaultPchHeaders() {
+        return Collections.singletonList("stdio.h");
+    }
+
+    @Override
+    protected String getWarmUpCode() {
+        return WARM_UP_CODE;
+    }
+}
@@ -0,0 +1,50 @@
+package com.yupi.yuojcodesandbox.language;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * C++：g++ 编译为本地可执行文件（默认按 C++17 开启 O2 优化）
+ */
+@Component
+public class CppLanguageRunner extends GccLanguageRunner {
+
+    private static final String WARM_UP_CODE = "#include <bits/stdc++.h>\nint main() { std::cout << \"ok\"; return 0; }\n";
+
+    @Override
+    public String getLanguage() {
+        return "cpp";
+    }
+
+    @Override
+    public String getSourceFileName() {
+        return "main.cpp";
+    }
+
+    @Override
+    protected String getCompiler() {
+        return "g++";
+    }
+
+    @Override
+    protected String getDefaultCompileOptions() {
+        return "-std=c++17 -O2";
+    }
+
+    @Override
+    protected String getHeaderLanguage() {
+        return "c++-header";
+    }
+
+    @Override
+    protected List<String> getDefaultPchHeaders() {
+        return Collections.singletonList("bits/stdc++.h");
+    }
+
+    @Override
+    protected String getWarmUpCode() {
+        return WARM_UP_CODE;
+    }
+}
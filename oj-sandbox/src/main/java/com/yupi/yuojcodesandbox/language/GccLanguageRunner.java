@@ -0,0 +1,164 @@
+package com.yupi.yuojcodesandbox.language;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.yupi.yuojcodesandbox.compile.PrecompiledHeaderManager;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import com.yupi.yuojcodesandbox.utils.ProcessUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * GCC 编译为本地可执行文件的语言（C、C++），编译产物为源码目录下的 main
+ * <p>
+ * 预热时按编译器和编译参数生成常用头文件的预编译头，之后的编译自动使用。
+ * 配置统一读取 sandbox.language.{语言}.*（compile-options、pch-headers、denied-tokens、time-multiplier、
+ * memory-multiplier），未配置时使用子类给出的默认值
+ */
+@Slf4j
+public abstract class GccLanguageRunner implements LanguageRunner {
+
+    /**
+     * C、C++ 默认禁用的标识符：执行命令、创建进程、发送信号、网络、内联汇编、动态加载等
+     */
+    protected static final List<String> DEFAULT_DENIED_TOKENS = Arrays.asList("system(", "popen(", "fork(",
+            "vfork(", "clone(", "execl(", "execlp(", "execle(", "execv(", "execvp(", "execvpe(", "execve(",
+            "fexecve(", "kill(", "ptrace(", "syscall(", "socket(", "connect(", "<sys/socket.h>", "<sys/ptrace.h>",
+            "<netinet/", "<arpa/inet.h>", "dlopen(", "asm(", "asm volatile", "__asm__", "setuid(", "chmod(",
+            "unlink(");
+
+    @Resource
+    private PrecompiledHeaderManager precompiledHeaderManager;
+
+    @Resource
+    private Environment environment;
+
+    private String compileOptions;
+
+    private List<String> pchHeaders;
+
+    private List<String> deniedTokens;
+
+    private double timeMultiplier;
+
+    private double memoryMultiplier;
+
+    @PostConstruct
+    public void init() {
+        compileOptions = environment.getProperty(propertyName("compile-options"), getDefaultCompileOptions());
+        String[] headers = environment.getProperty(propertyName("pch-headers"), String[].class);
+        pchHeaders = headers != null ? Arrays.asList(headers) : getDefaultPchHeaders();
+        String[] tokens = environment.getProperty(propertyName("denied-tokens"), String[].class);
+        deniedTokens = tokens != null ? Arrays.asList(tokens) : DEFAULT_DENIED_TOKENS;
+        timeMultiplier = environment.getProperty(propertyName("time-multiplier"), Double.class, 1.0);
+        memoryMultiplier = environment.getProperty(propertyName("memory-multiplier"), Double.class, 1.0);
+    }
+
+    /**
+     * 编译器，如 gcc、g++
+     *
+     * @return
+     */
+    protected abstract String getCompiler();
+
+    /**
+     * 默认编译参数，如 -std=c++17 -O2（预编译头只在参数一致时可用）
+     *
+     * @return
+     */
+    protected abstract String getDefaultCompileOptions();
+
+    /**
+     * 预编译头的 -x 参数，c-header 或 c++-header
+     *
+     * @return
+     */
+    protected abstract String getHeaderLanguage();
+
+    /**
+     * 默认预编译的头文件（只有源码中第一个 #include 能使用预编译头）
+     *
+     * @return
+     */
+    protected abstract List<String> getDefaultPchHeaders();
+
+    /**
+     * 预热时编译的最小程序
+     *
+     * @return
+     */
+    protected abstract String getWarmUpCode();
+
+    /**
+     * 预编译头不影响编译产物，不计入编译缓存的键
+     */
+    @Override
+    public String getCompileFlags() {
+        return getCompileCmdPrefix();
+    }
+
+    @Override
+    public ExecuteMessage compile(File userCodeFile) throws Exception {
+        String compileCmdPrefix = getCompileCmdPrefix();
+        String compileCmd = String.format("%s %s %s -o %s/main", compileCmdPrefix,
+                precompiledHeaderManager.includeOption(compileCmdPrefix), userCodeFile.getAbsolutePath(),
+                userCodeFile.getParentFile().getAbsolutePath());
+        Process compileProcess = Runtime.getRuntime().exec(compileCmd);
+        return ProcessUtils.runProcessAndGetMessage(compileProcess, "编译");
+    }
+
+    @Override
+    public List<String> getDeniedTokens() {
+        return deniedTokens;
+    }
+
+    @Override
+    public double getTimeMultiplier() {
+        return timeMultiplier;
+    }
+
+    @Override
+    public double getMemoryMultiplier() {
+        return memoryMultiplier;
+    }
+
+    @Override
+    public String buildRunCommand(String codeDir, String inputArgs, boolean isolated) {
+        return String.format("%s/main %s", codeDir, inputArgs);
+    }
+
+    /**
+     * 生成预编译头，再编译一个最小程序，把编译器、标准库头文件加载进页缓存
+     */
+    @Override
+    public void warmUp() throws Exception {
+        precompiledHeaderManager.prepare(getCompileCmdPrefix(), getHeaderLanguage(), pchHeaders);
+        File warmUpDir = FileUtil.mkdir(new File(System.getProperty("java.io.tmpdir"),
+                "oj-warm-up-" + getLanguage()));
+        try {
+            File sourceFile = FileUtil.writeString(getWarmUpCode(), new File(warmUpDir, getSourceFileName()),
+                    StandardCharsets.UTF_8);
+            ExecuteMessage executeMessage = compile(sourceFile);
+            if (!Integer.valueOf(0).equals(executeMessage.getExitValue())) {
+                log.warn("预热编译失败，language = {}, message = {}", getLanguage(), executeMessage.getErrorMessage());
+            }
+        } finally {
+            FileUtil.del(warmUpDir);
+        }
+    }
+
+    private String getCompileCmdPrefix() {
+        return StrUtil.isBlank(compileOptions) ? getCompiler() : getCompiler() + " " + compileOptions.trim();
+    }
+
+    private String propertyName(String name) {
+        return "sandbox.language." + getLanguage() + "." + name;
+    }
+}
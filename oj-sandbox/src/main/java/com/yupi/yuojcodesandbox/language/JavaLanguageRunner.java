@@ -0,0 +1,167 @@
+package com.yupi.yuojcodesandbox.language;
+
+import com.yupi.yuojcodesandbox.compile.InMemoryJavaCompiler;
+import com.yupi.yuojcodesandbox.execute.ExecuteScheduler;
+import com.yupi.yuojcodesandbox.execute.FailFastChecker;
+import com.yupi.yuojcodesandbox.harness.CdsArchiveManager;
+import com.yupi.yuojcodesandbox.harness.JavaHarnessRunner;
+import com.yupi.yuojcodesandbox.harness.JavaWorkerPool;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import com.yupi.yuojcodesandbox.utils.ProcessUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Java：进程内或 javac 编译，按配置逐个用例启动 JVM（使用 CDS 归档）、在一个 JVM 内执行所有用例或交给常驻 JVM 执行
+ */
+@Component
+public class JavaLanguageRunner implements LanguageRunner {
+
+    private static final String COMPILE_CMD_TEMPLATE = "javac -encoding utf-8 %s";
+
+    /**
+     * 默认禁用的标识符：执行命令、反射、文件、网络、退出虚拟机等
+     */
+    private static final List<String> DEFAULT_DENIED_TOKENS = Arrays.asList("Runtime.getRuntime", "ProcessBuilder",
+            "ProcessHandle", "Class.forName", "ClassLoader", "java.lang.reflect", "getDeclaredMethod",
+            "getDeclaredField", "setAccessible", "MethodHandles", "java.lang.invoke", "java.nio.file",
+            "java.nio.channels", "Files.", "new File", "FileInputStream", "FileOutputStream", "FileReader",
+            "FileWriter", "RandomAccessFile", "java.net", "Socket", "ServerSocket", "System.exit", "System.load",
+            "System.loadLibrary", "System.setProperty", "System.setSecurityManager", "sun.misc", "jdk.internal",
+            "javax.script");
+
+    @Resource
+    private InMemoryJavaCompiler inMemoryJavaCompiler;
+
+    @Resource
+    private CdsArchiveManager cdsArchiveManager;
+
+    @Resource
+    private JavaHarnessRunner javaHarnessRunner;
+
+    @Resource
+    private JavaWorkerPool javaWorkerPool;
+
+    /**
+     * 编译方式：in-process（javax.tools 进程内编译）或 process（启动 javac 进程）
+     */
+    @Value("${sandbox.compile.java-engine:in-process}")
+    private String javaCompileEngine;
+
+    /**
+     * 执行方式：process（每个用例启动一个 JVM）、harness（一个 JVM 内依次执行所有用例）或 worker（交给常驻的预热 JVM 执行）
+     */
+    @Value("${sandbox.execute.java-mode:process}")
+    private String javaExecuteMode;
+
+    @Value("${sandbox.language.java.denied-tokens:#{null}}")
+    private List<String> deniedTokens;
+
+    @Value("${sandbox.language.java.time-multiplier:1.0}")
+    private double timeMultiplier;
+
+    @Value("${sandbox.language.java.memory-multiplier:1.0}")
+    private double memoryMultiplier;
+
+    @Override
+    public String getLanguage() {
+        return "java";
+    }
+
+    @Override
+    public String getSourceFileName() {
+        return "Main.java";
+    }
+
+    @Override
+    public String getCompileFlags() {
+        return getCompileFlags(null);
+    }
+
+    @Override
+    public String getCompileFlags(String targetRelease) {
+        if (isInProcessCompile()) {
+            return InMemoryJavaCompiler.compileFlags(targetRelease);
+        }
+        return buildCompileCommandTemplate(targetRelease);
+    }
+
+    @Override
+    public ExecuteMessage compile(File userCodeFile) throws Exception {
+        return compile(userCodeFile, null);
+    }
+
+    @Override
+    public ExecuteMessage compile(File userCodeFile, String targetRelease) throws Exception {
+        if (isInProcessCompile()) {
+            return inMemoryJavaCompiler.compileToDirectory(userCodeFile, targetRelease);
+        }
+        Process compileProcess = Runtime.getRuntime().exec(String.format(buildCompileCommandTemplate(targetRelease),
+                userCodeFile.getAbsolutePath()));
+        return ProcessUtils.runProcessAndGetMessage(compileProcess, "编译");
+    }
+
+    @Override
+    public String buildRunCommand(String codeDir, String inputArgs, boolean isolated) {
+        if (isolated) {
+            // CDS 归档在命名空间内不可见
+            return String.format("java -Xmx256m -Dfile.encoding=UTF-8 -cp %s Main %s", codeDir, inputArgs);
+        }
+        // 使用 CDS 归档加快 JVM 启动
+        return String.format("java -Xmx256m -Dfile.encoding=UTF-8 %s -cp %s Main %s",
+                String.join(" ", cdsArchiveManager.jvmOptions()), cdsArchiveManager.userClassPath(codeDir), inputArgs);
+    }
+
+    @Override
+    public List<ExecuteMessage> runCases(File codeDir, ExecuteCodeRequest executeCodeRequest, long timeout,
+                                         int outputLimitBytes, ExecuteScheduler.CaseRunner caseRunner,
+                                         FailFastChecker failFastChecker,
+                                         ExecuteScheduler.CaseListener caseListener) {
+        if ("worker".equals(javaExecuteMode)) {
+            // 交给预热好的常驻 JVM 执行，不再付出 JVM 启动的开销
+            return javaWorkerPool.runCases(codeDir, executeCodeRequest, timeout, outputLimitBytes, caseRunner,
+                    failFastChecker, caseListener);
+        }
+        if ("harness".equals(javaExecuteMode)) {
+            // 所有用例在一个 JVM 内执行，只付出一次 JVM 启动的开销
+            return javaHarnessRunner.runCases(codeDir, executeCodeRequest, timeout, outputLimitBytes, caseRunner,
+                    failFastChecker, caseListener);
+        }
+        return null;
+    }
+
+    @Override
+    public List<String> getDeniedTokens() {
+        return deniedTokens != null ? deniedTokens : DEFAULT_DENIED_TOKENS;
+    }
+
+    @Override
+    public double getTimeMultiplier() {
+        return timeMultiplier;
+    }
+
+    @Override
+    public double getMemoryMultiplier() {
+        return memoryMultiplier;
+    }
+
+    @Override
+    public boolean isAddressSpaceLimited() {
+        return false;
+    }
+
+    private static String buildCompileCommandTemplate(String targetRelease) {
+        return targetRelease == null ? COMPILE_CMD_TEMPLATE
+                : COMPILE_CMD_TEMPLATE.replace("%s", "--release " + targetRelease + " %s");
+    }
+
+    private boolean isInProcessCompile() {
+        return "in-process".equals(javaCompileEngine) && inMemoryJavaCompiler.isAvailable();
+    }
+}
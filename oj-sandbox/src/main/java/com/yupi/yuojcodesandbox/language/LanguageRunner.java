@@ -0,0 +1,160 @@
+package com.yupi.yuojcodesandbox.language;
+
+import com.yupi.yuojcodesandbox.execute.ExecuteScheduler;
+import com.yupi.yuojcodesandbox.execute.FailFastChecker;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 编程语言的编译、执行方式
+ * <p>
+ * 实现类注册为 Spring Bean 即可在启动时被 {@link LanguageRunnerRegistry} 发现，
+ * 代码沙箱模板按请求中的语言选择，新增语言或为某个语言增加加速手段不需要修改模板
+ */
+public interface LanguageRunner {
+
+    /**
+     * 语言名称（小写），与请求中的 language 对应
+     *
+     * @return
+     */
+    String getLanguage();
+
+    /**
+     * 源码文件名
+     *
+     * @return
+     */
+    String getSourceFileName();
+
+    /**
+     * 编译参数，与语言、源码一起组成编译缓存的键，参数变化后旧的缓存不再命中
+     *
+     * @return 不需要编译时返回 null（默认）
+     */
+    default String getCompileFlags() {
+        return null;
+    }
+
+    /**
+     * 编译，产物放在源码所在目录；不需要编译的语言默认直接返回成功
+     *
+     * @param userCodeFile 源码文件
+     * @return 编译结果，exitValue 不为 0 表示编译错误
+     * @throws Exception 编译器无法启动等沙箱内部错误
+     */
+    default ExecuteMessage compile(File userCodeFile) throws Exception {
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setExitValue(0);
+        executeMessage.setMessage("不需要编译");
+        return executeMessage;
+    }
+
+    /**
+     * 面向指定目标版本编译时的编译参数（执行环境比宿主机旧，如 Docker 镜像内的 JDK）
+     *
+     * @param targetRelease 目标版本，为 null 时与宿主机一致
+     * @return 不需要编译时返回 null
+     */
+    default String getCompileFlags(String targetRelease) {
+        return getCompileFlags();
+    }
+
+    /**
+     * 面向指定目标版本编译，不支持指定版本的语言按宿主机编译
+     *
+     * @param userCodeFile  源码文件
+     * @param targetRelease 目标版本，为 null 时与宿主机一致
+     * @return 编译结果，exitValue 不为 0 表示编译错误
+     * @throws Exception 编译器无法启动等沙箱内部错误
+     */
+    default ExecuteMessage compile(File userCodeFile, String targetRelease) throws Exception {
+        return compile(userCodeFile);
+    }
+
+    /**
+     * 执行单个用例的命令（与 Runtime.exec 一样按空白拆分）
+     *
+     * @param codeDir   编译产物所在目录（命名空间隔离时为命名空间内的挂载位置）
+     * @param inputArgs 用例输入，作为命令行参数
+     * @param isolated  是否在命名空间隔离环境中执行（宿主机上的其他文件不可见）
+     * @return
+     */
+    String buildRunCommand(String codeDir, String inputArgs, boolean isolated);
+
+    /**
+     * 由语言自行执行所有用例（如 Java 的常驻 JVM、多用例执行器）
+     *
+     * @param codeDir            编译产物所在目录
+     * @param executeCodeRequest
+     * @param timeout            单个用例的超时时间
+     * @param outputLimitBytes   单个用例的输出上限
+     * @param caseRunner         逐个启动进程执行单个用例
+     * @param failFastChecker    为 null 时不快速失败
+     * @param caseListener       用例执行结束的通知，可以为 null
+     * @return 返回 null 时由模板逐个用例启动进程执行
+     */
+    default List<ExecuteMessage> runCases(File codeDir, ExecuteCodeRequest executeCodeRequest, long timeout,
+                                          int outputLimitBytes, ExecuteScheduler.CaseRunner caseRunner,
+                                          FailFastChecker failFastChecker,
+                                          ExecuteScheduler.CaseListener caseListener) {
+        return null;
+    }
+
+    /**
+     * 时间限制倍数，沙箱按放宽后的时间限制计算超时
+     *
+     * @return
+     */
+    default double getTimeMultiplier() {
+        return 1.0;
+    }
+
+    /**
+     * 内存限制倍数，沙箱按放宽后的内存限制判断内存超限、设置 cgroup 上限
+     *
+     * @return
+     */
+    default double getMemoryMultiplier() {
+        return 1.0;
+    }
+
+    /**
+     * 是否可以限制地址空间（JVM 启动时预留大量虚拟内存，不能限制）
+     *
+     * @return
+     */
+    default boolean isAddressSpaceLimited() {
+        return true;
+    }
+
+    /**
+     * 代码预检时禁用的标识符（以 * 结尾表示前缀），为空时不预检
+     *
+     * @return
+     */
+    default List<String> getDeniedTokens() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * 行注释的开头，为 // 时同时支持块注释（代码预检时忽略注释）
+     *
+     * @return
+     */
+    default String getLineCommentPrefix() {
+        return "//";
+    }
+
+    /**
+     * 预热（如加载编译器、生成预编译头），应用启动完成后在后台调用
+     *
+     * @throws Exception
+     */
+    default void warmUp() throws Exception {
+    }
+}
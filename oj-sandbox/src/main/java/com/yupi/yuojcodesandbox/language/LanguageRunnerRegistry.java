@@ -0,0 +1,111 @@
+package com.yupi.yuojcodesandbox.language;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 语言注册表：启动时收集所有 {@link LanguageRunner} Bean，按语言名称查找，并在后台依次预热
+ */
+@Slf4j
+@Component
+public class LanguageRunnerRegistry {
+
+    @Resource
+    private List<LanguageRunner> languageRunners;
+
+    /**
+     * 语言 => 执行方式
+     */
+    private final Map<String, LanguageRunner> runnerMap = new LinkedHashMap<>();
+
+    /**
+     * 语言 => 预热耗时（ms），预热失败为 -1
+     */
+    private final Map<String, Long> warmUpMillis = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (LanguageRunner languageRunner : languageRunners) {
+            String language = languageRunner.getLanguage().toLowerCase();
+            LanguageRunner existing = runnerMap.putIfAbsent(language, languageRunner);
+            if (existing != null) {
+                throw new IllegalStateException("语言 " + language + " 重复注册：" + existing.getClass().getName()
+                        + "，" + languageRunner.getClass().getName());
+            }
+        }
+        log.info("已注册语言：{}", runnerMap.keySet());
+    }
+
+    /**
+     * 获取语言的执行方式
+     *
+     * @param language 语言名称（不区分大小写）
+     * @return
+     */
+    public LanguageRunner getRunner(String language) {
+        LanguageRunner languageRunner = language == null ? null : runnerMap.get(language.toLowerCase());
+        if (languageRunner == null) {
+            throw new RuntimeException("Unsupported language: " + language);
+        }
+        return languageRunner;
+    }
+
+    /**
+     * 是否支持该语言
+     *
+     * @param language 语言名称（不区分大小写）
+     * @return
+     */
+    public boolean isSupported(String language) {
+        return language != null && runnerMap.containsKey(language.toLowerCase());
+    }
+
+    /**
+     * 应用启动完成后在后台预热各语言，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Thread warmUpThread = new Thread(() -> {
+            for (LanguageRunner languageRunner : runnerMap.values()) {
+                long start = System.currentTimeMillis();
+                try {
+                    languageRunner.warmUp();
+                    warmUpMillis.put(languageRunner.getLanguage(), System.currentTimeMillis() - start);
+                } catch (Exception e) {
+                    warmUpMillis.put(languageRunner.getLanguage(), -1L);
+                    log.warn("语言预热失败，language = {}", languageRunner.getLanguage(), e);
+                }
+            }
+            log.info("语言预热完成，耗时 {}", warmUpMillis);
+        }, "language-warm-up");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
+    /**
+     * 获取语言统计信息
+     *
+     * @return
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (LanguageRunner languageRunner : runnerMap.values()) {
+            Map<String, Object> runnerStats = new LinkedHashMap<>();
+            runnerStats.put("runner", languageRunner.getClass().getSimpleName());
+            runnerStats.put("timeMultiplier", languageRunner.getTimeMultiplier());
+            runnerStats.put("memoryMultiplier", languageRunner.getMemoryMultiplier());
+            runnerStats.put("warmUpMillis", warmUpMillis.get(languageRunner.getLanguage()));
+            stats.put(languageRunner.getLanguage(), runnerStats);
+        }
+        return stats;
+    }
+}
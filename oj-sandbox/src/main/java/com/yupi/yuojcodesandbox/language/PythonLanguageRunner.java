@@ -0,0 +1,100 @@
+package com.yupi.yuojcodesandbox.language;
+
+import com.yupi.yuojcodesandbox.execute.ExecuteScheduler;
+import com.yupi.yuojcodesandbox.execute.FailFastChecker;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Python：不需要编译，每个用例启动一个解释器执行，或交给预热的 zygote fork 子进程执行
+ */
+@Component
+public class PythonLanguageRunner implements LanguageRunner {
+
+    /**
+     * 默认禁用的标识符：执行命令、文件、网络、动态导入与执行、访问解释器内部等
+     */
+    private static final List<String> DEFAULT_DENIED_TOKENS = Arrays.asList("os.system", "os.popen*", "os.fork*",
+            "os.kill*", "os.exec*", "os.spawn*", "os.remove", "os.unlink", "os.rmdir", "os.removedirs", "os.rename",
+            "os.chmod", "os.setuid", "os.putenv", "from os import", "import pty", "subprocess", "socket", "ctypes",
+            "multiprocessing", "shutil", "importlib", "sys.modules", "__import__", "__builtins__", "__subclasses__",
+            "__globals__", "__code__", "builtins", "io.open", "os.open", "eval(", "exec(", "compile(", "open(",
+            "breakpoint(");
+
+    @Resource
+    private PythonZygote pythonZygote;
+
+    @Resource
+    private ExecuteScheduler executeScheduler;
+
+    @Value("${sandbox.language.python.denied-tokens:#{null}}")
+    private List<String> deniedTokens;
+
+    @Value("${sandbox.language.python.time-multiplier:1.0}")
+    private double timeMultiplier;
+
+    @Value("${sandbox.language.python.memory-multiplier:1.0}")
+    private double memoryMultiplier;
+
+    @Override
+    public String getLanguage() {
+        return "python";
+    }
+
+    @Override
+    public String getSourceFileName() {
+        return "main.py";
+    }
+
+    @Override
+    public String buildRunCommand(String codeDir, String inputArgs, boolean isolated) {
+        return String.format("python %s/main.py %s", codeDir, inputArgs);
+    }
+
+    @Override
+    public List<ExecuteMessage> runCases(File codeDir, ExecuteCodeRequest executeCodeRequest, long timeout,
+                                         int outputLimitBytes, ExecuteScheduler.CaseRunner caseRunner,
+                                         FailFastChecker failFastChecker,
+                                         ExecuteScheduler.CaseListener caseListener) {
+        if (!pythonZygote.isEnabled()) {
+            return null;
+        }
+        // 与逐个启动进程一样并行执行，只是子进程由 zygote fork
+        ExecuteScheduler.CaseRunner zygoteCaseRunner = (input, cpu) -> pythonZygote.run(codeDir,
+                getSourceFileName(), input, timeout, outputLimitBytes);
+        return executeScheduler.runCases(executeCodeRequest.getInputList(), executeCodeRequest.getParallelism(),
+                zygoteCaseRunner, ExecuteScheduler.StopCondition.of(failFastChecker, caseListener));
+    }
+
+    @Override
+    public void warmUp() throws Exception {
+        pythonZygote.warmUp();
+    }
+
+    @Override
+    public List<String> getDeniedTokens() {
+        return deniedTokens != null ? deniedTokens : DEFAULT_DENIED_TOKENS;
+    }
+
+    @Override
+    public String getLineCommentPrefix() {
+        return "#";
+    }
+
+    @Override
+    public double getTimeMultiplier() {
+        return timeMultiplier;
+    }
+
+    @Override
+    public double getMemoryMultiplier() {
+        return memoryMultiplier;
+    }
+}
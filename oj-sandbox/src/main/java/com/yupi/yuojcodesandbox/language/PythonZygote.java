@@ -0,0 +1,371 @@
+package com.yupi.yuojcodesandbox.language;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import com.yupi.yuojcodesandbox.utils.BoundedOutputBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Python fork 服务（zygote）
+ * <p>
+ * 常驻一个预先导入了常用模块的 Python 进程（python/zygote.py），每个用例由它 fork 子进程执行：
+ * 子进程继承已经初始化好的解释器，不再付出解释器启动和导入标准库的开销。
+ * 子进程设置 CPU 时间、文件大小、地址空间的 rlimit，标准输出、标准错误写入文件（大小受 RLIMIT_FSIZE 限制），
+ * CPU 时间和峰值内存由 zygote 通过 wait4 取得，比轮询采样更准确
+ */
+@Slf4j
+@Component
+public class PythonZygote {
+
+    private static final String SCRIPT_RESOURCE = "python/zygote.py";
+
+    /**
+     * 等待 zygote 启动、fork 子进程的最长时间
+     */
+    private static final long CONTROL_TIMEOUT_MS = 10000L;
+
+    /**
+     * 结束超时的用例后等待子进程退出的最长时间
+     */
+    private static final long KILL_WAIT_MS = 5000L;
+
+    /**
+     * 子进程因超出 RLIMIT_FSIZE 被 SIGXFSZ 结束时的退出码
+     */
+    private static final int EXIT_SIGXFSZ = 128 + 25;
+
+    /**
+     * Python 执行方式：process（每个用例启动一个解释器）或 zygote（由预热的 zygote fork 子进程执行）
+     */
+    @Value("${sandbox.execute.python-mode:process}")
+    private String pythonExecuteMode;
+
+    /**
+     * zygote 启动时预先导入的模块
+     */
+    @Value("${sandbox.language.python.zygote-preload:sys,os,math,re,json,random,string,collections,itertools,functools,heapq,bisect}")
+    private List<String> preloadModules;
+
+    /**
+     * 子进程地址空间上限，0 表示不限制
+     */
+    @Value("${sandbox.language.python.zygote-address-space-mb:1024}")
+    private long addressSpaceMb;
+
+    private File runtimeDir;
+
+    private File scriptFile;
+
+    private Process zygoteProcess;
+
+    private OutputStream zygoteInput;
+
+    /**
+     * 用例编号 => 正在执行的用例
+     */
+    private final Map<Long, ZygoteCase> caseMap = new ConcurrentHashMap<>();
+
+    private final AtomicLong caseIdGenerator = new AtomicLong();
+
+    private volatile long startupMillis = -1;
+
+    private volatile long coldStartMillis = -1;
+
+    private final AtomicLong startCount = new AtomicLong();
+
+    private final AtomicLong forkCount = new AtomicLong();
+
+    private final AtomicLong forkMicros = new AtomicLong();
+
+    private final AtomicLong failCount = new AtomicLong();
+
+    public boolean isEnabled() {
+        return "zygote".equals(pythonExecuteMode);
+    }
+
+    /**
+     * 启动 zygote，并测量一次冷启动解释器导入相同模块的耗时作为对比
+     *
+     * @throws IOException
+     */
+    public void warmUp() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        coldStartMillis = measureColdStart();
+        ensureStarted();
+    }
+
+    /**
+     * 由 zygote fork 子进程执行一个用例
+     *
+     * @param codeDir          源码所在目录
+     * @param sourceFileName   源码文件名
+     * @param inputArgs        用例输入，作为命令行参数
+     * @param timeout          超时时间
+     * @param outputLimitBytes 标准输出、标准错误各自的上限（字节）
+     * @return
+     */
+    public ExecuteMessage run(File codeDir, String sourceFileName, String inputArgs, long timeout,
+                              int outputLimitBytes) {
+        try {
+            ensureStarted();
+        } catch (IOException e) {
+            failCount.incrementAndGet();
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        long caseId = caseIdGenerator.incrementAndGet();
+        File outFile = new File(runtimeDir, caseId + ".out");
+        File errFile = new File(runtimeDir, caseId + ".err");
+        ZygoteCase zygoteCase = new ZygoteCase();
+        caseMap.put(caseId, zygoteCase);
+        try {
+            JSONObject request = new JSONObject();
+            request.set("type", "run");
+            request.set("id", caseId);
+            request.set("dir", codeDir.getAbsolutePath());
+            request.set("file", sourceFileName);
+            request.set("args", inputArgs.trim().isEmpty() ? new String[0] : inputArgs.trim().split("\\s+"));
+            request.set("out", outFile.getAbsolutePath());
+            request.set("err", errFile.getAbsolutePath());
+            // CPU 时间上限（秒）比超时时间多 1 秒，正常情况下由超时控制结束进程
+            request.set("cpuSeconds", TimeUnit.MILLISECONDS.toSeconds(timeout) + 1);
+            // 多写 1 字节才能判断是否超出上限
+            request.set("fileSize", (long) outputLimitBytes + 1);
+            request.set("addressSpace", addressSpaceMb * 1024 * 1024);
+            long sendTime = System.nanoTime();
+            send(request);
+            zygoteCase.started.get(CONTROL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            long startedTime = System.nanoTime();
+            forkCount.incrementAndGet();
+            forkMicros.addAndGet(TimeUnit.NANOSECONDS.toMicros(startedTime - sendTime));
+
+            boolean timedOut = false;
+            JSONObject exit;
+            try {
+                exit = zygoteCase.exited.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                timedOut = true;
+                JSONObject kill = new JSONObject();
+                kill.set("type", "kill");
+                kill.set("id", caseId);
+                send(kill);
+                exit = zygoteCase.exited.get(KILL_WAIT_MS, TimeUnit.MILLISECONDS);
+            }
+            long wallTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedTime);
+            return toExecuteMessage(exit, outFile, errFile, outputLimitBytes, timedOut, wallTime);
+        } catch (Exception e) {
+            failCount.incrementAndGet();
+            throw new RuntimeException("zygote 执行失败: " + e.getMessage(), e);
+        } finally {
+            caseMap.remove(caseId);
+            FileUtil.del(outFile);
+            FileUtil.del(errFile);
+        }
+    }
+
+    /**
+     * 获取 zygote 统计信息
+     *
+     * @return
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", pythonExecuteMode);
+        stats.put("alive", zygoteProcess != null && zygoteProcess.isAlive());
+        stats.put("preload", preloadModules);
+        stats.put("startupMillis", startupMillis);
+        stats.put("coldStartMillis", coldStartMillis);
+        stats.put("startCount", startCount.get());
+        long forks = forkCount.get();
+        stats.put("forkCount", forks);
+        stats.put("avgForkMicros", forks == 0 ? 0 : forkMicros.get() / forks);
+        stats.put("runningCount", caseMap.size());
+        stats.put("failCount", failCount.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (zygoteProcess != null) {
+            // 关闭标准输入后 zygote 结束所有用例并退出
+            IoUtil.close(zygoteInput);
+            try {
+                if (!zygoteProcess.waitFor(KILL_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                    zygoteProcess.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                zygoteProcess.destroyForcibly();
+            }
+            zygoteProcess = null;
+        }
+    }
+
+    /**
+     * zygote 没有启动或已经退出时（重新）启动，等待其导入完模块
+     */
+    private synchronized void ensureStarted() throws IOException {
+        if (zygoteProcess != null && zygoteProcess.isAlive()) {
+            return;
+        }
+        if (runtimeDir == null) {
+            runtimeDir = FileUtil.mkdir(new File(System.getProperty("java.io.tmpdir"), "oj-python-zygote"));
+            scriptFile = FileUtil.writeString(ResourceUtil.readUtf8Str(SCRIPT_RESOURCE),
+                    new File(runtimeDir, "zygote.py"), StandardCharsets.UTF_8);
+        }
+        Process process = new ProcessBuilder("python", scriptFile.getAbsolutePath(), String.join(",",
+                preloadModules)).start();
+        CompletableFuture<JSONObject> ready = new CompletableFuture<>();
+        Thread readerThread = new Thread(() -> readResponses(process, ready), "python-zygote-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+        Thread errorThread = new Thread(() -> logErrors(process.getErrorStream()), "python-zygote-stderr");
+        errorThread.setDaemon(true);
+        errorThread.start();
+        try {
+            JSONObject readyMessage = ready.get(CONTROL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            startupMillis = readyMessage.getLong("startupMillis");
+        } catch (Exception e) {
+            process.destroyForcibly();
+            throw new IOException("zygote 启动失败: " + e.getMessage(), e);
+        }
+        zygoteProcess = process;
+        zygoteInput = process.getOutputStream();
+        startCount.incrementAndGet();
+        log.info("Python zygote 已启动，pid = {}, 导入模块耗时 {}ms", process.pid(), startupMillis);
+    }
+
+    private void send(JSONObject message) throws IOException {
+        byte[] bytes = (message.toString() + "\n").getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            zygoteInput.write(bytes);
+            zygoteInput.flush();
+        }
+    }
+
+    private void readResponses(Process process, CompletableFuture<JSONObject> ready) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JSONObject message = JSONUtil.parseObj(line);
+                String type = message.getStr("type");
+                if ("ready".equals(type)) {
+                    ready.complete(message);
+                    continue;
+                }
+                ZygoteCase zygoteCase = caseMap.get(message.getLong("id"));
+                if (zygoteCase == null) {
+                    continue;
+                }
+                if ("started".equals(type)) {
+                    zygoteCase.started.complete(message);
+                } else if ("exit".equals(type)) {
+                    zygoteCase.exited.complete(message);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("读取 zygote 响应失败", e);
+        }
+        // zygote 退出，正在执行的用例全部失败，下一个用例重新启动 zygote
+        IOException exited = new IOException("zygote 已退出");
+        ready.completeExceptionally(exited);
+        caseMap.values().forEach(zygoteCase -> {
+            zygoteCase.started.completeExceptionally(exited);
+            zygoteCase.exited.completeExceptionally(exited);
+        });
+    }
+
+    private static void logErrors(InputStream errorStream) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(errorStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                log.warn("zygote: {}", line);
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static ExecuteMessage toExecuteMessage(JSONObject exit, File outFile, File errFile, int outputLimitBytes,
+                                                   boolean timedOut, long wallTime) throws IOException {
+        int exitValue = exit.getInt("exitCode");
+        byte[] output = readBounded(outFile, outputLimitBytes);
+        byte[] error = readBounded(errFile, outputLimitBytes);
+        boolean outputLimitExceeded = exitValue == EXIT_SIGXFSZ || outFile.length() > outputLimitBytes
+                || errFile.length() > outputLimitBytes;
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setExitValue(exitValue);
+        executeMessage.setMessage(BoundedOutputBuffer.normalize(output, output.length));
+        executeMessage.setOutputBytes((long) output.length);
+        if (exitValue != 0) {
+            executeMessage.setErrorMessage(BoundedOutputBuffer.normalize(error, error.length));
+        }
+        executeMessage.setTime(exit.getLong("cpuMillis"));
+        executeMessage.setWallTime(wallTime);
+        executeMessage.setMemory(exit.getLong("maxRssKb"));
+        executeMessage.setTimeout(timedOut);
+        executeMessage.setOutputLimitExceeded(outputLimitExceeded);
+        return executeMessage;
+    }
+
+    private static byte[] readBounded(File file, int limit) throws IOException {
+        if (!file.exists()) {
+            return new byte[0];
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        return bytes.length > limit ? Arrays.copyOf(bytes, limit) : bytes;
+    }
+
+    /**
+     * 冷启动一个解释器导入相同的模块，作为 fork 耗时的对比
+     */
+    private long measureColdStart() {
+        String imports = preloadModules.stream().map(String::trim).filter(name -> !name.isEmpty())
+                .collect(Collectors.joining(","));
+        long start = System.nanoTime();
+        try {
+            Process process = new ProcessBuilder("python", "-c", imports.isEmpty() ? "pass" : "import " + imports)
+                    .redirectErrorStream(true).start();
+            IoUtil.readUtf8(process.getInputStream());
+            process.waitFor(CONTROL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } catch (Exception e) {
+            log.warn("测量 Python 冷启动耗时失败", e);
+            return -1;
+        }
+    }
+
+    private static class ZygoteCase {
+
+        private final CompletableFuture<JSONObject> started = new CompletableFuture<>();
+
+        private final CompletableFuture<JSONObject> exited = new CompletableFuture<>();
+    }
+}
@@ -0,0 +1,174 @@
+package com.yupi.yuojcodesandbox.metrics;
+
+import cn.hutool.core.util.StrUtil;
+import com.yupi.yuojcodesandbox.language.LanguageRunnerRegistry;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeResponse;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import com.yupi.yuojcodesandbox.model.enums.JudgeInfoMessageEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 沙箱各阶段的指标（Micrometer），通过 Actuator 的 /actuator/prometheus 导出
+ * <p>
+ * 所有指标带 language（语言）、mode（native、namespace、docker）两个标签：排队等待、分配工作目录、编译、
+ * 启动进程、执行、输出字节数、清理的耗时分布，以及按结果（verdict 标签）统计的提交数
+ */
+@Component
+public class SandboxMetrics {
+
+    public static final String QUEUE_WAIT = "sandbox.queue.wait";
+
+    public static final String WORKSPACE = "sandbox.workspace";
+
+    public static final String COMPILE = "sandbox.compile";
+
+    public static final String SPAWN = "sandbox.process.spawn";
+
+    public static final String RUN = "sandbox.run";
+
+    public static final String OUTPUT_BYTES = "sandbox.output.bytes";
+
+    public static final String CLEANUP = "sandbox.cleanup";
+
+    public static final String VERDICTS = "sandbox.verdicts";
+
+    /**
+     * 不支持的语言统一使用的标签值，避免请求中任意的语言名产生大量时间序列
+     */
+    private static final String UNKNOWN_LANGUAGE = "unknown";
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private LanguageRunnerRegistry languageRunnerRegistry;
+
+    /**
+     * 记录提交在准入控制、异步任务队列中的等待时间
+     *
+     * @param language
+     * @param mode
+     * @param nanos
+     */
+    public void recordQueueWait(String language, String mode, long nanos) {
+        record(QUEUE_WAIT, language, mode, nanos);
+    }
+
+    /**
+     * 记录分配工作目录并保存代码的耗时
+     */
+    public void recordWorkspace(String language, String mode, long nanos) {
+        record(WORKSPACE, language, mode, nanos);
+    }
+
+    /**
+     * 记录编译耗时（包括命中编译缓存时的复制）
+     */
+    public void recordCompile(String language, String mode, long nanos) {
+        record(COMPILE, language, mode, nanos);
+    }
+
+    /**
+     * 记录启动一个用例进程（或创建容器内执行命令）的耗时
+     */
+    public void recordSpawn(String language, String mode, long nanos) {
+        record(SPAWN, language, mode, nanos);
+    }
+
+    /**
+     * 记录归还工作目录的耗时
+     */
+    public void recordCleanup(String language, String mode, long nanos) {
+        record(CLEANUP, language, mode, nanos);
+    }
+
+    /**
+     * 记录一个用例的执行耗时（墙钟时间）和标准输出字节数，快速失败时没有执行的用例为 null
+     *
+     * @param language
+     * @param mode
+     * @param executeMessage
+     */
+    public void recordCase(String language, String mode, ExecuteMessage executeMessage) {
+        if (executeMessage == null) {
+            return;
+        }
+        Long wallTime = executeMessage.getWallTime() != null ? executeMessage.getWallTime() : executeMessage.getTime();
+        if (wallTime != null) {
+            record(RUN, language, mode, TimeUnit.MILLISECONDS.toNanos(wallTime));
+        }
+        long outputBytes;
+        if (executeMessage.getOutputBytes() != null) {
+            outputBytes = executeMessage.getOutputBytes();
+        } else {
+            String message = executeMessage.getMessage();
+            outputBytes = message == null ? 0 : message.getBytes(StandardCharsets.UTF_8).length;
+        }
+        DistributionSummary.builder(OUTPUT_BYTES)
+                .baseUnit("bytes")
+                .tag("language", normalizeLanguage(language))
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .record(outputBytes);
+    }
+
+    /**
+     * 按结果统计提交数
+     *
+     * @param language
+     * @param mode
+     * @param executeCodeResponse
+     */
+    public void recordVerdict(String language, String mode, ExecuteCodeResponse executeCodeResponse) {
+        Counter.builder(VERDICTS)
+                .tag("language", normalizeLanguage(language))
+                .tag("mode", mode)
+                .tag("verdict", getVerdict(executeCodeResponse))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void record(String name, String language, String mode, long nanos) {
+        Timer.builder(name)
+                .tag("language", normalizeLanguage(language))
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private String normalizeLanguage(String language) {
+        return languageRunnerRegistry.isSupported(language) ? language.toLowerCase() : UNKNOWN_LANGUAGE;
+    }
+
+    /**
+     * 有判题信息时使用判题信息（如 time_limit_exceeded、compile_error），否则按状态区分正常执行、运行错误、沙箱错误
+     */
+    private static String getVerdict(ExecuteCodeResponse executeCodeResponse) {
+        String judgeMessage = executeCodeResponse.getJudgeInfo() == null ? null
+                : executeCodeResponse.getJudgeInfo().getMessage();
+        if (StrUtil.isNotBlank(judgeMessage)) {
+            for (JudgeInfoMessageEnum judgeInfoMessageEnum : JudgeInfoMessageEnum.values()) {
+                if (judgeInfoMessageEnum.getValue().equals(judgeMessage)) {
+                    return judgeInfoMessageEnum.name().toLowerCase();
+                }
+            }
+            return "other";
+        }
+        Integer status = executeCodeResponse.getStatus();
+        if (Integer.valueOf(1).equals(status)) {
+            return "completed";
+        }
+        if (Integer.valueOf(3).equals(status)) {
+            return "runtime_error";
+        }
+        return "system_error";
+    }
+}
@@ -0,0 +1,41 @@
+package com.yupi.yuojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个用例的判题结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaseVerdict {
+
+    /**
+     * 判题结果（JudgeInfoMessageEnum 的值）
+     */
+    private String verdict;
+
+    /**
+     * 实际输出的 SHA-256 摘要
+     */
+    private String outputDigest;
+
+    /**
+     * 答案错误时的差异片段（只传预期输出摘要时为空）
+     */
+    private String diff;
+
+    /**
+     * 运行时间（ms）
+     */
+    private Long time;
+
+    /**
+     * 内存（KB）
+     */
+    private Long memory;
+}
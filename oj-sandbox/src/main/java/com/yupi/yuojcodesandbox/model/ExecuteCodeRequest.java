@@ -8,7 +8,7 @@ import lombok.NoArgsConstructor;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ExecuteCodeRequest {
@@ -18,4 +18,44 @@ public class ExecuteCodeRequest {
     private String code;
 
     private String language;
+
+    /**
+     * 时间限制（ms），为空时使用沙箱默认超时时间
+     */
+    private Long timeLimit;
+
+    /**
+     * 用例并行度（为空时使用沙箱默认值）
+     */
+    private Integer parallelism;
+
+    /**
+     * 是否快速失败：出现第一个失败的用例（答案错误、运行错误、运行超时、内存超限等）后不再执行剩余用例
+     */
+    private Boolean failFast;
+
+    /**
+     * 预期输出（可选），传入后由沙箱比较输出，并返回每个用例的判题结果
+     */
+    private List<String> expectedOutputList;
+
+    /**
+     * 预期输出的 SHA-256 摘要（可选，不传预期输出时使用，省去传输大体积的预期输出，但没有差异片段）
+     */
+    private List<String> expectedOutputDigestList;
+
+    /**
+     * 是否只返回每个用例的判题结果和输出摘要，不返回完整输出（需要传入预期输出或其摘要）
+     */
+    private Boolean compareOnly;
+
+    /**
+     * 内存限制（KB，可选），沙箱比较输出或快速失败时用于判断内存超限
+     */
+    private Long memoryLimit;
+
+    /**
+     * 异步执行完成后推送结果的地址（可选，只用于异步接口）
+     */
+    private String callbackUrl;
 }
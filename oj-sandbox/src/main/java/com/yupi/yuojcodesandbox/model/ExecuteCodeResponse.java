@@ -29,4 +29,40 @@ public class ExecuteCodeResponse {
      * 判题信息
      */
     private JudgeInfo judgeInfo;
+
+    /**
+     * 每个用例的判题结果（沙箱比较输出或快速失败时才有），没有执行的用例不包含在内
+     */
+    private List<CaseVerdict> caseVerdictList;
+
+    /**
+     * 第一个失败的用例序号（从 0 开始，沙箱比较输出或快速失败时才有），没有失败时为空
+     */
+    private Integer failedCaseIndex;
+
+    /**
+     * 快速失败时没有执行的用例数
+     */
+    private Integer skippedCaseCount;
+
+    /**
+     * 编译耗时（ms），命中编译缓存时接近 0，不需要编译的语言为 0
+     */
+    private Long compileTime;
+
+    /**
+     * judgeInfo.time 是否不包含运行环境（JVM）启动的开销：所有用例都在已启动的 JVM 内执行（harness、worker）时为 true，
+     * 判题服务据此决定是否扣除 JVM 启动的时间
+     */
+    private Boolean startupTimeExcluded;
+
+    /**
+     * 沙箱实际使用的时间限制（ms，按语言倍数放宽后），请求未指定时为空；判题服务按该限制判断，与沙箱保持一致
+     */
+    private Long timeLimit;
+
+    /**
+     * 沙箱实际使用的内存限制（KB，按语言倍数放宽后），请求未指定时为空
+     */
+    private Long memoryLimit;
 }
@@ -0,0 +1,31 @@
+package com.yupi.yuojcodesandbox.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 异步执行任务的状态
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecuteJobResponse {
+
+    /**
+     * 任务 id（提交时返回，用于查询结果）
+     */
+    private String jobId;
+
+    /**
+     * 任务状态：queued、running、done
+     */
+    private String status;
+
+    /**
+     * 执行结果，任务完成后才有值
+     */
+    private ExecuteCodeResponse executeCodeResponse;
+}
@@ -14,7 +14,43 @@ public class ExecuteMessage {
 
     private String errorMessage;
 
+    /**
+     * 用户态 + 内核态 CPU 时间（ms），无法统计时为墙钟时间
+     */
     private Long time;
 
+    /**
+     * 墙钟时间（ms）
+     */
+    private Long wallTime;
+
+    /**
+     * time 是否不包含运行环境（JVM）启动的开销，在已启动的 JVM 内统计用例 CPU 时间时为 true
+     */
+    private Boolean startupTimeExcluded;
+
+    /**
+     * 峰值常驻内存（KB）
+     */
     private Long memory;
+
+    /**
+     * 是否超时
+     */
+    private Boolean timeout;
+
+    /**
+     * 是否输出超限
+     */
+    private Boolean outputLimitExceeded;
+
+    /**
+     * 是否因内存超限被结束（如被 cgroup 结束）
+     */
+    private Boolean memoryLimitExceeded;
+
+    /**
+     * 读取到的标准输出字节数（不超过输出上限）
+     */
+    private Long outputBytes;
 }
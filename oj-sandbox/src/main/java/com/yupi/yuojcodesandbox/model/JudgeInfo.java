@@ -14,12 +14,12 @@ public class JudgeInfo {
     private String message;
 
     /**
-     * 消耗内存
+     * 消耗内存（峰值常驻内存，KB）
      */
     private Long memory;
 
     /**
-     * 消耗时间（KB）
+     * 消耗时间（CPU 时间，ms）
      */
     private Long time;
 }
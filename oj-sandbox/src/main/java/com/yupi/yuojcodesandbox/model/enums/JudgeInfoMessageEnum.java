@@ -0,0 +1,36 @@
+package com.yupi.yuojcodesandbox.model.enums;
+
+/**
+ * 判题信息消息枚举（与判题服务保持一致）
+ */
+public enum JudgeInfoMessageEnum {
+
+    ACCEPTED("成功", "Correct answer"),
+    WRONG_ANSWER("答案错误", "Wrong Answer"),
+    COMPILE_ERROR("Compile Error", "编译错误"),
+    MEMORY_LIMIT_EXCEEDED("", "内存溢出"),
+    TIME_LIMIT_EXCEEDED("Time Limit Exceeded", "超时"),
+    PRESENTATION_ERROR("Presentation Error", "展示错误"),
+    WAITING("Waiting", "等待中"),
+    OUTPUT_LIMIT_EXCEEDED("Output Limit Exceeded", "输出溢出"),
+    DANGEROUS_OPERATION("Dangerous Operation", "危险操作"),
+    RUNTIME_ERROR("Runtime Error", "运行错误"),
+    SYSTEM_ERROR("System Error", "系统错误");
+
+    private final String text;
+
+    private final String value;
+
+    JudgeInfoMessageEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
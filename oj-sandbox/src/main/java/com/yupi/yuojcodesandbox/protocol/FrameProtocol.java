@@ -0,0 +1,237 @@
+package com.yupi.yuojcodesandbox.protocol;
+
+import cn.hutool.json.JSONUtil;
+import com.yupi.yuojcodesandbox.execute.OutputComparator;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeResponse;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 判题服务与沙箱之间的二进制流式协议（与判题服务的 FrameProtocol 保持一致，由判题服务的 FrameProtocolCompatibilityTest 检查）
+ * <p>
+ * 请求体、响应体是连续的帧：1 字节帧类型 + 4 字节长度 + 内容，可以整体 gzip 压缩（由 Content-Encoding、Accept-Encoding 协商）。
+ * 代码、输入用例、预期输出、用例输出都以原始 UTF-8 字节传输，不做 JSON 转义；
+ * 其余字段较少，放在 HEADER / RESULT 帧中以 JSON 传输。
+ * <p>
+ * 请求：HEADER（去掉代码、输入、预期输出后的请求 JSON）、CODE、INPUT × N、EXPECTED × N（可选）、END<br>
+ * 响应：CASE × N（每个用例执行结束时立即发送，顺序不固定）、RESULT（去掉 outputList 后的响应 JSON）、OUTPUT × M、END
+ */
+public class FrameProtocol {
+
+    public static final String CONTENT_TYPE = "application/x-yuoj-frames";
+
+    public static final byte FRAME_END = 0;
+
+    public static final byte FRAME_HEADER = 1;
+
+    public static final byte FRAME_CODE = 2;
+
+    public static final byte FRAME_INPUT = 3;
+
+    public static final byte FRAME_EXPECTED = 4;
+
+    public static final byte FRAME_CASE = 5;
+
+    public static final byte FRAME_RESULT = 6;
+
+    public static final byte FRAME_OUTPUT = 7;
+
+    /**
+     * OUTPUT 帧中表示输出内容直接跟在后面（而不是引用 CASE 帧中的输出）
+     */
+    private static final int INLINE_OUTPUT = -1;
+
+    /**
+     * 单个帧的最大长度，防止错误的请求导致分配过大的内存
+     */
+    private static final int MAX_FRAME_BYTES = 256 * 1024 * 1024;
+
+    /**
+     * 读写缓冲区大小（gzip 默认 512 字节，大输出时频繁调用本地方法，明显变慢）
+     */
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private FrameProtocol() {
+    }
+
+    /**
+     * 读取请求体
+     *
+     * @param input
+     * @param compressed 请求体是否 gzip 压缩
+     * @return
+     * @throws IOException
+     */
+    public static DataInputStream openInput(InputStream input, boolean compressed) throws IOException {
+        if (!compressed) {
+            return new DataInputStream(new BufferedInputStream(input, BUFFER_BYTES));
+        }
+        return new DataInputStream(new GZIPInputStream(input, BUFFER_BYTES));
+    }
+
+    /**
+     * 写入响应体，每次 flush 都推送给调用方；压缩时使用最快的压缩级别（用例输出大多是数字、重复文本，压缩率差别不大）
+     * 并同步刷新，写完一帧即可解压
+     *
+     * @param output
+     * @param compressed 是否 gzip 压缩
+     * @return
+     * @throws IOException
+     */
+    public static DataOutputStream openOutput(OutputStream output, boolean compressed) throws IOException {
+        if (!compressed) {
+            return new DataOutputStream(new BufferedOutputStream(output, BUFFER_BYTES));
+        }
+        return new DataOutputStream(new GZIPOutputStream(output, BUFFER_BYTES, true) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        });
+    }
+
+    /**
+     * 读取请求
+     *
+     * @param input 解压后的请求体
+     * @return
+     * @throws IOException 格式错误
+     */
+    public static ExecuteCodeRequest readRequest(DataInputStream input) throws IOException {
+        ExecuteCodeRequest executeCodeRequest = null;
+        String code = null;
+        List<String> inputList = new ArrayList<>();
+        List<String> expectedOutputList = new ArrayList<>();
+        byte type;
+        while ((type = input.readByte()) != FRAME_END) {
+            String content = new String(readFrameContent(input), StandardCharsets.UTF_8);
+            switch (type) {
+                case FRAME_HEADER:
+                    executeCodeRequest = JSONUtil.toBean(content, ExecuteCodeRequest.class);
+                    break;
+                case FRAME_CODE:
+                    code = content;
+                    break;
+                case FRAME_INPUT:
+                    inputList.add(content);
+                    break;
+                case FRAME_EXPECTED:
+                    expectedOutputList.add(content);
+                    break;
+                default:
+                    throw new IOException("未知的请求帧类型：" + type);
+            }
+        }
+        if (executeCodeRequest == null) {
+            throw new IOException("请求缺少 HEADER 帧");
+        }
+        executeCodeRequest.setCode(code);
+        executeCodeRequest.setInputList(inputList);
+        executeCodeRequest.setExpectedOutputList(expectedOutputList.isEmpty() ? null : expectedOutputList);
+        return executeCodeRequest;
+    }
+
+    /**
+     * 写入一个用例的执行结果（CASE 帧）
+     * <p>
+     * 内容：用例序号、退出码（-1 表示没有）、是否超时、是否输出超限、时间（ms）、内存（KB）、
+     * 是否包含输出、标准输出（不包含时为输出的 SHA-256 摘要）、错误信息（可选）
+     *
+     * @param output
+     * @param index
+     * @param executeMessage
+     * @param outputIncluded 是否发送标准输出和错误信息（只比较输出时由沙箱判题，只发送摘要）
+     * @throws IOException
+     */
+    public static void writeCase(DataOutputStream output, int index, ExecuteMessage executeMessage,
+                                 boolean outputIncluded) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream content = new DataOutputStream(buffer);
+        content.writeInt(index);
+        content.writeInt(executeMessage.getExitValue() == null ? -1 : executeMessage.getExitValue());
+        content.writeBoolean(Boolean.TRUE.equals(executeMessage.getTimeout()));
+        content.writeBoolean(Boolean.TRUE.equals(executeMessage.getOutputLimitExceeded()));
+        content.writeLong(executeMessage.getTime() == null ? -1 : executeMessage.getTime());
+        content.writeLong(executeMessage.getMemory() == null ? -1 : executeMessage.getMemory());
+        content.writeBoolean(outputIncluded);
+        writeString(content, outputIncluded ? executeMessage.getMessage()
+                : OutputComparator.digest(executeMessage.getMessage()));
+        boolean errorIncluded = outputIncluded && executeMessage.getErrorMessage() != null;
+        content.writeBoolean(errorIncluded);
+        if (errorIncluded) {
+            writeString(content, executeMessage.getErrorMessage());
+        }
+        writeFrame(output, FRAME_CASE, buffer.toByteArray());
+    }
+
+    /**
+     * 写入最终结果（RESULT、OUTPUT × M、END 帧）
+     * <p>
+     * outputList 中已经在 CASE 帧发送过的输出只写用例序号，避免重复传输
+     *
+     * @param output
+     * @param executeCodeResponse
+     * @param sentOutputs         已经在 CASE 帧中发送的输出（按对象引用）及其用例序号
+     * @throws IOException
+     */
+    public static void writeResult(DataOutputStream output, ExecuteCodeResponse executeCodeResponse,
+                                   IdentityHashMap<String, Integer> sentOutputs) throws IOException {
+        List<String> outputList = executeCodeResponse.getOutputList();
+        executeCodeResponse.setOutputList(null);
+        try {
+            writeFrame(output, FRAME_RESULT, JSONUtil.toJsonStr(executeCodeResponse).getBytes(StandardCharsets.UTF_8));
+        } finally {
+            executeCodeResponse.setOutputList(outputList);
+        }
+        if (outputList != null) {
+            for (String caseOutput : outputList) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                DataOutputStream content = new DataOutputStream(buffer);
+                Integer index = caseOutput == null ? null : sentOutputs.get(caseOutput);
+                content.writeInt(index == null ? INLINE_OUTPUT : index);
+                if (index == null) {
+                    writeString(content, caseOutput);
+                }
+                writeFrame(output, FRAME_OUTPUT, buffer.toByteArray());
+            }
+        }
+        output.writeByte(FRAME_END);
+    }
+
+    private static void writeFrame(DataOutputStream output, byte type, byte[] content) throws IOException {
+        output.writeByte(type);
+        output.writeInt(content.length);
+        output.write(content);
+    }
+
+    private static byte[] readFrameContent(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("帧长度不合法：" + length);
+        }
+        byte[] content = new byte[length];
+        input.readFully(content);
+        return content;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+}
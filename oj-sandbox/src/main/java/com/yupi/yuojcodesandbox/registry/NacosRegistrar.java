@@ -0,0 +1,220 @@
+package com.yupi.yuojcodesandbox.registry;
+
+import cn.hutool.core.net.NetUtil;
+import cn.hutool.http.HttpResponse;
+import cn.hutool.http.HttpUtil;
+import cn.hutool.http.Method;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.yupi.yuojcodesandbox.docker.DockerImageManager;
+import com.yupi.yuojcodesandbox.execute.AdmissionLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把沙箱节点注册到 Nacos，供判题服务发现
+ * <p>
+ * 使用 Nacos 的 HTTP Open API 注册临时实例并定时发送心跳（不引入 Nacos 客户端），
+ * 元数据中带上节点容量（并发数、队列长度）；实时负载由判题服务轮询 /status 获取。
+ * 心跳使用单独的定时线程，不与 CDS 归档重建、容器池检查等耗时的 @Scheduled 任务排队，避免被 Nacos 判为下线
+ */
+@Slf4j
+@Component
+public class NacosRegistrar {
+
+    /**
+     * Nacos 返回的心跳结果码：实例不存在（如 Nacos 重启），需要重新注册
+     */
+    private static final int CODE_INSTANCE_NOT_FOUND = 20404;
+
+    @Value("${sandbox.registry.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sandbox.registry.server-addr:127.0.0.1:8848}")
+    private String serverAddr;
+
+    @Value("${sandbox.registry.service-name:oj-sandbox}")
+    private String serviceName;
+
+    @Value("${sandbox.registry.group:DEFAULT_GROUP}")
+    private String group;
+
+    @Value("${sandbox.registry.namespace:}")
+    private String namespace;
+
+    /**
+     * 注册的 IP，为空时自动选择本机地址
+     */
+    @Value("${sandbox.registry.ip:}")
+    private String ip;
+
+    @Value("${server.port:8090}")
+    private int port;
+
+    @Value("${sandbox.registry.timeout-ms:3000}")
+    private int timeoutMs;
+
+    @Value("${sandbox.registry.beat-interval-ms:5000}")
+    private long beatIntervalMs;
+
+    @Resource
+    private AdmissionLimiter admissionLimiter;
+
+    @Resource
+    private DockerImageManager dockerImageManager;
+
+    private volatile boolean registered;
+
+    private ScheduledExecutorService beatScheduler;
+
+    private final AtomicLong beatFailCount = new AtomicLong();
+
+    /**
+     * Web 服务启动完成后再注册，避免判题服务发现后调用失败；镜像未就绪时推迟到心跳中注册
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void register() {
+        if (!enabled) {
+            return;
+        }
+        if (StringUtils.isBlank(ip)) {
+            ip = NetUtil.getLocalhostStr();
+        }
+        beatScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "nacos-beat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        beatScheduler.scheduleWithFixedDelay(this::beat, beatIntervalMs, beatIntervalMs, TimeUnit.MILLISECONDS);
+        if (!dockerImageManager.isReady()) {
+            log.info("镜像未就绪，推迟注册到 Nacos");
+            return;
+        }
+        registered = sendRegister();
+        if (registered) {
+            log.info("已注册到 Nacos，serviceName = {}, address = {}:{}", serviceName, ip, port);
+        }
+    }
+
+    @PreDestroy
+    public void deregister() {
+        if (beatScheduler != null) {
+            // 先停止心跳，避免注销后又被心跳重新注册
+            beatScheduler.shutdownNow();
+        }
+        if (!registered) {
+            return;
+        }
+        try (HttpResponse httpResponse = HttpUtil.createRequest(Method.DELETE,
+                url("/nacos/v1/ns/instance", instanceParams())).timeout(timeoutMs).execute()) {
+            log.info("已从 Nacos 注销，status = {}", httpResponse.getStatus());
+        } catch (Exception e) {
+            log.warn("从 Nacos 注销失败", e);
+        }
+        registered = false;
+    }
+
+    /**
+     * 定时发送心跳，实例被 Nacos 删除（或启动时注册失败）时重新注册
+     */
+    private void beat() {
+        if (!registered) {
+            registered = dockerImageManager.isReady() && sendRegister();
+            return;
+        }
+        JSONObject beatInfo = new JSONObject();
+        beatInfo.set("serviceName", group + "@@" + serviceName);
+        beatInfo.set("ip", ip);
+        beatInfo.set("port", port);
+        beatInfo.set("metadata", metadata());
+        Map<String, Object> params = instanceParams();
+        params.put("beat", beatInfo.toString());
+        try (HttpResponse httpResponse = HttpUtil.createRequest(Method.PUT, url("/nacos/v1/ns/instance/beat", params))
+                .timeout(timeoutMs).execute()) {
+            if (!httpResponse.isOk()) {
+                beatFailCount.incrementAndGet();
+                log.warn("Nacos 心跳失败，status = {}", httpResponse.getStatus());
+                return;
+            }
+            if (JSONUtil.parseObj(httpResponse.body()).getInt("code", 0) == CODE_INSTANCE_NOT_FOUND) {
+                registered = sendRegister();
+            }
+        } catch (Exception e) {
+            beatFailCount.incrementAndGet();
+            log.warn("Nacos 心跳失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取注册统计信息
+     *
+     * @return
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("registered", registered);
+        stats.put("address", ip + ":" + port);
+        stats.put("beatFailCount", beatFailCount.get());
+        return stats;
+    }
+
+    private boolean sendRegister() {
+        Map<String, Object> params = instanceParams();
+        params.put("metadata", JSONUtil.toJsonStr(metadata()));
+        try (HttpResponse httpResponse = HttpUtil.createPost(url("/nacos/v1/ns/instance", params))
+                .timeout(timeoutMs).execute()) {
+            if (httpResponse.isOk()) {
+                return true;
+            }
+            log.warn("注册到 Nacos 失败，status = {}, body = {}", httpResponse.getStatus(), httpResponse.body());
+        } catch (Exception e) {
+            log.warn("注册到 Nacos 失败：{}", e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * 实例参数（放在查询字符串中，Nacos 的 PUT、DELETE 接口不读取表单请求体）
+     */
+    private Map<String, Object> instanceParams() {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("serviceName", serviceName);
+        params.put("groupName", group);
+        params.put("ip", ip);
+        params.put("port", port);
+        params.put("ephemeral", true);
+        if (StringUtils.isNotBlank(namespace)) {
+            params.put("namespaceId", namespace);
+        }
+        return params;
+    }
+
+    /**
+     * 节点容量，判题服务在拿到实时负载之前据此估算
+     */
+    private Map<String, String> metadata() {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put("maxConcurrent", String.valueOf(admissionLimiter.getMaxConcurrent()));
+        metadata.put("maxQueue", String.valueOf(admissionLimiter.getMaxQueue()));
+        metadata.put("cpus", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        return metadata;
+    }
+
+    private String url(String path, Map<String, Object> params) {
+        return "http://" + serverAddr + path + "?" + HttpUtil.toParams(params);
+    }
+}
@@ -0,0 +1,155 @@
+package com.yupi.yuojcodesandbox.security;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick 多模式匹配，一次扫描同时查找所有禁用的标识符
+ * <p>
+ * 以标识符字符开头（结尾）的模式要求匹配位置前（后）不是标识符字符，避免 exec 命中 execute、myExec；
+ * 以 * 结尾的模式只匹配前缀（如 os.exec* 命中 os.execv、os.execl）；
+ * 不含 . 的函数调用模式（如 open(、compile(）只匹配直接调用，前面是 . 的方法调用（如 re.compile(、f.open(）不命中
+ */
+public class AhoCorasickMatcher {
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    public AhoCorasickMatcher(List<String> patterns) {
+        nodes.add(new Node());
+        for (String pattern : patterns) {
+            String trimmed = pattern.trim();
+            boolean prefix = trimmed.endsWith("*");
+            String word = prefix ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+            if (!word.isEmpty()) {
+                addPattern(word, prefix);
+            }
+        }
+        buildFailLinks();
+    }
+
+    /**
+     * 查找第一个命中的模式
+     *
+     * @param text
+     * @return 没有命中时返回 null
+     */
+    public String findFirst(CharSequence text) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            while (state != 0 && !nodes.get(state).next.containsKey(c)) {
+                state = nodes.get(state).fail;
+            }
+            state = nodes.get(state).next.getOrDefault(c, 0);
+            for (int output = state; output != 0; output = nodes.get(output).outputLink) {
+                Node node = nodes.get(output);
+                if (node.pattern != null && isWholeToken(text, i, node)) {
+                    return node.pattern;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean isWholeToken(CharSequence text, int end, Node node) {
+        String word = node.prefix ? node.pattern.substring(0, node.pattern.length() - 1) : node.pattern;
+        int start = end - word.length() + 1;
+        if (isIdentifierChar(word.charAt(0)) && start > 0 && isIdentifierChar(text.charAt(start - 1))) {
+            return false;
+        }
+        if (node.bareCall && isMemberAccess(text, start)) {
+            return false;
+        }
+        return node.prefix || !isIdentifierChar(word.charAt(word.length() - 1)) || end + 1 >= text.length()
+                || !isIdentifierChar(text.charAt(end + 1));
+    }
+
+    /**
+     * start 之前第一个非空白字符是否为 .
+     */
+    private static boolean isMemberAccess(CharSequence text, int start) {
+        for (int i = start - 1; i >= 0; i--) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '.';
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private void addPattern(String word, boolean prefix) {
+        int state = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            Integer next = nodes.get(state).next.get(c);
+            if (next == null) {
+                nodes.add(new Node());
+                next = nodes.size() - 1;
+                nodes.get(state).next.put(c, next);
+            }
+            state = next;
+        }
+        Node node = nodes.get(state);
+        // 同一个词既有前缀模式又有完整模式时，按前缀匹配（范围更大）
+        if (node.pattern == null || prefix) {
+            node.pattern = prefix ? word + "*" : word;
+            node.prefix = prefix;
+            node.bareCall = !prefix && word.endsWith("(") && word.indexOf('.') < 0
+                    && isIdentifierChar(word.charAt(0));
+        }
+    }
+
+    /**
+     * 按层遍历建立失配指针，以及指向最近一个模式结尾的输出指针
+     */
+    private void buildFailLinks() {
+        Queue<Integer> queue = new ArrayDeque<>(nodes.get(0).next.values());
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            Node node = nodes.get(state);
+            for (Map.Entry<Character, Integer> entry : node.next.entrySet()) {
+                char c = entry.getKey();
+                int child = entry.getValue();
+                int fail = node.fail;
+                while (fail != 0 && !nodes.get(fail).next.containsKey(c)) {
+                    fail = nodes.get(fail).fail;
+                }
+                Integer failTarget = nodes.get(fail).next.get(c);
+                Node childNode = nodes.get(child);
+                childNode.fail = failTarget == null || failTarget == child ? 0 : failTarget;
+                Node failNode = nodes.get(childNode.fail);
+                childNode.outputLink = failNode.pattern != null ? childNode.fail : failNode.outputLink;
+                queue.add(child);
+            }
+        }
+    }
+
+    private static class Node {
+
+        private final Map<Character, Integer> next = new HashMap<>();
+
+        private int fail;
+
+        /**
+         * 失配链上最近的一个模式结尾节点，0 表示没有
+         */
+        private int outputLink;
+
+        private String pattern;
+
+        private boolean prefix;
+
+        /**
+         * 是否为不含 . 的函数调用模式，只匹配直接调用
+         */
+        private boolean bareCall;
+    }
+}
@@ -0,0 +1,191 @@
+package com.yupi.yuojcodesandbox.security;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.yupi.yuojcodesandbox.language.LanguageRunner;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 代码预检：编译前按语言的禁用标识符扫描源码，命中时直接判为危险操作，不再编译、执行
+ * <p>
+ * 先做轻量的词法处理（去掉注释、字符串内容，合并空白，去掉 . 和 ( 两侧的空白），
+ * 再用 {@link AhoCorasickMatcher} 一次扫描所有禁用标识符；结果按（语言、源码 SHA-256）缓存，重复提交不再扫描。
+ * 预检只是第一道防线，拼接字符串、反射等绕过方式仍由运行时的隔离、资源限制兜底
+ */
+@Slf4j
+@Component
+public class CodePreScreener {
+
+    @Value("${sandbox.screen.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 是否忽略字符串字面量的内容（避免 print("exec") 这类误判）
+     */
+    @Value("${sandbox.screen.strip-literals:true}")
+    private boolean stripLiterals;
+
+    @Value("${sandbox.screen.cache-size:10000}")
+    private int cacheSize;
+
+    /**
+     * 语言 => 禁用标识符的匹配器
+     */
+    private final Map<String, AhoCorasickMatcher> matcherMap = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存键 => 命中的禁用标识符（通过时为空串），按访问顺序排列（LRU）
+     */
+    private final LinkedHashMap<String, String> verdictCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong scanCount = new AtomicLong();
+
+    private final AtomicLong scanNanos = new AtomicLong();
+
+    private final AtomicLong cacheHitCount = new AtomicLong();
+
+    private final AtomicLong rejectCount = new AtomicLong();
+
+    /**
+     * 预检源码
+     *
+     * @param languageRunner
+     * @param code
+     * @return 命中的禁用标识符，通过时返回 null
+     */
+    public String screen(LanguageRunner languageRunner, String code) {
+        if (!enabled || languageRunner.getDeniedTokens().isEmpty()) {
+            return null;
+        }
+        String cacheKey = DigestUtil.sha256Hex(languageRunner.getLanguage() + "\n" + code);
+        String denied;
+        synchronized (verdictCache) {
+            denied = verdictCache.get(cacheKey);
+        }
+        if (denied != null) {
+            cacheHitCount.incrementAndGet();
+        } else {
+            long start = System.nanoTime();
+            AhoCorasickMatcher matcher = matcherMap.computeIfAbsent(languageRunner.getLanguage(),
+                    language -> new AhoCorasickMatcher(languageRunner.getDeniedTokens()));
+            String matched = matcher.findFirst(normalize(code, languageRunner.getLineCommentPrefix()));
+            denied = matched == null ? "" : matched;
+            scanNanos.addAndGet(System.nanoTime() - start);
+            scanCount.incrementAndGet();
+            synchronized (verdictCache) {
+                verdictCache.put(cacheKey, denied);
+                if (verdictCache.size() > cacheSize) {
+                    verdictCache.remove(verdictCache.keySet().iterator().next());
+                }
+            }
+        }
+        if (denied.isEmpty()) {
+            return null;
+        }
+        rejectCount.incrementAndGet();
+        log.info("代码预检未通过，language = {}, token = {}", languageRunner.getLanguage(), denied);
+        return denied;
+    }
+
+    /**
+     * 获取预检统计信息
+     *
+     * @return
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        long scans = scanCount.get();
+        stats.put("scanCount", scans);
+        stats.put("avgScanMicros", scans == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(scanNanos.get() / scans));
+        stats.put("cacheHitCount", cacheHitCount.get());
+        stats.put("rejectCount", rejectCount.get());
+        synchronized (verdictCache) {
+            stats.put("cacheSize", verdictCache.size());
+        }
+        return stats;
+    }
+
+    /**
+     * 轻量词法处理：去掉注释（行注释由语言决定，// 风格的语言同时支持块注释）、字符串内容（保留引号），
+     * 合并连续空白，去掉 . 和 ( 两侧的空白，使 Runtime . getRuntime ()、system (...) 等写法也能命中
+     */
+    private String normalize(String code, String lineCommentPrefix) {
+        boolean cStyle = "//".equals(lineCommentPrefix);
+        StringBuilder result = new StringBuilder(code.length());
+        int i = 0;
+        int length = code.length();
+        while (i < length) {
+            char c = code.charAt(i);
+            if (code.startsWith(lineCommentPrefix, i)) {
+                while (i < length && code.charAt(i) != '\n') {
+                    i++;
+                }
+                appendSpace(result);
+            } else if (cStyle && code.startsWith("/*", i)) {
+                int end = code.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                appendSpace(result);
+            } else if (c == '"' || c == '\'') {
+                // Python 的三引号字符串
+                String quote = !cStyle && code.startsWith(String.valueOf(c) + c + c, i)
+                        ? String.valueOf(c) + c + c : String.valueOf(c);
+                int end = findStringEnd(code, i + quote.length(), quote);
+                result.append(quote);
+                if (!stripLiterals) {
+                    result.append(code, i + quote.length(), end);
+                }
+                result.append(quote);
+                i = Math.min(length, end + quote.length());
+            } else if (Character.isWhitespace(c)) {
+                appendSpace(result);
+                i++;
+            } else {
+                if ((c == '.' || c == '(') && result.length() > 0 && result.charAt(result.length() - 1) == ' ') {
+                    result.setLength(result.length() - 1);
+                }
+                result.append(c);
+                i++;
+                if (c == '.' || c == '(') {
+                    while (i < length && Character.isWhitespace(code.charAt(i))) {
+                        i++;
+                    }
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    private static int findStringEnd(String code, int from, String quote) {
+        int i = from;
+        while (i < code.length()) {
+            char c = code.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (code.startsWith(quote, i)) {
+                return i;
+            }
+            // 单引号、双引号字符串不跨行
+            if (c == '\n' && quote.length() == 1) {
+                return i;
+            }
+            i++;
+        }
+        return code.length();
+    }
+
+    private static void appendSpace(StringBuilder result) {
+        if (result.length() > 0 && result.charAt(result.length() - 1) != ' ') {
+            result.append(' ');
+        }
+    }
+}
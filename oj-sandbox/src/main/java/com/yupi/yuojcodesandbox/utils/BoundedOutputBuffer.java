@@ -0,0 +1,115 @@
+package com.yupi.yuojcodesandbox.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 有上限的进程输出缓冲区
+ * <p>
+ * 按字节保存输出，超出上限后丢弃多余内容并标记为输出超限
+ */
+public class BoundedOutputBuffer {
+
+    private static final int INITIAL_CAPACITY = 8192;
+
+    private final int limit;
+
+    private byte[] buffer;
+
+    private int size;
+
+    private boolean exceeded;
+
+    /**
+     * @param limit 最多保存的字节数
+     */
+    public BoundedOutputBuffer(int limit) {
+        this.limit = limit;
+        this.buffer = new byte[Math.min(limit, INITIAL_CAPACITY)];
+    }
+
+    /**
+     * 追加输出
+     *
+     * @param bytes
+     * @param offset
+     * @param length
+     * @return 超出上限时返回 false
+     */
+    public synchronized boolean write(byte[] bytes, int offset, int length) {
+        if (exceeded) {
+            return false;
+        }
+        int writable = Math.min(length, limit - size);
+        if (size + writable > buffer.length) {
+            byte[] newBuffer = new byte[(int) Math.min(limit, Math.max((long) buffer.length * 2, size + writable))];
+            System.arraycopy(buffer, 0, newBuffer, 0, size);
+            buffer = newBuffer;
+        }
+        System.arraycopy(bytes, offset, buffer, size, writable);
+        size += writable;
+        if (writable < length) {
+            exceeded = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 读取输入流直到结束或超出上限
+     *
+     * @param inputStream
+     * @return 超出上限时返回 false（此时不再继续读取）
+     * @throws IOException
+     */
+    public boolean drain(InputStream inputStream) throws IOException {
+        byte[] chunk = new byte[INITIAL_CAPACITY];
+        int length;
+        while ((length = inputStream.read(chunk)) != -1) {
+            if (!write(chunk, 0, length)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 已保存的字节数
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isExceeded() {
+        return exceeded;
+    }
+
+    /**
+     * 按 UTF-8 解码，统一换行符为 \n 并去掉末尾的一个换行（与逐行读取后用 \n 拼接的结果一致）
+     *
+     * @return
+     */
+    public synchronized String toNormalizedString() {
+        return normalize(buffer, size);
+    }
+
+    /**
+     * 按 UTF-8 解码，统一换行符为 \n 并去掉末尾的一个换行
+     *
+     * @param bytes
+     * @param length
+     * @return
+     */
+    public static String normalize(byte[] bytes, int length) {
+        String output = new String(bytes, 0, length, StandardCharsets.UTF_8)
+                .replace("\r\n", "\n")
+                .replace('\r', '\n');
+        if (output.endsWith("\n")) {
+            output = output.substring(0, output.length() - 1);
+        }
+        return output;
+    }
+}
@@ -1,19 +1,36 @@
 package com.yupi.yuojcodesandbox.utils;
 
 import cn.hutool.core.util.StrUtil;
+import com.yupi.yuojcodesandbox.execute.ProcessTimeoutScheduler;
 import com.yupi.yuojcodesandbox.model.ExecuteMessage;
-import org.apache.commons.lang3.StringUtils;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.StopWatch;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * 进程工具类
  */
+@Slf4j
 public class ProcessUtils {
 
+    /**
+     * 默认的输出上限（字节）
+     */
+    public static final int DEFAULT_OUTPUT_LIMIT = 16 * 1024 * 1024;
+
+    /**
+     * 读取标准错误的线程，与读取标准输出的调用线程同时排空两个管道
+     */
+    private static final ExecutorService STDERR_READER = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "process-stderr-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     /**
      * 执行进程并获取信息
      *
@@ -22,49 +39,43 @@ public class ProcessUtils {
      * @return
      */
     public static ExecuteMessage runProcessAndGetMessage(Process runProcess, String opName) {
+        return runProcessAndGetMessage(runProcess, opName, DEFAULT_OUTPUT_LIMIT);
+    }
+
+    /**
+     * 执行进程并获取信息
+     * <p>
+     * 边运行边读取输出，避免输出超过管道缓冲区时进程阻塞；任一输出超过上限时立即结束进程并标记为输出超限
+     *
+     * @param runProcess
+     * @param opName
+     * @param outputLimit 标准输出、标准错误各自的上限（字节）
+     * @return
+     */
+    public static ExecuteMessage runProcessAndGetMessage(Process runProcess, String opName, int outputLimit) {
         ExecuteMessage executeMessage = new ExecuteMessage();
 
         try {
             StopWatch stopWatch = new StopWatch();
             stopWatch.start();
-            // 等待程序执行，获取错误码
+            BoundedOutputBuffer outputBuffer = new BoundedOutputBuffer(outputLimit);
+            BoundedOutputBuffer errorBuffer = new BoundedOutputBuffer(outputLimit);
+            Future<?> errorFuture = STDERR_READER.submit(() -> drain(runProcess, runProcess.getErrorStream(), errorBuffer));
+            drain(runProcess, runProcess.getInputStream(), outputBuffer);
+            errorFuture.get();
+            // 输出读取完毕后获取错误码
             int exitValue = runProcess.waitFor();
             executeMessage.setExitValue(exitValue);
+            executeMessage.setMessage(outputBuffer.toNormalizedString());
+            executeMessage.setOutputBytes((long) outputBuffer.size());
+            executeMessage.setOutputLimitExceeded(outputBuffer.isExceeded() || errorBuffer.isExceeded());
             // 正常退出
             if (exitValue == 0) {
-                System.out.println(opName + "成功");
-                // 分批获取进程的正常输出
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(runProcess.getInputStream()));
-                List<String> outputStrList = new ArrayList<>();
-                // 逐行读取
-                String compileOutputLine;
-                while ((compileOutputLine = bufferedReader.readLine()) != null) {
-                    outputStrList.add(compileOutputLine);
-                }
-                executeMessage.setMessage(StringUtils.join(outputStrList, "\n"));
+                log.debug("{}成功", opName);
             } else {
                 // 异常退出
-                System.out.println(opName + "失败，错误码： " + exitValue);
-                // 分批获取进程的正常输出
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(runProcess.getInputStream()));
-                List<String> outputStrList = new ArrayList<>();
-                // 逐行读取
-                String compileOutputLine;
-                while ((compileOutputLine = bufferedReader.readLine()) != null) {
-                    outputStrList.add(compileOutputLine);
-                }
-                executeMessage.setMessage(StringUtils.join(outputStrList, "\n"));
-
-                // 分批获取进程的错误输出
-                BufferedReader errorBufferedReader = new BufferedReader(new InputStreamReader(runProcess.getErrorStream()));
-                // 逐行读取
-                List<String> errorOutputStrList = new ArrayList<>();
-                // 逐行读取
-                String errorCompileOutputLine;
-                while ((errorCompileOutputLine = errorBufferedReader.readLine()) != null) {
-                    errorOutputStrList.add(errorCompileOutputLine);
-                }
-                executeMessage.setErrorMessage(StringUtils.join(errorOutputStrList, "\n"));
+                log.debug("{}失败，错误码： {}", opName, exitValue);
+                executeMessage.setErrorMessage(errorBuffer.toNormalizedString());
             }
             stopWatch.stop();
             executeMessage.setTime(stopWatch.getLastTaskTimeMillis());
@@ -74,6 +85,18 @@ public class ProcessUtils {
         return executeMessage;
     }
 
+    /**
+     * 读取进程的一个输出流，超出上限时结束进程
+     */
+    private static Void drain(Process process, InputStream inputStream, BoundedOutputBuffer buffer) throws IOException {
+        try (InputStream in = inputStream) {
+            if (!buffer.drain(in)) {
+                ProcessTimeoutScheduler.destroyProcessTree(process);
+            }
+        }
+        return null;
+    }
+
     /**
      * 执行交互式进程并获取信息
      *
@@ -0,0 +1,217 @@
+package com.yupi.yuojcodesandbox.workspace;
+
+import cn.hutool.core.io.FileUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户代码工作目录管理
+ * <p>
+ * 工作目录默认放在内存文件系统（tmpfs）上，每次提交分配一个目录；用完后交给后台清理线程清空，
+ * 清空后的目录放回空闲列表复用，删除和建目录都不在请求的耗时内。
+ * 定时清扫根目录下不属于任何提交的目录和文件（如进程崩溃遗留的目录）
+ */
+@Slf4j
+@Component
+public class WorkspaceManager {
+
+    /**
+     * 与 Docker 容器池的 tmpCode/docker 分开，清扫时不会误删
+     */
+    private static final String FALLBACK_ROOT_DIR_NAME = "tmpCode" + File.separator + "workspace";
+
+    /**
+     * 放入清理队列表示清扫遗留目录，清扫和清理在同一个线程执行，避免把正在清理的目录当作遗留目录
+     */
+    private static final File SWEEP_REQUEST = new File("");
+
+    /**
+     * 工作目录的根目录，建议配置在 tmpfs 上，不可用时退回 user.dir/tmpCode/workspace
+     */
+    @Value("${sandbox.workspace.root:/dev/shm/yuoj-sandbox}")
+    private String rootDirName;
+
+    /**
+     * 最多保留的空闲目录数
+     */
+    @Value("${sandbox.workspace.max-free:64}")
+    private int maxFree;
+
+    /**
+     * 不属于任何提交的目录超过该时间未修改时被清扫
+     */
+    @Value("${sandbox.workspace.orphan-ttl-ms:600000}")
+    private long orphanTtlMs;
+
+    private File root;
+
+    /**
+     * 正在使用的目录
+     */
+    private final Set<File> activeDirs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 已清空、可以直接分配的目录
+     */
+    private final BlockingDeque<File> freeDirs = new LinkedBlockingDeque<>();
+
+    /**
+     * 等待清理的目录
+     */
+    private final BlockingQueue<File> pendingDirs = new LinkedBlockingQueue<>();
+
+    private final AtomicLong allocateCount = new AtomicLong();
+
+    private final AtomicLong reuseCount = new AtomicLong();
+
+    private final AtomicLong orphanCount = new AtomicLong();
+
+    private Thread reaper;
+
+    @PostConstruct
+    public void init() {
+        root = new File(rootDirName);
+        if (!FileUtil.mkdir(root).canWrite()) {
+            root = FileUtil.mkdir(System.getProperty("user.dir") + File.separator + FALLBACK_ROOT_DIR_NAME);
+            log.warn("工作目录根目录 {} 不可写，改用 {}", rootDirName, root.getAbsolutePath());
+        }
+        // 上次运行遗留的目录都不再使用，交给清理线程删除
+        File[] leftovers = root.listFiles();
+        if (leftovers != null) {
+            for (File leftover : leftovers) {
+                pendingDirs.offer(leftover);
+            }
+        }
+        reaper = new Thread(this::reap, "workspace-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+        log.info("工作目录管理已启动，root = {}", root.getAbsolutePath());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reaper != null) {
+            reaper.interrupt();
+        }
+    }
+
+    /**
+     * 分配一个空的工作目录
+     *
+     * @return
+     */
+    public File allocate() {
+        allocateCount.incrementAndGet();
+        synchronized (this) {
+            File dir = freeDirs.pollFirst();
+            if (dir != null && dir.isDirectory()) {
+                reuseCount.incrementAndGet();
+                activeDirs.add(dir);
+                return dir;
+            }
+        }
+        File dir = FileUtil.mkdir(new File(root, UUID.randomUUID().toString()));
+        activeDirs.add(dir);
+        return dir;
+    }
+
+    /**
+     * 归还工作目录，由后台线程清空后复用
+     *
+     * @param dir
+     */
+    public synchronized void release(File dir) {
+        if (dir == null || !activeDirs.remove(dir)) {
+            return;
+        }
+        pendingDirs.offer(dir);
+    }
+
+    /**
+     * 获取工作目录统计信息
+     *
+     * @return
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("root", root.getAbsolutePath());
+        stats.put("active", activeDirs.size());
+        stats.put("free", freeDirs.size());
+        stats.put("pending", pendingDirs.size());
+        stats.put("allocateCount", allocateCount.get());
+        stats.put("reuseCount", reuseCount.get());
+        stats.put("orphanCount", orphanCount.get());
+        return stats;
+    }
+
+    /**
+     * 定时清扫根目录下遗留的目录和文件
+     */
+    @Scheduled(fixedDelayString = "${sandbox.workspace.sweep-interval-ms:60000}")
+    public void requestSweep() {
+        if (!pendingDirs.contains(SWEEP_REQUEST)) {
+            pendingDirs.offer(SWEEP_REQUEST);
+        }
+    }
+
+    private void sweepOrphans() {
+        File[] children = root.listFiles();
+        if (children == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File child : children) {
+            synchronized (this) {
+                // 新建的目录在 mkdir 之后才加入正在使用的目录，依靠存活时间排除
+                boolean owned = activeDirs.contains(child) || freeDirs.contains(child) || pendingDirs.contains(child);
+                if (owned || now - child.lastModified() <= orphanTtlMs) {
+                    continue;
+                }
+                orphanCount.incrementAndGet();
+                pendingDirs.offer(child);
+            }
+            log.warn("清扫遗留的工作目录 {}", child.getAbsolutePath());
+        }
+    }
+
+    private void reap() {
+        while (!Thread.currentThread().isInterrupted()) {
+            File dir;
+            try {
+                dir = pendingDirs.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (dir == SWEEP_REQUEST) {
+                sweepOrphans();
+                continue;
+            }
+            try {
+                boolean reusable = dir.isDirectory() && freeDirs.size() < maxFree && FileUtil.clean(dir);
+                if (reusable) {
+                    freeDirs.offerLast(dir);
+                } else if (!FileUtil.del(dir)) {
+                    log.error("删除工作目录失败，dir = {}", dir.getAbsolutePath());
+                }
+            } catch (Exception e) {
+                log.error("清理工作目录失败，dir = {}", dir.getAbsolutePath(), e);
+            }
+        }
+    }
+}
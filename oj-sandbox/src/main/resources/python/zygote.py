@@ -0,0 +1,159 @@
+# Python 用例的 fork 服务（zygote）
+#
+# 启动时预先导入常用模块，之后每个用例由这个已经预热的进程 fork 一个子进程执行，
+# 省去解释器启动和导入标准库的开销。与沙箱通过标准输入、标准输出按行交换 JSON：
+#   请求 {"type": "run", "id", "dir", "file", "args", "out", "err", "cpuSeconds", "addressSpace", "fileSize"}
+#        {"type": "kill", "id"}
+#   响应 {"type": "ready", "pid", "startupMillis"}
+#        {"type": "started", "id", "pid"}
+#        {"type": "exit", "id", "exitCode", "cpuMillis", "maxRssKb"}
+# 子进程的标准输入为 /dev/null，标准输出、标准错误写入 out、err 文件，由 RLIMIT_FSIZE 限制大小
+import json
+import os
+import resource
+import select
+import signal
+import sys
+import time
+
+start = time.monotonic()
+for module_name in filter(None, (sys.argv[1] if len(sys.argv) > 1 else "").split(",")):
+    try:
+        __import__(module_name.strip())
+    except Exception:
+        pass
+# 子进程使用，提前导入
+import runpy
+import traceback
+
+children = {}
+
+
+def send(message):
+    # 单行远小于 PIPE_BUF，一次写入不会与其他消息交错
+    os.write(1, (json.dumps(message) + "\n").encode())
+
+
+def run_child(request):
+    signal.set_wakeup_fd(-1)
+    signal.signal(signal.SIGCHLD, signal.SIG_DFL)
+    os.setsid()
+    stdin_fd = os.open(os.devnull, os.O_RDONLY)
+    stdout_fd = os.open(request["out"], os.O_WRONLY | os.O_CREAT | os.O_TRUNC, 0o600)
+    stderr_fd = os.open(request["err"], os.O_WRONLY | os.O_CREAT | os.O_TRUNC, 0o600)
+    os.dup2(stdin_fd, 0)
+    os.dup2(stdout_fd, 1)
+    os.dup2(stderr_fd, 2)
+    os.closerange(3, 1024)
+    cpu_seconds = request["cpuSeconds"]
+    resource.setrlimit(resource.RLIMIT_CPU, (cpu_seconds, cpu_seconds))
+    resource.setrlimit(resource.RLIMIT_FSIZE, (request["fileSize"], request["fileSize"]))
+    resource.setrlimit(resource.RLIMIT_CORE, (0, 0))
+    if request["addressSpace"] > 0:
+        resource.setrlimit(resource.RLIMIT_AS, (request["addressSpace"], request["addressSpace"]))
+    os.chdir(request["dir"])
+    path = os.path.join(request["dir"], request["file"])
+    sys.argv = [path] + request["args"]
+    sys.path[0] = request["dir"]
+    exit_code = 0
+    try:
+        runpy.run_path(path, run_name="__main__")
+    except SystemExit as e:
+        if e.code is None:
+            exit_code = 0
+        elif isinstance(e.code, int):
+            exit_code = e.code
+        else:
+            print(e.code, file=sys.stderr)
+            exit_code = 1
+    except BaseException:
+        # 去掉 zygote、runpy 的调用栈，与直接执行 python main.py 的输出一致
+        error_type, error, tb = sys.exc_info()
+        while tb is not None and tb.tb_frame.f_code.co_filename != path:
+            tb = tb.tb_next
+        traceback.print_exception(error_type, error, tb)
+        exit_code = 1
+    try:
+        sys.stdout.flush()
+        sys.stderr.flush()
+    except BaseException:
+        exit_code = exit_code or 1
+    os._exit(exit_code)
+
+
+def reap():
+    while True:
+        try:
+            pid, status, usage = os.wait4(-1, os.WNOHANG)
+        except ChildProcessError:
+            return
+        if pid == 0:
+            return
+        case_id = children.pop(pid, None)
+        if case_id is None:
+            continue
+        # 与 Java 的 Process.exitValue 一致，被信号结束时为 128 + 信号
+        # （不使用 Python 3.9 才有的 os.waitstatus_to_exitcode）
+        if os.WIFSIGNALED(status):
+            exit_code = 128 + os.WTERMSIG(status)
+        else:
+            exit_code = os.WEXITSTATUS(status)
+        send({"type": "exit", "id": case_id, "exitCode": exit_code,
+              "cpuMillis": int((usage.ru_utime + usage.ru_stime) * 1000), "maxRssKb": usage.ru_maxrss})
+
+
+def handle(request):
+    if request["type"] == "run":
+        pid = os.fork()
+        if pid == 0:
+            try:
+                run_child(request)
+            finally:
+                os._exit(1)
+        children[pid] = request["id"]
+        send({"type": "started", "id": request["id"], "pid": pid})
+    elif request["type"] == "kill":
+        for pid, case_id in list(children.items()):
+            if case_id == request["id"]:
+                try:
+                    os.killpg(pid, signal.SIGKILL)
+                except (ProcessLookupError, PermissionError):
+                    os.kill(pid, signal.SIGKILL)
+
+
+def main():
+    wakeup_read, wakeup_write = os.pipe()
+    os.set_blocking(wakeup_read, False)
+    os.set_blocking(wakeup_write, False)
+    signal.signal(signal.SIGCHLD, lambda signum, frame: None)
+    signal.set_wakeup_fd(wakeup_write)
+    send({"type": "ready", "pid": os.getpid(), "startupMillis": int((time.monotonic() - start) * 1000)})
+    buffer = b""
+    while True:
+        readable, _, _ = select.select([0, wakeup_read], [], [])
+        if wakeup_read in readable:
+            try:
+                while os.read(wakeup_read, 4096):
+                    pass
+            except BlockingIOError:
+                pass
+        if 0 in readable:
+            data = os.read(0, 65536)
+            if not data:
+                # 沙箱退出，结束所有用例
+                for pid in list(children):
+                    try:
+                        os.killpg(pid, signal.SIGKILL)
+                    except (ProcessLookupError, PermissionError):
+                        pass
+                return
+            buffer += data
+            while b"\n" in buffer:
+                line, buffer = buffer.split(b"\n", 1)
+                if line.strip():
+                    handle(json.loads(line))
+        reap()
+
+
+if __name__ == "__main__":
+    main()
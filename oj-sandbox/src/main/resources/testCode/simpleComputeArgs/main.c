@@ -0,0 +1,9 @@
+#include <stdio.h>
+#include <stdlib.h>
+
+int main(int argc, char *argv[]) {
+    int a = atoi(argv[1]);
+    int b = atoi(argv[2]);
+    printf("结果:%d\n", a + b);
+    return 0;
+}
@@ -0,0 +1,10 @@
+#include <bits/stdc++.h>
+
+using namespace std;
+
+int main(int argc, char *argv[]) {
+    int a = stoi(argv[1]);
+    int b = stoi(argv[2]);
+    cout << "结果:" << a + b << endl;
+    return 0;
+}
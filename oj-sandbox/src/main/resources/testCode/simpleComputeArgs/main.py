@@ -0,0 +1,5 @@
+import sys
+
+a = int(sys.argv[1])
+b = int(sys.argv[2])
+print("结果:" + str(a + b))
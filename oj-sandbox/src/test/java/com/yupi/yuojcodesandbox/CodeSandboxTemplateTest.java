@@ -0,0 +1,116 @@
+package com.yupi.yuojcodesandbox;
+
+import com.yupi.yuojcodesandbox.execute.OutputComparator;
+import com.yupi.yuojcodesandbox.language.JavaLanguageRunner;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
+import com.yupi.yuojcodesandbox.model.ExecuteCodeResponse;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import com.yupi.yuojcodesandbox.model.enums.JudgeInfoMessageEnum;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodeSandboxTemplateTest {
+
+    @Test
+    void failFastCountsSkippedCases() {
+        ExecuteCodeRequest executeCodeRequest = expectedOutputs("1", "2", "3", "4", "5");
+        // 用例 1 失败后，用例 2 已经开始执行，用例 3、4 没有执行
+        ExecuteCodeResponse response = CodeSandboxTemplate.getVerdictResponse(
+                Arrays.asList(accepted("1"), accepted("x"), accepted("3"), null, null), executeCodeRequest,
+                OutputComparator.of(executeCodeRequest), true);
+
+        assertEquals(3, response.getStatus());
+        assertEquals(1, response.getFailedCaseIndex());
+        assertEquals(2, response.getSkippedCaseCount());
+        // 失败用例之后执行完的用例不再给出结果
+        assertEquals(2, response.getCaseVerdictList().size());
+        assertEquals(JudgeInfoMessageEnum.WRONG_ANSWER.getValue(), response.getJudgeInfo().getMessage());
+        assertEquals(Arrays.asList("1", "x"), response.getOutputList());
+    }
+
+    @Test
+    void withoutFailFastAllCasesAreJudged() {
+        ExecuteCodeRequest executeCodeRequest = expectedOutputs("1", "2", "3");
+        executeCodeRequest.setCompareOnly(true);
+        ExecuteCodeResponse response = CodeSandboxTemplate.getVerdictResponse(
+                Arrays.asList(accepted("1"), accepted("x"), accepted("3")), executeCodeRequest,
+                OutputComparator.of(executeCodeRequest), false);
+
+        assertEquals(1, response.getFailedCaseIndex());
+        assertEquals(0, response.getSkippedCaseCount());
+        assertEquals(3, response.getCaseVerdictList().size());
+        assertEquals(JudgeInfoMessageEnum.ACCEPTED.getValue(), response.getCaseVerdictList().get(2).getVerdict());
+        assertTrue(response.getOutputList().isEmpty());
+    }
+
+    @Test
+    void memoryLimitExceededBeforeRuntimeError() {
+        ExecuteCodeRequest executeCodeRequest = new ExecuteCodeRequest();
+        executeCodeRequest.setFailFast(true);
+        ExecuteMessage oomKilled = new ExecuteMessage();
+        oomKilled.setExitValue(137);
+        oomKilled.setErrorMessage("内存超限");
+        oomKilled.setMemoryLimitExceeded(true);
+        ExecuteCodeResponse response = CodeSandboxTemplate.getVerdictResponse(
+                Arrays.asList(accepted("1"), oomKilled), executeCodeRequest, null, true);
+
+        assertEquals(1, response.getFailedCaseIndex());
+        assertEquals(JudgeInfoMessageEnum.MEMORY_LIMIT_EXCEEDED.getValue(), response.getJudgeInfo().getMessage());
+    }
+
+    @Test
+    void allAccepted() {
+        ExecuteCodeRequest executeCodeRequest = expectedOutputs("1", "2");
+        ExecuteCodeResponse response = CodeSandboxTemplate.getVerdictResponse(
+                Arrays.asList(accepted("1"), accepted("2")), executeCodeRequest,
+                OutputComparator.of(executeCodeRequest), false);
+
+        assertEquals(1, response.getStatus());
+        assertNull(response.getFailedCaseIndex());
+        assertNull(response.getJudgeInfo().getMessage());
+    }
+
+    @Test
+    void multipliersDoNotModifyCallerRequest() {
+        JavaLanguageRunner javaLanguageRunner = new JavaLanguageRunner();
+        ReflectionTestUtils.setField(javaLanguageRunner, "timeMultiplier", 1.0);
+        ReflectionTestUtils.setField(javaLanguageRunner, "memoryMultiplier", 1.0);
+        ExecuteCodeRequest executeCodeRequest = expectedOutputs("1");
+        executeCodeRequest.setTimeLimit(1000L);
+        assertSame(executeCodeRequest, CodeSandboxTemplate.applyMultipliers(executeCodeRequest, javaLanguageRunner));
+
+        ReflectionTestUtils.setField(javaLanguageRunner, "timeMultiplier", 2.0);
+        ReflectionTestUtils.setField(javaLanguageRunner, "memoryMultiplier", 1.5);
+        ExecuteCodeRequest effectiveRequest = CodeSandboxTemplate.applyMultipliers(executeCodeRequest,
+                javaLanguageRunner);
+        assertEquals(2000L, effectiveRequest.getTimeLimit());
+        assertNull(effectiveRequest.getMemoryLimit());
+        assertEquals(executeCodeRequest.getExpectedOutputList(), effectiveRequest.getExpectedOutputList());
+        // 同一个请求多次执行（重试、压测）时限制不会重复放宽
+        assertEquals(1000L, executeCodeRequest.getTimeLimit());
+        assertEquals(2000L, CodeSandboxTemplate.applyMultipliers(executeCodeRequest, javaLanguageRunner)
+                .getTimeLimit());
+    }
+
+    private static ExecuteCodeRequest expectedOutputs(String... expectedOutputs) {
+        ExecuteCodeRequest executeCodeRequest = new ExecuteCodeRequest();
+        executeCodeRequest.setExpectedOutputList(Arrays.asList(expectedOutputs));
+        return executeCodeRequest;
+    }
+
+    private static ExecuteMessage accepted(String output) {
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setExitValue(0);
+        executeMessage.setMessage(output);
+        executeMessage.setTime(10L);
+        executeMessage.setMemory(1024L);
+        return executeMessage;
+    }
+}
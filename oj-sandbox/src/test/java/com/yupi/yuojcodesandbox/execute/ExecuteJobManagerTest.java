@@ -0,0 +1,47 @@
+package com.yupi.yuojcodesandbox.execute;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExecuteJobManagerTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "http://judge.internal/callback, true",
+            "HTTPS://Judge.Internal:8443/callback, true",
+            "http://10.0.0.5:8104/api/judge/callback, true",
+            "http://10.0.0.5/api/judge/callback, false",
+            "http://10.0.0.5:8105/api/judge/callback, false",
+            "http://169.254.169.254/latest/meta-data, false",
+            "http://judge.internal@169.254.169.254/, false",
+            "http://judge.internal.evil.com/, false",
+            "file:///etc/passwd, false",
+            "ftp://judge.internal/, false",
+            "judge.internal/callback, false",
+            "'http://judge internal/', false",
+    })
+    void callbackHostMustBeAllowed(String callbackUrl, boolean allowed) {
+        ExecuteJobManager executeJobManager = new ExecuteJobManager();
+        ReflectionTestUtils.setField(executeJobManager, "callbackAllowedHosts",
+                Arrays.asList("judge.internal", " 10.0.0.5:8104"));
+        assertEquals(allowed, executeJobManager.isCallbackAllowed(callbackUrl));
+    }
+
+    @Test
+    void noCallbackAllowedByDefault() {
+        ExecuteJobManager executeJobManager = new ExecuteJobManager();
+        ReflectionTestUtils.setField(executeJobManager, "callbackAllowedHosts", Collections.emptyList());
+        assertTrue(executeJobManager.isCallbackAllowed(null));
+        assertTrue(executeJobManager.isCallbackAllowed(" "));
+        assertFalse(executeJobManager.isCallbackAllowed("http://localhost:8104/callback"));
+    }
+}
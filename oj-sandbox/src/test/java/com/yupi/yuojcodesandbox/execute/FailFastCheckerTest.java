@@ -0,0 +1,118 @@
+package com.yupi.yuojcodesandbox.execute;
+
+import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
+import com.yupi.yuojcodesandbox.model.ExecuteMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FailFastCheckerTest {
+
+    @Test
+    void disabledWithoutFailFast() {
+        ExecuteCodeRequest executeCodeRequest = new ExecuteCodeRequest();
+        assertNull(FailFastChecker.of(executeCodeRequest, null));
+        executeCodeRequest.setFailFast(false);
+        assertNull(FailFastChecker.of(executeCodeRequest, null));
+    }
+
+    @Test
+    void keepsSmallestFailedIndexWhenCasesFinishOutOfOrder() {
+        FailFastChecker failFastChecker = FailFastChecker.of(failFastRequest(null), null);
+        assertFalse(failFastChecker.isStopped());
+        assertNull(failFastChecker.getFailedIndex());
+
+        assertFalse(failFastChecker.check(0, accepted("1")));
+        assertTrue(failFastChecker.check(5, runtimeError()));
+        assertEquals(5, failFastChecker.getFailedIndex());
+        assertTrue(failFastChecker.check(2, runtimeError()));
+        assertEquals(2, failFastChecker.getFailedIndex());
+        assertTrue(failFastChecker.check(7, runtimeError()));
+        assertEquals(2, failFastChecker.getFailedIndex());
+        assertTrue(failFastChecker.isStopped());
+    }
+
+    @Test
+    void keepsSmallestFailedIndexUnderConcurrency() throws InterruptedException {
+        FailFastChecker failFastChecker = FailFastChecker.of(failFastRequest(null), null);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        // 倒序提交，序号大的用例先失败
+        IntStream.rangeClosed(3, 200).map(i -> 203 - i)
+                .forEach(i -> executorService.execute(() -> failFastChecker.check(i, runtimeError())));
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(3, failFastChecker.getFailedIndex());
+    }
+
+    @Test
+    void failsOnEveryAbnormalResult() {
+        FailFastChecker failFastChecker = FailFastChecker.of(failFastRequest(1024L), null);
+
+        ExecuteMessage timeout = accepted("1");
+        timeout.setTimeout(true);
+        assertTrue(failFastChecker.check(0, timeout));
+
+        ExecuteMessage outputLimitExceeded = accepted("1");
+        outputLimitExceeded.setOutputLimitExceeded(true);
+        assertTrue(failFastChecker.check(0, outputLimitExceeded));
+
+        assertTrue(failFastChecker.check(0, runtimeError()));
+
+        ExecuteMessage overMemory = accepted("1");
+        overMemory.setMemory(2048L);
+        assertTrue(failFastChecker.check(0, overMemory));
+
+        ExecuteMessage oomKilled = accepted("1");
+        oomKilled.setExitValue(137);
+        oomKilled.setMemoryLimitExceeded(true);
+        assertTrue(failFastChecker.isMemoryLimitExceeded(oomKilled));
+
+        ExecuteMessage withinMemory = accepted("1");
+        withinMemory.setMemory(1024L);
+        assertFalse(failFastChecker.check(0, withinMemory));
+    }
+
+    @Test
+    void comparesOutputWhenExpectedOutputGiven() {
+        ExecuteCodeRequest executeCodeRequest = failFastRequest(null);
+        executeCodeRequest.setExpectedOutputList(Arrays.asList("3", "7"));
+        FailFastChecker failFastChecker = FailFastChecker.of(executeCodeRequest,
+                OutputComparator.of(executeCodeRequest));
+
+        assertFalse(failFastChecker.check(0, accepted("3")));
+        assertTrue(failFastChecker.isWrongAnswer(1, accepted("8")));
+        assertTrue(failFastChecker.check(1, accepted("8")));
+        assertEquals(1, failFastChecker.getFailedIndex());
+        assertEquals(2, failFastChecker.getExpectedDigestList().size());
+    }
+
+    private static ExecuteCodeRequest failFastRequest(Long memoryLimit) {
+        ExecuteCodeRequest executeCodeRequest = new ExecuteCodeRequest();
+        executeCodeRequest.setFailFast(true);
+        executeCodeRequest.setMemoryLimit(memoryLimit);
+        return executeCodeRequest;
+    }
+
+    private static ExecuteMessage accepted(String output) {
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setExitValue(0);
+        executeMessage.setMessage(output);
+        return executeMessage;
+    }
+
+    private static ExecuteMessage runtimeError() {
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setExitValue(1);
+        executeMessage.setErrorMessage("Exception in thread \"main\"");
+        return executeMessage;
+    }
+}
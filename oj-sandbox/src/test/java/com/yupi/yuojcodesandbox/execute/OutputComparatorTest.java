@@ -0,0 +1,94 @@
+package com.yupi.yuojcodesandbox.execute;
+
+import com.yupi.yuojcodesandbox.model.ExecuteCodeRequest;
+import com.yupi.yuojcodesandbox.utils.BoundedOutputBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutputComparatorTest {
+
+    @Test
+    void noComparatorWithoutExpectedOutput() {
+        assertNull(OutputComparator.of(new ExecuteCodeRequest()));
+    }
+
+    @Test
+    void digestMatchesNormalizedProcessOutput() {
+        OutputComparator outputComparator = OutputComparator.of(expectedOutputs("1\n2", "a b", ""));
+        // 进程输出统一换行符、去掉末尾一个换行后再计算摘要
+        assertTrue(outputComparator.matches(0, OutputComparator.digest(normalize("1\r\n2\r\n"))));
+        assertTrue(outputComparator.matches(0, OutputComparator.digest(normalize("1\r2\n"))));
+        assertTrue(outputComparator.matches(1, OutputComparator.digest(normalize("a b\n"))));
+        assertTrue(outputComparator.matches(2, OutputComparator.digest(normalize("\n"))));
+        assertTrue(outputComparator.matches(2, OutputComparator.digest(null)));
+        // 只去掉一个换行，多余的空行、行尾空格仍算不同
+        assertFalse(outputComparator.matches(0, OutputComparator.digest(normalize("1\n2\n\n"))));
+        assertFalse(outputComparator.matches(1, OutputComparator.digest(normalize("a b \n"))));
+    }
+
+    @Test
+    void digestOnlyRequest() {
+        ExecuteCodeRequest executeCodeRequest = new ExecuteCodeRequest();
+        executeCodeRequest.setExpectedOutputDigestList(Collections.singletonList(
+                OutputComparator.digest("42").toUpperCase()));
+        OutputComparator outputComparator = OutputComparator.of(executeCodeRequest);
+
+        assertTrue(outputComparator.matches(0, OutputComparator.digest("42")));
+        assertFalse(outputComparator.matches(0, OutputComparator.digest("43")));
+        // 没有预期输出原文时不给出差异片段
+        assertNull(outputComparator.diff(0, "43"));
+    }
+
+    @Test
+    void caseWithoutExpectedOutputMatches() {
+        OutputComparator outputComparator = OutputComparator.of(expectedOutputs("1"));
+        assertTrue(outputComparator.matches(1, OutputComparator.digest("anything")));
+        assertNull(outputComparator.diff(1, "anything"));
+    }
+
+    @Test
+    void diffReportsLineAndColumn() {
+        OutputComparator outputComparator = OutputComparator.of(expectedOutputs("abc", "1 2\n3 4\n5 6", "12", "12"));
+
+        assertEquals("第 1 行第 3 列不同，预期：\"abc\"，实际：\"abd\"", outputComparator.diff(0, "abd"));
+        assertEquals("第 2 行第 3 列不同，预期：\"1 2\\n3 4\\n5 6\"，实际：\"1 2\\n3 5\\n5 6\"",
+                outputComparator.diff(1, "1 2\n3 5\n5 6"));
+        // 实际输出是预期输出的前缀，差异位置在实际输出末尾之后
+        assertEquals("第 1 行第 2 列不同，预期：\"12\"，实际：\"1\"", outputComparator.diff(2, "1"));
+        assertEquals("第 1 行第 1 列不同，预期：\"12\"，实际：\"\"", outputComparator.diff(3, null));
+    }
+
+    @Test
+    void diffExcerptIsBounded() {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            expected.append('x');
+        }
+        String actual = expected.substring(0, 50) + "y" + expected.substring(51);
+        OutputComparator outputComparator = OutputComparator.of(expectedOutputs(expected.toString()));
+
+        String diff = outputComparator.diff(0, actual);
+        assertTrue(diff.startsWith("第 1 行第 51 列不同"));
+        // 差异位置前后各保留 32 个字符
+        assertTrue(diff.endsWith("实际：\"..." + actual.substring(18, 82) + "...\""));
+    }
+
+    private static ExecuteCodeRequest expectedOutputs(String... expectedOutputs) {
+        ExecuteCodeRequest executeCodeRequest = new ExecuteCodeRequest();
+        executeCodeRequest.setExpectedOutputList(Arrays.asList(expectedOutputs));
+        return executeCodeRequest;
+    }
+
+    private static String normalize(String output) {
+        byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+        return BoundedOutputBuffer.normalize(bytes, bytes.length);
+    }
+}
@@ -0,0 +1,28 @@
+package com.yupi.yuojcodesandbox.harness;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringTokenizer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CaseHarnessTest {
+
+    /**
+     * 执行器拆出的参数与进程方式一致（Runtime.exec 使用 StringTokenizer 按空白拆分命令）
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"1 2", "", " ", "1  2", " 1 2 ", "1\t2", "1\n2\n", "多行\r\n输入", "a"})
+    void argsMatchProcessMode(String input) {
+        List<String> processArgs = new ArrayList<>();
+        StringTokenizer tokenizer = new StringTokenizer("java Main " + input);
+        while (tokenizer.hasMoreTokens()) {
+            processArgs.add(tokenizer.nextToken());
+        }
+        assertEquals(processArgs.subList(2, processArgs.size()), Arrays.asList(CaseHarness.toArgs(input)));
+    }
+}
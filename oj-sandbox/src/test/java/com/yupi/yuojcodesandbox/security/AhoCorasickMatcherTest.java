@@ -0,0 +1,57 @@
+package com.yupi.yuojcodesandbox.security;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+class AhoCorasickMatcherTest {
+
+    private static final List<String> PATTERNS = Arrays.asList("exec", "os.exec*", "open(", "io.open",
+            "Runtime.getRuntime", "<sys/socket.h>", "a.b.c", "b.c(");
+
+    private static final AhoCorasickMatcher MATCHER = new AhoCorasickMatcher(PATTERNS);
+
+    static Stream<Arguments> cases() {
+        return Stream.of(
+                // 标识符边界
+                arguments("exec x", "exec"),
+                arguments("y = exec", "exec"),
+                arguments("execute()", null),
+                arguments("myexec()", null),
+                arguments("exec_name", null),
+                arguments("$exec", null),
+                // 前缀模式
+                arguments("os.execv(path, args)", "os.exec*"),
+                arguments("os.execlp", "os.exec*"),
+                arguments("os.exec", "os.exec*"),
+                arguments("pos.execv()", null),
+                // 不含 . 的函数调用只匹配直接调用
+                arguments("f = open('a.txt')", "open("),
+                arguments("(open('a.txt'))", "open("),
+                arguments("f.open('a.txt')", null),
+                arguments("f. open('a.txt')", null),
+                arguments("reopen('a.txt')", null),
+                arguments("io.open('a.txt')", "io.open"),
+                // 以非标识符字符开头、结尾的模式
+                arguments("#include <sys/socket.h>", "<sys/socket.h>"),
+                arguments("Runtime.getRuntime().exec(cmd)", "Runtime.getRuntime"),
+                arguments("MyRuntime.getRuntime()", null),
+                // 失配指针：a.b. 之后失配，仍能找到 b.c(
+                arguments("x = a.b.d; b.c(1)", "b.c("),
+                arguments("x = a.b.c", "a.b.c"),
+                arguments("", null));
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases")
+    void findFirst(String text, String expected) {
+        assertEquals(expected, MATCHER.findFirst(text));
+    }
+}
@@ -0,0 +1,117 @@
+package com.yupi.yuojcodesandbox.security;
+
+import com.yupi.yuojcodesandbox.language.JavaLanguageRunner;
+import com.yupi.yuojcodesandbox.language.LanguageRunner;
+import com.yupi.yuojcodesandbox.language.PythonLanguageRunner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+/**
+ * 使用各语言默认的禁用标识符
+ */
+class CodePreScreenerTest {
+
+    private static final LanguageRunner JAVA = new JavaLanguageRunner();
+
+    private static final LanguageRunner PYTHON = new PythonLanguageRunner();
+
+    static Stream<Arguments> javaCases() {
+        return Stream.of(
+                arguments("Runtime.getRuntime().exec(\"ls\");", "Runtime.getRuntime"),
+                // 合并 . 和 ( 两侧的空白
+                arguments("Runtime . getRuntime ().exec(\"ls\");", "Runtime.getRuntime"),
+                arguments("Runtime\n        .getRuntime()\n        .exec(\"ls\");", "Runtime.getRuntime"),
+                arguments("new   File(\"a.txt\");", "new File"),
+                arguments("System.exit (0);", "System.exit"),
+                // 注释
+                arguments("// Runtime.getRuntime()\nint a = 1;", null),
+                arguments("/* System.exit(0); */ int a = 1;", null),
+                arguments("/* 未结束的注释 System.exit(0);", null),
+                // 字符串、字符字面量
+                arguments("System.out.println(\"Runtime.getRuntime\");", null),
+                arguments("System.out.println(\"\\\"System.exit\\\"\");", null),
+                arguments("char c = '\"'; System.exit(0);", "System.exit"),
+                arguments("String s = \"a\"; ProcessBuilder pb;", "ProcessBuilder"),
+                // 标识符边界
+                arguments("int mySocketCount = 0;", null),
+                arguments("int Files = 0;", null),
+                arguments("Files.readAllLines(path);", "Files."));
+    }
+
+    static Stream<Arguments> pythonCases() {
+        return Stream.of(
+                arguments("import os\nos.system('ls')", "os.system"),
+                arguments("os . system ('ls')", "os.system"),
+                arguments("os.execv('/bin/sh', [])", "os.exec*"),
+                arguments("os.execute_plan()", "os.exec*"),
+                arguments("f = open('a.txt')", "open("),
+                arguments("f = open ('a.txt')", "open("),
+                arguments("f.open('a.txt')", null),
+                arguments("import re\np = re.compile('a+')", null),
+                arguments("compile('1', 'x', 'eval')", "compile("),
+                arguments("exec('1')", "exec("),
+                arguments("executor = 1", null),
+                arguments("import builtins", "builtins"),
+                arguments("import io\nio.open('a.txt')", "io.open"),
+                // 注释
+                arguments("# os.system('ls')\nprint(1)", null),
+                arguments("print(1)  # exec('1')", null),
+                // 字符串字面量
+                arguments("print(\"exec\")", null),
+                arguments("print('os.system(\"ls\")')", null),
+                arguments("print(\"a\\\"exec(\")", null),
+                // 三引号字符串可以跨行，其中的引号不结束字符串
+                arguments("'''\nimport os\nos.system(\"ls\")\n'''\nprint(1)", null),
+                arguments("\"\"\"doc \" 'x' \"\"\"\nos.system('ls')", "os.system"),
+                arguments("s = \"\"\"exec('1')\"\"\"", null),
+                // 单引号字符串不跨行，换行后的代码仍然扫描
+                arguments("s = 'abc\nos.system('ls')", "os.system"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("javaCases")
+    void screenJava(String code, String expected) {
+        assertEquals(expected, newScreener(true).screen(JAVA, code));
+    }
+
+    @ParameterizedTest
+    @MethodSource("pythonCases")
+    void screenPython(String code, String expected) {
+        assertEquals(expected, newScreener(true).screen(PYTHON, code));
+    }
+
+    @Test
+    void keepLiterals() {
+        assertEquals("exec(", newScreener(false).screen(PYTHON, "print(\"exec('1')\")"));
+        assertNull(newScreener(true).screen(PYTHON, "print(\"exec('1')\")"));
+    }
+
+    @Test
+    void cachedBySource() {
+        CodePreScreener codePreScreener = newScreener(true);
+        assertEquals("os.system", codePreScreener.screen(PYTHON, "os.system('ls')"));
+        assertEquals("os.system", codePreScreener.screen(PYTHON, "os.system('ls')"));
+        assertNull(codePreScreener.screen(PYTHON, "print(1)"));
+        assertNull(codePreScreener.screen(PYTHON, "print(1)"));
+        assertEquals(2L, codePreScreener.getStats().get("scanCount"));
+        assertEquals(2L, codePreScreener.getStats().get("cacheHitCount"));
+        assertEquals(2L, codePreScreener.getStats().get("rejectCount"));
+    }
+
+    private static CodePreScreener newScreener(boolean stripLiterals) {
+        CodePreScreener codePreScreener = new CodePreScreener();
+        ReflectionTestUtils.setField(codePreScreener, "enabled", true);
+        ReflectionTestUtils.setField(codePreScreener, "stripLiterals", stripLiterals);
+        ReflectionTestUtils.setField(codePreScreener, "cacheSize", 100);
+        return codePreScreener;
+    }
+}